@@ -0,0 +1,60 @@
+package com.example.bankcards.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.encryption")
+public class EncryptionProperties {
+
+    /**
+     * Секрет шифротекстов прежнего формата (AES/ECB без идентификатора ключа).
+     * Используется только для расшифровки, пока повторное шифрование их не заменит.
+     */
+    private String key;
+
+    /**
+     * Ключ, которым шифруются новые данные.
+     */
+    private String activeKeyId;
+
+    /**
+     * Связка ключей: идентификатор — секрет. Ключ нельзя удалять, пока
+     * повторное шифрование не перевело все данные на другой.
+     */
+    private Map<String, String> keys = new LinkedHashMap<>();
+
+    /**
+     * Секрет HMAC, по которому карта ищется по номеру. Не ротируется:
+     * смена потребует пересчитать хэши всех карт.
+     */
+    private String hmacKey;
+
+    private Reencryption reencryption = new Reencryption();
+
+    @Data
+    public static class Reencryption {
+
+        private int chunkSize = 500;
+
+        /**
+         * 0 — по числу процессоров.
+         */
+        private int threads = 0;
+
+        /**
+         * Ограничение скорости, строк в секунду; 0 — без ограничения.
+         */
+        private int maxRowsPerSecond = 0;
+
+        /**
+         * Продолжить прерванное остановкой приложения задание при старте.
+         */
+        private boolean resumeOnStartup = true;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.bankcards.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.pagination")
+public class PaginationProperties {
+
+    private int defaultPageSize = 20;
+
+    /**
+     * Верхняя граница размера страницы; больший запрошенный размер урезается.
+     */
+    private int maxPageSize = 100;
+
+    /**
+     * Сколько живет кэшированное общее число строк для {@code total=APPROXIMATE}.
+     */
+    private Duration countCacheTtl = Duration.ofSeconds(30);
+
+    private long countCacheMaxSize = 10_000;
+
+    /**
+     * Начиная с этой оценки планировщика PostgreSQL точный COUNT не выполняется.
+     */
+    private long estimateThreshold = 10_000;
+
+    public int pageSize(Integer requested) {
+        if (requested == null) {
+            return defaultPageSize;
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(requested, maxPageSize);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.bankcards.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Максимальное число ключей (IP, пользователей) на одно правило.
+     */
+    private long maxKeys = 100_000;
+
+    private Map<String, Rule> rules = new LinkedHashMap<>();
+
+    @Data
+    public static class Rule {
+
+        /**
+         * HTTP-метод; пустое значение — любой метод.
+         */
+        private String method;
+
+        /**
+         * Префикс пути запроса.
+         */
+        private String path;
+
+        private KeyType key = KeyType.IP;
+
+        /**
+         * Размер всплеска: сколько запросов можно сделать подряд.
+         */
+        private int capacity;
+
+        /**
+         * За какое время бакет полностью восстанавливается.
+         */
+        private Duration period;
+    }
+
+    public enum KeyType {
+        /** Адрес клиента */
+        IP,
+        /** Имя пользователя: аутентифицированного или указанного при входе */
+        USER,
+        /**
+         * Имя пользователя вместе с адресом клиента: попытки входа с чужого IP
+         * не расходуют бакет владельца учетной записи
+         */
+        USER_IP,
+        /** Общий бакет на маршрут */
+        ROUTE
+    }
+}
@@ -1,12 +1,19 @@
 package com.example.bankcards.config;
 
+import com.example.bankcards.security.CalibratedBCryptPasswordEncoder;
 import com.example.bankcards.security.JwtAuthEntryPoint;
 import com.example.bankcards.security.JwtAuthTokenFilter;
+import com.example.bankcards.security.JwtTokenVerifier;
 import com.example.bankcards.security.JwtUtils;
+import com.example.bankcards.security.RateLimitFilter;
+import com.example.bankcards.security.RateLimiter;
+import com.example.bankcards.security.TokenRevocationRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
@@ -20,8 +27,8 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.AccessDeniedHandler;
@@ -31,6 +38,7 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -44,11 +52,27 @@ public class SecurityConfig {
 
     private final UserDetailsService userDetailsService;
     private final JwtAuthEntryPoint unauthorizedHandler;
+    private final JwtTokenVerifier jwtTokenVerifier;
     private final JwtUtils jwtUtils;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final UserDetailsPasswordService userDetailsPasswordService;
+    private final RateLimiter rateLimiter;
+
+    @Value("${app.security.bcrypt.strength:0}")
+    private int bcryptStrength;
+
+    @Value("${app.security.bcrypt.target-latency:PT0.25S}")
+    private Duration bcryptTargetLatency;
+
+    @Value("${app.security.bcrypt.min-strength:10}")
+    private int bcryptMinStrength;
+
+    @Value("${app.security.bcrypt.max-strength:14}")
+    private int bcryptMaxStrength;
 
     @Bean
     public JwtAuthTokenFilter authenticationJwtTokenFilter() {
-        return new JwtAuthTokenFilter(jwtUtils, userDetailsService);
+        return new JwtAuthTokenFilter(jwtTokenVerifier, jwtUtils, tokenRevocationRegistry);
     }
 
     @Bean
@@ -56,6 +80,8 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Перехэширует пароль при входе, если его стоимость отличается от текущей
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
@@ -66,7 +92,10 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        if (bcryptStrength > 0) {
+            return new CalibratedBCryptPasswordEncoder(bcryptStrength);
+        }
+        return CalibratedBCryptPasswordEncoder.calibrate(bcryptTargetLatency, bcryptMinStrength, bcryptMaxStrength);
     }
 
     @Bean
@@ -82,9 +111,17 @@ public class SecurityConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
                 .authorizeHttpRequests(auth -> auth
+                        // Асинхронная диспетчеризация завершает уже авторизованный запрос (потоковая выгрузка),
+                        // а JWT-фильтр на ней не выполняется
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Все публичные пути
                         .requestMatchers(PUBLIC_PATHS).permitAll()
 
+                        // Метрики раскрывают внутреннее состояние сервиса: только администратору
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+
                         // Переводы и карты требуют аутентификации
                         .requestMatchers("/transfers/**").authenticated()
                         .requestMatchers("/cards/**").authenticated()
@@ -96,6 +133,7 @@ public class SecurityConfig {
 
         http.authenticationProvider(authenticationProvider());
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(new RateLimitFilter(rateLimiter), JwtAuthTokenFilter.class);
 
         return http.build();
     }
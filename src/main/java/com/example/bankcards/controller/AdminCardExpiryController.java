@@ -0,0 +1,31 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.CardExpiryReport;
+import com.example.bankcards.service.CardExpiryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/card-expiry")
+@RequiredArgsConstructor
+@Tag(name = "Срок действия карт", description = "API для администратора")
+@SecurityRequirement(name = "bearerAuth")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminCardExpiryController {
+
+    private final CardExpiryService cardExpiryService;
+
+    @GetMapping
+    @Operation(summary = "Отчет последнего прохода по сроку действия",
+            description = "Контрольная точка, число просроченных карт и карт, истекающих в ближайшие дни")
+    public ResponseEntity<CardExpiryReport> getLatestReport() {
+        return ResponseEntity.of(cardExpiryService.latestReport());
+    }
+}
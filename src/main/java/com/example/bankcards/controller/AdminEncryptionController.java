@@ -0,0 +1,43 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.ReencryptionStatusResponse;
+import com.example.bankcards.service.CardReencryptionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/encryption")
+@RequiredArgsConstructor
+@Tag(name = "Управление ключами шифрования", description = "API для администратора")
+@SecurityRequirement(name = "bearerAuth")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminEncryptionController {
+
+    private final CardReencryptionService cardReencryptionService;
+
+    @PostMapping("/reencryption")
+    @Operation(summary = "Перешифровать карты активным ключом",
+            description = "Запускает фоновое задание или продолжает остановленное с контрольной точки; "
+                    + "для задания в статусе INCOMPLETE повторяет карты, которые не удалось перешифровать")
+    public ResponseEntity<ReencryptionStatusResponse> startReencryption() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(cardReencryptionService.start());
+    }
+
+    @GetMapping("/reencryption")
+    @Operation(summary = "Состояние перешифровки", description = "Прогресс, счетчики и скорость последнего задания")
+    public ResponseEntity<ReencryptionStatusResponse> getReencryptionStatus() {
+        return ResponseEntity.of(cardReencryptionService.status());
+    }
+
+    @DeleteMapping("/reencryption")
+    @Operation(summary = "Приостановить перешифровку")
+    public ResponseEntity<ReencryptionStatusResponse> pauseReencryption() {
+        return ResponseEntity.of(cardReencryptionService.pause());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.service.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/admin/export")
+@RequiredArgsConstructor
+@Tag(name = "Выгрузка", description = "API для администратора")
+@SecurityRequirement(name = "bearerAuth")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+    private final ExportService exportService;
+
+    @GetMapping("/cards")
+    @Operation(summary = "Выгрузить карты",
+            description = "Все карты по возрастанию id потоком NDJSON или CSV. Фильтры: статус, владелец, "
+                    + "даты выпуска from и to включительно")
+    public ResponseEntity<StreamingResponseBody> exportCards(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam(required = false) Long ownerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        return stream("cards", format,
+                out -> exportService.exportCards(format, status, ownerId, from, to, out));
+    }
+
+    @GetMapping("/transfers")
+    @Operation(summary = "Выгрузить переводы",
+            description = "Все переводы по возрастанию id потоком NDJSON или CSV. Фильтры: статус, владелец карты "
+                    + "отправителя или получателя, даты перевода from и to включительно")
+    public ResponseEntity<StreamingResponseBody> exportTransfers(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) TransferStatus status,
+            @RequestParam(required = false) Long ownerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        return stream("transfers", format,
+                out -> exportService.exportTransfers(format, status, ownerId, from, to, out));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> stream(String name, ExportFormat format,
+                                                                StreamingResponseBody body) {
+        boolean csv = format == ExportFormat.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + (csv ? ".csv" : ".ndjson"))
+                        .build().toString())
+                .body(body);
+    }
+}
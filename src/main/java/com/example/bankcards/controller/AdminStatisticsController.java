@@ -0,0 +1,31 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.CardStatisticsReport;
+import com.example.bankcards.service.CardStatistics;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/stats")
+@RequiredArgsConstructor
+@Tag(name = "Статистика", description = "API для администратора")
+@SecurityRequirement(name = "bearerAuth")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminStatisticsController {
+
+    private final CardStatistics cardStatistics;
+
+    @GetMapping
+    @Operation(summary = "Статистика по картам",
+            description = "Число карт и сумма балансов по статусам, ожидающие запросы на блокировку")
+    public ResponseEntity<CardStatisticsReport> getStatistics() {
+        return ResponseEntity.ok(cardStatistics.report());
+    }
+}
@@ -1,7 +1,13 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.config.PaginationProperties;
+import com.example.bankcards.dto.CardBulkStatusReport;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.UserImportReport;
 import com.example.bankcards.dto.UserResponse;
+import com.example.bankcards.service.UserImportService;
 import com.example.bankcards.service.UserService;
+import com.example.bankcards.util.PageRequests;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -9,9 +15,16 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/admin/users")
@@ -21,20 +34,61 @@ import org.springframework.web.bind.annotation.*;
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminUserController {
 
+    private static final Set<String> USERS_SORT = Set.of("id", "username", "email");
+
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final PaginationProperties paginationProperties;
 
     @GetMapping
     @Operation(summary = "Получить всех пользователей")
     public ResponseEntity<Page<UserResponse>> getAllUsers(
             @PageableDefault(size = 20) Pageable pageable) {
-        return ResponseEntity.ok(userService.getAllUsers(pageable));
+        return ResponseEntity.ok(userService.getAllUsers(PageRequests.requireSortable(pageable, USERS_SORT)));
+    }
+
+    @GetMapping(params = "cursor")
+    @Operation(summary = "Получить всех пользователей по курсору", description = "Параметр cursor включает выдачу по курсору: без подсчета общего числа, первая страница — пустой cursor, следующая — nextCursor из ответа")
+    public ResponseEntity<CursorPage<UserResponse>> scrollUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(userService.scrollUsers(cursor, paginationProperties.pageSize(size)));
+    }
+
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    @Operation(summary = "Массовый импорт пользователей",
+            description = "NDJSON: по одному объекту {username, password, email, fullName} на строку. "
+                    + "Ставит фоновое задание и возвращает его id; результат по каждой строке — "
+                    + "в GET /admin/users/import/{jobId}")
+    public ResponseEntity<UserImportReport> importUsers(InputStream body) throws IOException {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(userImportService.submit(body));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Массовый импорт пользователей из файла",
+            description = "Файл в формате NDJSON, выполняется фоновым заданием")
+    public ResponseEntity<UserImportReport> importUsersFromFile(@RequestPart("file") MultipartFile file)
+            throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(userImportService.submit(input));
+        }
+    }
+
+    @GetMapping("/import/{jobId}")
+    @Operation(summary = "Состояние импорта пользователей",
+            description = "Прогресс выполняемого задания или итоговый отчет с результатом по каждой строке")
+    public ResponseEntity<UserImportReport> getImportStatus(@PathVariable String jobId) {
+        return ResponseEntity.of(userImportService.status(jobId));
     }
 
     @PostMapping("/{userId}/block")
-    @Operation(summary = "Заблокировать пользователя")
-    public ResponseEntity<Void> blockUser(@PathVariable Long userId) {
-        userService.blockUser(userId);
-        return ResponseEntity.ok().build();
+    @Operation(summary = "Заблокировать пользователя",
+            description = "С blockCards=true в той же транзакции блокируются все карты пользователя, "
+                    + "в ответе — результат по каждой карте")
+    public ResponseEntity<CardBulkStatusReport> blockUser(@PathVariable Long userId,
+                                                          @RequestParam(defaultValue = "false") boolean blockCards) {
+        CardBulkStatusReport cards = userService.blockUser(userId, blockCards);
+        return cards != null ? ResponseEntity.ok(cards) : ResponseEntity.ok().build();
     }
 
     @PostMapping("/{userId}/activate")
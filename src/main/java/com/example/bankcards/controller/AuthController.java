@@ -2,15 +2,19 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.JwtResponse;
 import com.example.bankcards.dto.LoginRequest;
+import com.example.bankcards.dto.RefreshTokenRequest;
 import com.example.bankcards.dto.RegisterRequest;
 import com.example.bankcards.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -20,12 +24,15 @@ import org.springframework.web.bind.annotation.RestController;
 @Tag(name = "Аутентификация", description = "API для аутентификации и регистрации")
 public class AuthController {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     private final AuthService authService;
 
     @PostMapping("/login")
     @Operation(summary = "Вход в систему", description = "Аутентификация пользователя и получение JWT токена")
-    public ResponseEntity<JwtResponse> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-        JwtResponse response = authService.authenticateUser(loginRequest);
+    public ResponseEntity<JwtResponse> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+                                                        HttpServletRequest request) {
+        JwtResponse response = authService.authenticateUser(loginRequest, request.getRemoteAddr());
         return ResponseEntity.ok(response);
     }
 
@@ -36,4 +43,23 @@ public class AuthController {
                 request.getEmail(), request.getFullName());
         return ResponseEntity.ok("User registered successfully");
     }
+
+    @PostMapping("/refresh")
+    @Operation(summary = "Обновление токена", description = "Обмен refresh-токена на новую пару access и refresh токенов")
+    public ResponseEntity<JwtResponse> refreshToken(@Valid @RequestBody RefreshTokenRequest request) {
+        return ResponseEntity.ok(authService.refreshToken(request.getRefreshToken()));
+    }
+
+    @PostMapping("/logout")
+    @Operation(summary = "Выход из системы",
+            description = "Отзыв refresh-токена со всей цепочкой ротаций и текущего access-токена")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshTokenRequest request,
+                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false)
+                                       String authorization) {
+        String accessToken = authorization != null && authorization.startsWith(BEARER_PREFIX)
+                ? authorization.substring(BEARER_PREFIX.length())
+                : null;
+        authService.logout(request.getRefreshToken(), accessToken);
+        return ResponseEntity.noContent().build();
+    }
 }
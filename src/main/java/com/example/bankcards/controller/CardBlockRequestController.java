@@ -1,12 +1,16 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.config.PaginationProperties;
 import com.example.bankcards.dto.CardBlockRequestCreateRequest;
 import com.example.bankcards.dto.CardBlockRequestResponse;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.SlicePage;
+import com.example.bankcards.dto.TotalMode;
 import com.example.bankcards.entity.BlockRequestStatus;
-import com.example.bankcards.entity.User;
-import com.example.bankcards.exception.UserNotFoundException;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.CurrentUser;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.util.PageRequests;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -17,9 +21,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Set;
+
 @RestController
 @RequestMapping("/card-block-requests")
 @RequiredArgsConstructor
@@ -27,21 +32,16 @@ import org.springframework.web.bind.annotation.*;
 @SecurityRequirement(name = "bearerAuth")
 public class CardBlockRequestController {
 
-    private final CardService cardService;
-    private final UserRepository userRepository;
+    private static final Set<String> BLOCK_REQUESTS_SORT = Set.of("id", "requestedAt", "status");
 
-    private User getCurrentUser() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
-    }
+    private final CardService cardService;
+    private final PaginationProperties paginationProperties;
 
     @PostMapping
     @Operation(summary = "Создать запрос на блокировку карты")
     public ResponseEntity<CardBlockRequestResponse> createBlockRequest(
-            @Valid @RequestBody CardBlockRequestCreateRequest request) {
-
-        User currentUser = getCurrentUser();
+            @Valid @RequestBody CardBlockRequestCreateRequest request,
+            @CurrentUser AuthenticatedUser currentUser) {
 
         CardBlockRequestResponse response = cardService.requestCardBlock(
                 request.getCardId(),
@@ -54,13 +54,12 @@ public class CardBlockRequestController {
     @GetMapping("/my")
     @Operation(summary = "Получить мои запросы на блокировку")
     public ResponseEntity<Page<CardBlockRequestResponse>> getMyBlockRequests(
+            @CurrentUser AuthenticatedUser currentUser,
             @PageableDefault(size = 20) Pageable pageable) {
 
-        User currentUser = getCurrentUser();
-
         Page<CardBlockRequestResponse> requests = cardService.getUserBlockRequests(
                 currentUser.getId(),
-                pageable);
+                PageRequests.requireSortable(pageable, BLOCK_REQUESTS_SORT));
 
         return ResponseEntity.ok(requests);
     }
@@ -68,9 +67,8 @@ public class CardBlockRequestController {
     @PostMapping("/{requestId}/cancel")
     @Operation(summary = "Отменить свой запрос на блокировку")
     public ResponseEntity<CardBlockRequestResponse> cancelBlockRequest(
-            @PathVariable Long requestId) {
-
-        User currentUser = getCurrentUser();
+            @PathVariable Long requestId,
+            @CurrentUser AuthenticatedUser currentUser) {
 
         CardBlockRequestResponse response = cardService.cancelBlockRequest(
                 requestId,
@@ -85,10 +83,22 @@ public class CardBlockRequestController {
     public ResponseEntity<Page<CardBlockRequestResponse>> getAllBlockRequests(
             @PageableDefault(size = 20) Pageable pageable) {
 
-        Page<CardBlockRequestResponse> requests = cardService.getAllBlockRequests(pageable);
+        Page<CardBlockRequestResponse> requests = cardService.getAllBlockRequests(
+                PageRequests.requireSortable(pageable, BLOCK_REQUESTS_SORT));
         return ResponseEntity.ok(requests);
     }
 
+    @GetMapping(params = "cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Получить все запросы на блокировку по курсору",
+            description = "Только для администратора. В порядке подачи. Параметр cursor включает выдачу по курсору: без подсчета общего числа, первая страница — пустой cursor, следующая — nextCursor из ответа")
+    public ResponseEntity<CursorPage<CardBlockRequestResponse>> scrollAllBlockRequests(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+
+        return ResponseEntity.ok(cardService.scrollBlockRequests(null, cursor, paginationProperties.pageSize(size)));
+    }
+
     @GetMapping("/status/{status}")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Получить запросы по статусу", description = "Только для администратора")
@@ -96,19 +106,44 @@ public class CardBlockRequestController {
             @PathVariable BlockRequestStatus status,
             @PageableDefault(size = 20) Pageable pageable) {
 
-        Page<CardBlockRequestResponse> requests = cardService.getBlockRequestsByStatus(status, pageable);
+        Page<CardBlockRequestResponse> requests = cardService.getBlockRequestsByStatus(status,
+                PageRequests.requireSortable(pageable, BLOCK_REQUESTS_SORT));
         return ResponseEntity.ok(requests);
     }
 
+    @GetMapping(value = "/status/{status}", params = {"total", "!cursor"})
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Получить запросы по статусу без подсчета", description = "Только для администратора. Параметр total включает чтение страницы без обязательного COUNT: NONE — без общего числа, APPROXIMATE — кэшированное число или оценка (totalApproximate=true), EXACT — точный подсчет")
+    public ResponseEntity<SlicePage<CardBlockRequestResponse>> sliceBlockRequestsByStatus(
+            @PathVariable BlockRequestStatus status,
+            @RequestParam TotalMode total,
+            @PageableDefault(size = 20) Pageable pageable) {
+
+        return ResponseEntity.ok(cardService.sliceBlockRequestsByStatus(status,
+                PageRequests.requireSortable(pageable, BLOCK_REQUESTS_SORT), total));
+    }
+
+    @GetMapping(value = "/status/{status}", params = "cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Получить запросы по статусу по курсору",
+            description = "Только для администратора. В порядке подачи. Параметр cursor включает выдачу по курсору: без подсчета общего числа, первая страница — пустой cursor, следующая — nextCursor из ответа")
+    public ResponseEntity<CursorPage<CardBlockRequestResponse>> scrollBlockRequestsByStatus(
+            @PathVariable BlockRequestStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+
+        return ResponseEntity.ok(cardService.scrollBlockRequests(status, cursor, paginationProperties.pageSize(size)));
+    }
+
     @PostMapping("/{requestId}/approve")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Одобрить запрос на блокировку", description = "Только для администратора")
     public ResponseEntity<CardBlockRequestResponse> approveBlockRequest(
             @PathVariable Long requestId,
-            @RequestParam(required = false) String adminComment) {
+            @RequestParam(required = false) String adminComment,
+            @CurrentUser AuthenticatedUser currentUser) {
 
-        User currentAdmin = getCurrentUser();
-        CardBlockRequestResponse response = cardService.approveBlockRequest(requestId, adminComment, currentAdmin.getId());
+        CardBlockRequestResponse response = cardService.approveBlockRequest(requestId, adminComment, currentUser);
         return ResponseEntity.ok(response);
     }
 
@@ -117,10 +152,10 @@ public class CardBlockRequestController {
     @Operation(summary = "Отклонить запрос на блокировку", description = "Только для администратора")
     public ResponseEntity<CardBlockRequestResponse> rejectBlockRequest(
             @PathVariable Long requestId,
-            @RequestParam(required = false) String adminComment) {
+            @RequestParam(required = false) String adminComment,
+            @CurrentUser AuthenticatedUser currentUser) {
 
-        User currentAdmin = getCurrentUser();
-        CardBlockRequestResponse response = cardService.rejectBlockRequest(requestId, adminComment, currentAdmin.getId());
+        CardBlockRequestResponse response = cardService.rejectBlockRequest(requestId, adminComment, currentUser);
         return ResponseEntity.ok(response);
     }
 }
\ No newline at end of file
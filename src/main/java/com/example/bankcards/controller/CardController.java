@@ -1,12 +1,22 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.config.PaginationProperties;
+import com.example.bankcards.dto.CardBalance;
+import com.example.bankcards.dto.CardBulkStatusReport;
+import com.example.bankcards.dto.CardBulkStatusRequest;
 import com.example.bankcards.dto.CardCreateRequest;
+import com.example.bankcards.dto.CardImportReport;
 import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.SlicePage;
+import com.example.bankcards.dto.TotalMode;
 import com.example.bankcards.entity.CardStatus;
-import com.example.bankcards.entity.User;
-import com.example.bankcards.exception.UserNotFoundException;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.service.CardBulkStatusService;
+import com.example.bankcards.service.CardImportService;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.util.PageRequests;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -17,10 +27,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/cards")
@@ -29,14 +41,14 @@ import java.math.BigDecimal;
 @SecurityRequirement(name = "bearerAuth")
 public class CardController {
 
-    private final CardService cardService;
-    private final UserRepository userRepository;
+    private static final Set<String> ALL_CARDS_SORT = Set.of("id", "status");
+    private static final Set<String> USER_CARDS_SORT = Set.of("id");
+    private static final String BALANCE_VERSION_HEADER = "X-Balance-Version";
 
-    private User getCurrentUser() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
-    }
+    private final CardService cardService;
+    private final CardImportService cardImportService;
+    private final CardBulkStatusService cardBulkStatusService;
+    private final PaginationProperties paginationProperties;
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -46,40 +58,97 @@ public class CardController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Массовый выпуск карт",
+            description = "NDJSON: по одному объекту в формате POST /cards на строку. Возвращает результат по каждой строке")
+    public ResponseEntity<CardImportReport> importCards(InputStream body) throws IOException {
+        return ResponseEntity.ok(cardImportService.importCards(body));
+    }
+
     @GetMapping("/{id}/balance")
-    @Operation(summary = "Получить баланс карты")
-    public ResponseEntity<BigDecimal> getCardBalance(@PathVariable Long id) {
-        User currentUser = getCurrentUser();
-        BigDecimal balance = cardService.getCardBalance(id, currentUser.getId());
-        return ResponseEntity.ok(balance);
+    @Operation(summary = "Получить баланс карты",
+            description = "Версия баланса — в заголовке X-Balance-Version; с этим заголовком в запросе "
+                    + "вернется баланс не старше указанной версии")
+    public ResponseEntity<BigDecimal> getCardBalance(@PathVariable Long id,
+                                                     @RequestHeader(value = BALANCE_VERSION_HEADER, required = false)
+                                                     Long minVersion,
+                                                     @CurrentUser AuthenticatedUser currentUser) {
+        CardBalance balance = cardService.getCardBalance(id, currentUser, minVersion != null ? minVersion : 0L);
+        return ResponseEntity.ok()
+                .header(BALANCE_VERSION_HEADER, String.valueOf(balance.version()))
+                .body(balance.balance());
     }
 
     @GetMapping("/my")
     @Operation(summary = "Получить карты текущего пользователя")
     public ResponseEntity<Page<CardResponse>> getUserCards(
+            @CurrentUser AuthenticatedUser currentUser,
             @PageableDefault(size = 20) Pageable pageable) {
 
-        User currentUser = getCurrentUser();
-
-        Page<CardResponse> cards = cardService.getUserCards(currentUser.getId(), pageable);
+        Page<CardResponse> cards = cardService.getUserCards(currentUser.getId(),
+                PageRequests.requireSortable(pageable, USER_CARDS_SORT));
         return ResponseEntity.ok(cards);
     }
 
+    @GetMapping(value = "/my", params = {"total", "!cursor"})
+    @Operation(summary = "Получить карты текущего пользователя без подсчета", description = "Параметр total включает чтение страницы без обязательного COUNT: NONE — без общего числа, APPROXIMATE — кэшированное число или оценка (totalApproximate=true), EXACT — точный подсчет")
+    public ResponseEntity<SlicePage<CardResponse>> sliceUserCards(
+            @CurrentUser AuthenticatedUser currentUser,
+            @RequestParam TotalMode total,
+            @PageableDefault(size = 20) Pageable pageable) {
+
+        return ResponseEntity.ok(cardService.sliceUserCards(currentUser.getId(),
+                PageRequests.requireSortable(pageable, USER_CARDS_SORT), total));
+    }
+
+    @GetMapping(value = "/my", params = "cursor")
+    @Operation(summary = "Получить карты текущего пользователя по курсору", description = "Параметр cursor включает выдачу по курсору: без подсчета общего числа, первая страница — пустой cursor, следующая — nextCursor из ответа")
+    public ResponseEntity<CursorPage<CardResponse>> scrollUserCards(
+            @CurrentUser AuthenticatedUser currentUser,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+
+        return ResponseEntity.ok(cardService.scrollUserCards(currentUser.getId(), cursor,
+                paginationProperties.pageSize(size)));
+    }
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Получить все карты", description = "Только для администратора")
     public ResponseEntity<Page<CardResponse>> getAllCards(
             @PageableDefault(size = 20) Pageable pageable) {
 
-        Page<CardResponse> cards = cardService.getAllCards(pageable);
+        Page<CardResponse> cards = cardService.getAllCards(PageRequests.requireSortable(pageable, ALL_CARDS_SORT));
         return ResponseEntity.ok(cards);
     }
 
+    @GetMapping(params = "cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Получить все карты по курсору", description = "Только для администратора. Параметр cursor включает выдачу по курсору: без подсчета общего числа, первая страница — пустой cursor, следующая — nextCursor из ответа")
+    public ResponseEntity<CursorPage<CardResponse>> scrollAllCards(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+
+        return ResponseEntity.ok(cardService.scrollAllCards(cursor, paginationProperties.pageSize(size)));
+    }
+
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Поиск по всем картам", description = "Только для администратора. Подстрока (от 3 символов) в имени держателя или последних 4 цифрах, по возрастанию id; следующая страница — cursor=nextCursor из ответа")
+    public ResponseEntity<CursorPage<CardResponse>> searchAllCards(
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+
+        return ResponseEntity.ok(cardService.searchAllCards(query, cursor, paginationProperties.pageSize(size)));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Получить карту по ID")
-    public ResponseEntity<CardResponse> getCardById(@PathVariable Long id) {
-        User currentUser = getCurrentUser();
-        CardResponse card = cardService.getCardById(id, currentUser.getId());
+    public ResponseEntity<CardResponse> getCardById(@PathVariable Long id,
+                                                    @CurrentUser AuthenticatedUser currentUser) {
+        CardResponse card = cardService.getCardById(id, currentUser);
         return ResponseEntity.ok(card);
     }
 
@@ -99,6 +168,24 @@ public class CardController {
         return ResponseEntity.ok(card);
     }
 
+    @PutMapping("/bulk/block")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Заблокировать карты списком",
+            description = "Только для администратора. Отбор по ids, ownerId и датам выпуска createdFrom/createdTo "
+                    + "(условия через AND). Истекшие и уже заблокированные карты пропускаются; результат по каждой карте")
+    public ResponseEntity<CardBulkStatusReport> blockCards(@RequestBody CardBulkStatusRequest request) {
+        return ResponseEntity.ok(cardBulkStatusService.blockCards(request));
+    }
+
+    @PutMapping("/bulk/activate")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Активировать карты списком",
+            description = "Только для администратора. Отбор как у /cards/bulk/block. Истекшие и уже активные "
+                    + "карты пропускаются; результат по каждой карте")
+    public ResponseEntity<CardBulkStatusReport> activateCards(@RequestBody CardBulkStatusRequest request) {
+        return ResponseEntity.ok(cardBulkStatusService.activateCards(request));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Удалить карту", description = "Только для администратора")
@@ -111,11 +198,11 @@ public class CardController {
     @Operation(summary = "Поиск карт текущего пользователя")
     public ResponseEntity<Page<CardResponse>> searchCards(
             @RequestParam String query,
+            @CurrentUser AuthenticatedUser currentUser,
             @PageableDefault(size = 20) Pageable pageable) {
 
-        User currentUser = getCurrentUser();
-
-        Page<CardResponse> cards = cardService.searchUserCards(currentUser.getId(), query, pageable);
+        Page<CardResponse> cards = cardService.searchUserCards(currentUser.getId(), query,
+                PageRequests.requireSortable(pageable, USER_CARDS_SORT));
         return ResponseEntity.ok(cards);
     }
 
@@ -123,10 +210,11 @@ public class CardController {
     @Operation(summary = "Фильтрация карт по статусу")
     public ResponseEntity<Page<CardResponse>> filterCards(
             @RequestParam(required = false) CardStatus status,
+            @CurrentUser AuthenticatedUser currentUser,
             @PageableDefault(size = 20) Pageable pageable) {
 
-        User currentUser = getCurrentUser();
-        Page<CardResponse> cards = cardService.filterUserCards(currentUser.getId(), status, pageable);
+        Page<CardResponse> cards = cardService.filterUserCards(currentUser.getId(), status,
+                PageRequests.requireSortable(pageable, USER_CARDS_SORT));
         return ResponseEntity.ok(cards);
     }
 }
\ No newline at end of file
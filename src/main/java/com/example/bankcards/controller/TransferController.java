@@ -1,11 +1,15 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.config.PaginationProperties;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.SlicePage;
+import com.example.bankcards.dto.TotalMode;
 import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.dto.TransferResponse;
-import com.example.bankcards.entity.User;
-import com.example.bankcards.exception.UserNotFoundException;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.CurrentUser;
 import com.example.bankcards.service.TransferService;
+import com.example.bankcards.util.PageRequests;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -15,9 +19,10 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Set;
+
 @RestController
 @RequestMapping("/transfers")
 @RequiredArgsConstructor
@@ -25,42 +30,70 @@ import org.springframework.web.bind.annotation.*;
 @SecurityRequirement(name = "bearerAuth")
 public class TransferController {
 
-    private final TransferService transferService;
-    private final UserRepository userRepository;
+    private static final Set<String> TRANSFERS_SORT = Set.of("id", "transferDate");
 
-    private User getCurrentUser() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
-    }
+    private final TransferService transferService;
+    private final PaginationProperties paginationProperties;
 
     @PostMapping
     @Operation(summary = "Создать перевод между своими картами")
     public ResponseEntity<TransferResponse> createTransfer(
-            @Valid @RequestBody TransferRequest request) {
-
-        User currentUser = getCurrentUser();
+            @Valid @RequestBody TransferRequest request,
+            @CurrentUser AuthenticatedUser currentUser) {
 
         TransferResponse response = transferService.transferBetweenOwnCards(request, currentUser.getId());
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/p2p")
+    @Operation(summary = "Перевести на карту другого пользователя",
+            description = "Карта получателя задается номером; отменить такой перевод нельзя")
+    public ResponseEntity<TransferResponse> createP2PTransfer(
+            @Valid @RequestBody TransferRequest request,
+            @CurrentUser AuthenticatedUser currentUser) {
+
+        TransferResponse response = transferService.transferToCard(request, currentUser.getId());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/my")
     @Operation(summary = "Получить переводы текущего пользователя")
     public ResponseEntity<Page<TransferResponse>> getUserTransfers(
+            @CurrentUser AuthenticatedUser currentUser,
             @PageableDefault(size = 20) Pageable pageable) {
 
-        User currentUser = getCurrentUser();
-
-        Page<TransferResponse> transfers = transferService.getUserTransfers(currentUser.getId(), pageable);
+        Page<TransferResponse> transfers = transferService.getUserTransfers(currentUser.getId(),
+                PageRequests.requireSortable(pageable, TRANSFERS_SORT));
         return ResponseEntity.ok(transfers);
     }
 
+    @GetMapping(value = "/my", params = {"total", "!cursor"})
+    @Operation(summary = "Получить переводы текущего пользователя без подсчета", description = "Параметр total включает чтение страницы без обязательного COUNT: NONE — без общего числа, APPROXIMATE — кэшированное число или оценка (totalApproximate=true), EXACT — точный подсчет")
+    public ResponseEntity<SlicePage<TransferResponse>> sliceUserTransfers(
+            @CurrentUser AuthenticatedUser currentUser,
+            @RequestParam TotalMode total,
+            @PageableDefault(size = 20) Pageable pageable) {
+
+        return ResponseEntity.ok(transferService.sliceUserTransfers(currentUser.getId(),
+                PageRequests.requireSortable(pageable, TRANSFERS_SORT), total));
+    }
+
+    @GetMapping(value = "/my", params = "cursor")
+    @Operation(summary = "Получить переводы текущего пользователя по курсору",
+            description = "От новых к старым. Параметр cursor включает выдачу по курсору: без подсчета общего числа, первая страница — пустой cursor, следующая — nextCursor из ответа")
+    public ResponseEntity<CursorPage<TransferResponse>> scrollUserTransfers(
+            @CurrentUser AuthenticatedUser currentUser,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+
+        return ResponseEntity.ok(transferService.scrollUserTransfers(currentUser.getId(), cursor,
+                paginationProperties.pageSize(size)));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Получить перевод по ID")
-    public ResponseEntity<TransferResponse> getTransferById(@PathVariable Long id) {
-
-        User currentUser = getCurrentUser();
+    public ResponseEntity<TransferResponse> getTransferById(@PathVariable Long id,
+                                                            @CurrentUser AuthenticatedUser currentUser) {
 
         TransferResponse transfer = transferService.getTransferById(id, currentUser.getId());
         return ResponseEntity.ok(transfer);
@@ -68,9 +101,8 @@ public class TransferController {
 
     @PutMapping("/{id}/cancel")
     @Operation(summary = "Отменить перевод")
-    public ResponseEntity<Void> cancelTransfer(@PathVariable Long id) {
-
-        User currentUser = getCurrentUser();
+    public ResponseEntity<Void> cancelTransfer(@PathVariable Long id,
+                                               @CurrentUser AuthenticatedUser currentUser) {
 
         transferService.cancelTransfer(id, currentUser.getId());
         return ResponseEntity.noContent().build();
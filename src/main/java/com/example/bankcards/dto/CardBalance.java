@@ -0,0 +1,15 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.Card;
+
+import java.math.BigDecimal;
+
+/**
+ * Баланс карты с владельцем для проверки доступа и версией баланса.
+ */
+public record CardBalance(Long cardId, BigDecimal balance, Long ownerId, long version) {
+
+    public static CardBalance from(Card card) {
+        return new CardBalance(card.getId(), card.getBalance(), card.getOwner().getId(), card.getBalanceVersion());
+    }
+}
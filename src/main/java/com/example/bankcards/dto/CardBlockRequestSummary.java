@@ -0,0 +1,23 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.BlockRequestStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Поля запроса на блокировку для списков: читаются одним запросом, без
+ * сущностей пользователей с их ролями.
+ */
+public record CardBlockRequestSummary(Long id,
+                                      Long cardId,
+                                      String cardNumberLastFour,
+                                      Long requestedById,
+                                      String requestedByUsername,
+                                      String reason,
+                                      BlockRequestStatus status,
+                                      Long processedById,
+                                      String processedByUsername,
+                                      String adminComment,
+                                      LocalDateTime requestedAt,
+                                      LocalDateTime processedAt) {
+}
@@ -0,0 +1,23 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBulkStatusReport {
+    private CardStatus targetStatus;
+    private int total;
+    private int updated;
+    private int alreadyInStatus;
+    private int expired;
+    private int notFound;
+    private List<CardBulkStatusResult> results;
+}
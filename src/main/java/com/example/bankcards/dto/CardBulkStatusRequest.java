@@ -0,0 +1,32 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Отбор карт для массовой смены статуса: заданные условия объединяются через AND,
+ * хотя бы одно обязательно. Пустой список ids не отбирает ни одной карты.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBulkStatusRequest {
+
+    private List<Long> ids;
+
+    private Long ownerId;
+
+    /** Дата выпуска, включительно */
+    private LocalDate createdFrom;
+
+    /** Дата выпуска, включительно */
+    private LocalDate createdTo;
+
+    public static CardBulkStatusRequest byOwner(Long ownerId) {
+        return new CardBulkStatusRequest(null, ownerId, null, null);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBulkStatusResult {
+
+    public enum Outcome {
+        UPDATED,
+        ALREADY_IN_STATUS,
+        EXPIRED,
+        NOT_FOUND
+    }
+
+    private Long cardId;
+    private Outcome outcome;
+}
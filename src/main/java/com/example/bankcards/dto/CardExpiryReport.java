@@ -0,0 +1,29 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardExpiryRunStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardExpiryReport {
+    private Long runId;
+    private LocalDate runDate;
+    private CardExpiryRunStatus status;
+    private LocalDate lastExpirationDate;
+    private long lastCardId;
+    /** Просмотрено карт: просроченные и истекающие в ближайшие дни */
+    private long scanned;
+    private long expired;
+    private long expiringSoon;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
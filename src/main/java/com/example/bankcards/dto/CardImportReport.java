@@ -0,0 +1,22 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardImportReport {
+    private int total;
+    private int created;
+    private int duplicates;
+    private int invalid;
+    private long durationMs;
+    private double rowsPerSecond;
+    private List<CardImportRowResult> rows;
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardStatisticsReport {
+    private Map<CardStatus, Long> cardsByStatus;
+    private Map<CardStatus, BigDecimal> balanceByStatus;
+    private long totalCards;
+    private BigDecimal totalBalance;
+    private long pendingBlockRequests;
+    /** Последняя сверка с базой; null, пока сверка после старта не завершилась */
+    private LocalDateTime reconciledAt;
+}
@@ -0,0 +1,22 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Поля карты для списков: без шифротекстов, с именем владельца из того же запроса.
+ */
+public record CardSummary(Long id,
+                          String cardNumberLastFour,
+                          String cardHolderName,
+                          LocalDate expirationDate,
+                          CardStatus status,
+                          BigDecimal balance,
+                          Long ownerId,
+                          String ownerName,
+                          LocalDateTime createdAt,
+                          LocalDateTime updatedAt) {
+}
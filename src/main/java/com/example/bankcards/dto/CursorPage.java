@@ -0,0 +1,40 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.util.KeysetCursor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница выдачи по курсору. Общее число строк не считается;
+ * следующая страница запрашивается с {@code cursor=nextCursor}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+
+    /**
+     * @param rows строки, прочитанные с лимитом {@code size + 1}: лишняя строка означает, что есть следующая страница
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int size,
+                                          Function<E, KeysetCursor> cursorOf, Function<E, T> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<E> page = hasNext ? rows.subList(0, size) : rows;
+        return CursorPage.<T>builder()
+                .content(page.stream().map(mapper).toList())
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? cursorOf.apply(page.get(page.size() - 1)).encode() : null)
+                .build();
+    }
+}
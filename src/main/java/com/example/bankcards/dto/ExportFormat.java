@@ -0,0 +1,11 @@
+package com.example.bankcards.dto;
+
+/**
+ * Формат потоковой выгрузки.
+ */
+public enum ExportFormat {
+    /** По одному JSON-объекту на строку */
+    NDJSON,
+    /** Заголовок и строки через запятую, значения с разделителями — в кавычках */
+    CSV
+}
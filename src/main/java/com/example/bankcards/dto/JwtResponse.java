@@ -17,4 +17,5 @@ public class JwtResponse {
     private String username;
     private String email;
     private Set<String> roles;
+    private String refreshToken;
 }
\ No newline at end of file
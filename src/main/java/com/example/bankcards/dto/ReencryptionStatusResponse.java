@@ -0,0 +1,30 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.ReencryptionJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReencryptionStatusResponse {
+    private Long jobId;
+    private String targetKeyId;
+    private ReencryptionJobStatus status;
+    private long lastCardId;
+    private long maxCardId;
+    private long processed;
+    private long reencrypted;
+    private long failed;
+    /** Доля пройденного диапазона id, от 0 до 1 */
+    private double progress;
+    private double rowsPerSecond;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
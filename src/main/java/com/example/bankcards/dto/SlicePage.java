@@ -0,0 +1,54 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Страница списка, прочитанная без обязательного COUNT: строки читаются
+ * с лимитом {@code size + 1}, общее число — по {@link TotalMode}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlicePage<T> {
+    private List<T> content;
+    private int number;
+    private int size;
+    private boolean hasNext;
+    private Long totalElements;
+    private boolean totalApproximate;
+
+    public static <T> SlicePage<T> of(Slice<T> slice, TotalMode mode,
+                                      LongSupplier exactTotal, LongSupplier approximateTotal) {
+        SlicePage<T> page = SlicePage.<T>builder()
+                .content(slice.getContent())
+                .number(slice.getNumber())
+                .size(slice.getSize())
+                .hasNext(slice.hasNext())
+                .build();
+        long seen = (long) slice.getNumber() * slice.getSize() + slice.getNumberOfElements();
+
+        if (mode == TotalMode.NONE) {
+            return page;
+        }
+        if (!slice.hasNext() && (slice.hasContent() || slice.getNumber() == 0)) {
+            // Последняя страница: общее число известно без запроса
+            page.setTotalElements(seen);
+        } else if (mode == TotalMode.EXACT) {
+            page.setTotalElements(exactTotal.getAsLong());
+        } else {
+            // Устаревший счетчик или оценка не должны противоречить уже прочитанным строкам
+            long minimum = slice.hasNext() ? seen + 1 : 0;
+            page.setTotalElements(Math.max(approximateTotal.getAsLong(), minimum));
+            page.setTotalApproximate(true);
+        }
+        return page;
+    }
+}
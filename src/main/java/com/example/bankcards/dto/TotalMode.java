@@ -0,0 +1,13 @@
+package com.example.bankcards.dto;
+
+/**
+ * Как посчитать общее число строк для страницы списка.
+ */
+public enum TotalMode {
+    /** Точный COUNT на каждый запрос */
+    EXACT,
+    /** Кэшированный на короткое время COUNT или оценка планировщика, помечается как приблизительный */
+    APPROXIMATE,
+    /** Без общего числа, только признак следующей страницы */
+    NONE
+}
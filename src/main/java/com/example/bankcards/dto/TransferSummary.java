@@ -0,0 +1,18 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.TransferStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Поля перевода для выгрузки: последние цифры обеих карт из того же запроса.
+ */
+public record TransferSummary(Long id,
+                              String fromCardLastFour,
+                              String toCardLastFour,
+                              BigDecimal amount,
+                              String description,
+                              TransferStatus status,
+                              LocalDateTime transferDate) {
+}
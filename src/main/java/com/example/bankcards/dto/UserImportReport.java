@@ -0,0 +1,39 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportReport {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private String jobId;
+    private Status status;
+    /** Прочитано строк; пока задание выполняется — сколько обработано к этому моменту */
+    private int total;
+    private int created;
+    /** Дубликаты, ошибки и результат по строкам заполняются по завершении задания */
+    private int duplicates;
+    private int invalid;
+    private long durationMs;
+    private double rowsPerSecond;
+    private String error;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private List<UserImportRowResult> rows;
+}
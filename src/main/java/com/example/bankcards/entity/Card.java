@@ -16,15 +16,24 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Card {
 
+    /**
+     * Шаг последовательности cards_id_seq: Hibernate и массовый выпуск берут из нее блоки идентификаторов.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_id_seq")
+    @SequenceGenerator(name = "cards_id_seq", sequenceName = "cards_id_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
-    @Column(name = "card_number_encrypted", nullable = false, length = 500)
-    private String cardNumberEncrypted;
+    @Column(name = "card_number_ciphertext", length = 128)
+    private byte[] cardNumberCiphertext;
 
-    @Column(name = "card_number_hash", nullable = false, unique = true)
-    private String cardNumberHash;
+    /**
+     * HMAC-SHA256 номера карты, по нему карта ищется при переводах.
+     */
+    @Column(name = "card_number_hmac", unique = true, length = 32)
+    private byte[] cardNumberHmac;
 
     @Column(name = "card_number_last_four", nullable = false, length = 4)
     private String cardNumberLastFour;
@@ -44,7 +53,28 @@ public class Card {
     @Builder.Default
     private BigDecimal balance = BigDecimal.ZERO;
 
-    @Column(name = "cvv_encrypted", nullable = false, length = 500)
+    /**
+     * Растет при каждом изменении баланса: по нему кэш баланса отличает новое значение от устаревшего.
+     */
+    @Column(name = "balance_version", nullable = false)
+    @Builder.Default
+    private long balanceVersion = 0L;
+
+    @Column(name = "cvv_ciphertext", length = 64)
+    private byte[] cvvCiphertext;
+
+    /*
+     * Прежнее текстовое хранение. Заполнено только у карт, которые еще не
+     * перенесла в бинарные колонки фоновая перешифровка, после переноса обнуляется.
+     */
+
+    @Column(name = "card_number_encrypted", length = 500)
+    private String cardNumberEncrypted;
+
+    @Column(name = "card_number_hash", unique = true)
+    private String cardNumberHash;
+
+    @Column(name = "cvv_encrypted", length = 500)
     private String cvvEncrypted;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -75,11 +105,4 @@ public class Card {
     public boolean isActive() {
         return status == CardStatus.ACTIVE && !isExpired();
     }
-
-    public CardStatus getActualStatus() {
-        if (isExpired()) {
-            return CardStatus.EXPIRED;
-        }
-        return status;
-    }
 }
\ No newline at end of file
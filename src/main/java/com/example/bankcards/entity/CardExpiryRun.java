@@ -0,0 +1,87 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Ежедневный проход по сроку действия карт за run_date. Карты обходятся по
+ * (expiration_date, id); last_expiration_date и last_card_id — контрольная
+ * точка, до которой включительно все карты уже обработаны, с нее проход
+ * продолжается после остановки или падения.
+ * <p>
+ * Проход ведет один экземпляр — owner; он продлевает аренду heartbeat_at
+ * с каждой порцией. Остановленный или упавший проход с истекшей арендой
+ * захватывает другой экземпляр, а версия не дает прежнему владельцу
+ * перезаписать контрольную точку.
+ */
+@Entity
+@Table(name = "card_expiry_runs")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardExpiryRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_date", nullable = false, unique = true)
+    private LocalDate runDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private CardExpiryRunStatus status;
+
+    @Column(name = "last_expiration_date")
+    private LocalDate lastExpirationDate;
+
+    @Column(name = "last_card_id", nullable = false)
+    private long lastCardId;
+
+    @Column(nullable = false)
+    private long scanned;
+
+    @Column(nullable = false)
+    private long expired;
+
+    /**
+     * Карты, срок которых истекает в ближайшие дни, разосланные событием
+     * {@link com.example.bankcards.event.CardsExpiringSoonEvent}.
+     */
+    @Column(name = "expiring_soon", nullable = false)
+    private long expiringSoon;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(length = 100)
+    private String owner;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Version
+    private long version;
+
+    @PrePersist
+    protected void onCreate() {
+        startedAt = LocalDateTime.now();
+        updatedAt = startedAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.entity;
+
+public enum CardExpiryRunStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,83 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Задание перешифровки карт ключом target_key_id. Карты обходятся по
+ * возрастанию id; last_card_id — контрольная точка, до которой включительно
+ * все карты уже обработаны, с нее задание продолжается после остановки.
+ * Карты, которые не удалось перешифровать, запоминаются в failedCardIds и
+ * повторяются в конце прохода и при следующем запуске задания.
+ */
+@Entity
+@Table(name = "card_reencryption_jobs")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardReencryptionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "target_key_id", nullable = false, length = 32)
+    private String targetKeyId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ReencryptionJobStatus status;
+
+    @Column(name = "last_card_id", nullable = false)
+    private long lastCardId;
+
+    /**
+     * Последняя карта на момент запуска: новые карты сразу шифруются активным ключом.
+     */
+    @Column(name = "max_card_id", nullable = false)
+    private long maxCardId;
+
+    @Column(nullable = false)
+    private long processed;
+
+    @Column(nullable = false)
+    private long reencrypted;
+
+    /**
+     * Сколько карт осталось не перешифровано, то есть размер failedCardIds.
+     */
+    @Column(nullable = false)
+    private long failed;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "card_reencryption_failures", joinColumns = @JoinColumn(name = "job_id"))
+    @Column(name = "card_id")
+    @Builder.Default
+    private Set<Long> failedCardIds = new HashSet<>();
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        startedAt = LocalDateTime.now();
+        updatedAt = startedAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
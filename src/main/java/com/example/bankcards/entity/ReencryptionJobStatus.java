@@ -0,0 +1,10 @@
+package com.example.bankcards.entity;
+
+public enum ReencryptionJobStatus {
+    RUNNING,
+    PAUSED,
+    COMPLETED,
+    /** Все карты пройдены, но часть не удалось перешифровать: прежний ключ еще нужен */
+    INCOMPLETE,
+    FAILED
+}
@@ -0,0 +1,45 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись об отзыве: либо конкретного токена (token_id), либо всех токенов
+ * пользователя, выданных раньше not_before. После expires_at запись не нужна:
+ * все затронутые токены к этому моменту истекли сами.
+ */
+@Entity
+@Table(name = "token_revocations")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "token_id", length = 36)
+    private String tokenId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "not_before")
+    private LocalDateTime notBefore;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.event;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Публикуется ежедневным проходом по сроку действия для каждой порции карт,
+ * срок которых истекает в ближайшие дни. Пока карта в этом окне, она
+ * приходит в событии каждый день.
+ */
+public record CardsExpiringSoonEvent(LocalDate runDate, List<ExpiringCard> cards) {
+
+    public record ExpiringCard(Long cardId, Long ownerId, LocalDate expirationDate) {
+    }
+}
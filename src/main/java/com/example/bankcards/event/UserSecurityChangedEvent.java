@@ -0,0 +1,8 @@
+package com.example.bankcards.event;
+
+/**
+ * Публикуется при изменении данных пользователя, влияющих на аутентификацию:
+ * регистрация, блокировка, активация, смена пароля.
+ */
+public record UserSecurityChangedEvent(Long userId, String username) {
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class CardNumberAlreadyExistsException extends RuntimeException {
+    public CardNumberAlreadyExistsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class UserImportCapacityExceededException extends RuntimeException {
+    public UserImportCapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -1,14 +1,18 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.CardBlockRequestSummary;
 import com.example.bankcards.entity.BlockRequestStatus;
 import com.example.bankcards.entity.CardBlockRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,6 +20,37 @@ public interface CardBlockRequestRepository extends JpaRepository<CardBlockReque
 
     Page<CardBlockRequest> findByStatus(BlockRequestStatus status, Pageable pageable);
 
+    /*
+     * Выдача по курсору в порядке подачи: по индексам (requested_at, id)
+     * и (status, requested_at, id). Поля карты и пользователей читаются тем же запросом.
+     */
+
+    String SUMMARY_SELECT = "SELECT new com.example.bankcards.dto.CardBlockRequestSummary(r.id, c.id, "
+            + "c.cardNumberLastFour, u.id, u.username, r.reason, r.status, p.id, p.username, r.adminComment, "
+            + "r.requestedAt, r.processedAt) "
+            + "FROM CardBlockRequest r JOIN r.card c JOIN r.requestedBy u LEFT JOIN r.processedBy p ";
+
+    /**
+     * Страница запросов с заданным статусом без COUNT: читается {@code size + 1} строк.
+     */
+    @Query(SUMMARY_SELECT + "WHERE r.status = :status")
+    Slice<CardBlockRequestSummary> findSummarySliceByStatus(@Param("status") BlockRequestStatus status,
+                                                            Pageable pageable);
+
+    long countByStatus(BlockRequestStatus status);
+
+    @Query(SUMMARY_SELECT + "WHERE (r.requestedAt, r.id) > (:requestedAt, :afterId) ORDER BY r.requestedAt, r.id")
+    List<CardBlockRequestSummary> findSummariesAfter(@Param("requestedAt") LocalDateTime requestedAt,
+                                                     @Param("afterId") Long afterId,
+                                                     Pageable limit);
+
+    @Query(SUMMARY_SELECT + "WHERE r.status = :status AND (r.requestedAt, r.id) > (:requestedAt, :afterId) "
+            + "ORDER BY r.requestedAt, r.id")
+    List<CardBlockRequestSummary> findSummariesByStatusAfter(@Param("status") BlockRequestStatus status,
+                                                             @Param("requestedAt") LocalDateTime requestedAt,
+                                                             @Param("afterId") Long afterId,
+                                                             Pageable limit);
+
     Page<CardBlockRequest> findByRequestedBy_Id(Long userId, Pageable pageable);
 
     @Query("SELECT r FROM CardBlockRequest r WHERE r.card.id = :cardId AND r.status = 'PENDING'")
@@ -0,0 +1,42 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardExpiryRun;
+import com.example.bankcards.entity.CardExpiryRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface CardExpiryRunRepository extends JpaRepository<CardExpiryRun, Long> {
+
+    Optional<CardExpiryRun> findByRunDate(LocalDate runDate);
+
+    Optional<CardExpiryRun> findFirstByOrderByRunDateDesc();
+
+    /**
+     * Захватывает незавершенный проход за день, если у него нет владельца или аренда
+     * владельца истекла. Версия увеличивается, поэтому сохранения прежнего владельца
+     * после захвата отклоняются.
+     *
+     * @return 1, если проход захвачен этим вызовом
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE CardExpiryRun r SET r.status = :running, r.owner = :owner, r.heartbeatAt = :now, "
+            + "r.updatedAt = :now, r.version = r.version + 1 "
+            + "WHERE r.runDate = :runDate AND r.status <> :completed "
+            + "AND (r.owner IS NULL OR r.heartbeatAt IS NULL OR r.heartbeatAt < :staleBefore)")
+    int claim(@Param("runDate") LocalDate runDate,
+              @Param("owner") String owner,
+              @Param("now") LocalDateTime now,
+              @Param("staleBefore") LocalDateTime staleBefore,
+              @Param("running") CardExpiryRunStatus running,
+              @Param("completed") CardExpiryRunStatus completed);
+}
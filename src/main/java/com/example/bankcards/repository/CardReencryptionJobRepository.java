@@ -0,0 +1,19 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardReencryptionJob;
+import com.example.bankcards.entity.ReencryptionJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CardReencryptionJobRepository extends JpaRepository<CardReencryptionJob, Long> {
+
+    Optional<CardReencryptionJob> findFirstByOrderByIdDesc();
+
+    Optional<CardReencryptionJob> findFirstByTargetKeyIdAndStatusNotOrderByIdDesc(String targetKeyId,
+                                                                                  ReencryptionJobStatus status);
+
+    Optional<CardReencryptionJob> findFirstByStatusOrderByIdDesc(ReencryptionJobStatus status);
+}
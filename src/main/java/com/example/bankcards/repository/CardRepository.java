@@ -1,45 +1,184 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.CardBalance;
+import com.example.bankcards.dto.CardSummary;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
-import com.example.bankcards.entity.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
 
+    Optional<Card> findByCardNumberHmac(byte[] cardNumberHmac);
+
     Optional<Card> findByCardNumberHash(String cardNumberHash);
 
-    Page<Card> findByOwner(User owner, Pageable pageable);
+    /**
+     * Ищет карту по HMAC номера, а карты, еще не перенесенные в бинарные
+     * колонки, — по прежнему SHA-256 хэшу.
+     */
+    default Optional<Card> findByCardNumber(byte[] cardNumberHmac, String legacyCardNumberHash) {
+        Optional<Card> card = findByCardNumberHmac(cardNumberHmac);
+        return card.isPresent() ? card : findByCardNumberHash(legacyCardNumberHash);
+    }
+
+    @Query("SELECT c.id FROM Card c WHERE c.cardNumberHmac = :cardNumberHmac")
+    Optional<Long> findIdByCardNumberHmac(@Param("cardNumberHmac") byte[] cardNumberHmac);
+
+    @Query("SELECT c.id FROM Card c WHERE c.cardNumberHash = :cardNumberHash")
+    Optional<Long> findIdByCardNumberHash(@Param("cardNumberHash") String cardNumberHash);
+
+    /**
+     * Id карты по номеру, как {@link #findByCardNumber}, без загрузки сущности:
+     * перевод загружает карты только под блокировкой.
+     */
+    default Optional<Long> findIdByCardNumber(byte[] cardNumberHmac, String legacyCardNumberHash) {
+        Optional<Long> id = findIdByCardNumberHmac(cardNumberHmac);
+        return id.isPresent() ? id : findIdByCardNumberHash(legacyCardNumberHash);
+    }
+
+    /**
+     * Загружает карту под SELECT ... FOR UPDATE до конца транзакции.
+     * Несколько карт блокировать только по возрастанию id, иначе встречные переводы взаимоблокируются.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id = :cardId")
+    Optional<Card> findByIdForUpdate(@Param("cardId") Long cardId);
+
+    /**
+     * Ключи номеров карт для загрузки Bloom-фильтра: id, HMAC и прежний хэш.
+     */
+    @Query("SELECT c.id, c.cardNumberHmac, c.cardNumberHash FROM Card c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findNumberKeysAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /*
+     * Списки карт читают проекцию CardSummary: один запрос с JOIN владельца
+     * вместо сущностей с шифротекстами и ленивой загрузки owner на каждую строку.
+     * Владелец обязателен, поэтому count считается без JOIN.
+     */
+
+    String SUMMARY_SELECT = "SELECT new com.example.bankcards.dto.CardSummary(c.id, c.cardNumberLastFour, "
+            + "c.cardHolderName, c.expirationDate, c.status, c.balance, o.id, o.fullName, c.createdAt, c.updatedAt) "
+            + "FROM Card c JOIN c.owner o ";
+
+    String SEARCH_MATCH = "LOWER(c.cardHolderName) LIKE LOWER(CONCAT('%', :search, '%')) OR "
+            + "c.cardNumberLastFour LIKE CONCAT('%', :search, '%')";
+
+    String OWNER_SEARCH_CONDITION = "WHERE c.owner.id = :ownerId AND (" + SEARCH_MATCH + " OR c.id = :id)";
+
+    String CANDIDATE_SEARCH_CONDITION = "WHERE c.id IN :ids AND (" + SEARCH_MATCH + " OR c.id = :id)";
+
+    @Query(value = SUMMARY_SELECT,
+            countQuery = "SELECT COUNT(c) FROM Card c")
+    Page<CardSummary> findAllSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE c.owner.id = :ownerId",
+            countQuery = "SELECT COUNT(c) FROM Card c WHERE c.owner.id = :ownerId")
+    Page<CardSummary> findSummariesByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
 
-    @Query("SELECT c FROM Card c WHERE c.owner = :owner AND " +
-            "(LOWER(c.cardHolderName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-            "c.cardNumberLastFour LIKE CONCAT('%', :search, '%') OR " +
-            "c.id = :id)")
-    Page<Card> findByOwnerAndSearch(@Param("owner") User owner,
-                                    @Param("search") String search,
-                                    @Param("id") Long id,
-                                    Pageable pageable);
+    /**
+     * Страница карт владельца без COUNT: читается {@code size + 1} строк.
+     */
+    @Query(SUMMARY_SELECT + "WHERE c.owner.id = :ownerId")
+    Slice<CardSummary> findSummarySliceByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
 
-    @Modifying
-    @Query("UPDATE Card c SET c.status = 'EXPIRED' WHERE c.expirationDate < CURRENT_DATE AND c.status != 'EXPIRED'")
-    @Transactional
-    int updateExpiredCards();
+    long countByOwner_Id(Long ownerId);
 
-    Page<Card> findByOwnerAndStatus(User owner, CardStatus status, Pageable pageable);
+    @Query(value = SUMMARY_SELECT + "WHERE c.owner.id = :ownerId AND c.status = :status",
+            countQuery = "SELECT COUNT(c) FROM Card c WHERE c.owner.id = :ownerId AND c.status = :status")
+    Page<CardSummary> findSummariesByOwnerIdAndStatus(@Param("ownerId") Long ownerId,
+                                                      @Param("status") CardStatus status,
+                                                      Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + OWNER_SEARCH_CONDITION,
+            countQuery = "SELECT COUNT(c) FROM Card c " + OWNER_SEARCH_CONDITION)
+    Page<CardSummary> findSummariesByOwnerIdAndSearch(@Param("ownerId") Long ownerId,
+                                                      @Param("search") String search,
+                                                      @Param("id") Long id,
+                                                      Pageable pageable);
+
+    /**
+     * Поиск среди кандидатов из {@link com.example.bankcards.service.CardSearchIndex}:
+     * индекс отвечает надмножеством, точное совпадение проверяется здесь.
+     */
+    @Query(value = SUMMARY_SELECT + CANDIDATE_SEARCH_CONDITION,
+            countQuery = "SELECT COUNT(c) FROM Card c " + CANDIDATE_SEARCH_CONDITION)
+    Page<CardSummary> findSummariesByIdInAndSearch(@Param("ids") Collection<Long> ids,
+                                                   @Param("search") String search,
+                                                   @Param("id") Long id,
+                                                   Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE c.id IN :ids AND (" + SEARCH_MATCH + ") ORDER BY c.id")
+    List<CardSummary> findSummariesByIdInMatching(@Param("ids") Collection<Long> ids,
+                                                  @Param("search") String search,
+                                                  Pageable limit);
+
+    /**
+     * Поиск по всем картам без индекса: полный просмотр таблицы, только пока индекс строится.
+     */
+    @Query(SUMMARY_SELECT + "WHERE c.id > :afterId AND (" + SEARCH_MATCH + ") ORDER BY c.id")
+    List<CardSummary> findSummariesBySearchAfter(@Param("search") String search,
+                                                 @Param("afterId") Long afterId,
+                                                 Pageable limit);
+
+    @Query("SELECT c.id, c.cardHolderName, c.cardNumberLastFour FROM Card c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findSearchKeysAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Выдача по курсору: по индексам (id) и (owner_id, id), без OFFSET и count
+
+    @Query(SUMMARY_SELECT + "WHERE c.id > :afterId ORDER BY c.id")
+    List<CardSummary> findSummariesAfter(@Param("afterId") Long afterId, Pageable limit);
+
+    @Query(SUMMARY_SELECT + "WHERE c.owner.id = :ownerId AND c.id > :afterId ORDER BY c.id")
+    List<CardSummary> findSummariesByOwnerIdAfter(@Param("ownerId") Long ownerId,
+                                                  @Param("afterId") Long afterId,
+                                                  Pageable limit);
+
+    // Строк за одно обращение к курсору при выгрузке
+    String EXPORT_FETCH_SIZE = "1000";
+
+    /**
+     * Выгрузка карт курсором в порядке id. Проекция не попадает в контекст
+     * персистентности, поэтому память не растет с числом строк; закрывать поток обязательно.
+     * Пустые статус и владелец не ограничивают выборку, {@code createdTo} — не включительно.
+     * Даты передаются всегда: тип NULL-параметра даты PostgreSQL не выводит.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(SUMMARY_SELECT + "WHERE (:status IS NULL OR c.status = :status) "
+            + "AND (:ownerId IS NULL OR o.id = :ownerId) "
+            + "AND c.createdAt >= :createdFrom AND c.createdAt < :createdTo ORDER BY c.id")
+    Stream<CardSummary> streamSummaries(@Param("status") CardStatus status,
+                                        @Param("ownerId") Long ownerId,
+                                        @Param("createdFrom") LocalDateTime createdFrom,
+                                        @Param("createdTo") LocalDateTime createdTo);
+
+    @Query("SELECT c.id FROM Card c WHERE c.owner.id = :ownerId")
+    List<Long> findIdsByOwnerId(@Param("ownerId") Long ownerId);
 
     @Query("SELECT c.owner.id FROM Card c WHERE c.id = :cardId")
     Optional<Long> findOwnerIdById(@Param("cardId") Long cardId);
 
+    @Query("SELECT new com.example.bankcards.dto.CardBalance(c.id, c.balance, c.owner.id, c.balanceVersion) "
+            + "FROM Card c WHERE c.id = :cardId")
+    Optional<CardBalance> findBalanceById(@Param("cardId") Long cardId);
+
     @Query("SELECT c FROM Card c JOIN FETCH c.owner WHERE c.id = :cardId")
     Optional<Card> findByIdWithOwner(@Param("cardId") Long cardId);
 }
\ No newline at end of file
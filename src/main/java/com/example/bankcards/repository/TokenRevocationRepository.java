@@ -0,0 +1,25 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, Long> {
+
+    List<TokenRevocation> findByExpiresAtAfter(LocalDateTime now);
+
+    List<TokenRevocation> findByCreatedAtAfterAndExpiresAtAfter(LocalDateTime createdAfter, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TokenRevocation tr WHERE tr.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
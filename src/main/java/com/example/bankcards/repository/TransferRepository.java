@@ -1,17 +1,76 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.TransferSummary;
 import com.example.bankcards.entity.Transfer;
-import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.TransferStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface TransferRepository extends JpaRepository<Transfer, Long> {
 
-    @Query("SELECT t FROM Transfer t WHERE t.fromCard.owner = :user OR t.toCard.owner = :user")
-    Page<Transfer> findByUser(@Param("user") User user, Pageable pageable);
+    /**
+     * Перевод под SELECT ... FOR UPDATE: повторная отмена ждет первую и видит ее статус.
+     * Блокируется раньше карт перевода.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transfer t WHERE t.id = :transferId")
+    Optional<Transfer> findByIdForUpdate(@Param("transferId") Long transferId);
+
+    @Query("SELECT t FROM Transfer t WHERE t.fromCard.owner.id = :userId OR t.toCard.owner.id = :userId")
+    Page<Transfer> findByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Страница переводов по картам пользователя без COUNT: читается {@code size + 1} строк.
+     */
+    @Query("SELECT t FROM Transfer t JOIN FETCH t.fromCard JOIN FETCH t.toCard "
+            + "WHERE t.fromCard.id IN :cardIds OR t.toCard.id IN :cardIds")
+    Slice<Transfer> findSliceByCardIds(@Param("cardIds") Collection<Long> cardIds, Pageable pageable);
+
+    @Query("SELECT COUNT(t) FROM Transfer t WHERE t.fromCard.id IN :cardIds OR t.toCard.id IN :cardIds")
+    long countByCardIds(@Param("cardIds") Collection<Long> cardIds);
+
+    /**
+     * Переводы по картам пользователя от новых к старым, начиная до {@code beforeId}.
+     * По id карт, а не через JOIN владельца, чтобы каждая ветка OR шла по
+     * индексам (from_card_id, id) и (to_card_id, id).
+     */
+    @Query("SELECT t FROM Transfer t JOIN FETCH t.fromCard JOIN FETCH t.toCard "
+            + "WHERE (t.fromCard.id IN :cardIds OR t.toCard.id IN :cardIds) AND t.id < :beforeId "
+            + "ORDER BY t.id DESC")
+    List<Transfer> findByCardIdsBefore(@Param("cardIds") Collection<Long> cardIds,
+                                       @Param("beforeId") Long beforeId,
+                                       Pageable limit);
+
+    /**
+     * Выгрузка переводов курсором в порядке id, как {@link CardRepository#streamSummaries}.
+     * {@code ownerId} отбирает переводы, где владелец — отправитель или получатель.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = CardRepository.EXPORT_FETCH_SIZE))
+    @Query("SELECT new com.example.bankcards.dto.TransferSummary(t.id, f.cardNumberLastFour, "
+            + "r.cardNumberLastFour, t.amount, t.description, t.status, t.transferDate) "
+            + "FROM Transfer t JOIN t.fromCard f JOIN t.toCard r "
+            + "WHERE (:status IS NULL OR t.status = :status) "
+            + "AND (:ownerId IS NULL OR f.owner.id = :ownerId OR r.owner.id = :ownerId) "
+            + "AND t.transferDate >= :dateFrom AND t.transferDate < :dateTo ORDER BY t.id")
+    Stream<TransferSummary> streamSummaries(@Param("status") TransferStatus status,
+                                            @Param("ownerId") Long ownerId,
+                                            @Param("dateFrom") LocalDateTime dateFrom,
+                                            @Param("dateTo") LocalDateTime dateTo);
 }
\ No newline at end of file
@@ -1,10 +1,19 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.UserResponse;
 import com.example.bankcards.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -14,4 +23,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Boolean existsByUsername(String username);
 
     Boolean existsByEmail(String email);
+
+    // UNION вместо OR, чтобы каждая ветка шла по своему уникальному индексу
+    @Query("SELECT u.username, u.email FROM User u WHERE u.username IN :usernames "
+            + "UNION SELECT u.username, u.email FROM User u WHERE u.email IN :emails")
+    List<Object[]> findExistingUsernamesAndEmails(@Param("usernames") Collection<String> usernames,
+                                                  @Param("emails") Collection<String> emails);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Выдача по курсору; проекция не подгружает роли, которые ответу не нужны
+    @Query("SELECT new com.example.bankcards.dto.UserResponse(u.id, u.username, u.email, u.fullName, u.active, "
+            + "u.createdAt, u.updatedAt) FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserResponse> findResponsesAfter(@Param("afterId") Long afterId, Pageable limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.updatedAt = CURRENT_TIMESTAMP WHERE u.id = :userId")
+    int updatePassword(@Param("userId") Long userId, @Param("password") String password);
 }
\ No newline at end of file
@@ -1,26 +1,30 @@
 package com.example.bankcards.scheduler;
 
-import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.CardExpiryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class CardStatusScheduler {
 
-    private final CardRepository cardRepository;
+    private final CardExpiryService cardExpiryService;
 
-    @Scheduled(cron = "0 0 0 * * *")
+    // Вскоре после полуночи: в срок карты переводит CardExpiryWheel, проход — подстраховка и окно уведомлений
+    @Scheduled(cron = "0 5 0 * * *")
     public void updateExpiredCards() {
         log.info("Starting expired cards status update...");
         try {
-            int updated = cardRepository.updateExpiredCards();
-            log.info("Expired cards status update completed. Updated {} cards", updated);
+            cardExpiryService.run(LocalDate.now()).ifPresent(report ->
+                    log.info("Expired cards status update {}. Updated {} cards, {} expiring soon",
+                            report.getStatus(), report.getExpired(), report.getExpiringSoon()));
         } catch (Exception e) {
             log.error("Error updating expired cards: {}", e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
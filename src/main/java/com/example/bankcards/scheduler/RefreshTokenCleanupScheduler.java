@@ -0,0 +1,26 @@
+package com.example.bankcards.scheduler;
+
+import com.example.bankcards.service.RefreshTokenService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenCleanupScheduler {
+
+    private final RefreshTokenService refreshTokenService;
+
+    @Scheduled(cron = "0 30 0 * * *")
+    public void deleteExpiredTokens() {
+        log.info("Starting expired refresh tokens cleanup...");
+        try {
+            int deleted = refreshTokenService.deleteExpired();
+            log.info("Expired refresh tokens cleanup completed. Deleted {} tokens", deleted);
+        } catch (Exception e) {
+            log.error("Error deleting expired refresh tokens: {}", e.getMessage());
+        }
+    }
+}
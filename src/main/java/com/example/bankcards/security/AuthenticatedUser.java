@@ -0,0 +1,48 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Легковесный principal, собранный из claims JWT без обращения к БД.
+ */
+@Getter
+@RequiredArgsConstructor
+public class AuthenticatedUser implements AuthenticatedPrincipal {
+
+    private final Long id;
+    private final String username;
+    private final Set<Role> roles;
+
+    public static AuthenticatedUser from(User user) {
+        Set<Role> roles = user.getRoles().isEmpty() ? EnumSet.noneOf(Role.class) : EnumSet.copyOf(user.getRoles());
+        return new AuthenticatedUser(user.getId(), user.getUsername(), Collections.unmodifiableSet(roles));
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return roles;
+    }
+
+    public boolean isAdmin() {
+        return roles.contains(Role.ROLE_ADMIN);
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
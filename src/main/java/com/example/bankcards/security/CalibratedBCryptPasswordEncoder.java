@@ -0,0 +1,87 @@
+package com.example.bankcards.security;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt с подобранной под хост стоимостью. Хэши с любой другой стоимостью
+ * помечаются как требующие перехэширования, поэтому при успешном входе
+ * пароль прозрачно переписывается с текущей стоимостью.
+ */
+@Slf4j
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2([ayb])?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+    private static final int SAMPLES = 3;
+
+    @Getter
+    private final int strength;
+
+    public CalibratedBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    /**
+     * Подбирает максимальную стоимость из диапазона, при которой хэширование
+     * укладывается в целевую задержку. Замер делается один раз на минимальной
+     * стоимости, каждый следующий шаг удваивает время.
+     */
+    public static CalibratedBCryptPasswordEncoder calibrate(Duration targetLatency, int minStrength, int maxStrength) {
+        long baselineNanos = measure(minStrength);
+        long targetNanos = targetLatency.toNanos();
+
+        int strength = minStrength;
+        long expectedNanos = baselineNanos;
+        while (strength < maxStrength && expectedNanos * 2 <= targetNanos) {
+            strength++;
+            expectedNanos *= 2;
+        }
+
+        if (baselineNanos > targetNanos) {
+            log.warn("BCrypt cost {} takes {} ms, which exceeds the {} ms target",
+                    minStrength, baselineNanos / 1_000_000, targetLatency.toMillis());
+        }
+        log.info("Calibrated BCrypt cost {} (~{} ms per hash, target {} ms)",
+                strength, expectedNanos / 1_000_000, targetLatency.toMillis());
+        return new CalibratedBCryptPasswordEncoder(strength);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int cost = costOf(encodedPassword);
+        return cost > 0 && cost != strength;
+    }
+
+    /**
+     * @return стоимость из BCrypt-хэша или -1, если строка не является BCrypt-хэшем
+     */
+    static int costOf(String encodedPassword) {
+        if (encodedPassword == null) {
+            return -1;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.matches() ? Integer.parseInt(matcher.group(2)) : -1;
+    }
+
+    private static long measure(int strength) {
+        String salt = BCrypt.gensalt(strength);
+        BCrypt.hashpw("calibration", salt); // прогрев
+
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
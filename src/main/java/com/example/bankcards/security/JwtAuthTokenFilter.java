@@ -1,5 +1,6 @@
 package com.example.bankcards.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,24 +9,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 public class JwtAuthTokenFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthTokenFilter.class);
 
+    private final JwtTokenVerifier jwtTokenVerifier;
     private final JwtUtils jwtUtils;
-    private final UserDetailsService userDetailsService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
 
-    public JwtAuthTokenFilter(JwtUtils jwtUtils, UserDetailsService userDetailsService) {
+    public JwtAuthTokenFilter(JwtTokenVerifier jwtTokenVerifier, JwtUtils jwtUtils,
+                              TokenRevocationRegistry tokenRevocationRegistry) {
+        this.jwtTokenVerifier = jwtTokenVerifier;
         this.jwtUtils = jwtUtils;
-        this.userDetailsService = userDetailsService;
+        this.tokenRevocationRegistry = tokenRevocationRegistry;
     }
 
     @Override
@@ -33,18 +36,24 @@ public class JwtAuthTokenFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
+            Optional<Claims> claims = jwt != null ? jwtTokenVerifier.verify(jwt) : Optional.empty();
+            if (claims.isPresent()) {
+                AuthenticatedUser principal = jwtUtils.toAuthenticatedUser(claims.get());
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                if (!tokenRevocationRegistry.isRevoked(
+                        claims.get().getId(), principal.getId(), claims.get().getIssuedAt())) {
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(
+                                    principal,
+                                    null,
+                                    principal.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                } else {
+                    logger.warn("Rejected revoked token of user {}",
+                            principal.getUsername());
+                }
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e.getMessage());
@@ -62,4 +71,4 @@ public class JwtAuthTokenFilter extends OncePerRequestFilter {
 
         return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package com.example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверяет JWT один раз и кэширует результат по SHA-256 дайджесту токена.
+ * Успешно проверенные claims живут в кэше до истечения срока токена,
+ * некорректные токены кэшируются негативно на короткое время.
+ */
+@Component
+@Slf4j
+public class JwtTokenVerifier {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final JwtUtils jwtUtils;
+    private final Cache<ByteBuffer, Verification> cache;
+
+    public JwtTokenVerifier(JwtUtils jwtUtils,
+                            @Value("${app.jwt.cache.max-size:100000}") long maxSize,
+                            @Value("${app.jwt.cache.negative-ttl:PT1M}") Duration negativeTtl) {
+        this.jwtUtils = jwtUtils;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new VerificationExpiry(negativeTtl.toNanos()))
+                .build();
+    }
+
+    /**
+     * @return claims проверенного токена или пустой Optional, если токен недействителен
+     */
+    public Optional<Claims> verify(String token) {
+        ByteBuffer key = digest(token);
+        Verification verification = cache.get(key, k -> verifyUncached(token));
+
+        if (verification.claims() != null && verification.isExpired(System.currentTimeMillis())) {
+            // Запись могла пережить токен на долю тика планировщика Caffeine
+            cache.invalidate(key);
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(verification.claims());
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    private Verification verifyUncached(String token) {
+        try {
+            Claims claims = jwtUtils.parseClaims(token);
+            long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+            return new Verification(claims, expiresAt);
+        } catch (MalformedJwtException e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
+        } catch (ExpiredJwtException e) {
+            log.error("JWT token is expired: {}", e.getMessage());
+        } catch (UnsupportedJwtException e) {
+            log.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            log.error("JWT validation error: {}", e.getMessage());
+        }
+        return Verification.REJECTED;
+    }
+
+    private static ByteBuffer digest(String token) {
+        return ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private record Verification(Claims claims, long expiresAtMillis) {
+
+        static final Verification REJECTED = new Verification(null, 0);
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+
+    private record VerificationExpiry(long negativeTtlNanos) implements Expiry<ByteBuffer, Verification> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Verification value, long currentTime) {
+            if (value.claims() == null) {
+                return negativeTtlNanos;
+            }
+            long remainingMillis = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Verification value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Verification value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
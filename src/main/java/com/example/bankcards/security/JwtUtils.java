@@ -1,53 +1,102 @@
 package com.example.bankcards.security;
 
-import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.Role;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 @Component
 @Slf4j
 public class JwtUtils {
 
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_ROLES = "roles";
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
     @Value("${app.jwt.expiration}")
     private int jwtExpirationMs;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        // Ключ и парсер потокобезопасны, создаем их один раз
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
-    public String generateJwtToken(Authentication authentication) {
-        User userPrincipal = (User) authentication.getPrincipal();
+    public String generateJwtToken(AuthenticatedUser principal) {
+        List<String> roles = principal.getRoles().stream()
+                .map(Role::name)
+                .toList();
 
         return Jwts.builder()
-                .setSubject((userPrincipal.getUsername()))
+                .setId(UUID.randomUUID().toString())
+                .setSubject(principal.getUsername())
+                .claim(CLAIM_USER_ID, principal.getId())
+                .claim(CLAIM_ROLES, roles)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Разбирает и проверяет подпись токена за один проход.
+     *
+     * @throws JwtException если токен некорректен, просрочен или подпись неверна
+     */
+    public Claims parseClaims(String token) {
+        return jwtParser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * Собирает principal из claims проверенного токена.
+     *
+     * @throws IllegalArgumentException если в токене нет обязательных claims
+     */
+    public AuthenticatedUser toAuthenticatedUser(Claims claims) {
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+
+        if (userId == null || roles == null) {
+            throw new IllegalArgumentException("JWT token does not contain user claims");
+        }
+
+        Set<Role> parsedRoles = EnumSet.noneOf(Role.class);
+        for (Object role : roles) {
+            parsedRoles.add(Role.valueOf(role.toString()));
+        }
+
+        return new AuthenticatedUser(
+                userId.longValue(),
+                claims.getSubject(),
+                Collections.unmodifiableSet(parsedRoles));
+    }
+
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public boolean validateJwtToken(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(authToken);
+            parseClaims(authToken);
             return true;
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token: {}", e.getMessage());
@@ -63,4 +112,4 @@ public class JwtUtils {
 
         return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.LoginCapacityExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Ограниченный пул для BCrypt-операций входа и регистрации, чтобы всплеск
+ * логинов не занимал все потоки Tomcat. При заполненной очереди задача
+ * отклоняется сразу, а не ждет.
+ */
+@Component
+public class LoginExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+
+    public LoginExecutor(MeterRegistry meterRegistry,
+                         @Value("${app.security.login.threads:0}") int threads,
+                         @Value("${app.security.login.queue-capacity:64}") int queueCapacity,
+                         @Value("${app.security.login.timeout:PT5S}") Duration timeout) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("login-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeout = timeout;
+        this.meterRegistry = meterRegistry;
+        this.rejected = Counter.builder("auth.login.rejected")
+                .description("Login and registration requests rejected because the login executor was full")
+                .register(meterRegistry);
+
+        new ExecutorServiceMetrics(executor, "login", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Выполняет задачу в пуле и ждет результат. Исключения задачи пробрасываются как есть.
+     *
+     * @throws LoginCapacityExceededException если очередь заполнена или результат не получен вовремя
+     */
+    public <T> T execute(String operation, Supplier<T> task) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Future<T> future = submit(task);
+            return await(future);
+        } finally {
+            sample.stop(Timer.builder("auth.login.duration")
+                    .description("Time from submission to completion, including queue wait")
+                    .tag("operation", operation)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry));
+        }
+    }
+
+    private <T> Future<T> submit(Supplier<T> task) {
+        try {
+            return executor.submit(task::get);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new LoginCapacityExceededException("Too many concurrent login attempts, please retry later");
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new LoginCapacityExceededException("Login took too long, please retry later");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new LoginCapacityExceededException("Login was interrupted");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import com.example.bankcards.config.RateLimitProperties.KeyType;
+import com.example.bankcards.exception.RateLimitExceededException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket лимиты по IP, пользователю и маршруту. Бакеты хранятся в Caffeine
+ * и удаляются после простоя длиной в период восстановления: к этому моменту
+ * бакет все равно полон, поэтому вытеснение ничего не меняет для клиента.
+ */
+@Component
+public class RateLimiter {
+
+    private static final String ROUTE_KEY = "*";
+
+    private final boolean enabled;
+    private final List<Limit> limits;
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.limits = new ArrayList<>();
+        properties.getRules().forEach((name, rule) ->
+                limits.add(new Limit(name, rule, properties.getMaxKeys(), meterRegistry)));
+    }
+
+    /**
+     * Проверяет все правила, подходящие под запрос. Правила по пользователю
+     * пропускаются, если пользователь неизвестен.
+     *
+     * @throws RateLimitExceededException если хотя бы один лимит исчерпан
+     */
+    public void check(String method, String path, String clientIp, String username) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Limit limit : limits) {
+            if (!limit.matches(method, path)) {
+                continue;
+            }
+            String key = switch (limit.keyType) {
+                case IP -> clientIp;
+                case USER -> username;
+                case USER_IP -> userIpKey(username, clientIp);
+                case ROUTE -> ROUTE_KEY;
+            };
+            if (key != null) {
+                limit.acquire(key, now);
+            }
+        }
+    }
+
+    /**
+     * Проверяет только правила по пользователю. Нужен для входа, где имя
+     * известно лишь после разбора тела запроса.
+     */
+    public void checkUser(String method, String path, String clientIp, String username) {
+        if (!enabled || username == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Limit limit : limits) {
+            if (!limit.matches(method, path)) {
+                continue;
+            }
+            String key = switch (limit.keyType) {
+                case USER -> username;
+                case USER_IP -> userIpKey(username, clientIp);
+                case IP, ROUTE -> null;
+            };
+            if (key != null) {
+                limit.acquire(key, now);
+            }
+        }
+    }
+
+    private static String userIpKey(String username, String clientIp) {
+        // IP не содержит '|', поэтому ключ однозначен при любом имени пользователя
+        return username != null && clientIp != null ? username + '|' + clientIp : null;
+    }
+
+    private static final class Limit {
+
+        private final String name;
+        private final String method;
+        private final String pathPrefix;
+        private final KeyType keyType;
+        private final int capacity;
+        private final long emissionIntervalNanos;
+        private final Cache<String, TokenBucket> buckets;
+        private final Counter rejected;
+
+        Limit(String name, RateLimitProperties.Rule rule, long maxKeys, MeterRegistry meterRegistry) {
+            if (rule.getCapacity() <= 0 || rule.getPeriod() == null || rule.getPeriod().isNegative()
+                    || rule.getPeriod().isZero()) {
+                throw new IllegalArgumentException("Rate limit rule '" + name + "' needs positive capacity and period");
+            }
+            this.name = name;
+            this.method = rule.getMethod();
+            this.pathPrefix = rule.getPath() != null ? rule.getPath() : "";
+            this.keyType = rule.getKey();
+            this.capacity = rule.getCapacity();
+            this.emissionIntervalNanos = Math.max(1, rule.getPeriod().toNanos() / capacity);
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(keyType == KeyType.ROUTE ? 1 : maxKeys)
+                    .expireAfterAccess(rule.getPeriod())
+                    .build();
+            this.rejected = Counter.builder("http.rate_limit.rejected")
+                    .description("Requests rejected by the rate limiter")
+                    .tag("rule", name)
+                    .register(meterRegistry);
+        }
+
+        boolean matches(String requestMethod, String path) {
+            return (method == null || method.isEmpty() || method.equalsIgnoreCase(requestMethod))
+                    && path.startsWith(pathPrefix);
+        }
+
+        void acquire(String key, long now) {
+            TokenBucket bucket = buckets.get(key, k -> new TokenBucket(emissionIntervalNanos, capacity, now));
+            long waitNanos = bucket.tryAcquire(now);
+            if (waitNanos > 0) {
+                rejected.increment();
+                long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999));
+                throw new RateLimitExceededException(
+                        "Rate limit '" + name + "' exceeded, retry in " + retryAfterSeconds + " s",
+                        retryAfterSeconds);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.bankcards.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующий token bucket в форме GCRA: состояние — одно время
+ * "теоретического прибытия" следующего запроса, обновляемое через CAS.
+ */
+final class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(long emissionIntervalNanos, int capacity, long nowNanos) {
+        this.emissionIntervalNanos = emissionIntervalNanos;
+        this.burstToleranceNanos = emissionIntervalNanos * (capacity - 1);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @return 0, если токен получен, иначе сколько наносекунд ждать до следующего токена
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long arrival = Math.max(current, nowNanos);
+            long waitNanos = arrival - nowNanos - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, arrival + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.TokenRevocation;
+import com.example.bankcards.repository.TokenRevocationRepository;
+import com.example.bankcards.util.BloomFilter;
+import com.example.bankcards.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отозванные access-токены и "not-before" по пользователям в памяти.
+ * Проверка токена не ходит в базу: Bloom-фильтр отсекает почти все
+ * неотозванные jti, точное множество подтверждает попадания.
+ * Состояние восстанавливается из token_revocations при старте и
+ * периодически досинхронизируется, чтобы видеть отзывы с других узлов.
+ */
+@Component
+@Slf4j
+public class TokenRevocationRegistry {
+
+    private static final long SYNC_OVERLAP_SECONDS = 60;
+
+    private final TokenRevocationRepository repository;
+    private final long accessTokenTtlMillis;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+    private final boolean syncEnabled;
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<Long, Long> userNotBefore = new ConcurrentHashMap<>();
+    private final Object filterLock = new Object();
+    private volatile BloomFilter tokenFilter;
+    private long filterCapacity;
+    private volatile LocalDateTime lastSync;
+
+    public TokenRevocationRegistry(TokenRevocationRepository repository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.jwt.expiration}") long accessTokenTtlMillis,
+                                   @Value("${app.jwt.revocation.expected-size:100000}") long expectedRevocations,
+                                   @Value("${app.jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+                                   @Value("${app.jwt.revocation.sync-enabled:true}") boolean syncEnabled) {
+        this.repository = repository;
+        this.accessTokenTtlMillis = accessTokenTtlMillis;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.syncEnabled = syncEnabled;
+        rebuildFilter();
+
+        Gauge.builder("auth.revocation.tokens", revokedTokens, Map::size)
+                .description("Revoked access tokens held in memory")
+                .register(meterRegistry);
+        Gauge.builder("auth.revocation.users", userNotBefore, Map::size)
+                .description("Users with a not-before revocation held in memory")
+                .register(meterRegistry);
+        Gauge.builder("auth.revocation.bloom.fpp", this, registry -> registry.tokenFilter.expectedFalsePositiveRate())
+                .description("Expected false positive rate of the revoked token filter")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void load() {
+        LocalDateTime now = LocalDateTime.now();
+        List<TokenRevocation> revocations = repository.findByExpiresAtAfter(now);
+        revocations.forEach(this::apply);
+        lastSync = now;
+        log.info("Loaded {} token revocations", revocations.size());
+    }
+
+    /**
+     * @return true, если токен отозван лично или выдан до отзыва всех токенов пользователя
+     */
+    public boolean isRevoked(String tokenId, Long userId, Date issuedAt) {
+        if (tokenId != null && tokenFilter.mightContain(tokenId) && revokedTokens.containsKey(tokenId)) {
+            return true;
+        }
+        Long notBefore = userNotBefore.get(userId);
+        // iat в JWT хранится с точностью до секунды: токен, выданный в ту же секунду, что и отзыв, считается отозванным
+        return notBefore != null && (issuedAt == null || truncateToSeconds(issuedAt.getTime()) <= notBefore);
+    }
+
+    /**
+     * Отзывает один access-токен до истечения его срока.
+     */
+    @Transactional
+    public void revokeToken(String tokenId, Date expiresAt) {
+        TokenRevocation revocation = repository.save(TokenRevocation.builder()
+                .tokenId(tokenId)
+                .expiresAt(toLocalDateTime(expiresAt.getTime()))
+                .build());
+        TransactionCallbacks.afterCommit(() -> apply(revocation));
+    }
+
+    /**
+     * Отзывает все access-токены пользователя, выданные до текущего момента.
+     */
+    @Transactional
+    public void revokeAllTokens(Long userId) {
+        long now = System.currentTimeMillis();
+        TokenRevocation revocation = repository.save(TokenRevocation.builder()
+                .userId(userId)
+                .notBefore(toLocalDateTime(truncateToSeconds(now)))
+                .expiresAt(toLocalDateTime(now + accessTokenTtlMillis))
+                .build());
+        TransactionCallbacks.afterCommit(() -> apply(revocation));
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.sync-interval:PT10S}")
+    public void sync() {
+        if (!syncEnabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // Перекрытие окна покрывает транзакции, закоммиченные позже своего created_at
+        repository.findByCreatedAtAfterAndExpiresAtAfter(lastSync.minusSeconds(SYNC_OVERLAP_SECONDS), now)
+                .forEach(this::apply);
+        lastSync = now;
+    }
+
+    @Scheduled(cron = "${app.jwt.revocation.purge-cron:0 */10 * * * *}")
+    public void purgeExpired() {
+        int deleted = repository.deleteExpired(LocalDateTime.now());
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        userNotBefore.values().removeIf(notBefore -> notBefore + accessTokenTtlMillis <= now);
+        // Из Bloom-фильтра удалять нельзя, поэтому он пересобирается по оставшимся jti
+        rebuildFilter();
+        log.info("Purged {} expired token revocations", deleted);
+    }
+
+    private void apply(TokenRevocation revocation) {
+        if (revocation.getTokenId() != null) {
+            long expiresAt = toEpochMillis(revocation.getExpiresAt());
+            synchronized (filterLock) {
+                revokedTokens.put(revocation.getTokenId(), expiresAt);
+                tokenFilter.put(revocation.getTokenId());
+                if (revokedTokens.size() > filterCapacity) {
+                    rebuildFilter();
+                }
+            }
+        }
+        if (revocation.getUserId() != null && revocation.getNotBefore() != null) {
+            userNotBefore.merge(revocation.getUserId(),
+                    truncateToSeconds(toEpochMillis(revocation.getNotBefore())), Math::max);
+        }
+    }
+
+    private void rebuildFilter() {
+        synchronized (filterLock) {
+            long capacity = Math.max(expectedRevocations, revokedTokens.size() * 2L);
+            BloomFilter filter = BloomFilter.create(capacity, falsePositiveRate);
+            revokedTokens.keySet().forEach(filter::put);
+            filterCapacity = capacity;
+            tokenFilter = filter;
+        }
+    }
+
+    private static long truncateToSeconds(long epochMillis) {
+        return Math.floorDiv(epochMillis, 1000L) * 1000L;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Неизменяемый снимок учетных данных пользователя для кэша аутентификации.
+ */
+@Getter
+@RequiredArgsConstructor
+public class UserSecuritySnapshot implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final String email;
+    private final Set<Role> roles;
+    private final boolean active;
+
+    public static UserSecuritySnapshot from(User user) {
+        Set<Role> roles = user.getRoles().isEmpty() ? EnumSet.noneOf(Role.class) : EnumSet.copyOf(user.getRoles());
+        return new UserSecuritySnapshot(
+                user.getId(),
+                user.getUsername(),
+                user.getPassword(),
+                user.getEmail(),
+                Collections.unmodifiableSet(roles),
+                user.isActive());
+    }
+
+    public UserSecuritySnapshot withPassword(String newPassword) {
+        return new UserSecuritySnapshot(id, username, newPassword, email, roles, active);
+    }
+
+    public AuthenticatedUser toPrincipal() {
+        return new AuthenticatedUser(id, username, roles);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return roles;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return active;
+    }
+}
@@ -4,11 +4,20 @@ import com.example.bankcards.dto.JwtResponse;
 import com.example.bankcards.dto.LoginRequest;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.event.UserSecurityChangedEvent;
 import com.example.bankcards.exception.EmailAlreadyExistsException;
 import com.example.bankcards.exception.UsernameAlreadyExistsException;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.JwtTokenVerifier;
 import com.example.bankcards.security.JwtUtils;
+import com.example.bankcards.security.LoginExecutor;
+import com.example.bankcards.security.RateLimiter;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import com.example.bankcards.security.UserSecuritySnapshot;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -25,21 +34,36 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class AuthService {
 
+    private static final String LOGIN_PATH = "/auth/login";
+
     private final AuthenticationManager authenticationManager;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LoginExecutor loginExecutor;
+    private final RateLimiter rateLimiter;
+    private final RefreshTokenService refreshTokenService;
+    private final JwtTokenVerifier jwtTokenVerifier;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+
+    public JwtResponse authenticateUser(LoginRequest loginRequest, String clientIp) {
+        // Лимит по имени пользователя проверяется здесь: фильтр не разбирает тело запроса.
+        // Бакет привязан к паре имя + IP, чтобы посторонний не мог заблокировать вход владельцу
+        rateLimiter.checkUser(HttpMethod.POST.name(), LOGIN_PATH, clientIp, loginRequest.getUsername());
 
-    public JwtResponse authenticateUser(LoginRequest loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
+        Authentication authentication = loginExecutor.execute("login", () -> authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         loginRequest.getUsername(),
-                        loginRequest.getPassword()));
+                        loginRequest.getPassword())));
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = jwtUtils.generateJwtToken(authentication);
 
-        User user = (User) authentication.getPrincipal();
+        UserSecuritySnapshot user = (UserSecuritySnapshot) authentication.getPrincipal();
+        String jwt = jwtUtils.generateJwtToken(user.toPrincipal());
+
+        String refreshToken = refreshTokenService.issue(user.getId());
+
         Set<String> roles = user.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toSet());
@@ -50,7 +74,42 @@ public class AuthService {
                 user.getId(),
                 user.getUsername(),
                 user.getEmail(),
-                roles);
+                roles,
+                refreshToken);
+    }
+
+    /**
+     * Выдает новую пару токенов по refresh-токену без проверки пароля.
+     */
+    public JwtResponse refreshToken(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        User user = rotation.user();
+        String jwt = jwtUtils.generateJwtToken(AuthenticatedUser.from(user));
+
+        Set<String> roles = user.getRoles().stream()
+                .map(Role::name)
+                .collect(Collectors.toSet());
+
+        return new JwtResponse(
+                jwt,
+                "Bearer",
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                roles,
+                rotation.refreshToken());
+    }
+
+    /**
+     * Отзывает цепочку refresh-токена и, если передан, текущий access-токен.
+     */
+    public void logout(String refreshToken, String accessToken) {
+        refreshTokenService.revokeFamily(refreshToken);
+        if (accessToken != null) {
+            jwtTokenVerifier.verify(accessToken)
+                    .filter(claims -> claims.getId() != null)
+                    .ifPresent(claims -> tokenRevocationRegistry.revokeToken(claims.getId(), claims.getExpiration()));
+        }
     }
 
     public User registerUser(String username, String password, String email, String fullName) {
@@ -64,12 +123,14 @@ public class AuthService {
 
         User user = User.builder()
                 .username(username)
-                .password(passwordEncoder.encode(password))
+                .password(loginExecutor.execute("register", () -> passwordEncoder.encode(password)))
                 .email(email)
                 .fullName(fullName)
                 .roles(new HashSet<>(Set.of(Role.ROLE_USER)))
                 .build();
 
-        return userRepository.save(user);
+        user = userRepository.save(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId(), user.getUsername()));
+        return user;
     }
 }
\ No newline at end of file
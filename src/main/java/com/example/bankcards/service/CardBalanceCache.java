@@ -0,0 +1,104 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardBalance;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.TransactionCallbacks;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Кэш балансов карт для {@code GET /cards/{id}/balance}. Каждое изменение баланса
+ * увеличивает {@link Card#getBalanceVersion()} и после коммита кладет новое значение
+ * в кэш; запись с меньшей версией не вытесняет большую, поэтому параллельная
+ * загрузка старого значения не откатывает кэш назад.
+ * <p>
+ * Изменения, сделанные мимо этого экземпляра приложения, видны не позже
+ * {@code app.card.balance-cache.max-staleness}; при нулевом значении кэш отключен.
+ * Запрос с минимальной версией, которой в кэше еще нет, читает базу.
+ */
+@Service
+public class CardBalanceCache {
+
+    private final CardRepository cardRepository;
+    private final Cache<Long, CardBalance> cache;
+    private final boolean enabled;
+    private final Counter databaseReads;
+
+    public CardBalanceCache(CardRepository cardRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.card.balance-cache.max-size:100000}") long maxSize,
+                            @Value("${app.card.balance-cache.max-staleness:PT5S}") Duration maxStaleness) {
+        this.cardRepository = cardRepository;
+        this.enabled = !maxStaleness.isZero();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maxSize : 0)
+                .expireAfterWrite(maxStaleness)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "cardBalances");
+
+        this.databaseReads = Counter.builder("cards.balance.db.reads")
+                .description("Card balance reads that went to the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Баланс карты не старше {@code minVersion}.
+     *
+     * @return пусто, если карты нет
+     */
+    public Optional<CardBalance> get(long cardId, long minVersion) {
+        if (!enabled) {
+            return load(cardId);
+        }
+        CardBalance cached = cache.get(cardId, id -> load(id).orElse(null));
+        if (cached == null || cached.version() >= minVersion) {
+            return Optional.ofNullable(cached);
+        }
+        Optional<CardBalance> loaded = load(cardId);
+        loaded.ifPresent(this::merge);
+        return loaded;
+    }
+
+    /**
+     * Кладет новый баланс карты после коммита транзакции, изменившей его.
+     */
+    public void updated(Card card) {
+        CardBalance balance = CardBalance.from(card);
+        TransactionCallbacks.afterCommit(() -> merge(balance));
+    }
+
+    public void evict(long cardId) {
+        TransactionCallbacks.afterCommit(() -> cache.invalidate(cardId));
+    }
+
+    private Optional<CardBalance> load(long cardId) {
+        databaseReads.increment();
+        return cardRepository.findBalanceById(cardId);
+    }
+
+    private void merge(CardBalance balance) {
+        if (!enabled) {
+            return;
+        }
+        cache.asMap().compute(balance.cardId(), (id, current) -> {
+            if (current == null || balance.version() > current.version()) {
+                return balance;
+            }
+            if (balance.version() == current.version() && balance.balance().compareTo(current.balance()) != 0) {
+                // Одна версия с разными балансами — гонка записей без блокировки, верное значение в базе
+                return null;
+            }
+            return current;
+        });
+    }
+}
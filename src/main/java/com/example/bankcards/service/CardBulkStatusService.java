@@ -0,0 +1,188 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardBulkStatusReport;
+import com.example.bankcards.dto.CardBulkStatusRequest;
+import com.example.bankcards.dto.CardBulkStatusResult;
+import com.example.bankcards.dto.CardBulkStatusResult.Outcome;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.event.CardsExpiringSoonEvent.ExpiringCard;
+import com.example.bankcards.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Массовая блокировка и активация карт администратором. Отобранные карты
+ * блокируются одним SELECT ... FOR UPDATE в порядке id, по нему же считаются
+ * исходы по каждой карте и поправки статистики, а статус меняется одним
+ * UPDATE с тем же отбором. Правила те же, что у {@link CardService#blockCard}
+ * и {@link CardService#activateCard}: истекшие карты и карты уже в целевом
+ * статусе пропускаются.
+ */
+@Service
+@Slf4j
+public class CardBulkStatusService {
+
+    private static final String LOCK_SQL =
+            "SELECT id, status, balance, expiration_date, owner_id FROM cards WHERE %s ORDER BY id FOR UPDATE";
+    private static final String UPDATE_SQL =
+            "UPDATE cards SET status = :target, updated_at = :now "
+                    + "WHERE %s AND status <> :target AND expiration_date >= :today";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final CardStatistics cardStatistics;
+    private final CardExpiryWheel cardExpiryWheel;
+    private final int maxIds;
+    private final Map<CardStatus, Counter> updatedCards = new EnumMap<>(CardStatus.class);
+
+    public CardBulkStatusService(JdbcTemplate jdbcTemplate,
+                                 CardStatistics cardStatistics,
+                                 CardExpiryWheel cardExpiryWheel,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.card.bulk.max-ids:10000}") int maxIds) {
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.cardStatistics = cardStatistics;
+        this.cardExpiryWheel = cardExpiryWheel;
+        this.maxIds = maxIds;
+        for (CardStatus status : List.of(CardStatus.BLOCKED, CardStatus.ACTIVE)) {
+            updatedCards.put(status, Counter.builder("cards.bulk.status.updated")
+                    .description("Cards whose status was changed by bulk operations")
+                    .tag("status", status.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Transactional
+    public CardBulkStatusReport blockCards(CardBulkStatusRequest request) {
+        return changeStatus(request, CardStatus.BLOCKED);
+    }
+
+    @Transactional
+    public CardBulkStatusReport activateCards(CardBulkStatusRequest request) {
+        return changeStatus(request, CardStatus.ACTIVE);
+    }
+
+    private CardBulkStatusReport changeStatus(CardBulkStatusRequest request, CardStatus target) {
+        Set<Long> requestedIds = request.getIds() != null ? new LinkedHashSet<>(request.getIds()) : null;
+        if (requestedIds != null && requestedIds.size() > maxIds) {
+            throw new IllegalArgumentException("No more than " + maxIds + " card ids per request");
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String condition = condition(request, requestedIds, params);
+        if (requestedIds != null && requestedIds.isEmpty()) {
+            return report(target, List.of());
+        }
+
+        LocalDate today = LocalDate.now();
+        Map<Long, CardBulkStatusResult> found = new HashMap<>();
+        List<CardBulkStatusResult> locked = new ArrayList<>();
+        Map<CardStatus, long[]> changedCounts = new EnumMap<>(CardStatus.class);
+        Map<CardStatus, BigDecimal> changedBalances = new EnumMap<>(CardStatus.class);
+        List<ExpiringCard> activated = new ArrayList<>();
+        namedJdbcTemplate.query(String.format(LOCK_SQL, condition), params, rs -> {
+            long cardId = rs.getLong("id");
+            CardStatus status = CardStatus.valueOf(rs.getString("status"));
+            LocalDate expirationDate = rs.getObject("expiration_date", LocalDate.class);
+            Outcome outcome;
+            if (today.isAfter(expirationDate)) {
+                outcome = Outcome.EXPIRED;
+            } else if (status == target) {
+                outcome = Outcome.ALREADY_IN_STATUS;
+            } else {
+                outcome = Outcome.UPDATED;
+                changedCounts.computeIfAbsent(status, s -> new long[1])[0]++;
+                changedBalances.merge(status, rs.getBigDecimal("balance"), BigDecimal::add);
+                if (target == CardStatus.ACTIVE) {
+                    activated.add(new ExpiringCard(cardId, rs.getLong("owner_id"), expirationDate));
+                }
+            }
+            CardBulkStatusResult result = new CardBulkStatusResult(cardId, outcome);
+            found.put(cardId, result);
+            locked.add(result);
+        });
+
+        long expected = changedCounts.values().stream().mapToLong(count -> count[0]).sum();
+        if (expected > 0) {
+            params.addValue("target", target.name())
+                    .addValue("now", LocalDateTime.now())
+                    .addValue("today", today);
+            int updated = namedJdbcTemplate.update(String.format(UPDATE_SQL, condition), params);
+            if (updated != expected) {
+                // Строки заблокированы выше, расхождение означает ошибку в условиях отбора
+                throw new IllegalStateException("Bulk status change updated " + updated + " cards, expected " + expected);
+            }
+            changedCounts.forEach((from, count) ->
+                    cardStatistics.statusChanged(from, target, count[0], changedBalances.get(from)));
+            if (!activated.isEmpty()) {
+                TransactionCallbacks.afterCommit(() -> cardExpiryWheel.scheduleAll(activated));
+            }
+            Counter counter = updatedCards.get(target);
+            TransactionCallbacks.afterCommit(() -> counter.increment(expected));
+        }
+
+        // По списку id — исходы в порядке запроса, отсутствующие или не прошедшие остальные условия — NOT_FOUND
+        List<CardBulkStatusResult> results = requestedIds == null ? locked : requestedIds.stream()
+                .map(id -> found.getOrDefault(id, new CardBulkStatusResult(id, Outcome.NOT_FOUND)))
+                .toList();
+        CardBulkStatusReport report = report(target, results);
+        log.info("Bulk status change to {}: {} updated, {} already in status, {} expired, {} not found",
+                target, report.getUpdated(), report.getAlreadyInStatus(), report.getExpired(), report.getNotFound());
+        return report;
+    }
+
+    private static String condition(CardBulkStatusRequest request, Set<Long> requestedIds,
+                                    MapSqlParameterSource params) {
+        List<String> conditions = new ArrayList<>();
+        if (requestedIds != null) {
+            conditions.add("id IN (:ids)");
+            params.addValue("ids", requestedIds);
+        }
+        if (request.getOwnerId() != null) {
+            conditions.add("owner_id = :ownerId");
+            params.addValue("ownerId", request.getOwnerId());
+        }
+        if (request.getCreatedFrom() != null) {
+            conditions.add("created_at >= :createdFrom");
+            params.addValue("createdFrom", request.getCreatedFrom().atStartOfDay());
+        }
+        if (request.getCreatedTo() != null) {
+            conditions.add("created_at < :createdTo");
+            params.addValue("createdTo", request.getCreatedTo().plusDays(1).atStartOfDay());
+        }
+        if (conditions.isEmpty()) {
+            throw new IllegalArgumentException("At least one of ids, ownerId, createdFrom, createdTo is required");
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    private static CardBulkStatusReport report(CardStatus target, List<CardBulkStatusResult> results) {
+        Map<Outcome, Integer> counts = new EnumMap<>(Outcome.class);
+        results.forEach(result -> counts.merge(result.getOutcome(), 1, Integer::sum));
+        return CardBulkStatusReport.builder()
+                .targetStatus(target)
+                .total(results.size())
+                .updated(counts.getOrDefault(Outcome.UPDATED, 0))
+                .alreadyInStatus(counts.getOrDefault(Outcome.ALREADY_IN_STATUS, 0))
+                .expired(counts.getOrDefault(Outcome.EXPIRED, 0))
+                .notFound(counts.getOrDefault(Outcome.NOT_FOUND, 0))
+                .results(results)
+                .build();
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardExpiryReport;
+import com.example.bankcards.entity.CardExpiryRun;
+import com.example.bankcards.entity.CardExpiryRunStatus;
+import com.example.bankcards.event.CardsExpiringSoonEvent;
+import com.example.bankcards.event.CardsExpiringSoonEvent.ExpiringCard;
+import com.example.bankcards.repository.CardExpiryRunRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ежедневный проход по сроку действия карт вместо одного UPDATE по всей таблице.
+ * <p>
+ * Карты обходятся по частичному индексу (expiration_date, id) среди еще не
+ * просроченных — уже просроченные в него не попадают, поэтому проход читает только
+ * карты, истекшие с прошлого раза, и окно ближайших дней. Порция просроченных
+ * переводится в EXPIRED в короткой транзакции вместе с сохранением контрольной
+ * точки; после остановки или падения проход за тот же день продолжается с нее.
+ * Повтор безопасен: обновление условное, уже просроченные карты не трогаются.
+ * Карты, истекающие в ближайшие дни, рассылаются событием
+ * {@link CardsExpiringSoonEvent} после коммита своей порции и ставятся
+ * в {@link CardExpiryWheel}, который переводит их точно в срок; сам проход
+ * для них — подстраховка.
+ * <p>
+ * При нескольких экземплярах проход за день ведет один: новую строку прохода
+ * вставляет ровно один экземпляр (уникальная run_date), а существующую
+ * незавершенную захватывает условным UPDATE, только если у нее нет владельца
+ * или его аренда ({@code app.card.expiry.lease}) истекла. Владелец продлевает
+ * аренду с каждой порцией.
+ */
+@Service
+@Slf4j
+public class CardExpiryService {
+
+    static final String FIRST_CHUNK_SQL =
+            "SELECT id, owner_id, expiration_date FROM cards WHERE status <> 'EXPIRED' "
+                    + "AND expiration_date <= ? ORDER BY expiration_date, id LIMIT ?";
+    static final String NEXT_CHUNK_SQL =
+            "SELECT id, owner_id, expiration_date FROM cards WHERE status <> 'EXPIRED' "
+                    + "AND (expiration_date, id) > (?, ?) AND expiration_date <= ? ORDER BY expiration_date, id LIMIT ?";
+    static final String EXPIRE_SQL =
+            "UPDATE cards SET status = 'EXPIRED', updated_at = ? "
+                    + "WHERE id = ? AND status <> 'EXPIRED' AND expiration_date < ?";
+
+    static final RowMapper<ExpiringCard> CARD_MAPPER = (rs, rowNum) -> new ExpiringCard(
+            rs.getLong(1), rs.getLong(2), rs.getObject(3, LocalDate.class));
+
+    private final CardExpiryRunRepository runRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CardExpiryWheel cardExpiryWheel;
+    private final CardStatistics cardStatistics;
+    private final ExecutorService catchUpExecutor;
+    private final int chunkSize;
+    private final int expiringWithinDays;
+    private final boolean runOnStartup;
+    private final Duration lease;
+    private final String instanceId;
+    private final Counter expiredCards;
+    private final Counter expiringSoonCards;
+    private final Timer chunkTimer;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopRequested;
+
+    public CardExpiryService(CardExpiryRunRepository runRepository,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             CardExpiryWheel cardExpiryWheel,
+                             CardStatistics cardStatistics,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.card.expiry.chunk-size:1000}") int chunkSize,
+                             @Value("${app.card.expiry.expiring-within-days:30}") int expiringWithinDays,
+                             @Value("${app.card.expiry.run-on-startup:true}") boolean runOnStartup,
+                             @Value("${app.card.expiry.lease:PT5M}") Duration lease) {
+        this.runRepository = runRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.cardExpiryWheel = cardExpiryWheel;
+        this.cardStatistics = cardStatistics;
+        this.chunkSize = chunkSize;
+        this.expiringWithinDays = expiringWithinDays;
+        this.runOnStartup = runOnStartup;
+        this.lease = lease;
+        // pid@host различает процессы, суффикс — перезапуски с тем же pid в контейнере
+        this.instanceId = ManagementFactory.getRuntimeMXBean().getName() + "/"
+                + UUID.randomUUID().toString().substring(0, 8);
+        this.catchUpExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("card-expiry-"));
+
+        this.expiredCards = cardsCounter(meterRegistry, "expired");
+        this.expiringSoonCards = cardsCounter(meterRegistry, "expiring_soon");
+        this.chunkTimer = Timer.builder("cards.expiry.chunk.duration")
+                .description("Time to process one chunk of the card expiry run")
+                .register(meterRegistry);
+    }
+
+    private static Counter cardsCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cards.expiry.cards")
+                .description("Cards handled by card expiry")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Проход за день {@code today}: продолжает незавершенный или начинает новый.
+     * Если проход за этот день уже завершен, возвращает его отчет.
+     *
+     * @return отчет или пустой результат, если проход уже выполняется здесь или на другом экземпляре
+     */
+    public Optional<CardExpiryReport> run(LocalDate today) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Card expiry run is already in progress");
+            return Optional.empty();
+        }
+        try {
+            CardExpiryRun run = runRepository.findByRunDate(today).orElse(null);
+            if (run != null && run.getStatus() == CardExpiryRunStatus.COMPLETED) {
+                return Optional.of(toReport(run));
+            }
+            if (run == null) {
+                try {
+                    run = runRepository.save(CardExpiryRun.builder()
+                            .runDate(today)
+                            .status(CardExpiryRunStatus.RUNNING)
+                            .owner(instanceId)
+                            .heartbeatAt(LocalDateTime.now())
+                            .build());
+                } catch (DataIntegrityViolationException e) {
+                    log.info("Card expiry run for {} was started by another instance", today);
+                    return Optional.empty();
+                }
+            } else {
+                if (!claim(today)) {
+                    log.info("Card expiry run for {} is owned by {}", today, run.getOwner());
+                    return Optional.empty();
+                }
+                run = runRepository.findByRunDate(today).orElseThrow();
+                log.info("Resuming card expiry run for {} from card {} expiring {}",
+                        today, run.getLastCardId(), run.getLastExpirationDate());
+            }
+            return Optional.of(toReport(execute(run, today)));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private boolean claim(LocalDate today) {
+        LocalDateTime now = LocalDateTime.now();
+        return runRepository.claim(today, instanceId, now, now.minus(lease),
+                CardExpiryRunStatus.RUNNING, CardExpiryRunStatus.COMPLETED) == 1;
+    }
+
+    public Optional<CardExpiryReport> latestReport() {
+        return runRepository.findFirstByOrderByRunDateDesc().map(CardExpiryService::toReport);
+    }
+
+    /**
+     * Догоняет проход за сегодня, если приложение было остановлено в полночь
+     * или во время прохода.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUp() {
+        if (runOnStartup) {
+            catchUpExecutor.submit(() -> run(LocalDate.now()));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        stopRequested = true;
+        catchUpExecutor.shutdown();
+    }
+
+    private CardExpiryRun execute(CardExpiryRun run, LocalDate today) {
+        LocalDate noticeUntil = today.plusDays(expiringWithinDays);
+        long started = System.nanoTime();
+        try {
+            while (!stopRequested) {
+                List<ExpiringCard> chunk = nextChunk(run, noticeUntil);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                CardExpiryRun current = run;
+                run = chunkTimer.record(() -> processChunk(current, chunk, today));
+            }
+            if (stopRequested) {
+                // Остается RUNNING без владельца: любой экземпляр продолжит с контрольной точки
+                log.info("Card expiry run for {} stopped at card {}", today, run.getLastCardId());
+                run.setOwner(null);
+                return runRepository.save(run);
+            }
+            run.setStatus(CardExpiryRunStatus.COMPLETED);
+            run.setCompletedAt(LocalDateTime.now());
+            run.setOwner(null);
+            run = runRepository.save(run);
+            log.info("Card expiry run for {} completed: {} cards scanned, {} expired, {} expiring within {} days in {} ms",
+                    today, run.getScanned(), run.getExpired(), run.getExpiringSoon(), expiringWithinDays,
+                    (System.nanoTime() - started) / 1_000_000);
+            return run;
+        } catch (OptimisticLockingFailureException e) {
+            // Аренда истекла и проход захватил другой экземпляр; его состояние не трогаем
+            log.warn("Card expiry run for {} was taken over by another instance after card {}",
+                    today, run.getLastCardId());
+            return runRepository.findById(run.getId()).orElse(run);
+        } catch (Exception e) {
+            log.error("Card expiry run for {} failed after card {}: {}", today, run.getLastCardId(), e.getMessage(), e);
+            // Счетчики в памяти могли опередить откаченную порцию, берем сохраненную контрольную точку
+            CardExpiryRun failed = runRepository.findById(run.getId()).orElse(run);
+            if (!instanceId.equals(failed.getOwner())) {
+                return failed;
+            }
+            failed.setStatus(CardExpiryRunStatus.FAILED);
+            failed.setOwner(null);
+            return runRepository.save(failed);
+        }
+    }
+
+    private List<ExpiringCard> nextChunk(CardExpiryRun run, LocalDate noticeUntil) {
+        if (run.getLastExpirationDate() == null) {
+            return jdbcTemplate.query(FIRST_CHUNK_SQL, CARD_MAPPER, noticeUntil, chunkSize);
+        }
+        return jdbcTemplate.query(NEXT_CHUNK_SQL, CARD_MAPPER,
+                run.getLastExpirationDate(), run.getLastCardId(), noticeUntil, chunkSize);
+    }
+
+    private CardExpiryRun processChunk(CardExpiryRun run, List<ExpiringCard> chunk, LocalDate today) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> due = new ArrayList<>();
+        List<Long> dueIds = new ArrayList<>();
+        List<ExpiringCard> expiringSoon = new ArrayList<>();
+        // По возрастанию id — в том же порядке строки блокируют переводы
+        chunk.stream().sorted(Comparator.comparing(ExpiringCard::cardId)).forEach(card -> {
+            if (card.expirationDate().isBefore(today)) {
+                due.add(new Object[]{now, card.cardId(), today});
+                dueIds.add(card.cardId());
+            } else {
+                expiringSoon.add(card);
+            }
+        });
+        ExpiringCard last = chunk.get(chunk.size() - 1);
+
+        long[] expired = new long[1];
+        CardExpiryRun saved = transactionTemplate.execute(status -> {
+            if (!due.isEmpty()) {
+                cardStatistics.lockExpiring(dueIds, today);
+                for (int count : jdbcTemplate.batchUpdate(EXPIRE_SQL, due)) {
+                    expired[0] += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+                }
+            }
+            run.setLastExpirationDate(last.expirationDate());
+            run.setLastCardId(last.cardId());
+            run.setScanned(run.getScanned() + chunk.size());
+            run.setExpired(run.getExpired() + expired[0]);
+            run.setExpiringSoon(run.getExpiringSoon() + expiringSoon.size());
+            run.setHeartbeatAt(LocalDateTime.now());
+            return runRepository.save(run);
+        });
+
+        expiredCards.increment(expired[0]);
+        if (!expiringSoon.isEmpty()) {
+            // Карты, вошедшие в окно за прошедшие сутки, попадают в колесо этим же проходом
+            if (today.equals(LocalDate.now())) {
+                cardExpiryWheel.scheduleAll(expiringSoon);
+            }
+            expiringSoonCards.increment(expiringSoon.size());
+            eventPublisher.publishEvent(new CardsExpiringSoonEvent(today, expiringSoon));
+        }
+        return saved;
+    }
+
+    private static CardExpiryReport toReport(CardExpiryRun run) {
+        return CardExpiryReport.builder()
+                .runId(run.getId())
+                .runDate(run.getRunDate())
+                .status(run.getStatus())
+                .lastExpirationDate(run.getLastExpirationDate())
+                .lastCardId(run.getLastCardId())
+                .scanned(run.getScanned())
+                .expired(run.getExpired())
+                .expiringSoon(run.getExpiringSoon())
+                .startedAt(run.getStartedAt())
+                .updatedAt(run.getUpdatedAt())
+                .completedAt(run.getCompletedAt())
+                .build();
+    }
+}
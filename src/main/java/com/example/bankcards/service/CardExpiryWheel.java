@@ -0,0 +1,229 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.event.CardsExpiringSoonEvent.ExpiringCard;
+import com.example.bankcards.util.HierarchicalTimingWheel;
+import com.example.bankcards.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Переводит карты в EXPIRED в момент истечения срока, чтобы сохраненный статус
+ * оставался достоверным и чтение не вычисляло его по дате.
+ * <p>
+ * Карты, истекающие в ближайшие {@code app.card.expiry.expiring-within-days} дней,
+ * лежат в {@link HierarchicalTimingWheel} со сроком — полночь после даты
+ * истечения. Колесо загружается при старте тем же обходом, что и ежедневный
+ * проход {@link CardExpiryService}, а дальше пополняется этим проходом
+ * и выпуском или активацией карты. Наступившие сроки переводятся небольшими
+ * порциями в коротких транзакциях; ежедневный проход остается подстраховкой.
+ */
+@Component
+@Slf4j
+public class CardExpiryWheel {
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CardStatistics cardStatistics;
+    private final ScheduledExecutorService ticker;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Duration tick;
+    private final int batchSize;
+    private final int loadChunkSize;
+    private final int horizonDays;
+    private final boolean loadOnStartup;
+    private final Counter expiredCards;
+
+    private final HierarchicalTimingWheel wheel;
+
+    public CardExpiryWheel(JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           CardStatistics cardStatistics,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.card.expiry.wheel.tick:PT1S}") Duration tick,
+                           @Value("${app.card.expiry.wheel.batch-size:500}") int batchSize,
+                           @Value("${app.card.expiry.wheel.load-on-startup:true}") boolean loadOnStartup,
+                           @Value("${app.card.expiry.chunk-size:1000}") int loadChunkSize,
+                           @Value("${app.card.expiry.expiring-within-days:30}") int horizonDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cardStatistics = cardStatistics;
+        this.tick = tick;
+        this.batchSize = batchSize;
+        this.loadOnStartup = loadOnStartup;
+        this.loadChunkSize = loadChunkSize;
+        this.horizonDays = horizonDays;
+        this.wheel = new HierarchicalTimingWheel(tick.toMillis(), WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+        if (Duration.ofDays(horizonDays + 2L).toMillis() > wheel.horizonMillis()) {
+            throw new IllegalStateException("Card expiry wheel with tick " + tick + " cannot hold "
+                    + horizonDays + " days ahead, increase app.card.expiry.wheel.tick");
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("card-expiry-wheel-"));
+
+        this.expiredCards = Counter.builder("cards.expiry.cards")
+                .description("Cards handled by card expiry")
+                .tag("result", "expired_on_time")
+                .register(meterRegistry);
+        Gauge.builder("cards.expiry.wheel.size", this, CardExpiryWheel::size)
+                .description("Cards waiting for expiration in the timing wheel")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (loadOnStartup) {
+            ticker.execute(this::load);
+        }
+        ticker.scheduleWithFixedDelay(this::tick, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Ставит карту в колесо после коммита транзакции, если срок в пределах горизонта.
+     */
+    public void schedule(long cardId, LocalDate expirationDate) {
+        TransactionCallbacks.afterCommit(() -> scheduleNow(cardId, expirationDate));
+    }
+
+    public void cancel(long cardId) {
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (wheel) {
+                wheel.cancel(cardId);
+            }
+        });
+    }
+
+    /**
+     * Ставит уже сохраненные карты; вызывается ежедневным проходом для окна ближайших дней.
+     */
+    public void scheduleAll(Collection<ExpiringCard> cards) {
+        cards.forEach(card -> scheduleNow(card.cardId(), card.expirationDate()));
+    }
+
+    public boolean isScheduled(long cardId) {
+        synchronized (wheel) {
+            return wheel.isScheduled(cardId);
+        }
+    }
+
+    public int size() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * Продвигает колесо к текущему моменту и переводит наступившие карты.
+     */
+    public void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            List<Long> due;
+            synchronized (wheel) {
+                due = wheel.advance(now);
+            }
+            if (!due.isEmpty()) {
+                expire(due, now);
+            }
+        } catch (Exception e) {
+            // Исключение остановило бы периодический запуск
+            log.error("Card expiry wheel tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void load() {
+        try {
+            loadUntil(LocalDate.now(zone).plusDays(horizonDays));
+        } catch (Exception e) {
+            // Карты, не попавшие в колесо, переведет ежедневный проход
+            log.error("Card expiry wheel load failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void loadUntil(LocalDate until) {
+        long started = System.nanoTime();
+        List<ExpiringCard> chunk = jdbcTemplate.query(CardExpiryService.FIRST_CHUNK_SQL,
+                CardExpiryService.CARD_MAPPER, until, loadChunkSize);
+        long loaded = 0;
+        while (!chunk.isEmpty()) {
+            scheduleAll(chunk);
+            loaded += chunk.size();
+            ExpiringCard last = chunk.get(chunk.size() - 1);
+            chunk = jdbcTemplate.query(CardExpiryService.NEXT_CHUNK_SQL, CardExpiryService.CARD_MAPPER,
+                    last.expirationDate(), last.cardId(), until, loadChunkSize);
+        }
+        log.info("Card expiry wheel loaded {} cards expiring until {} in {} ms",
+                loaded, until, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void scheduleNow(long cardId, LocalDate expirationDate) {
+        if (expirationDate.isAfter(LocalDate.now(zone).plusDays(horizonDays))) {
+            return;
+        }
+        synchronized (wheel) {
+            wheel.schedule(cardId, expiresAt(expirationDate));
+        }
+    }
+
+    private void expire(List<Long> due, long now) {
+        LocalDate today = LocalDate.now(zone);
+        LocalDateTime updatedAt = LocalDateTime.now(zone);
+        long expired = 0;
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Long> batch = due.subList(from, Math.min(due.size(), from + batchSize)).stream().sorted().toList();
+            List<Object[]> args = new ArrayList<>(batch.size());
+            batch.forEach(cardId -> args.add(new Object[]{updatedAt, cardId, today}));
+            try {
+                int[] counts = transactionTemplate.execute(status -> {
+                    cardStatistics.lockExpiring(batch, today);
+                    return jdbcTemplate.batchUpdate(CardExpiryService.EXPIRE_SQL, args);
+                });
+                for (int count : counts) {
+                    expired += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+                }
+            } catch (RuntimeException e) {
+                // Оставшиеся вернутся в колесо как наступившие и будут повторены на следующем тике
+                List<Long> remaining = due.subList(from, due.size());
+                log.error("Cannot expire {} cards, will retry: {}", remaining.size(), e.getMessage());
+                synchronized (wheel) {
+                    remaining.forEach(cardId -> wheel.schedule(cardId, now));
+                }
+                break;
+            }
+        }
+        expiredCards.increment(expired);
+        log.info("Expired {} cards at the expiration boundary", expired);
+    }
+
+    private long expiresAt(LocalDate expirationDate) {
+        return expirationDate.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+}
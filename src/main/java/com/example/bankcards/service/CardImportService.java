@@ -0,0 +1,393 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardCreateRequest;
+import com.example.bankcards.dto.CardImportReport;
+import com.example.bankcards.dto.CardImportRowResult;
+import com.example.bankcards.dto.CardImportRowResult.Status;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CardNumberMasker;
+import com.example.bankcards.util.EncryptionUtil;
+import com.example.bankcards.util.PooledIdAllocator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Массовый выпуск карт из NDJSON вместо отдельного POST /cards на карту. Файл читается
+ * потоково и обрабатывается чанками: владельцы проверяются одним запросом на чанк,
+ * шифрование идет параллельно, существующие номера ищутся одним запросом только для
+ * номеров, которые не отсек {@link CardNumberRegistry}, а вставка — JDBC-батчем
+ * с идентификаторами, заранее выделенными из cards_id_seq.
+ */
+@Service
+@Slf4j
+public class CardImportService {
+
+    private static final String INSERT_CARD_SQL =
+            "INSERT INTO cards (id, card_number_ciphertext, card_number_hmac, card_number_last_four, card_holder_name, "
+                    + "expiration_date, status, balance, balance_version, cvv_ciphertext, owner_id, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?)";
+    private static final String EXISTING_NUMBERS_SQL =
+            "SELECT card_number_hmac, card_number_hash FROM cards "
+                    + "WHERE card_number_hmac IN (:hmacs) OR card_number_hash IN (:hashes)";
+
+    private final CardService cardService;
+    private final UserRepository userRepository;
+    private final EncryptionUtil encryptionUtil;
+    private final CardNumberMasker cardNumberMasker;
+    private final CardNumberRegistry cardNumberRegistry;
+    private final CardSearchIndex cardSearchIndex;
+    private final CardExpiryWheel cardExpiryWheel;
+    private final CardStatistics cardStatistics;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final PooledIdAllocator idAllocator;
+    private final ExecutorService encryptionPool;
+    private final int chunkSize;
+    private final Timer importTimer;
+    private final Counter importedCards;
+
+    public CardImportService(CardService cardService,
+                             UserRepository userRepository,
+                             EncryptionUtil encryptionUtil,
+                             CardNumberMasker cardNumberMasker,
+                             CardNumberRegistry cardNumberRegistry,
+                             CardSearchIndex cardSearchIndex,
+                             CardExpiryWheel cardExpiryWheel,
+                             CardStatistics cardStatistics,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.card.import.chunk-size:1000}") int chunkSize,
+                             @Value("${app.card.import.encryption-threads:0}") int encryptionThreads) {
+        this.cardService = cardService;
+        this.userRepository = userRepository;
+        this.encryptionUtil = encryptionUtil;
+        this.cardNumberMasker = cardNumberMasker;
+        this.cardNumberRegistry = cardNumberRegistry;
+        this.cardSearchIndex = cardSearchIndex;
+        this.cardExpiryWheel = cardExpiryWheel;
+        this.cardStatistics = cardStatistics;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.idAllocator = new PooledIdAllocator(jdbcTemplate, "cards_id_seq", Card.ID_ALLOCATION_SIZE);
+        this.chunkSize = chunkSize;
+        int threads = encryptionThreads > 0 ? encryptionThreads : Runtime.getRuntime().availableProcessors();
+        this.encryptionPool = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("card-import-"));
+        this.importTimer = Timer.builder("cards.import.duration")
+                .description("Duration of bulk card issuance")
+                .register(meterRegistry);
+        this.importedCards = Counter.builder("cards.import.created")
+                .description("Cards created by bulk issuance")
+                .register(meterRegistry);
+    }
+
+    public CardImportReport importCards(InputStream input) throws IOException {
+        long started = System.nanoTime();
+        List<CardImportRowResult> results = new ArrayList<>();
+        // HMAC номеров, уже встреченных в этом файле: сами номера в памяти не копятся
+        Set<ByteBuffer> seenNumbers = new HashSet<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                Row row = parse(lineNumber, line, seenNumbers);
+                results.add(row.result);
+                if (row.result.getStatus() == null) {
+                    chunk.add(row);
+                }
+                if (chunk.size() >= chunkSize) {
+                    processChunk(chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(chunk);
+            }
+        }
+
+        long durationNanos = System.nanoTime() - started;
+        importTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        CardImportReport report = buildReport(results, durationNanos);
+        log.info("Imported cards: {} created, {} duplicates, {} invalid in {} ms ({} rows/s)",
+                report.getCreated(), report.getDuplicates(), report.getInvalid(),
+                report.getDurationMs(), Math.round(report.getRowsPerSecond()));
+        return report;
+    }
+
+    private Row parse(int lineNumber, String line, Set<ByteBuffer> seenNumbers) {
+        CardImportRowResult result = CardImportRowResult.builder().line(lineNumber).build();
+        CardCreateRequest request;
+        try {
+            request = objectMapper.readValue(line, CardCreateRequest.class);
+        } catch (JsonProcessingException e) {
+            result.setStatus(Status.INVALID);
+            result.setMessage("Malformed JSON");
+            return new Row(null, null, result);
+        }
+        if (request.getInitialBalance() == null) {
+            request.setInitialBalance(BigDecimal.ZERO);
+        }
+
+        Set<ConstraintViolation<CardCreateRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            result.setStatus(Status.INVALID);
+            result.setMessage(violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+            return new Row(request, null, result);
+        }
+        result.setMaskedCardNumber(cardNumberMasker.maskCardNumber(lastFour(request)));
+        try {
+            cardService.checkIssuanceLimits(request);
+        } catch (IllegalArgumentException e) {
+            result.setStatus(Status.INVALID);
+            result.setMessage(e.getMessage());
+            return new Row(request, null, result);
+        }
+
+        byte[] hmac = encryptionUtil.hmac(request.getCardNumber());
+        if (!seenNumbers.add(ByteBuffer.wrap(hmac))) {
+            result.setStatus(Status.DUPLICATE);
+            result.setMessage("Card number is repeated in the file");
+        }
+        return new Row(request, hmac, result);
+    }
+
+    private void processChunk(List<Row> chunk) {
+        List<Row> owned = excludeMissingOwners(chunk);
+        if (owned.isEmpty()) {
+            return;
+        }
+
+        // AES-GCM и SHA-256 старого хэша — основная стоимость выпуска, поэтому на всех ядрах
+        List<CompletableFuture<Encrypted>> futures = owned.stream()
+                .map(row -> CompletableFuture.supplyAsync(() -> encrypt(row.request), encryptionPool))
+                .toList();
+        List<Encrypted> encrypted = futures.stream().map(CompletableFuture::join).toList();
+
+        List<Row> fresh = new ArrayList<>(owned.size());
+        List<Encrypted> freshEncrypted = new ArrayList<>(owned.size());
+        Set<ByteBuffer> existing = existingNumbers(owned, encrypted);
+        for (int i = 0; i < owned.size(); i++) {
+            Row row = owned.get(i);
+            if (existing.contains(ByteBuffer.wrap(row.hmac))
+                    || existing.contains(legacyKey(encrypted.get(i).legacyHash))) {
+                markDuplicate(row.result);
+            } else {
+                fresh.add(row);
+                freshEncrypted.add(encrypted.get(i));
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        long[] ids = idAllocator.allocate(fresh.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(fresh, freshEncrypted, ids));
+            for (int i = 0; i < fresh.size(); i++) {
+                created(fresh.get(i), ids[i]);
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Номер выпустили параллельно: вставляем чанк построчно
+            log.warn("Batch card insert conflicted, retrying {} rows one by one", fresh.size());
+            for (int i = 0; i < fresh.size(); i++) {
+                List<Row> row = List.of(fresh.get(i));
+                List<Encrypted> rowEncrypted = List.of(freshEncrypted.get(i));
+                long[] rowId = {ids[i]};
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(row, rowEncrypted, rowId));
+                    created(row.get(0), rowId[0]);
+                } catch (DataIntegrityViolationException rowError) {
+                    markDuplicate(row.get(0).result);
+                }
+            }
+        }
+    }
+
+    private List<Row> excludeMissingOwners(List<Row> chunk) {
+        Set<Long> ownerIds = chunk.stream().map(row -> row.request.getOwnerId()).collect(Collectors.toSet());
+        Set<Long> existingOwners = userRepository.findExistingIds(ownerIds);
+
+        List<Row> owned = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (existingOwners.contains(row.request.getOwnerId())) {
+                owned.add(row);
+            } else {
+                row.result.setStatus(Status.INVALID);
+                row.result.setMessage("User not found with id: " + row.request.getOwnerId());
+            }
+        }
+        return owned;
+    }
+
+    private Encrypted encrypt(CardCreateRequest request) {
+        return new Encrypted(
+                encryptionUtil.encrypt(request.getCardNumber().getBytes(StandardCharsets.UTF_8)),
+                encryptionUtil.encrypt(request.getCvv().getBytes(StandardCharsets.UTF_8)),
+                encryptionUtil.hash(request.getCardNumber()));
+    }
+
+    /**
+     * HMAC и старые хэши номеров чанка, уже выпущенных в базе. Номера, по которым
+     * фильтр дает точный промах, в запрос не попадают.
+     */
+    private Set<ByteBuffer> existingNumbers(List<Row> rows, List<Encrypted> encrypted) {
+        List<byte[]> hmacs = new ArrayList<>();
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (cardNumberRegistry.mightExist(rows.get(i).hmac, encrypted.get(i).legacyHash)) {
+                hmacs.add(rows.get(i).hmac);
+                hashes.add(encrypted.get(i).legacyHash);
+            }
+        }
+        Set<ByteBuffer> existing = new HashSet<>();
+        if (hmacs.isEmpty()) {
+            return existing;
+        }
+        namedJdbcTemplate.query(EXISTING_NUMBERS_SQL, new MapSqlParameterSource()
+                .addValue("hmacs", hmacs)
+                .addValue("hashes", hashes), rs -> {
+            byte[] hmac = rs.getBytes(1);
+            String hash = rs.getString(2);
+            if (hmac != null) {
+                existing.add(ByteBuffer.wrap(hmac));
+            }
+            if (hash != null) {
+                existing.add(legacyKey(hash));
+            }
+        });
+        // Фильтр ответил «возможно» на каждый номер из запроса; найденные — подтвержденные проверки
+        for (int i = 0; i < hmacs.size(); i++) {
+            cardNumberRegistry.recordLookup(existing.contains(ByteBuffer.wrap(hmacs.get(i)))
+                    || existing.contains(legacyKey(hashes.get(i))));
+        }
+        return existing;
+    }
+
+    private void insert(List<Row> rows, List<Encrypted> encrypted, long[] ids) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            CardCreateRequest request = rows.get(i).request;
+            batch.add(new Object[]{
+                    ids[i], encrypted.get(i).cardNumber, rows.get(i).hmac, lastFour(request),
+                    request.getCardHolderName(), request.getExpirationDate(), CardStatus.ACTIVE.name(),
+                    request.getInitialBalance(), encrypted.get(i).cvv, request.getOwnerId(), now, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_CARD_SQL, batch);
+    }
+
+    /**
+     * Вызывается после коммита: обновляет фильтр номеров, поисковый индекс, колесо сроков и статистику.
+     */
+    private void created(Row row, long cardId) {
+        CardCreateRequest request = row.request;
+        cardNumberRegistry.register(row.hmac);
+        cardSearchIndex.put(cardId, request.getCardHolderName(), lastFour(request));
+        cardExpiryWheel.schedule(cardId, request.getExpirationDate());
+        cardStatistics.cardCreated(CardStatus.ACTIVE, request.getInitialBalance());
+        row.result.setCardId(cardId);
+        row.result.setStatus(Status.CREATED);
+        importedCards.increment();
+    }
+
+    private static void markDuplicate(CardImportRowResult result) {
+        result.setStatus(Status.DUPLICATE);
+        result.setMessage("Card with this number already exists");
+    }
+
+    private static String lastFour(CardCreateRequest request) {
+        String cardNumber = request.getCardNumber();
+        return cardNumber.substring(cardNumber.length() - 4);
+    }
+
+    private static ByteBuffer legacyKey(String legacyHash) {
+        return ByteBuffer.wrap(legacyHash.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static CardImportReport buildReport(List<CardImportRowResult> results, long durationNanos) {
+        int created = 0;
+        int duplicates = 0;
+        int invalid = 0;
+        for (CardImportRowResult result : results) {
+            switch (result.getStatus()) {
+                case CREATED -> created++;
+                case DUPLICATE -> duplicates++;
+                case INVALID -> invalid++;
+            }
+        }
+        double seconds = durationNanos / 1_000_000_000.0;
+        return CardImportReport.builder()
+                .total(results.size())
+                .created(created)
+                .duplicates(duplicates)
+                .invalid(invalid)
+                .durationMs(durationNanos / 1_000_000)
+                .rowsPerSecond(seconds > 0 ? results.size() / seconds : 0)
+                .rows(results)
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        encryptionPool.shutdown();
+    }
+
+    private record Row(CardCreateRequest request, byte[] hmac, CardImportRowResult result) {
+    }
+
+    private record Encrypted(byte[] cardNumber, byte[] cvv, String legacyHash) {
+    }
+}
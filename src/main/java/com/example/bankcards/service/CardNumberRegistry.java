@@ -0,0 +1,172 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.BloomFilter;
+import com.example.bankcards.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Bloom-фильтр по номерам выпущенных карт. Новый номер почти всегда
+ * уникален, поэтому при выпуске карты точный ответ "такого номера нет"
+ * позволяет не ходить в базу. Положительный ответ подтверждается запросом,
+ * а корректность в любом случае обеспечивает уникальный индекс по HMAC:
+ * карты, выпущенные другими узлами после последней пересборки, фильтр не видит.
+ * <p>
+ * В фильтре лежат HMAC номеров и, для карт, еще не перенесенных в
+ * бинарные колонки, прежние SHA-256 хэши. Удалить из фильтра нельзя,
+ * поэтому он периодически пересобирается по таблице.
+ */
+@Component
+@Slf4j
+public class CardNumberRegistry {
+
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private final CardRepository cardRepository;
+    private final long expectedCards;
+    private final double falsePositiveRate;
+
+    private final Object filterLock = new Object();
+    private volatile BloomFilter filter;
+    private BloomFilter rebuilding;
+    private long filterEntries;
+
+    private final Counter skippedChecks;
+    private final Counter confirmedChecks;
+    private final Counter falsePositives;
+
+    public CardNumberRegistry(CardRepository cardRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.card.uniqueness.expected-size:1000000}") long expectedCards,
+                              @Value("${app.card.uniqueness.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.cardRepository = cardRepository;
+        this.expectedCards = expectedCards;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = BloomFilter.create(expectedCards, falsePositiveRate);
+
+        skippedChecks = Counter.builder("cards.uniqueness.checks")
+                .tag("result", "skipped")
+                .description("Card number uniqueness checks answered by the Bloom filter alone")
+                .register(meterRegistry);
+        confirmedChecks = Counter.builder("cards.uniqueness.checks")
+                .tag("result", "duplicate")
+                .description("Card number uniqueness checks that found an existing card")
+                .register(meterRegistry);
+        falsePositives = Counter.builder("cards.uniqueness.checks")
+                .tag("result", "false_positive")
+                .description("Card number uniqueness checks where the Bloom filter hit but the card did not exist")
+                .register(meterRegistry);
+        Gauge.builder("cards.uniqueness.bloom.fpp", this, registry -> registry.filter.expectedFalsePositiveRate())
+                .description("Expected false positive rate of the card number filter")
+                .register(meterRegistry);
+        Gauge.builder("cards.uniqueness.bloom.size", this, registry -> registry.filter.sizeInBytes())
+                .description("Memory held by the card number filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void load() {
+        rebuild();
+    }
+
+    /**
+     * @return false, если карты с таким номером точно нет и проверять базу не нужно
+     */
+    public boolean mightExist(byte[] cardNumberHmac, String legacyCardNumberHash) {
+        BloomFilter current = filter;
+        boolean hit = current.mightContain(hmacKey(cardNumberHmac))
+                || current.mightContain(legacyCardNumberHash);
+        if (!hit) {
+            skippedChecks.increment();
+        }
+        return hit;
+    }
+
+    /**
+     * Учитывает результат проверки в базе после положительного ответа фильтра.
+     */
+    public void recordLookup(boolean found) {
+        (found ? confirmedChecks : falsePositives).increment();
+    }
+
+    /**
+     * Добавляет номер выпущенной карты после коммита транзакции.
+     */
+    public void register(byte[] cardNumberHmac) {
+        String key = hmacKey(cardNumberHmac);
+        TransactionCallbacks.afterCommit(() -> add(key));
+    }
+
+    @Scheduled(fixedDelayString = "${app.card.uniqueness.rebuild-interval:PT1H}",
+            initialDelayString = "${app.card.uniqueness.rebuild-interval:PT1H}")
+    public void rebuild() {
+        long started = System.nanoTime();
+        BloomFilter next;
+        synchronized (filterLock) {
+            // Запас по размеру, чтобы до следующей пересборки точность не просела
+            next = BloomFilter.create(Math.max(expectedCards, filterEntries * 2), falsePositiveRate);
+            // Карты, выпущенные во время обхода таблицы, попадут и в новый фильтр
+            rebuilding = next;
+        }
+
+        long loaded = 0;
+        long lastId = 0;
+        try {
+            List<Object[]> batch;
+            do {
+                batch = cardRepository.findNumberKeysAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+                for (Object[] row : batch) {
+                    lastId = (Long) row[0];
+                    if (row[1] != null) {
+                        next.put(hmacKey((byte[]) row[1]));
+                    }
+                    if (row[2] != null) {
+                        next.put((String) row[2]);
+                    }
+                }
+                loaded += batch.size();
+            } while (batch.size() == LOAD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            synchronized (filterLock) {
+                rebuilding = null;
+            }
+            throw e;
+        }
+
+        synchronized (filterLock) {
+            filter = next;
+            rebuilding = null;
+            filterEntries = loaded;
+        }
+        log.info("Card number filter rebuilt: {} cards, {} KB, expected fpp {} in {} ms",
+                loaded, next.sizeInBytes() >> 10, String.format("%.5f", next.expectedFalsePositiveRate()),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void add(String key) {
+        synchronized (filterLock) {
+            filter.put(key);
+            if (rebuilding != null) {
+                rebuilding.put(key);
+            }
+            filterEntries++;
+        }
+    }
+
+    private static String hmacKey(byte[] cardNumberHmac) {
+        // Байт на символ без перекодирования: ключу фильтра нужна только однозначность
+        return new String(cardNumberHmac, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,463 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.EncryptionProperties;
+import com.example.bankcards.dto.ReencryptionStatusResponse;
+import com.example.bankcards.entity.CardReencryptionJob;
+import com.example.bankcards.entity.ReencryptionJobStatus;
+import com.example.bankcards.repository.CardReencryptionJobRepository;
+import com.example.bankcards.util.EncryptionUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновая перешифровка номеров карт и CVV активным ключом. Карты, еще
+ * хранящиеся в прежних текстовых колонках, заодно переносятся в бинарные:
+ * шифротекст, HMAC номера, а текстовые значения обнуляются.
+ * <p>
+ * Координатор идет по картам по возрастанию id (keyset-пагинация, без OFFSET)
+ * и раздает чанки пулу потоков. Каждый чанк читается без транзакции, шифруется
+ * вне БД и записывается одним JDBC-батчем в короткой транзакции. Обновление
+ * условное: если шифротекст успели изменить, строка не перезаписывается.
+ * Контрольная точка сдвигается только за непрерывно завершенными чанками,
+ * поэтому после остановки или падения задание продолжается с нее, а повтор
+ * уже обработанных строк безопасен — актуальные шифротексты пропускаются.
+ * <p>
+ * Карты, которые не удалось расшифровать или перешифровать, запоминаются в задании
+ * и повторяются после прохода по всем картам. Если часть так и не перешифрована,
+ * задание завершается статусом INCOMPLETE: прежний ключ удалять нельзя, а повторный
+ * {@link #start()} снова пробует только эти карты.
+ */
+@Service
+@Slf4j
+public class CardReencryptionService {
+
+    private static final String SELECT_IDS_SQL =
+            "SELECT id FROM cards WHERE id > ? AND id <= ? ORDER BY id LIMIT ?";
+    private static final String SELECT_COLUMNS_SQL =
+            "SELECT id, card_number_encrypted, cvv_encrypted, card_number_ciphertext, cvv_ciphertext FROM cards ";
+    private static final String SELECT_CHUNK_SQL = SELECT_COLUMNS_SQL + "WHERE id > ? AND id <= ?";
+    private static final String MIGRATE_SQL =
+            "UPDATE cards SET card_number_ciphertext = ?, cvv_ciphertext = ?, card_number_hmac = ?, "
+                    + "card_number_encrypted = NULL, cvv_encrypted = NULL, card_number_hash = NULL "
+                    + "WHERE id = ? AND card_number_encrypted = ? AND cvv_encrypted = ?";
+    private static final String REENCRYPT_SQL =
+            "UPDATE cards SET card_number_ciphertext = ?, cvv_ciphertext = ? "
+                    + "WHERE id = ? AND card_number_ciphertext = ? AND cvv_ciphertext = ?";
+
+    private final EncryptionUtil encryptionUtil;
+    private final CardReencryptionJobRepository jobRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+    private final int chunkSize;
+    private final int maxInFlight;
+    private final int maxRowsPerSecond;
+    private final boolean resumeOnStartup;
+    private final Counter reencryptedRows;
+    private final Counter skippedRows;
+    private final Counter failedRows;
+    private final Timer chunkTimer;
+
+    private volatile Run current;
+
+    public CardReencryptionService(EncryptionUtil encryptionUtil,
+                                   CardReencryptionJobRepository jobRepository,
+                                   JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   EncryptionProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.encryptionUtil = encryptionUtil;
+        this.jobRepository = jobRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+
+        EncryptionProperties.Reencryption settings = properties.getReencryption();
+        int threads = settings.getThreads() > 0 ? settings.getThreads() : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = settings.getChunkSize();
+        this.maxInFlight = threads * 2;
+        this.maxRowsPerSecond = settings.getMaxRowsPerSecond();
+        this.resumeOnStartup = settings.isResumeOnStartup();
+        this.coordinator = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("card-reencryption-"));
+        this.workers = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("card-reencryption-worker-"));
+
+        this.reencryptedRows = rowsCounter(meterRegistry, "reencrypted");
+        this.skippedRows = rowsCounter(meterRegistry, "skipped");
+        this.failedRows = rowsCounter(meterRegistry, "failed");
+        this.chunkTimer = Timer.builder("cards.reencryption.chunk.duration")
+                .description("Time to re-encrypt one chunk of cards")
+                .register(meterRegistry);
+        Gauge.builder("cards.reencryption.progress", this, service -> service.current != null
+                        ? service.current.progress() : 0)
+                .description("Share of the card id range covered by the current re-encryption job")
+                .register(meterRegistry);
+        Gauge.builder("cards.reencryption.throughput", this, service -> service.current != null
+                        ? service.current.rowsPerSecond() : 0)
+                .description("Cards processed per second by the current re-encryption job")
+                .baseUnit("rows/s")
+                .register(meterRegistry);
+    }
+
+    private static Counter rowsCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cards.reencryption.rows")
+                .description("Cards processed by re-encryption")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает перешифровку активным ключом или продолжает незавершенное задание для него.
+     * Если задание уже выполняется, возвращает его состояние.
+     */
+    public synchronized ReencryptionStatusResponse start() {
+        Run running = current;
+        if (running != null && !running.future.isDone()) {
+            return running.toResponse();
+        }
+
+        String keyId = encryptionUtil.getActiveKeyId();
+        CardReencryptionJob job = jobRepository
+                .findFirstByTargetKeyIdAndStatusNotOrderByIdDesc(keyId, ReencryptionJobStatus.COMPLETED)
+                .orElseGet(() -> CardReencryptionJob.builder()
+                        .targetKeyId(keyId)
+                        .maxCardId(maxCardId())
+                        .build());
+        job.setStatus(ReencryptionJobStatus.RUNNING);
+        job = jobRepository.save(job);
+        log.info("Re-encryption job {} to key '{}' started from card {} of {}",
+                job.getId(), keyId, job.getLastCardId(), job.getMaxCardId());
+
+        Run run = new Run(job);
+        current = run;
+        run.future = coordinator.submit(() -> execute(run));
+        return run.toResponse();
+    }
+
+    /**
+     * Останавливает задание после завершения чанков, которые уже в работе.
+     * Продолжить его можно повторным {@link #start()}.
+     */
+    public synchronized Optional<ReencryptionStatusResponse> pause() {
+        Run running = current;
+        if (running == null || running.future.isDone()) {
+            return status();
+        }
+        running.stopRequested = true;
+        return Optional.of(running.toResponse());
+    }
+
+    public Optional<ReencryptionStatusResponse> status() {
+        Run run = current;
+        if (run != null) {
+            return Optional.of(run.toResponse());
+        }
+        return jobRepository.findFirstByOrderByIdDesc().map(job -> new Run(job).toResponse());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        if (!resumeOnStartup) {
+            return;
+        }
+        jobRepository.findFirstByStatusOrderByIdDesc(ReencryptionJobStatus.RUNNING).ifPresent(job -> {
+            if (!job.getTargetKeyId().equals(encryptionUtil.getActiveKeyId())) {
+                // Активный ключ сменился, пока задание стояло: новое задание все равно пройдет все карты
+                job.setStatus(ReencryptionJobStatus.PAUSED);
+                jobRepository.save(job);
+            }
+            log.info("Resuming re-encryption interrupted by shutdown");
+            start();
+        });
+    }
+
+    private void execute(Run run) {
+        CardReencryptionJob job = run.job;
+        Deque<Chunk> inFlight = new ArrayDeque<>();
+        try {
+            long cursor = job.getLastCardId();
+            while (!run.stopRequested) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_IDS_SQL, Long.class,
+                        cursor, job.getMaxCardId(), chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                long from = cursor;
+                long to = ids.get(ids.size() - 1);
+                cursor = to;
+                inFlight.add(new Chunk(to, CompletableFuture.supplyAsync(() -> reencryptChunk(from, to), workers)));
+
+                while (!inFlight.isEmpty() && (inFlight.size() >= maxInFlight || inFlight.peek().result.isDone())) {
+                    checkpoint(run, inFlight.poll());
+                }
+                throttle(run, ids.size());
+            }
+            while (!inFlight.isEmpty()) {
+                checkpoint(run, inFlight.poll());
+            }
+            if (run.stopRequested) {
+                finish(run, ReencryptionJobStatus.PAUSED);
+                return;
+            }
+            retryFailed(run);
+            finish(run, run.job.getFailedCardIds().isEmpty()
+                    ? ReencryptionJobStatus.COMPLETED : ReencryptionJobStatus.INCOMPLETE);
+        } catch (Exception e) {
+            log.error("Re-encryption job {} failed at card {}: {}", job.getId(), run.lastCardId, e.getMessage(), e);
+            inFlight.forEach(chunk -> chunk.result.cancel(false));
+            finish(run, ReencryptionJobStatus.FAILED);
+        }
+    }
+
+    private ChunkResult reencryptChunk(long fromExclusive, long toInclusive) {
+        return reencryptRows(SELECT_CHUNK_SQL, fromExclusive, toInclusive);
+    }
+
+    /**
+     * Повторяет карты, которые не удалось перешифровать, чанками по id. Удаленные
+     * с тех пор карты и успешно перешифрованные из задания убираются.
+     */
+    private void retryFailed(Run run) {
+        List<Long> ids = new ArrayList<>(run.job.getFailedCardIds());
+        if (ids.isEmpty()) {
+            return;
+        }
+        log.info("Re-encryption job {} retrying {} failed cards", run.job.getId(), ids.size());
+        Set<Long> stillFailed = new HashSet<>();
+        long reencrypted = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+            String sql = SELECT_COLUMNS_SQL + "WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            ChunkResult result = reencryptRows(sql, chunk.toArray());
+            reencrypted += result.reencrypted();
+            stillFailed.addAll(result.failedIds());
+        }
+
+        run.reencrypted.addAndGet(reencrypted);
+        run.failed.set(stillFailed.size());
+        CardReencryptionJob job = run.job;
+        job.setFailedCardIds(stillFailed);
+        job.setReencrypted(run.reencrypted.get());
+        job.setFailed(stillFailed.size());
+        run.job = jobRepository.save(job);
+    }
+
+    private ChunkResult reencryptRows(String sql, Object... args) {
+        return chunkTimer.record(() -> {
+            List<Object[]> migrations = new ArrayList<>();
+            List<Object[]> rotations = new ArrayList<>();
+            List<Long> failedIds = new ArrayList<>();
+            long[] counts = new long[1];
+            jdbcTemplate.query(sql, rs -> {
+                counts[0]++;
+                long id = rs.getLong(1);
+                try {
+                    String legacyNumber = rs.getString(2);
+                    if (legacyNumber != null) {
+                        // Карта в прежнем текстовом формате: переносим в бинарные колонки
+                        String legacyCvv = rs.getString(3);
+                        String number = encryptionUtil.decrypt(legacyNumber);
+                        migrations.add(new Object[]{
+                                encryptionUtil.encrypt(number.getBytes(StandardCharsets.UTF_8)),
+                                encryptionUtil.encrypt(encryptionUtil.decrypt(legacyCvv).getBytes(StandardCharsets.UTF_8)),
+                                encryptionUtil.hmac(number),
+                                id, legacyNumber, legacyCvv});
+                        return;
+                    }
+                    byte[] number = rs.getBytes(4);
+                    byte[] cvv = rs.getBytes(5);
+                    if (encryptionUtil.needsReencryption(number) || encryptionUtil.needsReencryption(cvv)) {
+                        rotations.add(new Object[]{
+                                encryptionUtil.reencrypt(number), encryptionUtil.reencrypt(cvv), id, number, cvv});
+                    }
+                } catch (RuntimeException e) {
+                    failedIds.add(id);
+                    log.warn("Cannot re-encrypt card {}: {}", id, e.getMessage());
+                }
+            }, args);
+
+            long reencrypted = 0;
+            if (!migrations.isEmpty() || !rotations.isEmpty()) {
+                int[][] updated = transactionTemplate.execute(status -> new int[][]{
+                        migrations.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(MIGRATE_SQL, migrations),
+                        rotations.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(REENCRYPT_SQL, rotations)});
+                for (int[] batch : updated) {
+                    for (int count : batch) {
+                        reencrypted += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+                    }
+                }
+            }
+
+            long scanned = counts[0];
+            long failed = failedIds.size();
+            reencryptedRows.increment(reencrypted);
+            failedRows.increment(failed);
+            skippedRows.increment(scanned - reencrypted - failed);
+            return new ChunkResult(scanned, reencrypted, failedIds);
+        });
+    }
+
+    private void checkpoint(Run run, Chunk chunk) {
+        ChunkResult result = chunk.result.join();
+        run.processed.addAndGet(result.scanned());
+        run.reencrypted.addAndGet(result.reencrypted());
+        run.failed.addAndGet(result.failedIds().size());
+        run.lastCardId = chunk.toInclusive();
+
+        CardReencryptionJob job = run.job;
+        job.getFailedCardIds().addAll(result.failedIds());
+        job.setLastCardId(run.lastCardId);
+        job.setProcessed(run.processed.get());
+        job.setReencrypted(run.reencrypted.get());
+        job.setFailed(run.failed.get());
+        run.job = jobRepository.save(job);
+    }
+
+    /**
+     * Выдерживает заданную скорость, чтобы не отнимать ресурсы БД у рабочих запросов.
+     */
+    private void throttle(Run run, int rows) throws InterruptedException {
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        run.scheduled += rows;
+        long expectedNanos = run.scheduled * 1_000_000_000L / maxRowsPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - run.startedNanos);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+
+    private void finish(Run run, ReencryptionJobStatus status) {
+        run.finishedNanos = System.nanoTime();
+        CardReencryptionJob job = run.job;
+        job.setStatus(status);
+        if (status == ReencryptionJobStatus.COMPLETED) {
+            job.setCompletedAt(LocalDateTime.now());
+        }
+        try {
+            run.job = jobRepository.save(job);
+        } catch (Exception e) {
+            log.error("Cannot save re-encryption job {}: {}", job.getId(), e.getMessage());
+        }
+        run.status = status;
+        log.info("Re-encryption job {} {}: {} cards processed, {} re-encrypted, {} failed ({} rows/s)",
+                job.getId(), status, run.processed.get(), run.reencrypted.get(), run.failed.get(),
+                Math.round(run.rowsPerSecond()));
+    }
+
+    private long maxCardId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM cards", Long.class);
+        return maxId != null ? maxId : 0;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        Run run = current;
+        if (run != null) {
+            run.stopRequested = true;
+        }
+        coordinator.shutdown();
+        if (!coordinator.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Re-encryption did not stop in time, it will resume from the last checkpoint");
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * Состояние выполнения задания. Сущность меняет только поток координатора,
+     * остальные потоки читают счетчики и контрольную точку.
+     */
+    private static final class Run {
+
+        private final long startedNanos = System.nanoTime();
+        private final long processedBefore;
+        private final AtomicLong processed;
+        private final AtomicLong reencrypted;
+        private final AtomicLong failed;
+        private volatile CardReencryptionJob job;
+        private volatile long lastCardId;
+        private volatile ReencryptionJobStatus status;
+        private volatile boolean stopRequested;
+        private volatile long finishedNanos;
+        private volatile Future<?> future;
+        private long scheduled;
+
+        Run(CardReencryptionJob job) {
+            this.job = job;
+            this.processedBefore = job.getProcessed();
+            this.processed = new AtomicLong(job.getProcessed());
+            this.reencrypted = new AtomicLong(job.getReencrypted());
+            this.failed = new AtomicLong(job.getFailed());
+            this.lastCardId = job.getLastCardId();
+            this.status = job.getStatus();
+        }
+
+        double progress() {
+            long maxCardId = job.getMaxCardId();
+            return maxCardId > 0 ? Math.min(1.0, (double) lastCardId / maxCardId) : 1.0;
+        }
+
+        double rowsPerSecond() {
+            if (future == null) {
+                return 0;
+            }
+            long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+            double seconds = (end - startedNanos) / 1_000_000_000.0;
+            return seconds > 0 ? (processed.get() - processedBefore) / seconds : 0;
+        }
+
+        ReencryptionStatusResponse toResponse() {
+            CardReencryptionJob snapshot = job;
+            return ReencryptionStatusResponse.builder()
+                    .jobId(snapshot.getId())
+                    .targetKeyId(snapshot.getTargetKeyId())
+                    .status(status)
+                    .lastCardId(lastCardId)
+                    .maxCardId(snapshot.getMaxCardId())
+                    .processed(processed.get())
+                    .reencrypted(reencrypted.get())
+                    .failed(failed.get())
+                    .progress(progress())
+                    .rowsPerSecond(rowsPerSecond())
+                    .startedAt(snapshot.getStartedAt())
+                    .updatedAt(snapshot.getUpdatedAt())
+                    .completedAt(snapshot.getCompletedAt())
+                    .build();
+        }
+    }
+
+    private record Chunk(long toInclusive, CompletableFuture<ChunkResult> result) {
+    }
+
+    private record ChunkResult(long scanned, long reencrypted, List<Long> failedIds) {
+    }
+}
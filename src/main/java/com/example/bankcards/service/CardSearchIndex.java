@@ -0,0 +1,201 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.TransactionCallbacks;
+import com.example.bankcards.util.TrigramIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Триграммный индекс по имени держателя и последним цифрам номера всех карт.
+ * Отвечает кандидатами, которые поиск подтверждает запросом по id, поэтому
+ * устаревшие записи (удаленные карты, прежнее имя) на результат не влияют и
+ * вычищаются периодической пересборкой.
+ * <p>
+ * Индекс строится в фоне после старта; пока он не готов, поиск идет через LIKE в базе.
+ * Изменения, пришедшие во время пересборки, копятся и применяются к новому
+ * индексу перед подменой.
+ */
+@Component
+@Slf4j
+public class CardSearchIndex {
+
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private final CardRepository cardRepository;
+    private final ExecutorService loader;
+    private final boolean loadOnStartup;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuildRunning = new AtomicBoolean();
+    private TrigramIndex index = new TrigramIndex();
+    private List<Consumer<TrigramIndex>> pendingDuringRebuild;
+    private volatile boolean ready;
+    private volatile long indexedCards;
+    private volatile long sizeInBytes;
+
+    public CardSearchIndex(CardRepository cardRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.card.search.load-on-startup:true}") boolean loadOnStartup) {
+        this.cardRepository = cardRepository;
+        this.loadOnStartup = loadOnStartup;
+        this.loader = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("card-search-index-"));
+
+        Gauge.builder("cards.search.index.cards", this, searchIndex -> searchIndex.indexedCards)
+                .description("Cards loaded into the search index by the last rebuild")
+                .register(meterRegistry);
+        Gauge.builder("cards.search.index.size", this, searchIndex -> searchIndex.sizeInBytes)
+                .description("Memory held by the card search index after the last rebuild")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("cards.search.index.ready", this, searchIndex -> searchIndex.ready ? 1 : 0)
+                .description("Whether card search is served by the index")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        if (loadOnStartup) {
+            loader.submit(this::rebuild);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        loader.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Карты с id больше {@code afterId}, которые могут содержать подстроку, по возрастанию id.
+     */
+    public List<Long> candidates(String query, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            return index.search(query, afterId, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Те из карт {@code cardIds}, которые могут содержать подстроку.
+     */
+    public List<Long> filter(Collection<Long> cardIds, String query) {
+        lock.readLock().lock();
+        try {
+            return index.filter(cardIds, query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Индексирует выпущенную или переименованную карту после коммита транзакции.
+     */
+    public void put(long cardId, String cardHolderName, String cardNumberLastFour) {
+        TransactionCallbacks.afterCommit(() -> apply(index -> index.add(cardId, cardHolderName, cardNumberLastFour)));
+    }
+
+    public void remove(long cardId) {
+        TransactionCallbacks.afterCommit(() -> apply(index -> index.remove(cardId)));
+    }
+
+    @Scheduled(fixedDelayString = "${app.card.search.rebuild-interval:PT6H}",
+            initialDelayString = "${app.card.search.rebuild-interval:PT6H}")
+    public void rebuild() {
+        if (!rebuildRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            TrigramIndex next = new TrigramIndex();
+            long loaded = 0;
+            try {
+                loaded = load(next);
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    pendingDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                log.error("Card search index rebuild failed", e);
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild.forEach(change -> change.accept(next));
+                pendingDuringRebuild = null;
+                index = next;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            indexedCards = loaded;
+            sizeInBytes = next.sizeInBytes();
+            log.info("Card search index rebuilt: {} cards, {} trigrams, {} MB in {} ms",
+                    loaded, next.trigramCount(), sizeInBytes >> 20, (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            rebuildRunning.set(false);
+        }
+    }
+
+    private long load(TrigramIndex target) {
+        long loaded = 0;
+        long lastId = 0;
+        List<Object[]> batch;
+        do {
+            batch = cardRepository.findSearchKeysAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (Object[] row : batch) {
+                lastId = (Long) row[0];
+                target.add(lastId, (String) row[1], (String) row[2]);
+            }
+            loaded += batch.size();
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        target.compact();
+        return loaded;
+    }
+
+    private void apply(Consumer<TrigramIndex> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
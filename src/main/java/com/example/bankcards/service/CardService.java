@@ -1,36 +1,63 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardBalance;
 import com.example.bankcards.dto.CardBlockRequestResponse;
+import com.example.bankcards.dto.CardBlockRequestSummary;
 import com.example.bankcards.dto.CardCreateRequest;
 import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardSummary;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.SlicePage;
+import com.example.bankcards.dto.TotalMode;
 import com.example.bankcards.entity.*;
 import com.example.bankcards.exception.*;
 import com.example.bankcards.repository.CardBlockRequestRepository;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.AuthenticatedUser;
 import com.example.bankcards.util.CardNumberMasker;
 import com.example.bankcards.util.EncryptionUtil;
+import com.example.bankcards.util.KeysetCursor;
+import com.example.bankcards.util.TrigramIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class CardService {
 
+    private static final String DUPLICATE_CARD_MESSAGE = "Card with this number already exists";
+    private static final LocalDateTime BLOCK_REQUESTS_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int MAX_SEARCH_CANDIDATE_BATCH = 4096;
+    private static final String BLOCK_REQUESTS_BY_STATUS_SQL = "SELECT 1 FROM card_block_requests WHERE status = ?";
+
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final EncryptionUtil encryptionUtil;
     private final CardNumberMasker cardNumberMasker;
     private final CardBlockRequestRepository cardBlockRequestRepository;
+    private final CardNumberRegistry cardNumberRegistry;
+    private final ListingCountService listingCountService;
+    private final CardSearchIndex cardSearchIndex;
+    private final CardExpiryWheel cardExpiryWheel;
+    private final CardBalanceCache cardBalanceCache;
+    private final CardStatistics cardStatistics;
 
     @Value("${app.card.max-initial-balance:1000000.00}")
     private BigDecimal maxInitialBalance;
@@ -41,64 +68,108 @@ public class CardService {
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + request.getOwnerId()));
 
         String cardNumber = request.getCardNumber();
-        String cardHash = encryptionUtil.hash(cardNumber);
-
-        if (cardRepository.findByCardNumberHash(cardHash).isPresent()) {
-            throw new IllegalArgumentException("Card with this number already exists");
+        byte[] cardHmac = encryptionUtil.hmac(cardNumber);
+
+        // Точный промах фильтра избавляет от запроса; гонку закрывает уникальный индекс ниже
+        String legacyHash = encryptionUtil.hash(cardNumber);
+        if (cardNumberRegistry.mightExist(cardHmac, legacyHash)) {
+            boolean exists = cardRepository.findByCardNumber(cardHmac, legacyHash).isPresent();
+            cardNumberRegistry.recordLookup(exists);
+            if (exists) {
+                throw new CardNumberAlreadyExistsException(DUPLICATE_CARD_MESSAGE);
+            }
         }
 
-        if (request.getExpirationDate().isBefore(LocalDate.now().plusMonths(1))) {
-            throw new IllegalArgumentException("Expiration date must be at least 1 month in the future");
-        }
-
-        if (request.getInitialBalance().compareTo(maxInitialBalance) > 0) {
-            throw new IllegalArgumentException("Initial balance exceeds maximum allowed: " + maxInitialBalance);
-        }
+        checkIssuanceLimits(request);
 
         Card card = Card.builder()
-                .cardNumberEncrypted(encryptionUtil.encrypt(cardNumber))
-                .cardNumberHash(cardHash)
+                .cardNumberCiphertext(encryptionUtil.encrypt(cardNumber.getBytes(StandardCharsets.UTF_8)))
+                .cardNumberHmac(cardHmac)
                 .cardNumberLastFour(cardNumber.substring(cardNumber.length() - 4))
                 .cardHolderName(request.getCardHolderName())
                 .expirationDate(request.getExpirationDate())
                 .status(CardStatus.ACTIVE)
                 .balance(request.getInitialBalance() != null ?
                         request.getInitialBalance() : BigDecimal.ZERO)
-                .cvvEncrypted(encryptionUtil.encrypt(request.getCvv()))
+                .cvvCiphertext(encryptionUtil.encrypt(request.getCvv().getBytes(StandardCharsets.UTF_8)))
                 .owner(owner)
                 .build();
 
-        card = cardRepository.save(card);
+        try {
+            card = cardRepository.saveAndFlush(card);
+        } catch (DataIntegrityViolationException e) {
+            if (isCardNumberConflict(e)) {
+                throw new CardNumberAlreadyExistsException(DUPLICATE_CARD_MESSAGE);
+            }
+            throw e;
+        }
+        cardNumberRegistry.register(cardHmac);
+        cardSearchIndex.put(card.getId(), card.getCardHolderName(), card.getCardNumberLastFour());
+        cardExpiryWheel.schedule(card.getId(), card.getExpirationDate());
+        cardBalanceCache.updated(card);
+        cardStatistics.cardCreated(card.getStatus(), card.getBalance());
         return mapToResponse(card);
     }
 
     @Transactional(readOnly = true)
     public Page<CardResponse> getUserCards(Long ownerId, Pageable pageable) {
-        User owner = userRepository.findById(ownerId)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + ownerId));
+        return cardRepository.findSummariesByOwnerId(ownerId, pageable)
+                .map(this::mapToResponse);
+    }
 
-        return cardRepository.findByOwner(owner, pageable)
+    @Transactional(readOnly = true)
+    public SlicePage<CardResponse> sliceUserCards(Long ownerId, Pageable pageable, TotalMode totalMode) {
+        Slice<CardResponse> slice = cardRepository.findSummarySliceByOwnerId(ownerId, pageable)
                 .map(this::mapToResponse);
+        return SlicePage.of(slice, totalMode,
+                () -> cardRepository.countByOwner_Id(ownerId),
+                () -> listingCountService.cachedCount("cards:owner:" + ownerId,
+                        () -> cardRepository.countByOwner_Id(ownerId)));
     }
 
     @Transactional(readOnly = true)
     public Page<CardResponse> getAllCards(Pageable pageable) {
-        return cardRepository.findAll(pageable)
+        return cardRepository.findAllSummaries(pageable)
                 .map(this::mapToResponse);
     }
 
     @Transactional(readOnly = true)
-    public CardResponse getCardById(Long cardId, Long userId) {
+    public CursorPage<CardResponse> scrollUserCards(Long ownerId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<CardSummary> rows = cardRepository.findSummariesByOwnerIdAfter(
+                ownerId, after != null ? after.id() : 0L, PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size, card -> KeysetCursor.of(card.id()), this::mapToResponse);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<CardResponse> scrollAllCards(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<CardSummary> rows = cardRepository.findSummariesAfter(
+                after != null ? after.id() : 0L, PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size, card -> KeysetCursor.of(card.id()), this::mapToResponse);
+    }
+
+    /**
+     * Ограничения выпуска сверх аннотаций {@link CardCreateRequest}, общие для одиночного и массового выпуска.
+     */
+    public void checkIssuanceLimits(CardCreateRequest request) {
+        if (request.getExpirationDate().isBefore(LocalDate.now().plusMonths(1))) {
+            throw new IllegalArgumentException("Expiration date must be at least 1 month in the future");
+        }
+
+        if (request.getInitialBalance().compareTo(maxInitialBalance) > 0) {
+            throw new IllegalArgumentException("Initial balance exceeds maximum allowed: " + maxInitialBalance);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public CardResponse getCardById(Long cardId, AuthenticatedUser currentUser) {
         Card card = cardRepository.findByIdWithOwner(cardId)
                 .orElseThrow(() -> new CardNotFoundException("Card not found with id: " + cardId));
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
-
-        boolean isOwner = card.getOwner().getId().equals(userId);
-        boolean isAdmin = user.getRoles().contains(Role.ROLE_ADMIN);
+        boolean isOwner = card.getOwner().getId().equals(currentUser.getId());
 
-        if (!isOwner && !isAdmin) {
+        if (!isOwner && !currentUser.isAdmin()) {
             throw new CardAccessDeniedException("Access denied to card");
         }
 
@@ -118,6 +189,7 @@ public class CardService {
             throw new CardAlreadyBlockedException("Card is already blocked");
         }
 
+        cardStatistics.statusChanged(card.getStatus(), CardStatus.BLOCKED, card.getBalance());
         card.setStatus(CardStatus.BLOCKED);
         card = cardRepository.save(card);
         return mapToResponse(card);
@@ -128,9 +200,6 @@ public class CardService {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new CardNotFoundException("Card not found with id: " + cardId));
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
-
         if (!card.getOwner().getId().equals(userId)) {
             throw new CardNotOwnedException("Card does not belong to user");
         }
@@ -148,18 +217,20 @@ public class CardService {
 
         CardBlockRequest blockRequest = CardBlockRequest.builder()
                 .card(card)
-                .requestedBy(user)
+                .requestedBy(userRepository.getReferenceById(userId))
                 .reason(reason)
                 .status(BlockRequestStatus.PENDING)
                 .requestedAt(LocalDateTime.now())
                 .build();
 
         blockRequest = cardBlockRequestRepository.save(blockRequest);
+        cardStatistics.blockRequestCreated();
         return mapToBlockRequestResponse(blockRequest);
     }
 
     @Transactional
-    public CardBlockRequestResponse approveBlockRequest(Long requestId, String adminComment, Long adminUserId) {
+    public CardBlockRequestResponse approveBlockRequest(Long requestId, String adminComment,
+                                                        AuthenticatedUser currentUser) {
         CardBlockRequest blockRequest = cardBlockRequestRepository.findById(requestId)
                 .orElseThrow(() -> new RuntimeException("Block request not found with id: " + requestId));
 
@@ -167,10 +238,7 @@ public class CardService {
             throw new IllegalArgumentException("Block request is not pending");
         }
 
-        User adminUser = userRepository.findById(adminUserId)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
-
-        if (!adminUser.getRoles().contains(Role.ROLE_ADMIN)) {
+        if (!currentUser.isAdmin()) {
             throw new AccessDeniedException("Only admin can approve block requests");
         }
 
@@ -179,21 +247,24 @@ public class CardService {
             throw new IllegalArgumentException("Card is not active (expired or already blocked)");
         }
 
+        cardStatistics.statusChanged(card.getStatus(), CardStatus.BLOCKED, card.getBalance());
         card.setStatus(CardStatus.BLOCKED);
         cardRepository.save(card);
 
         blockRequest.setStatus(BlockRequestStatus.APPROVED);
-        blockRequest.setProcessedBy(adminUser);
+        blockRequest.setProcessedBy(userRepository.getReferenceById(currentUser.getId()));
         blockRequest.setAdminComment(adminComment);
         blockRequest.setProcessedAt(LocalDateTime.now());
         blockRequest = cardBlockRequestRepository.save(blockRequest);
+        cardStatistics.blockRequestResolved();
 
         return mapToBlockRequestResponse(blockRequest);
     }
 
 
     @Transactional
-    public CardBlockRequestResponse rejectBlockRequest(Long requestId, String adminComment, Long adminUserId) {
+    public CardBlockRequestResponse rejectBlockRequest(Long requestId, String adminComment,
+                                                       AuthenticatedUser currentUser) {
         CardBlockRequest blockRequest = cardBlockRequestRepository.findById(requestId)
                 .orElseThrow(() -> new RuntimeException("Block request not found with id: " + requestId));
 
@@ -201,18 +272,16 @@ public class CardService {
             throw new IllegalArgumentException("Block request is not pending");
         }
 
-        User adminUser = userRepository.findById(adminUserId)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
-
-        if (!adminUser.getRoles().contains(Role.ROLE_ADMIN)) {
+        if (!currentUser.isAdmin()) {
             throw new AccessDeniedException("Only admin can reject block requests");
         }
 
         blockRequest.setStatus(BlockRequestStatus.REJECTED);
-        blockRequest.setProcessedBy(adminUser);
+        blockRequest.setProcessedBy(userRepository.getReferenceById(currentUser.getId()));
         blockRequest.setAdminComment(adminComment);
         blockRequest.setProcessedAt(LocalDateTime.now());
         blockRequest = cardBlockRequestRepository.save(blockRequest);
+        cardStatistics.blockRequestResolved();
 
         return mapToBlockRequestResponse(blockRequest);
     }
@@ -233,6 +302,7 @@ public class CardService {
         blockRequest.setStatus(BlockRequestStatus.CANCELLED);
         blockRequest.setProcessedAt(LocalDateTime.now());
         blockRequest = cardBlockRequestRepository.save(blockRequest);
+        cardStatistics.blockRequestResolved();
 
         return mapToBlockRequestResponse(blockRequest);
     }
@@ -249,6 +319,38 @@ public class CardService {
                 .map(this::mapToBlockRequestResponse);
     }
 
+    /**
+     * Приблизительное число запросов со статусом берется из оценки планировщика:
+     * по статусу она точна настолько, насколько свежа статистика таблицы.
+     */
+    @Transactional(readOnly = true)
+    public SlicePage<CardBlockRequestResponse> sliceBlockRequestsByStatus(BlockRequestStatus status, Pageable pageable,
+                                                                          TotalMode totalMode) {
+        Slice<CardBlockRequestResponse> slice = cardBlockRequestRepository.findSummarySliceByStatus(status, pageable)
+                .map(this::mapToBlockRequestResponse);
+        return SlicePage.of(slice, totalMode,
+                () -> cardBlockRequestRepository.countByStatus(status),
+                () -> listingCountService.estimatedCount("block-requests:status:" + status,
+                        BLOCK_REQUESTS_BY_STATUS_SQL, new Object[]{status.name()},
+                        () -> cardBlockRequestRepository.countByStatus(status)));
+    }
+
+    /**
+     * Запросы на блокировку в порядке подачи, все или с заданным статусом.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CardBlockRequestResponse> scrollBlockRequests(BlockRequestStatus status, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        LocalDateTime requestedAt = after != null ? after.sortKeyAsTimestamp() : BLOCK_REQUESTS_START;
+        long afterId = after != null ? after.id() : 0L;
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<CardBlockRequestSummary> rows = status == null
+                ? cardBlockRequestRepository.findSummariesAfter(requestedAt, afterId, limit)
+                : cardBlockRequestRepository.findSummariesByStatusAfter(status, requestedAt, afterId, limit);
+        return CursorPage.of(rows, size, request -> KeysetCursor.of(request.requestedAt(), request.id()),
+                this::mapToBlockRequestResponse);
+    }
+
     @Transactional(readOnly = true)
     public Page<CardBlockRequestResponse> getUserBlockRequests(Long userId, Pageable pageable) {
         return cardBlockRequestRepository.findByRequestedBy_Id(userId, pageable)
@@ -268,8 +370,10 @@ public class CardService {
             throw new IllegalArgumentException("Card is already active");
         }
 
+        cardStatistics.statusChanged(card.getStatus(), CardStatus.ACTIVE, card.getBalance());
         card.setStatus(CardStatus.ACTIVE);
         card = cardRepository.save(card);
+        cardExpiryWheel.schedule(card.getId(), card.getExpirationDate());
 
         return mapToResponse(card);
     }
@@ -290,13 +394,14 @@ public class CardService {
         }
 
         cardRepository.delete(card);
+        cardSearchIndex.remove(cardId);
+        cardExpiryWheel.cancel(cardId);
+        cardBalanceCache.evict(cardId);
+        cardStatistics.cardDeleted(card.getStatus(), card.getBalance());
     }
 
     @Transactional(readOnly = true)
     public Page<CardResponse> searchUserCards(Long userId, String query, Pageable pageable) {
-        User owner = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
-
         Long id = null;
         try {
             id = Long.parseLong(query);
@@ -304,10 +409,62 @@ public class CardService {
             // Не является числом, оставляем null
         }
 
-        return cardRepository.findByOwnerAndSearch(owner, query, id, pageable)
+        if (!cardSearchIndex.isReady() || !TrigramIndex.isSearchable(query)) {
+            return cardRepository.findSummariesByOwnerIdAndSearch(userId, query, id, pageable)
+                    .map(this::mapToResponse);
+        }
+
+        List<Long> ownCards = cardRepository.findIdsByOwnerId(userId);
+        List<Long> candidates = new ArrayList<>(cardSearchIndex.filter(ownCards, query));
+        if (id != null && ownCards.contains(id) && !candidates.contains(id)) {
+            candidates.add(id);
+        }
+        if (candidates.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return cardRepository.findSummariesByIdInAndSearch(candidates, query, id, pageable)
                 .map(this::mapToResponse);
     }
 
+    /**
+     * Поиск подстроки в имени держателя и последних цифрах номера по всем картам, по возрастанию id.
+     * Кандидатов дает триграммный индекс, совпадение подтверждается запросом по их id.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CardResponse> searchAllCards(String query, String cursor, int size) {
+        if (!TrigramIndex.isSearchable(query)) {
+            throw new IllegalArgumentException(
+                    "Search query must contain at least " + TrigramIndex.MIN_QUERY_LENGTH + " characters");
+        }
+        String search = query.trim();
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        long afterId = after != null ? after.id() : 0L;
+
+        if (!cardSearchIndex.isReady()) {
+            List<CardSummary> rows = cardRepository.findSummariesBySearchAfter(search, afterId, PageRequest.of(0, size + 1));
+            return CursorPage.of(rows, size, card -> KeysetCursor.of(card.id()), this::mapToResponse);
+        }
+
+        // Частые подстроки подтверждаются почти все, поэтому начинаем с размера страницы
+        // и расширяем пачку кандидатов, только если индекс дал много ложных совпадений
+        List<CardSummary> rows = new ArrayList<>();
+        int batch = size + 1;
+        while (rows.size() <= size) {
+            List<Long> candidates = cardSearchIndex.candidates(search, afterId, batch);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            rows.addAll(cardRepository.findSummariesByIdInMatching(candidates, search,
+                    PageRequest.of(0, size + 1 - rows.size())));
+            afterId = candidates.get(candidates.size() - 1);
+            if (candidates.size() < batch) {
+                break;
+            }
+            batch = Math.min(batch * 2, MAX_SEARCH_CANDIDATE_BATCH);
+        }
+        return CursorPage.of(rows, size, card -> KeysetCursor.of(card.id()), this::mapToResponse);
+    }
+
     @Transactional(readOnly = true)
     public boolean isCardOwner(Long cardId, Long userId) {
         return cardRepository.findOwnerIdById(cardId)
@@ -315,45 +472,46 @@ public class CardService {
                 .orElse(false);
     }
 
-    @Transactional(readOnly = true)
-    public BigDecimal getCardBalance(Long cardId, Long userId) {
-        Card card = cardRepository.findById(cardId)
+    /**
+     * Баланс из {@link CardBalanceCache}; {@code minVersion} — версия, которую клиент
+     * уже видел, чтобы повторное чтение не вернуло более старый баланс.
+     */
+    public CardBalance getCardBalance(Long cardId, AuthenticatedUser currentUser, long minVersion) {
+        CardBalance balance = cardBalanceCache.get(cardId, minVersion)
                 .orElseThrow(() -> new CardNotFoundException("Card not found with id: " + cardId));
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
+        boolean isOwner = balance.ownerId().equals(currentUser.getId());
 
-        boolean isOwner = card.getOwner().getId().equals(userId);
-        boolean isAdmin = user.getRoles().contains(Role.ROLE_ADMIN);
-
-        if (!isOwner && !isAdmin) {
+        if (!isOwner && !currentUser.isAdmin()) {
             throw new CardAccessDeniedException("Access denied to card");
         }
 
-        return card.getBalance();
+        return balance;
     }
 
     @Transactional(readOnly = true)
     public Page<CardResponse> filterUserCards(Long userId, CardStatus status, Pageable pageable) {
-        User owner = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
-
         if (status == null) {
-            return cardRepository.findByOwner(owner, pageable)
+            return cardRepository.findSummariesByOwnerId(userId, pageable)
                     .map(this::mapToResponse);
         }
 
-        return cardRepository.findByOwnerAndStatus(owner, status, pageable)
+        return cardRepository.findSummariesByOwnerIdAndStatus(userId, status, pageable)
                 .map(this::mapToResponse);
     }
 
+    private static boolean isCardNumberConflict(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains("card_number_hmac");
+    }
+
     private CardResponse mapToResponse(Card card) {
         return CardResponse.builder()
                 .id(card.getId())
                 .maskedCardNumber(cardNumberMasker.maskCardNumber(card.getCardNumberLastFour()))
                 .cardHolderName(card.getCardHolderName())
                 .expirationDate(card.getExpirationDate())
-                .status(card.getActualStatus())
+                .status(card.getStatus())
                 .balance(card.getBalance())
                 .ownerId(card.getOwner().getId())
                 .ownerName(card.getOwner().getFullName())
@@ -362,6 +520,38 @@ public class CardService {
                 .build();
     }
 
+    private CardResponse mapToResponse(CardSummary card) {
+        return CardResponse.builder()
+                .id(card.id())
+                .maskedCardNumber(cardNumberMasker.maskCardNumber(card.cardNumberLastFour()))
+                .cardHolderName(card.cardHolderName())
+                .expirationDate(card.expirationDate())
+                .status(card.status())
+                .balance(card.balance())
+                .ownerId(card.ownerId())
+                .ownerName(card.ownerName())
+                .createdAt(card.createdAt())
+                .updatedAt(card.updatedAt())
+                .build();
+    }
+
+    private CardBlockRequestResponse mapToBlockRequestResponse(CardBlockRequestSummary blockRequest) {
+        return CardBlockRequestResponse.builder()
+                .id(blockRequest.id())
+                .cardId(blockRequest.cardId())
+                .maskedCardNumber(cardNumberMasker.maskCardNumber(blockRequest.cardNumberLastFour()))
+                .requestedById(blockRequest.requestedById())
+                .requestedByUsername(blockRequest.requestedByUsername())
+                .reason(blockRequest.reason())
+                .status(blockRequest.status())
+                .processedById(blockRequest.processedById())
+                .processedByUsername(blockRequest.processedByUsername())
+                .adminComment(blockRequest.adminComment())
+                .requestedAt(blockRequest.requestedAt())
+                .processedAt(blockRequest.processedAt())
+                .build();
+    }
+
     private CardBlockRequestResponse mapToBlockRequestResponse(CardBlockRequest blockRequest) {
         return CardBlockRequestResponse.builder()
                 .id(blockRequest.getId())
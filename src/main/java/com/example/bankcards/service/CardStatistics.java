@@ -0,0 +1,233 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardStatisticsReport;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Число карт и сумма балансов по статусам и число ожидающих запросов на блокировку
+ * без COUNT и SUM по таблицам. Изменения карт применяют дельты к {@link LongAdder}
+ * после коммита своей транзакции, поэтому чтение — O(1) и не зависит от размера таблиц.
+ * <p>
+ * Периодическая сверка с базой исправляет расхождение: изменения мимо этих методов,
+ * гонки статуса без блокировок и другие экземпляры приложения. Дельты, примененные во
+ * время сверки, сохраняются; изменение, закоммиченное до чтения базы, но примененное
+ * после начала сверки, может быть учтено дважды до следующей сверки.
+ */
+@Service
+@Slf4j
+public class CardStatistics {
+
+    private static final String CARD_TOTALS_SQL =
+            "SELECT status, COUNT(*), COALESCE(SUM(balance), 0) FROM cards GROUP BY status";
+    private static final String PENDING_REQUESTS_SQL =
+            "SELECT COUNT(*) FROM card_block_requests WHERE status = 'PENDING'";
+    // Строки блокируются по возрастанию id, как и при переводе в EXPIRED
+    private static final String LOCK_EXPIRING_SQL =
+            "SELECT status, balance FROM cards WHERE id IN (:ids) AND status <> 'EXPIRED' "
+                    + "AND expiration_date < :today ORDER BY id FOR UPDATE";
+
+    private static final CardStatus[] STATUSES = CardStatus.values();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final LongAdder[] cards = adders();
+    // В копейках: баланс хранится с двумя знаками после запятой
+    private final LongAdder[] balanceCents = adders();
+    private final LongAdder pendingBlockRequests = new LongAdder();
+    private final Counter corrections;
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+
+    private volatile LocalDateTime reconciledAt;
+
+    public CardStatistics(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.corrections = Counter.builder("cards.stats.reconcile.corrections")
+                .description("Reconciliations that found statistics drifted from the database")
+                .register(meterRegistry);
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[STATUSES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    public void cardCreated(CardStatus status, BigDecimal balance) {
+        long cents = cents(balance);
+        TransactionCallbacks.afterCommit(() -> add(status, 1, cents));
+    }
+
+    public void cardDeleted(CardStatus status, BigDecimal balance) {
+        long cents = cents(balance);
+        TransactionCallbacks.afterCommit(() -> add(status, -1, -cents));
+    }
+
+    public void statusChanged(CardStatus from, CardStatus to, BigDecimal balance) {
+        statusChanged(from, to, 1, balance);
+    }
+
+    /**
+     * Смена статуса сразу у {@code count} карт с суммарным балансом {@code balance}.
+     */
+    public void statusChanged(CardStatus from, CardStatus to, long count, BigDecimal balance) {
+        long cents = cents(balance);
+        TransactionCallbacks.afterCommit(() -> {
+            add(from, -count, -cents);
+            add(to, count, cents);
+        });
+    }
+
+    public void balanceChanged(CardStatus status, BigDecimal delta) {
+        long cents = cents(delta);
+        TransactionCallbacks.afterCommit(() -> add(status, 0, cents));
+    }
+
+    public void blockRequestCreated() {
+        TransactionCallbacks.afterCommit(pendingBlockRequests::increment);
+    }
+
+    public void blockRequestResolved() {
+        TransactionCallbacks.afterCommit(pendingBlockRequests::decrement);
+    }
+
+    /**
+     * Блокирует карты {@code cardIds}, которые истекли к {@code today} и еще не
+     * переведены в EXPIRED, и учитывает их перевод после коммита. Вызывается
+     * в транзакции перевода перед UPDATE, чтобы прежний статус не изменился между ними.
+     */
+    public void lockExpiring(Collection<Long> cardIds, LocalDate today) {
+        if (cardIds.isEmpty()) {
+            return;
+        }
+        long[] counts = new long[STATUSES.length];
+        long[] cents = new long[STATUSES.length];
+        namedJdbcTemplate.query(LOCK_EXPIRING_SQL, Map.of("ids", cardIds, "today", today), rs -> {
+            int status = CardStatus.valueOf(rs.getString(1)).ordinal();
+            counts[status]++;
+            cents[status] += cents(rs.getBigDecimal(2));
+        });
+        TransactionCallbacks.afterCommit(() -> {
+            for (CardStatus status : STATUSES) {
+                long count = counts[status.ordinal()];
+                if (count > 0) {
+                    add(status, -count, -cents[status.ordinal()]);
+                    add(CardStatus.EXPIRED, count, cents[status.ordinal()]);
+                }
+            }
+        });
+    }
+
+    public CardStatisticsReport report() {
+        Map<CardStatus, Long> cardsByStatus = new EnumMap<>(CardStatus.class);
+        Map<CardStatus, BigDecimal> balanceByStatus = new EnumMap<>(CardStatus.class);
+        long totalCards = 0;
+        long totalCents = 0;
+        for (CardStatus status : STATUSES) {
+            long count = cards[status.ordinal()].sum();
+            long sum = balanceCents[status.ordinal()].sum();
+            cardsByStatus.put(status, count);
+            balanceByStatus.put(status, BigDecimal.valueOf(sum, 2));
+            totalCards += count;
+            totalCents += sum;
+        }
+        return CardStatisticsReport.builder()
+                .cardsByStatus(cardsByStatus)
+                .balanceByStatus(balanceByStatus)
+                .totalCards(totalCards)
+                .totalBalance(BigDecimal.valueOf(totalCents, 2))
+                .pendingBlockRequests(pendingBlockRequests.sum())
+                .reconciledAt(reconciledAt)
+                .build();
+    }
+
+    /**
+     * Сверяет счетчики с базой: первая сверка при старте заполняет их,
+     * следующие исправляют накопленное расхождение.
+     */
+    @Scheduled(fixedDelayString = "${app.stats.reconcile-interval:PT15M}")
+    public void reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            long[] countsBefore = sums(cards);
+            long[] centsBefore = sums(balanceCents);
+            long pendingBefore = pendingBlockRequests.sum();
+
+            long[] counts = new long[STATUSES.length];
+            long[] cents = new long[STATUSES.length];
+            jdbcTemplate.query(CARD_TOTALS_SQL, rs -> {
+                int status = CardStatus.valueOf(rs.getString(1)).ordinal();
+                counts[status] = rs.getLong(2);
+                cents[status] = cents(rs.getBigDecimal(3));
+            });
+            Long pending = jdbcTemplate.queryForObject(PENDING_REQUESTS_SQL, Long.class);
+
+            boolean drifted = false;
+            for (int i = 0; i < STATUSES.length; i++) {
+                // Поправка, а не замена: дельты, примененные во время чтения базы, не теряются
+                drifted |= correct(cards[i], counts[i] - countsBefore[i]);
+                drifted |= correct(balanceCents[i], cents[i] - centsBefore[i]);
+            }
+            drifted |= correct(pendingBlockRequests, (pending != null ? pending : 0) - pendingBefore);
+
+            if (drifted && reconciledAt != null) {
+                corrections.increment();
+                log.warn("Card statistics drifted from the database and were corrected");
+            }
+            reconciledAt = LocalDateTime.now();
+            log.info("Card statistics reconciled in {} ms", (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Card statistics reconciliation failed: {}", e.getMessage(), e);
+        } finally {
+            reconciling.set(false);
+        }
+    }
+
+    private void add(CardStatus status, long count, long cents) {
+        cards[status.ordinal()].add(count);
+        balanceCents[status.ordinal()].add(cents);
+    }
+
+    private static boolean correct(LongAdder adder, long delta) {
+        if (delta == 0) {
+            return false;
+        }
+        adder.add(delta);
+        return true;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
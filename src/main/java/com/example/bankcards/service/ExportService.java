@@ -0,0 +1,231 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardSummary;
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.dto.TransferSummary;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.util.CardNumberMasker;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка карт и переводов для администратора. Строки читаются
+ * курсором репозитория в read-only транзакции и сразу пишутся в выходной поток:
+ * NDJSON — генератором Jackson в том же виде, что и ответы API, CSV — построчно.
+ * В памяти одновременно держится только порция курсора, сколько бы строк ни выгружалось.
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    private static final DateTimeFormatter EXPIRATION_FORMAT = DateTimeFormatter.ofPattern("MM/yy");
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Границы для незаданных дат фильтра
+    private static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 30);
+
+    private static final List<String> CARD_COLUMNS = List.of("id", "maskedCardNumber", "cardHolderName",
+            "expirationDate", "status", "balance", "ownerId", "ownerName", "createdAt", "updatedAt");
+    private static final List<String> TRANSFER_COLUMNS = List.of("id", "fromCardMasked", "toCardMasked",
+            "amount", "description", "status", "transferDate");
+
+    private final CardRepository cardRepository;
+    private final TransferRepository transferRepository;
+    private final CardNumberMasker cardNumberMasker;
+    private final ObjectWriter rowWriter;
+    private final Counter exportedCards;
+    private final Counter exportedTransfers;
+
+    public ExportService(CardRepository cardRepository,
+                         TransferRepository transferRepository,
+                         CardNumberMasker cardNumberMasker,
+                         ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry) {
+        this.cardRepository = cardRepository;
+        this.transferRepository = transferRepository;
+        this.cardNumberMasker = cardNumberMasker;
+        // Сброс в сокет после каждой строки превратил бы выгрузку в поток мелких пакетов
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.exportedCards = rowsCounter(meterRegistry, "cards");
+        this.exportedTransfers = rowsCounter(meterRegistry, "transfers");
+    }
+
+    private static Counter rowsCounter(MeterRegistry meterRegistry, String type) {
+        return Counter.builder("export.rows")
+                .description("Rows written by streaming exports")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Пишет карты по возрастанию id. Пустой фильтр не ограничивает выборку,
+     * даты выпуска {@code from} и {@code to} включительно.
+     *
+     * @return число выгруженных карт
+     */
+    @Transactional(readOnly = true)
+    public long exportCards(ExportFormat format, CardStatus status, Long ownerId,
+                            LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        try (Stream<CardSummary> cards = cardRepository.streamSummaries(status, ownerId, startOf(from), endOf(to))) {
+            long rows = write(format, cards.map(this::toResponse), CARD_COLUMNS, ExportService::cardValues, out);
+            exportedCards.increment(rows);
+            log.info("Exported {} cards as {} in {} ms", rows, format, (System.nanoTime() - started) / 1_000_000);
+            return rows;
+        }
+    }
+
+    /**
+     * Пишет переводы по возрастанию id; {@code ownerId} — владелец карты отправителя или получателя,
+     * даты перевода {@code from} и {@code to} включительно.
+     *
+     * @return число выгруженных переводов
+     */
+    @Transactional(readOnly = true)
+    public long exportTransfers(ExportFormat format, TransferStatus status, Long ownerId,
+                                LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        try (Stream<TransferSummary> transfers = transferRepository.streamSummaries(status, ownerId,
+                startOf(from), endOf(to))) {
+            long rows = write(format, transfers.map(this::toResponse), TRANSFER_COLUMNS,
+                    ExportService::transferValues, out);
+            exportedTransfers.increment(rows);
+            log.info("Exported {} transfers as {} in {} ms", rows, format, (System.nanoTime() - started) / 1_000_000);
+            return rows;
+        }
+    }
+
+    private <T> long write(ExportFormat format, Stream<T> rows, List<String> columns,
+                           Function<T, List<Object>> values, OutputStream out) throws IOException {
+        Iterator<T> iterator = rows.iterator();
+        long count = 0;
+        if (format == ExportFormat.CSV) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writeCsvLine(writer, columns);
+            while (iterator.hasNext()) {
+                writeCsvLine(writer, values.apply(iterator.next()));
+                count++;
+            }
+            writer.flush();
+        } else {
+            JsonGenerator generator = rowWriter.createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (iterator.hasNext()) {
+                rowWriter.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                count++;
+            }
+            generator.close();
+        }
+        return count;
+    }
+
+    private static void writeCsvLine(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvValue(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Значение ячейки по RFC 4180. Текст, который табличный редактор принял бы
+     * за формулу, экранируется апострофом: имена и описания вводят пользователи.
+     */
+    static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (value instanceof String && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    private static List<Object> cardValues(CardResponse card) {
+        return Arrays.asList(card.getId(), card.getMaskedCardNumber(), card.getCardHolderName(),
+                format(card.getExpirationDate(), EXPIRATION_FORMAT), card.getStatus(), card.getBalance(),
+                card.getOwnerId(), card.getOwnerName(), format(card.getCreatedAt(), TIMESTAMP_FORMAT),
+                format(card.getUpdatedAt(), TIMESTAMP_FORMAT));
+    }
+
+    private static List<Object> transferValues(TransferResponse transfer) {
+        return Arrays.asList(transfer.getId(), transfer.getFromCardMasked(), transfer.getToCardMasked(),
+                transfer.getAmount(), transfer.getDescription(), transfer.getStatus(),
+                format(transfer.getTransferDate(), TIMESTAMP_FORMAT));
+    }
+
+    private static String format(TemporalAccessor value, DateTimeFormatter formatter) {
+        return value != null ? formatter.format(value) : null;
+    }
+
+    private static LocalDateTime startOf(LocalDate date) {
+        return (date != null ? date : MIN_DATE).atStartOfDay();
+    }
+
+    private static LocalDateTime endOf(LocalDate date) {
+        return (date != null ? date : MAX_DATE).plusDays(1).atStartOfDay();
+    }
+
+    private CardResponse toResponse(CardSummary card) {
+        return CardResponse.builder()
+                .id(card.id())
+                .maskedCardNumber(cardNumberMasker.maskCardNumber(card.cardNumberLastFour()))
+                .cardHolderName(card.cardHolderName())
+                .expirationDate(card.expirationDate())
+                .status(card.status())
+                .balance(card.balance())
+                .ownerId(card.ownerId())
+                .ownerName(card.ownerName())
+                .createdAt(card.createdAt())
+                .updatedAt(card.updatedAt())
+                .build();
+    }
+
+    private TransferResponse toResponse(TransferSummary transfer) {
+        return TransferResponse.builder()
+                .id(transfer.id())
+                .fromCardMasked(cardNumberMasker.maskCardNumber(transfer.fromCardLastFour()))
+                .toCardMasked(cardNumberMasker.maskCardNumber(transfer.toCardLastFour()))
+                .amount(transfer.amount())
+                .description(transfer.description())
+                .status(transfer.status())
+                .transferDate(transfer.transferDate())
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.PaginationProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Приблизительное общее число строк для списков: точный COUNT, закэшированный
+ * на {@code app.pagination.count-cache-ttl}, или, для больших выборок в PostgreSQL,
+ * оценка планировщика без чтения строк. Кэш не сбрасывается при изменениях,
+ * расхождение ограничено временем жизни записи.
+ */
+@Service
+@Slf4j
+public class ListingCountService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final long estimateThreshold;
+    private final Cache<String, Long> counts;
+
+    private final Counter estimates;
+    private final Counter exactCounts;
+
+    private volatile Boolean postgres;
+
+    public ListingCountService(JdbcTemplate jdbcTemplate,
+                               ObjectMapper objectMapper,
+                               PaginationProperties paginationProperties,
+                               MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.estimateThreshold = paginationProperties.getEstimateThreshold();
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(paginationProperties.getCountCacheMaxSize())
+                .expireAfterWrite(paginationProperties.getCountCacheTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, counts, "listingCounts");
+
+        estimates = Counter.builder("pagination.totals")
+                .tag("source", "estimate")
+                .description("Approximate list totals taken from the query planner")
+                .register(meterRegistry);
+        exactCounts = Counter.builder("pagination.totals")
+                .tag("source", "count")
+                .description("Approximate list totals that had to run a COUNT query")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Точный COUNT, переиспользуемый в пределах времени жизни кэша.
+     */
+    public long cachedCount(String key, LongSupplier count) {
+        return counts.get(key, k -> {
+            exactCounts.increment();
+            return count.getAsLong();
+        });
+    }
+
+    /**
+     * Оценка планировщика для {@code estimateSql}, если она не меньше порога; для небольших
+     * выборок и баз без EXPLAIN (FORMAT JSON) — кэшированный точный COUNT.
+     */
+    public long estimatedCount(String key, String estimateSql, Object[] args, LongSupplier count) {
+        return counts.get(key, k -> {
+            long estimate = planRows(estimateSql, args);
+            if (estimate >= estimateThreshold) {
+                estimates.increment();
+                return estimate;
+            }
+            exactCounts.increment();
+            return count.getAsLong();
+        });
+    }
+
+    private long planRows(String sql, Object[] args) {
+        if (!isPostgres()) {
+            return -1;
+        }
+        try {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, args);
+            JsonNode rows = objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows");
+            return rows.isNumber() ? rows.asLong() : -1;
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Could not estimate row count: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = "PostgreSQL".equals(jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName()));
+            postgres = result;
+        }
+        return result;
+    }
+}
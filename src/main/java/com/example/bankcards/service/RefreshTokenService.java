@@ -0,0 +1,110 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.EncryptionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final EncryptionUtil encryptionUtil;
+
+    @Value("${app.jwt.refresh-expiration:P30D}")
+    private Duration refreshExpiration;
+
+    /**
+     * Выдает refresh-токен новой цепочки. Возвращается сам токен, в базе хранится только хэш.
+     */
+    @Transactional
+    public String issue(Long userId) {
+        return issue(userRepository.getReferenceById(userId), UUID.randomUUID().toString());
+    }
+
+    /**
+     * Обменивает refresh-токен на новый из той же цепочки. Пароль не проверяется,
+     * поиск идет по уникальному индексу хэша. Повторное предъявление уже
+     * использованного токена считается кражей и отзывает всю цепочку.
+     *
+     * @throws InvalidRefreshTokenException если токен неизвестен, истек, отозван или пользователь заблокирован
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHashWithUser(encryptionUtil.hash(rawToken))
+                .orElseThrow(() -> new InvalidRefreshTokenException("Refresh token is invalid"));
+        LocalDateTime now = LocalDateTime.now();
+        User user = current.getUser();
+
+        if (current.getRevokedAt() != null) {
+            log.warn("Reuse of a revoked refresh token for user {}, revoking family {}",
+                    user.getUsername(), current.getFamilyId());
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            throw new InvalidRefreshTokenException("Refresh token has been revoked");
+        }
+        if (!current.getExpiresAt().isAfter(now)) {
+            throw new InvalidRefreshTokenException("Refresh token has expired");
+        }
+        if (!user.isActive()) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            throw new InvalidRefreshTokenException("User account is blocked");
+        }
+        if (refreshTokenRepository.markUsed(current.getId(), now) == 0) {
+            // Параллельная ротация того же токена: второй запрос считаем повторным использованием
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            throw new InvalidRefreshTokenException("Refresh token has been revoked");
+        }
+
+        return new Rotation(user, issue(user, current.getFamilyId()));
+    }
+
+    /**
+     * Отзывает всю цепочку, к которой относится токен. Неизвестный токен игнорируется.
+     */
+    @Transactional
+    public void revokeFamily(String rawToken) {
+        refreshTokenRepository.findByTokenHash(encryptionUtil.hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now()));
+    }
+
+    @Transactional
+    public int deleteExpired() {
+        return refreshTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private String issue(User user, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .user(user)
+                .familyId(familyId)
+                .tokenHash(encryptionUtil.hash(rawToken))
+                .expiresAt(LocalDateTime.now().plus(refreshExpiration))
+                .build());
+        return rawToken;
+    }
+
+    public record Rotation(User user, String refreshToken) {
+    }
+}
@@ -1,26 +1,32 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.SlicePage;
+import com.example.bankcards.dto.TotalMode;
 import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.dto.TransferResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.entity.TransferStatus;
-import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.*;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
-import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.util.CardNumberMasker;
 import com.example.bankcards.util.EncryptionUtil;
+import com.example.bankcards.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -29,61 +35,86 @@ public class TransferService {
     private final TransferRepository transferRepository;
     private final CardRepository cardRepository;
     private final CardNumberMasker cardNumberMasker;
-    private final UserRepository userRepository;
     private final EncryptionUtil encryptionUtil;
+    private final ListingCountService listingCountService;
+    private final CardBalanceCache cardBalanceCache;
+    private final CardStatistics cardStatistics;
 
     @Value("${app.transfer.max-amount:1000000.00}")
     private BigDecimal maxTransferAmount;
 
+    /*
+     * Балансы меняются только под SELECT ... FOR UPDATE обеих карт. Карты
+     * находятся по номеру без загрузки, блокируются по возрастанию id и только
+     * потом читаются: встречные переводы между одними картами ждут друг друга,
+     * а не взаимоблокируются, и ни одно списание не теряется.
+     */
+
     @Transactional
     public TransferResponse transferBetweenOwnCards(TransferRequest request, Long userId) {
-        User currentUser = getCurrentUser(userId);
-
-        Card fromCard = findCardByNumber(request.getFromCardNumber(), currentUser);
-        Card toCard = findCardByNumber(request.getToCardNumber(), currentUser);
-
-        if (!fromCard.getOwner().getId().equals(toCard.getOwner().getId())) {
-            throw new IllegalArgumentException("Both cards must belong to the same user");
-        }
+        LockedCards cards = lockCards(findCardIdByNumber(request.getFromCardNumber()),
+                findCardIdByNumber(request.getToCardNumber()));
 
-        validateTransfer(fromCard, toCard, request.getAmount());
-
-        fromCard.setBalance(fromCard.getBalance().subtract(request.getAmount()));
-        toCard.setBalance(toCard.getBalance().add(request.getAmount()));
+        requireOwner(cards.from(), userId);
+        requireOwner(cards.to(), userId);
 
-        cardRepository.save(fromCard);
-        cardRepository.save(toCard);
+        return completeTransfer(cards, request);
+    }
 
-        Transfer transfer = Transfer.builder()
-                .fromCard(fromCard)
-                .toCard(toCard)
-                .amount(request.getAmount())
-                .description(request.getDescription())
-                .status(TransferStatus.COMPLETED)
-                .build();
+    /**
+     * Перевод со своей карты на карту другого пользователя, найденную по номеру.
+     */
+    @Transactional
+    public TransferResponse transferToCard(TransferRequest request, Long userId) {
+        LockedCards cards = lockCards(findCardIdByNumber(request.getFromCardNumber()),
+                findCardIdByNumber(request.getToCardNumber()));
 
-        transfer = transferRepository.save(transfer);
+        requireOwner(cards.from(), userId);
 
-        return mapToResponse(transfer);
+        return completeTransfer(cards, request);
     }
 
     @Transactional(readOnly = true)
     public Page<TransferResponse> getUserTransfers(Long userId, Pageable pageable) {
-        User user = getCurrentUser(userId);
-
-        return transferRepository.findByUser(user, pageable)
+        return transferRepository.findByUserId(userId, pageable)
                 .map(this::mapToResponse);
     }
 
+    /**
+     * Страница переводов без COUNT. Карты пользователя читаются отдельно, чтобы
+     * выборка и подсчет шли по индексам переводов, а не через JOIN владельца.
+     */
+    @Transactional(readOnly = true)
+    public SlicePage<TransferResponse> sliceUserTransfers(Long userId, Pageable pageable, TotalMode totalMode) {
+        List<Long> cardIds = cardRepository.findIdsByOwnerId(userId);
+        Slice<TransferResponse> slice = cardIds.isEmpty()
+                ? new SliceImpl<>(List.of(), pageable, false)
+                : transferRepository.findSliceByCardIds(cardIds, pageable).map(this::mapToResponse);
+        return SlicePage.of(slice, totalMode,
+                () -> transferRepository.countByCardIds(cardIds),
+                () -> listingCountService.cachedCount("transfers:user:" + userId,
+                        () -> transferRepository.countByCardIds(cardIds)));
+    }
+
+    /**
+     * Переводы пользователя от новых к старым.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TransferResponse> scrollUserTransfers(Long userId, String cursor, int size) {
+        KeysetCursor before = KeysetCursor.decode(cursor);
+        List<Long> cardIds = cardRepository.findIdsByOwnerId(userId);
+        List<Transfer> rows = cardIds.isEmpty() ? List.of() : transferRepository.findByCardIdsBefore(
+                cardIds, before != null ? before.id() : Long.MAX_VALUE, PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size, transfer -> KeysetCursor.of(transfer.getId()), this::mapToResponse);
+    }
+
     @Transactional(readOnly = true)
     public TransferResponse getTransferById(Long transferId, Long userId) {
         Transfer transfer = transferRepository.findById(transferId)
                 .orElseThrow(() -> new RuntimeException("Transfer not found with id: " + transferId));
 
-        User currentUser = getCurrentUser(userId);
-
-        if (!transfer.getFromCard().getOwner().getId().equals(currentUser.getId()) &&
-                !transfer.getToCard().getOwner().getId().equals(currentUser.getId())) {
+        if (!transfer.getFromCard().getOwner().getId().equals(userId) &&
+                !transfer.getToCard().getOwner().getId().equals(userId)) {
             throw new AccessDeniedException("Access denied");
         }
 
@@ -92,15 +123,9 @@ public class TransferService {
 
     @Transactional
     public void cancelTransfer(Long transferId, Long userId) {
-        Transfer transfer = transferRepository.findById(transferId)
+        Transfer transfer = transferRepository.findByIdForUpdate(transferId)
                 .orElseThrow(() -> new RuntimeException("Transfer not found with id: " + transferId));
 
-        User currentUser = getCurrentUser(userId);
-
-        if (!transfer.getFromCard().getOwner().getId().equals(currentUser.getId())) {
-            throw new TransferCancellationException("Only transfer initiator can cancel transfer");
-        }
-
         if (transfer.getTransferDate().isBefore(LocalDateTime.now().minusHours(24))) {
             throw new TransferCancellationException("Transfer cannot be cancelled after 24 hours");
         }
@@ -109,43 +134,92 @@ public class TransferService {
             throw new TransferCancellationException("Only completed transfers can be cancelled");
         }
 
-        Card fromCard = transfer.getFromCard();
-        Card toCard = transfer.getToCard();
+        // Id из ссылок перевода не загружает карты: они читаются только под блокировкой
+        LockedCards cards = lockCards(transfer.getFromCard().getId(), transfer.getToCard().getId());
+        Card fromCard = cards.from();
+        Card toCard = cards.to();
+
+        if (!fromCard.getOwner().getId().equals(userId)) {
+            throw new TransferCancellationException("Only transfer initiator can cancel transfer");
+        }
+
+        if (!toCard.getOwner().getId().equals(userId)) {
+            throw new TransferCancellationException("Transfers to another user cannot be cancelled");
+        }
 
         if (toCard.getBalance().compareTo(transfer.getAmount()) < 0) {
             throw new InsufficientFundsException("Insufficient funds on destination card to cancel transfer");
         }
 
-        fromCard.setBalance(fromCard.getBalance().add(transfer.getAmount()));
-        toCard.setBalance(toCard.getBalance().subtract(transfer.getAmount()));
-
-        cardRepository.save(fromCard);
-        cardRepository.save(toCard);
+        changeBalance(fromCard, fromCard.getBalance().add(transfer.getAmount()));
+        changeBalance(toCard, toCard.getBalance().subtract(transfer.getAmount()));
 
         transfer.setStatus(TransferStatus.CANCELLED);
         transferRepository.save(transfer);
     }
 
-    private Card findCardByNumber(String cardNumber, User owner) {
-        String cardHash = encryptionUtil.hash(cardNumber);
+    private TransferResponse completeTransfer(LockedCards cards, TransferRequest request) {
+        Card fromCard = cards.from();
+        Card toCard = cards.to();
+
+        validateTransfer(fromCard, toCard, request.getAmount());
+
+        changeBalance(fromCard, fromCard.getBalance().subtract(request.getAmount()));
+        changeBalance(toCard, toCard.getBalance().add(request.getAmount()));
+
+        Transfer transfer = Transfer.builder()
+                .fromCard(fromCard)
+                .toCard(toCard)
+                .amount(request.getAmount())
+                .description(request.getDescription())
+                .status(TransferStatus.COMPLETED)
+                .build();
 
-        Card card = cardRepository.findByCardNumberHash(cardHash)
+        return mapToResponse(transferRepository.save(transfer));
+    }
+
+    private void changeBalance(Card card, BigDecimal balance) {
+        cardStatistics.balanceChanged(card.getStatus(), balance.subtract(card.getBalance()));
+        card.setBalance(balance);
+        card.setBalanceVersion(card.getBalanceVersion() + 1);
+        cardRepository.save(card);
+        cardBalanceCache.updated(card);
+    }
+
+    private Long findCardIdByNumber(String cardNumber) {
+        return cardRepository.findIdByCardNumber(encryptionUtil.hmac(cardNumber), encryptionUtil.hash(cardNumber))
                 .orElseThrow(() -> new CardNotFoundException("Card not found"));
+    }
 
-        if (!card.getOwner().getId().equals(owner.getId())) {
-            throw new CardNotOwnedException("Card does not belong to user");
+    private LockedCards lockCards(Long fromCardId, Long toCardId) {
+        if (fromCardId.equals(toCardId)) {
+            Card card = lockCard(fromCardId);
+            return new LockedCards(card, card);
         }
+        Card first = lockCard(Math.min(fromCardId, toCardId));
+        Card second = lockCard(Math.max(fromCardId, toCardId));
+        return fromCardId < toCardId ? new LockedCards(first, second) : new LockedCards(second, first);
+    }
 
-        return card;
+    private Card lockCard(Long cardId) {
+        return cardRepository.findByIdForUpdate(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Card not found"));
+    }
+
+    private void requireOwner(Card card, Long ownerId) {
+        if (!card.getOwner().getId().equals(ownerId)) {
+            throw new CardNotOwnedException("Card does not belong to user");
+        }
     }
 
     private void validateTransfer(Card fromCard, Card toCard, BigDecimal amount) {
         if (!fromCard.isActive()) {
-            throw new RuntimeException("Source card is not active");
+            throw new CardNotActiveException("Source card is not active");
         }
 
+        // Карта получателя может быть чужой: ее статус и срок действия не раскрываем
         if (!toCard.isActive()) {
-            throw new RuntimeException("Destination card is not active");
+            throw new CardNotActiveException("Destination card cannot accept transfers");
         }
 
         if (fromCard.getBalance().compareTo(amount) < 0) {
@@ -165,11 +239,6 @@ public class TransferService {
         }
     }
 
-    private User getCurrentUser(Long userId) {
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
-    }
-
     private TransferResponse mapToResponse(Transfer transfer) {
         return TransferResponse.builder()
                 .id(transfer.getId())
@@ -181,4 +250,7 @@ public class TransferService {
                 .transferDate(transfer.getTransferDate())
                 .build();
     }
-}
\ No newline at end of file
+
+    private record LockedCards(Card from, Card to) {
+    }
+}
@@ -1,23 +1,71 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.event.UserSecurityChangedEvent;
 import com.example.bankcards.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.bankcards.security.UserSecuritySnapshot;
+import com.example.bankcards.util.TransactionCallbacks;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
 
 @Service
-@RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+@Slf4j
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final Cache<String, UserSecuritySnapshot> cache;
+
+    public UserDetailsServiceImpl(UserRepository userRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.security.user-cache.max-size:50000}") long maxSize,
+                                  @Value("${app.security.user-cache.ttl:PT10M}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userSecurity");
+    }
 
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        // Роли загружаются EAGER, поэтому транзакция для построения снимка не нужна
+        UserSecuritySnapshot snapshot = cache.get(username, key -> userRepository.findByUsername(key)
+                .map(UserSecuritySnapshot::from)
+                .orElse(null));
+
+        if (snapshot == null) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserSecuritySnapshot snapshot = (UserSecuritySnapshot) user;
+        userRepository.updatePassword(snapshot.getId(), newPassword);
+        cache.invalidate(snapshot.getUsername());
+        log.info("Rehashed password for user {}", snapshot.getUsername());
+        return snapshot.withPassword(newPassword);
+    }
+
+    @EventListener
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        String username = event.username();
+        cache.invalidate(username);
+        // Повторно после коммита: параллельный логин мог закэшировать данные до фиксации изменений
+        TransactionCallbacks.afterCommit(() -> cache.invalidate(username));
     }
-}
\ No newline at end of file
+}
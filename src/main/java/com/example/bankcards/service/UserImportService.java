@@ -0,0 +1,460 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.RegisterRequest;
+import com.example.bankcards.dto.UserImportReport;
+import com.example.bankcards.dto.UserImportRowResult;
+import com.example.bankcards.dto.UserImportRowResult.Status;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.exception.UserImportCapacityExceededException;
+import com.example.bankcards.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Массовая регистрация пользователей из NDJSON. Файл читается потоково и
+ * обрабатывается чанками: пароли хэшируются параллельно, дубликаты ищутся
+ * одним запросом на чанк, вставка идет JDBC-батчами в одной транзакции на чанк.
+ * <p>
+ * При рабочей стоимости BCrypt (около {@code app.security.bcrypt.target-latency} на пароль)
+ * большой файл импортируется часами, поэтому импорт — фоновое задание: файл
+ * принимается в память, задание ставится в очередь, отчет запрашивается по id.
+ * Задания выполняются по одному, отчеты хранятся в памяти экземпляра, принявшего файл.
+ * Хэширование по умолчанию занимает половину процессоров, остальное остается
+ * входу и регистрации.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO users (username, password, full_name, email, active, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, ?, TRUE, ?, ?)";
+    private static final String INSERT_ROLES_SQL =
+            "INSERT INTO user_roles (user_id, role) SELECT id, :role FROM users WHERE username IN (:usernames)";
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ExecutorService hashingPool;
+    private final ThreadPoolExecutor jobExecutor;
+    private final Map<String, Job> jobs;
+    private final int chunkSize;
+    private final long maxBytes;
+    private final Timer importTimer;
+    private final Counter importedUsers;
+
+    public UserImportService(UserRepository userRepository,
+                             PasswordEncoder passwordEncoder,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.users.import.chunk-size:1000}") int chunkSize,
+                             @Value("${app.users.import.hashing-threads:0}") int hashingThreads,
+                             @Value("${app.users.import.max-size:100MB}") DataSize maxSize,
+                             @Value("${app.users.import.max-pending:2}") int maxPending,
+                             @Value("${app.users.import.retained-reports:20}") int retainedReports) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxBytes = maxSize.toBytes();
+        int threads = hashingThreads > 0
+                ? hashingThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.hashingPool = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("user-import-hashing-"));
+        this.jobExecutor = new ThreadPoolExecutor(
+                1, 1,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxPending),
+                new CustomizableThreadFactory("user-import-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        // Завершенные отчеты вытесняются в порядке поступления; очередь и текущее задание не вытесняются
+        this.jobs = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+                return size() > retainedReports && eldest.getValue().isFinished();
+            }
+        };
+        this.importTimer = Timer.builder("users.import.duration")
+                .description("Duration of bulk user imports")
+                .register(meterRegistry);
+        this.importedUsers = Counter.builder("users.import.created")
+                .description("Users created by bulk import")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Принимает NDJSON и ставит импорт в очередь. Поток читается целиком до возврата,
+     * поэтому после ответа запрос можно закрыть.
+     *
+     * @return отчет со статусом {@link UserImportReport.Status#QUEUED} и id задания
+     * @throws IllegalArgumentException если файл больше {@code app.users.import.max-size}
+     * @throws UserImportCapacityExceededException если очередь заданий заполнена
+     */
+    public UserImportReport submit(InputStream input) throws IOException {
+        byte[] content = input.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxBytes + 1));
+        if (content.length > maxBytes) {
+            throw new IllegalArgumentException("Import file exceeds " + maxBytes + " bytes");
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), content);
+        synchronized (jobs) {
+            try {
+                jobExecutor.execute(() -> execute(job));
+            } catch (RejectedExecutionException e) {
+                throw new UserImportCapacityExceededException("Too many user imports in progress, please retry later");
+            }
+            jobs.put(job.id, job);
+        }
+        log.info("User import {} queued ({} bytes)", job.id, content.length);
+        return job.toReport();
+    }
+
+    /**
+     * Текущее состояние задания; пусто, если id неизвестен или отчет уже вытеснен.
+     */
+    public Optional<UserImportReport> status(String jobId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(jobId)).map(Job::toReport);
+        }
+    }
+
+    private void execute(Job job) {
+        job.startedAt = LocalDateTime.now();
+        job.startedNanos = System.nanoTime();
+        job.status = UserImportReport.Status.RUNNING;
+        try {
+            job.finish(UserImportReport.Status.COMPLETED, importUsers(job));
+        } catch (Exception e) {
+            log.error("User import {} failed after {} rows: {}", job.id, job.processed, e.getMessage(), e);
+            job.error = e.getMessage();
+            job.finish(UserImportReport.Status.FAILED, null);
+        }
+    }
+
+    private UserImportReport importUsers(Job job) throws IOException {
+        long started = System.nanoTime();
+        List<UserImportRowResult> results = new ArrayList<>();
+        // Имена и email, уже встреченные в этом файле
+        Set<String> seenUsernames = new HashSet<>();
+        Set<String> seenEmails = new HashSet<>();
+
+        InputStream input = new ByteArrayInputStream(job.content);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                Row row = parse(lineNumber, line, seenUsernames, seenEmails);
+                results.add(row.result);
+                if (row.result.getStatus() == null) {
+                    chunk.add(row);
+                }
+                if (chunk.size() >= chunkSize) {
+                    processChunk(job, chunk);
+                    job.processed = results.size();
+                    chunk.clear();
+                }
+                if (job.stopRequested) {
+                    throw new IllegalStateException("Import stopped by shutdown at line " + lineNumber);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(job, chunk);
+            }
+            job.processed = results.size();
+        }
+
+        long durationNanos = System.nanoTime() - started;
+        importTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        UserImportReport report = buildReport(results, durationNanos);
+        log.info("User import {}: {} created, {} duplicates, {} invalid in {} ms ({} rows/s)",
+                job.id, report.getCreated(), report.getDuplicates(), report.getInvalid(),
+                report.getDurationMs(), Math.round(report.getRowsPerSecond()));
+        return report;
+    }
+
+    private Row parse(int lineNumber, String line, Set<String> seenUsernames, Set<String> seenEmails) {
+        UserImportRowResult result = UserImportRowResult.builder().line(lineNumber).build();
+        RegisterRequest request;
+        try {
+            request = objectMapper.readValue(line, RegisterRequest.class);
+        } catch (JsonProcessingException e) {
+            result.setStatus(Status.INVALID);
+            result.setMessage("Malformed JSON");
+            return new Row(null, result);
+        }
+        result.setUsername(request.getUsername());
+
+        Set<ConstraintViolation<RegisterRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            result.setStatus(Status.INVALID);
+            result.setMessage(violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        } else if (!seenUsernames.add(request.getUsername())) {
+            result.setStatus(Status.DUPLICATE);
+            result.setMessage("Username is repeated in the file");
+        } else if (!seenEmails.add(request.getEmail())) {
+            result.setStatus(Status.DUPLICATE);
+            result.setMessage("Email is repeated in the file");
+        }
+        return new Row(request, result);
+    }
+
+    private void processChunk(Job job, List<Row> chunk) {
+        List<Row> fresh = excludeExisting(chunk);
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        // BCrypt — основная стоимость импорта, поэтому хэшируем параллельно в своем пуле
+        List<CompletableFuture<String>> hashes = fresh.stream()
+                .map(row -> CompletableFuture.supplyAsync(
+                        () -> passwordEncoder.encode(row.request.getPassword()), hashingPool))
+                .toList();
+        List<String> encodedPasswords = hashes.stream().map(CompletableFuture::join).toList();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(fresh, encodedPasswords));
+            fresh.forEach(row -> markCreated(job, row.result));
+        } catch (DataIntegrityViolationException e) {
+            // Кто-то зарегистрировался параллельно: вставляем чанк построчно
+            log.warn("Batch insert conflicted, retrying {} rows one by one", fresh.size());
+            for (int i = 0; i < fresh.size(); i++) {
+                Row row = fresh.get(i);
+                List<String> password = List.of(encodedPasswords.get(i));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(row), password));
+                    markCreated(job, row.result);
+                } catch (DataIntegrityViolationException rowError) {
+                    row.result.setStatus(Status.DUPLICATE);
+                    row.result.setMessage("Username or email is already taken");
+                }
+            }
+        }
+    }
+
+    private List<Row> excludeExisting(List<Row> chunk) {
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        chunk.forEach(row -> {
+            usernames.add(row.request.getUsername());
+            emails.add(row.request.getEmail());
+        });
+
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        for (Object[] existing : userRepository.findExistingUsernamesAndEmails(usernames, emails)) {
+            takenUsernames.add((String) existing[0]);
+            takenEmails.add((String) existing[1]);
+        }
+
+        List<Row> fresh = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (takenUsernames.contains(row.request.getUsername())) {
+                row.result.setStatus(Status.DUPLICATE);
+                row.result.setMessage("Username is already taken");
+            } else if (takenEmails.contains(row.request.getEmail())) {
+                row.result.setStatus(Status.DUPLICATE);
+                row.result.setMessage("Email is already in use");
+            } else {
+                fresh.add(row);
+            }
+        }
+        return fresh;
+    }
+
+    private void insert(List<Row> rows, List<String> encodedPasswords) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            RegisterRequest request = rows.get(i).request;
+            batch.add(new Object[]{
+                    request.getUsername(), encodedPasswords.get(i), request.getFullName(), request.getEmail(), now, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_USER_SQL, batch);
+
+        namedJdbcTemplate.update(INSERT_ROLES_SQL, new MapSqlParameterSource()
+                .addValue("role", Role.ROLE_USER.name())
+                .addValue("usernames", rows.stream().map(row -> row.request.getUsername()).toList()));
+    }
+
+    private void markCreated(Job job, UserImportRowResult result) {
+        result.setStatus(Status.CREATED);
+        job.created++;
+        importedUsers.increment();
+    }
+
+    private static UserImportReport buildReport(List<UserImportRowResult> results, long durationNanos) {
+        int created = 0;
+        int duplicates = 0;
+        int invalid = 0;
+        for (UserImportRowResult result : results) {
+            switch (result.getStatus()) {
+                case CREATED -> created++;
+                case DUPLICATE -> duplicates++;
+                case INVALID -> invalid++;
+            }
+        }
+        double seconds = durationNanos / 1_000_000_000.0;
+        return UserImportReport.builder()
+                .total(results.size())
+                .created(created)
+                .duplicates(duplicates)
+                .invalid(invalid)
+                .durationMs(durationNanos / 1_000_000)
+                .rowsPerSecond(seconds > 0 ? results.size() / seconds : 0)
+                .rows(results)
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        synchronized (jobs) {
+            jobs.values().forEach(job -> job.stopRequested = true);
+        }
+        jobExecutor.shutdownNow().forEach(task -> log.warn("Queued user import dropped by shutdown"));
+        if (!jobExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("User import did not stop in time");
+        }
+        hashingPool.shutdown();
+    }
+
+    private record Row(RegisterRequest request, UserImportRowResult result) {
+    }
+
+    /**
+     * Задание импорта. Поля меняет только поток задания, остальные потоки их читают.
+     */
+    private static final class Job {
+
+        private final String id;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile byte[] content;
+        private volatile UserImportReport.Status status = UserImportReport.Status.QUEUED;
+        private volatile int processed;
+        private volatile int created;
+        private volatile long startedNanos;
+        private volatile long finishedNanos;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime completedAt;
+        private volatile UserImportReport report;
+        private volatile String error;
+        private volatile boolean stopRequested;
+
+        Job(String id, byte[] content) {
+            this.id = id;
+            this.content = content;
+        }
+
+        boolean isFinished() {
+            return status == UserImportReport.Status.COMPLETED || status == UserImportReport.Status.FAILED;
+        }
+
+        /**
+         * Итоговый отчет публикуется раньше статуса: увидевший COMPLETED получает полный отчет.
+         */
+        void finish(UserImportReport.Status result, UserImportReport completed) {
+            content = null;
+            finishedNanos = System.nanoTime();
+            completedAt = LocalDateTime.now();
+            if (completed != null) {
+                report = describe(completed, result);
+            }
+            status = result;
+        }
+
+        UserImportReport toReport() {
+            UserImportReport completed = report;
+            if (completed != null) {
+                return completed;
+            }
+            return describe(UserImportReport.builder()
+                    .total(processed)
+                    .created(created)
+                    .durationMs(elapsedNanos() / 1_000_000)
+                    .rowsPerSecond(rowsPerSecond())
+                    .build(), status);
+        }
+
+        private UserImportReport describe(UserImportReport target, UserImportReport.Status current) {
+            target.setJobId(id);
+            target.setStatus(current);
+            target.setError(error);
+            target.setSubmittedAt(submittedAt);
+            target.setStartedAt(startedAt);
+            target.setCompletedAt(completedAt);
+            return target;
+        }
+
+        private long elapsedNanos() {
+            if (startedNanos == 0) {
+                return 0;
+            }
+            return (finishedNanos != 0 ? finishedNanos : System.nanoTime()) - startedNanos;
+        }
+
+        private double rowsPerSecond() {
+            double seconds = elapsedNanos() / 1_000_000_000.0;
+            return seconds > 0 ? processed / seconds : 0;
+        }
+    }
+}
@@ -1,22 +1,39 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardBulkStatusReport;
+import com.example.bankcards.dto.CardBulkStatusRequest;
+import com.example.bankcards.dto.CursorPage;
 import com.example.bankcards.dto.UserResponse;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.event.UserSecurityChangedEvent;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.repository.RefreshTokenRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import com.example.bankcards.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserService {
 
     private final UserRepository userRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final CardBulkStatusService cardBulkStatusService;
 
     @Transactional(readOnly = true)
     public Page<UserResponse> getAllUsers(Pageable pageable) {
@@ -24,13 +41,41 @@ public class UserService {
                 .map(this::mapToResponse);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPage<UserResponse> scrollUsers(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<UserResponse> rows = userRepository.findResponsesAfter(
+                after != null ? after.id() : 0L, PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size, user -> KeysetCursor.of(user.getId()), Function.identity());
+    }
+
     @Transactional
     public void blockUser(Long userId) {
+        blockUser(userId, false);
+    }
+
+    /**
+     * Блокирует пользователя и, если {@code blockCards}, в той же транзакции все его карты.
+     * Выданные access- и refresh-токены отзываются: после активации пользователь входит заново.
+     *
+     * @return результат блокировки карт или null, если карты не затрагивались
+     */
+    @Transactional
+    public CardBulkStatusReport blockUser(Long userId, boolean blockCards) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
         user.setActive(false);
         userRepository.save(user);
-        log.info("User {} blocked", userId);
+        tokenRevocationRegistry.revokeAllTokens(userId);
+        refreshTokenRepository.revokeAllByUserId(userId, LocalDateTime.now());
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(userId, user.getUsername()));
+        if (!blockCards) {
+            log.info("User {} blocked", userId);
+            return null;
+        }
+        CardBulkStatusReport cards = cardBulkStatusService.blockCards(CardBulkStatusRequest.byOwner(userId));
+        log.info("User {} blocked with {} cards", userId, cards.getUpdated());
+        return cards;
     }
 
     @Transactional
@@ -39,6 +84,7 @@ public class UserService {
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
         user.setActive(true);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(userId, user.getUsername()));
         log.info("User {} activated", userId);
     }
 
@@ -0,0 +1,120 @@
+package com.example.bankcards.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасный Bloom-фильтр над строками. Отрицательный ответ точен,
+ * положительный нужно подтверждать точной структурой.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashFunctions;
+    private final AtomicLong bitCount = new AtomicLong();
+
+    private BloomFilter(long bitSize, int hashFunctions) {
+        int wordCount = (int) Math.max(1, (bitSize + 63) >>> 6);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitSize = (long) wordCount << 6;
+        this.hashFunctions = hashFunctions;
+    }
+
+    /**
+     * @param expectedInsertions ожидаемое число элементов
+     * @param falsePositiveRate  целевая доля ложных срабатываний при этом числе элементов
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be in (0, 1)");
+        }
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        if (bits > (long) Integer.MAX_VALUE << 6) {
+            throw new IllegalArgumentException("Bloom filter is too large: " + bits + " bits");
+        }
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(bits, hashes);
+    }
+
+    /**
+     * @return true, если хотя бы один бит изменился, то есть элемента точно не было
+     */
+    public boolean put(CharSequence value) {
+        long hash1 = hash64(value);
+        long hash2 = mix64(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        long combined = hash1;
+        for (int i = 0; i < hashFunctions; i++) {
+            changed |= setBit((combined & Long.MAX_VALUE) % bitSize);
+            combined += hash2;
+        }
+        return changed;
+    }
+
+    public boolean mightContain(CharSequence value) {
+        long hash1 = hash64(value);
+        long hash2 = mix64(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        long combined = hash1;
+        for (int i = 0; i < hashFunctions; i++) {
+            if (!getBit((combined & Long.MAX_VALUE) % bitSize)) {
+                return false;
+            }
+            combined += hash2;
+        }
+        return true;
+    }
+
+    /**
+     * Ожидаемая доля ложных срабатываний при текущем заполнении.
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) bitCount.get() / bitSize, hashFunctions);
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    private boolean setBit(long index) {
+        int wordIndex = (int) (index >>> 6);
+        long mask = 1L << index;
+        long word;
+        do {
+            word = words.get(wordIndex);
+            if ((word & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(wordIndex, word, word | mask));
+        bitCount.incrementAndGet();
+        return true;
+    }
+
+    private boolean getBit(long index) {
+        return (words.get((int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    private static long hash64(CharSequence value) {
+        // FNV-1a с финальным перемешиванием
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix64(hash);
+    }
+
+    private static long mix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,69 +1,296 @@
 package com.example.bankcards.util;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.example.bankcards.config.EncryptionProperties;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
 
+/**
+ * Шифрование и хэширование чувствительных данных. {@link Cipher} и
+ * {@link MessageDigest} дорого создавать и они не потокобезопасны,
+ * поэтому у каждого потока свои экземпляры, инициализированные один раз.
+ * <p>
+ * Данные шифруются AES-256/GCM ключом из связки ключей. Шифротекст несет
+ * версию формата и идентификатор ключа: {@code v1:<keyId>:<base64(iv || ciphertext || tag)>}
+ * в строковом виде и {@code 0x01 | len | keyId | iv | ciphertext || tag} в бинарном.
+ * Поэтому после смены активного ключа старые данные по-прежнему читаются,
+ * а переводить их на новый ключ можно постепенно. Строки без версии —
+ * прежний формат AES/ECB, они только расшифровываются.
+ */
 @Component
 public class EncryptionUtil {
 
-    private static final String ALGORITHM = "AES";
-    private final SecretKeySpec secretKey;
+    private static final String LEGACY_ALGORITHM = "AES";
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String VERSION_PREFIX = "v1:";
+    private static final byte BINARY_VERSION = 1;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final Pattern KEY_ID = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+    private static final int HASH_HEX_LENGTH = 64;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
-    public EncryptionUtil(@Value("${app.encryption.key}") String secret) {
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
         try {
-            byte[] key = secret.getBytes(StandardCharsets.UTF_8);
-            MessageDigest sha = MessageDigest.getInstance("SHA-256");
-            key = sha.digest(key);
-            key = java.util.Arrays.copyOf(key, 16);
-            this.secretKey = new SecretKeySpec(key, ALGORITHM);
+            return MessageDigest.getInstance(HASH_ALGORITHM);
         } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error initializing encryption", e);
+            throw new IllegalStateException("Error hashing data", e);
         }
+    });
+    private static final ThreadLocal<char[]> HEX_BUFFER = ThreadLocal.withInitial(() -> new char[HASH_HEX_LENGTH]);
+    private static final ThreadLocal<Cipher> GCM_CIPHER = ThreadLocal.withInitial(() -> cipher(ALGORITHM));
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, SecretKey> keys = new HashMap<>();
+    private final String activeKeyId;
+    private final SecretKey activeKey;
+    private final byte[] activeKeyIdBytes;
+    private final String activePrefix;
+    private final ThreadLocal<Cipher> legacyDecryptCipher;
+    private final ThreadLocal<Mac> hmac;
+
+    public EncryptionUtil(EncryptionProperties properties) {
+        properties.getKeys().forEach((id, secret) -> {
+            if (!KEY_ID.matcher(id).matches()) {
+                throw new IllegalStateException("Invalid encryption key id: " + id);
+            }
+            keys.put(id, new SecretKeySpec(sha256(secret), LEGACY_ALGORITHM));
+        });
+        this.activeKeyId = properties.getActiveKeyId();
+        this.activeKey = keys.get(activeKeyId);
+        if (activeKey == null) {
+            throw new IllegalStateException("Active encryption key '" + activeKeyId + "' is not configured");
+        }
+        this.activeKeyIdBytes = activeKeyId.getBytes(StandardCharsets.US_ASCII);
+        this.activePrefix = VERSION_PREFIX + activeKeyId + ":";
+
+        SecretKeySpec legacyKey = properties.getKey() != null
+                ? new SecretKeySpec(Arrays.copyOf(sha256(properties.getKey()), 16), LEGACY_ALGORITHM)
+                : null;
+        this.legacyDecryptCipher = ThreadLocal.withInitial(() -> {
+            if (legacyKey == null) {
+                throw new IllegalStateException("Legacy encryption key is not configured");
+            }
+            Cipher cipher = cipher(LEGACY_ALGORITHM);
+            init(cipher, Cipher.DECRYPT_MODE, legacyKey, null);
+            return cipher;
+        });
+
+        if (properties.getHmacKey() == null) {
+            throw new IllegalStateException("HMAC key is not configured");
+        }
+        SecretKeySpec hmacKey = new SecretKeySpec(properties.getHmacKey().getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.hmac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(hmacKey);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Error initializing encryption", e);
+            }
+        });
+    }
+
+    public String getActiveKeyId() {
+        return activeKeyId;
     }
 
     public String encrypt(String data) {
+        byte[] sealed = seal(data.getBytes(StandardCharsets.UTF_8), 0);
+        return activePrefix + Base64.getEncoder().encodeToString(sealed);
+    }
+
+    /**
+     * @return шифротекст в бинарном формате с версией и идентификатором ключа
+     */
+    public byte[] encrypt(byte[] data) {
+        int header = 2 + activeKeyIdBytes.length;
+        byte[] envelope = seal(data, header);
+        envelope[0] = BINARY_VERSION;
+        envelope[1] = (byte) activeKeyIdBytes.length;
+        System.arraycopy(activeKeyIdBytes, 0, envelope, 2, activeKeyIdBytes.length);
+        return envelope;
+    }
+
+    public String decrypt(String encryptedData) {
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-            byte[] encrypted = cipher.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(encrypted);
+            if (!encryptedData.startsWith(VERSION_PREFIX)) {
+                return new String(legacyDecrypt(Base64.getDecoder().decode(encryptedData)), StandardCharsets.UTF_8);
+            }
+            int separator = encryptedData.indexOf(':', VERSION_PREFIX.length());
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed ciphertext");
+            }
+            SecretKey key = key(encryptedData.substring(VERSION_PREFIX.length(), separator));
+            byte[] sealed = Base64.getDecoder().decode(encryptedData.substring(separator + 1));
+            return new String(open(key, sealed, 0, sealed.length), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Error decrypting data", e);
+        }
+    }
+
+    public byte[] decrypt(byte[] encryptedData) {
+        int keyIdLength = encryptedData.length > 1 ? encryptedData[1] & 0xFF : 0;
+        int header = 2 + keyIdLength;
+        if (encryptedData.length < header || encryptedData[0] != BINARY_VERSION) {
+            throw new RuntimeException("Error decrypting data", new IllegalArgumentException("Malformed ciphertext"));
+        }
+        String keyId = new String(encryptedData, 2, keyIdLength, StandardCharsets.US_ASCII);
+        try {
+            return open(key(keyId), encryptedData, header, encryptedData.length - header);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Error decrypting data", e);
+        }
+    }
+
+    /**
+     * @return true, если шифротекст получен не активным ключом и его стоит перешифровать
+     */
+    public boolean needsReencryption(String encryptedData) {
+        return !encryptedData.startsWith(activePrefix);
+    }
+
+    public boolean needsReencryption(byte[] encryptedData) {
+        return encryptedData.length < 2 + activeKeyIdBytes.length
+                || encryptedData[1] != activeKeyIdBytes.length
+                || !Arrays.equals(encryptedData, 2, 2 + activeKeyIdBytes.length,
+                activeKeyIdBytes, 0, activeKeyIdBytes.length);
+    }
+
+    /**
+     * Перешифровывает данные активным ключом; уже актуальный шифротекст возвращается как есть.
+     */
+    public String reencrypt(String encryptedData) {
+        return needsReencryption(encryptedData) ? encrypt(decrypt(encryptedData)) : encryptedData;
+    }
+
+    public byte[] reencrypt(byte[] encryptedData) {
+        return needsReencryption(encryptedData) ? encrypt(decrypt(encryptedData)) : encryptedData;
+    }
+
+    /**
+     * Ключевой хэш для поиска по значению: в отличие от SHA-256, по нему
+     * нельзя перебором восстановить номер карты без секрета.
+     *
+     * @return HMAC-SHA256, 32 байта
+     */
+    public byte[] hmac(String data) {
+        return hmac.get().doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return SHA-256 в виде 64 шестнадцатеричных символов в нижнем регистре
+     */
+    public String hash(String data) {
+        return toHex(hash(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public byte[] hash(byte[] data) {
+        return SHA_256.get().digest(data);
+    }
+
+    /**
+     * Шифрует активным ключом, оставляя перед результатом {@code offset} свободных байт под заголовок.
+     */
+    private byte[] seal(byte[] data, int offset) {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        Cipher cipher = GCM_CIPHER.get();
+        try {
+            init(cipher, Cipher.ENCRYPT_MODE, activeKey, iv);
+            byte[] output = new byte[offset + IV_LENGTH + cipher.getOutputSize(data.length)];
+            System.arraycopy(iv, 0, output, offset, IV_LENGTH);
+            cipher.doFinal(data, 0, data.length, output, offset + IV_LENGTH);
+            return output;
         } catch (Exception e) {
+            GCM_CIPHER.remove();
             throw new RuntimeException("Error encrypting data", e);
         }
     }
 
-    public String decrypt(String encryptedData) {
+    private byte[] open(SecretKey key, byte[] sealed, int offset, int length) {
+        if (length < IV_LENGTH) {
+            throw new IllegalArgumentException("Malformed ciphertext");
+        }
+        Cipher cipher = GCM_CIPHER.get();
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey);
-            byte[] decoded = Base64.getDecoder().decode(encryptedData);
-            byte[] decrypted = cipher.doFinal(decoded);
-            return new String(decrypted, StandardCharsets.UTF_8);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, sealed, offset, IV_LENGTH));
+            return cipher.doFinal(sealed, offset + IV_LENGTH, length - IV_LENGTH);
         } catch (Exception e) {
+            GCM_CIPHER.remove();
             throw new RuntimeException("Error decrypting data", e);
         }
     }
 
-    public String hash(String data) {
+    private byte[] legacyDecrypt(byte[] encryptedData) {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(data.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString();
+            // doFinal возвращает шифр в исходное состояние, его можно переиспользовать
+            return legacyDecryptCipher.get().doFinal(encryptedData);
+        } catch (Exception e) {
+            legacyDecryptCipher.remove();
+            throw new RuntimeException("Error decrypting data", e);
+        }
+    }
+
+    private SecretKey key(String keyId) {
+        SecretKey key = keys.get(keyId);
+        if (key == null) {
+            throw new IllegalArgumentException("Unknown encryption key id: " + keyId);
+        }
+        return key;
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] buffer = HEX_BUFFER.get();
+        for (int i = 0; i < bytes.length; i++) {
+            int value = bytes[i] & 0xFF;
+            buffer[i << 1] = HEX_DIGITS[value >>> 4];
+            buffer[(i << 1) + 1] = HEX_DIGITS[value & 0x0F];
+        }
+        return new String(buffer, 0, bytes.length << 1);
+    }
+
+    private static byte[] sha256(String secret) {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM).digest(secret.getBytes(StandardCharsets.UTF_8));
         } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error hashing data", e);
+            throw new IllegalStateException("Error initializing encryption", e);
+        }
+    }
+
+    private static Cipher cipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error initializing encryption", e);
+        }
+    }
+
+    private static void init(Cipher cipher, int mode, SecretKey key, byte[] iv) {
+        try {
+            if (iv == null) {
+                cipher.init(mode, key);
+            } else {
+                cipher.init(mode, key, new GCMParameterSpec(TAG_BITS, iv));
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error initializing encryption", e);
         }
     }
-}
\ No newline at end of file
+}
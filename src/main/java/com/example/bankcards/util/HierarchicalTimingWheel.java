@@ -0,0 +1,174 @@
+package com.example.bankcards.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Иерархическое колесо таймеров для идентификаторов с моментом срабатывания.
+ * Уровень 0 делит время на тики, каждый следующий — на обороты предыдущего:
+ * при {@code wheelSize = 64} и четырех уровнях колесо покрывает 63 * 64^3 тиков вперед.
+ * Запись лежит на уровне, соответствующем удаленности срока, и по мере
+ * приближения срока спускается на нижние уровни; вставка, отмена и
+ * срабатывание — O(1) на запись, без сортировки.
+ * <p>
+ * Отмена и перенос ленивые: актуальный срок хранится в отдельной карте,
+ * а устаревшие записи отбрасываются при срабатывании или спуске.
+ * Не потокобезопасен: доступ синхронизирует владелец.
+ */
+public class HierarchicalTimingWheel {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] slotSpans;
+    private final List<Entry>[][] levels;
+    private final Map<Long, Long> deadlines = new HashMap<>();
+    private final List<Entry> overdue = new ArrayList<>();
+    private long currentTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levelCount, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levelCount < 1) {
+            throw new IllegalArgumentException("Invalid timing wheel geometry");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.slotSpans = new long[levelCount];
+        slotSpans[0] = 1;
+        for (int level = 1; level < levelCount; level++) {
+            slotSpans[level] = Math.multiplyExact(slotSpans[level - 1], wheelSize);
+        }
+        this.levels = new List[levelCount][wheelSize];
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * Промежуток времени, на который вперед можно поставить срок.
+     */
+    public long horizonMillis() {
+        return slotSpans[levels.length - 1] * (wheelSize - 1) * tickMillis;
+    }
+
+    /**
+     * Ставит или переносит срок {@code id}. Прошедший срок сработает при ближайшем {@link #advance}.
+     *
+     * @return false, если срок дальше горизонта колеса и не поставлен
+     */
+    public boolean schedule(long id, long deadlineMillis) {
+        long deadlineTick = Math.floorDiv(deadlineMillis, tickMillis);
+        if (deadlineTick > currentTick && levelOf(deadlineTick) < 0) {
+            return false;
+        }
+        Long previous = deadlines.put(id, deadlineTick);
+        if (previous != null && previous == deadlineTick) {
+            return true;
+        }
+        place(new Entry(id, deadlineTick));
+        return true;
+    }
+
+    public void cancel(long id) {
+        deadlines.remove(id);
+    }
+
+    public boolean isScheduled(long id) {
+        return deadlines.containsKey(id);
+    }
+
+    public int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Продвигает колесо до момента {@code nowMillis}.
+     *
+     * @return идентификаторы, срок которых наступил, в порядке срабатывания
+     */
+    public List<Long> advance(long nowMillis) {
+        List<Long> due = new ArrayList<>();
+        fireOverdue(due);
+
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Спуск сверху вниз: запись с уровня L может попасть в слот уровня 0 текущего тика
+            for (int level = levels.length - 1; level >= 1; level--) {
+                if (currentTick % slotSpans[level] == 0) {
+                    List<Entry> slot = take(level, (int) ((currentTick / slotSpans[level]) % wheelSize));
+                    if (slot != null) {
+                        slot.forEach(this::place);
+                    }
+                }
+            }
+            List<Entry> expired = take(0, (int) (currentTick % wheelSize));
+            if (expired != null) {
+                expired.forEach(entry -> fire(entry, due));
+            }
+            fireOverdue(due);
+        }
+        return due;
+    }
+
+    private void place(Entry entry) {
+        if (!isCurrent(entry)) {
+            return;
+        }
+        if (entry.deadlineTick() <= currentTick) {
+            overdue.add(entry);
+            return;
+        }
+        int level = levelOf(entry.deadlineTick());
+        int slot = (int) ((entry.deadlineTick() / slotSpans[level]) % wheelSize);
+        List<Entry>[] wheel = levels[level];
+        if (wheel[slot] == null) {
+            wheel[slot] = new ArrayList<>();
+        }
+        wheel[slot].add(entry);
+    }
+
+    /**
+     * Самый нижний уровень, слот которого для срока еще впереди в пределах одного оборота:
+     * его спуск случится ровно в начале слота, когда до срока останется меньше ширины слота.
+     *
+     * @return -1, если срок дальше горизонта
+     */
+    private int levelOf(long deadlineTick) {
+        for (int level = 0; level < levels.length; level++) {
+            if (deadlineTick / slotSpans[level] - currentTick / slotSpans[level] < wheelSize) {
+                return level;
+            }
+        }
+        return -1;
+    }
+
+    private List<Entry> take(int level, int slot) {
+        List<Entry> entries = levels[level][slot];
+        levels[level][slot] = null;
+        return entries;
+    }
+
+    private void fireOverdue(List<Long> due) {
+        if (overdue.isEmpty()) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(overdue);
+        overdue.clear();
+        entries.forEach(entry -> fire(entry, due));
+    }
+
+    private void fire(Entry entry, List<Long> due) {
+        if (isCurrent(entry)) {
+            deadlines.remove(entry.id());
+            due.add(entry.id());
+        }
+    }
+
+    private boolean isCurrent(Entry entry) {
+        Long deadline = deadlines.get(entry.id());
+        return deadline != null && deadline == entry.deadlineTick();
+    }
+
+    private record Entry(long id, long deadlineTick) {
+    }
+}
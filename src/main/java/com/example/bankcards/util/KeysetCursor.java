@@ -0,0 +1,58 @@
+package com.example.bankcards.util;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Позиция в выдаче при постраничном чтении по ключу: значение колонки
+ * сортировки и id последней отданной строки. Клиенту отдается непрозрачной
+ * строкой, следующая страница начинается строго после этой позиции, поэтому
+ * стоимость не зависит от глубины, в отличие от OFFSET.
+ */
+public record KeysetCursor(long sortKey, long id) {
+
+    private static final byte VERSION = 1;
+    private static final int LENGTH = 1 + Long.BYTES * 2;
+
+    public static KeysetCursor of(long id) {
+        return new KeysetCursor(id, id);
+    }
+
+    public static KeysetCursor of(LocalDateTime sortKey, long id) {
+        long micros = ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), sortKey);
+        return new KeysetCursor(micros, id);
+    }
+
+    public LocalDateTime sortKeyAsTimestamp() {
+        return LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC).plus(sortKey, ChronoUnit.MICROS);
+    }
+
+    public String encode() {
+        byte[] bytes = ByteBuffer.allocate(LENGTH).put(VERSION).putLong(sortKey).putLong(id).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * @return позиция или null для первой страницы, если курсор пустой
+     * @throws IllegalArgumentException если курсор поврежден
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (bytes.length != LENGTH || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, LENGTH - 1);
+        return new KeysetCursor(buffer.getLong(), buffer.getLong());
+    }
+}
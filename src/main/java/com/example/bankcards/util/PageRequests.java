@@ -0,0 +1,28 @@
+package com.example.bankcards.util;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Set;
+
+public final class PageRequests {
+
+    private PageRequests() {
+    }
+
+    /**
+     * Разрешает сортировку только по колонкам с индексом: сортировка по
+     * остальным на больших таблицах читает и сортирует всю выборку.
+     *
+     * @throws IllegalArgumentException если запрошена сортировка по другому полю
+     */
+    public static Pageable requireSortable(Pageable pageable, Set<String> sortableProperties) {
+        for (Sort.Order order : pageable.getSort()) {
+            if (!sortableProperties.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Sorting by '" + order.getProperty()
+                        + "' is not supported, allowed: " + String.join(", ", sortableProperties));
+            }
+        }
+        return pageable;
+    }
+}
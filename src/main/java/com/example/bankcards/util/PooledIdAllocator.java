@@ -0,0 +1,68 @@
+package com.example.bankcards.util;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Идентификаторы для вставки JDBC-батчем из последовательности, которую Hibernate
+ * использует с оптимизатором pooled. Каждое значение последовательности — верхняя
+ * граница блока из {@code incrementSize} идентификаторов, поэтому блоки не пересекаются
+ * ни между собой, ни с выданными Hibernate, а вставки с DEFAULT nextval(...)
+ * занимают только само значение.
+ */
+public class PooledIdAllocator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sequenceName;
+    private final int incrementSize;
+
+    private volatile String nextValuesSql;
+
+    public PooledIdAllocator(JdbcTemplate jdbcTemplate, String sequenceName, int incrementSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequenceName = sequenceName;
+        this.incrementSize = incrementSize;
+    }
+
+    /**
+     * Выделяет {@code count} идентификаторов за один запрос к базе.
+     */
+    public long[] allocate(int count) {
+        long[] ids = new long[count];
+        if (count == 0) {
+            return ids;
+        }
+        int blocks = (count + incrementSize - 1) / incrementSize;
+        List<Long> highValues = jdbcTemplate.queryForList(nextValuesSql(), Long.class, blocks);
+        int next = 0;
+        for (long high : highValues) {
+            // Первое значение новой последовательности меньше шага: блок начинается с 1
+            for (long id = Math.max(1, high - incrementSize + 1); id <= high && next < count; id++) {
+                ids[next++] = id;
+            }
+        }
+        while (next < count) {
+            // Значение 1 дает блок из одного идентификатора, добираем следующими значениями
+            long high = jdbcTemplate.queryForObject(nextValuesSql(), Long.class, 1);
+            for (long id = Math.max(1, high - incrementSize + 1); id <= high && next < count; id++) {
+                ids[next++] = id;
+            }
+        }
+        return ids;
+    }
+
+    private String nextValuesSql() {
+        String sql = nextValuesSql;
+        if (sql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            sql = "PostgreSQL".equals(product)
+                    ? "SELECT nextval('" + sequenceName + "') FROM generate_series(1, ?)"
+                    : "SELECT NEXT VALUE FOR " + sequenceName + " FROM SYSTEM_RANGE(1, ?)";
+            nextValuesSql = sql;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.bankcards.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Инвертированный индекс по триграммам для поиска подстроки без учета регистра.
+ * Для каждой триграммы хранится возрастающий список id документов, сжатый
+ * дельтами в varint, с точками пропуска через каждые {@value #SKIP_INTERVAL} записей.
+ * <p>
+ * Ответ — надмножество: документ, содержащий все триграммы запроса, может не
+ * содержать саму подстроку, а удаленные и переиндексированные документы
+ * оставляют старые записи до пересборки. Совпадение нужно подтверждать по
+ * исходным данным. Не потокобезопасен: синхронизацию обеспечивает владелец.
+ */
+public final class TrigramIndex {
+
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    private static final int SKIP_INTERVAL = 64;
+    private static final long END = Long.MAX_VALUE;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Set<Long> removed = new HashSet<>();
+
+    /**
+     * Добавляет триграммы полей документа. Повторный вызов для того же id
+     * (например, после переименования) дополняет, а не заменяет прежние триграммы.
+     */
+    public void add(long id, String... fields) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Document id must be positive");
+        }
+        for (String field : fields) {
+            for (long trigram : trigrams(field)) {
+                postings.computeIfAbsent(trigram, key -> new Postings()).add(id);
+            }
+        }
+        removed.remove(id);
+    }
+
+    public void remove(long id) {
+        removed.add(id);
+    }
+
+    /**
+     * Нормализованный запрос достаточно длинный, чтобы содержать хотя бы одну триграмму.
+     */
+    public static boolean isSearchable(String query) {
+        return query != null && normalize(query).length() >= MIN_QUERY_LENGTH;
+    }
+
+    /**
+     * @return до {@code limit} id по возрастанию, больших {@code afterId}, в которых есть все триграммы запроса
+     */
+    public List<Long> search(String query, long afterId, int limit) {
+        Cursor[] cursors = cursors(query);
+        List<Long> result = new ArrayList<>();
+        if (cursors == null) {
+            return result;
+        }
+        long target = Math.max(afterId, 0) + 1;
+        while (result.size() < limit) {
+            long candidate = cursors[0].advance(target);
+            if (candidate == END) {
+                break;
+            }
+            target = candidate;
+            for (int i = 1; i < cursors.length && target == candidate; i++) {
+                target = cursors[i].advance(candidate);
+            }
+            if (target == END) {
+                break;
+            }
+            if (target == candidate) {
+                if (!removed.contains(candidate)) {
+                    result.add(candidate);
+                }
+                target = candidate + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return те из {@code ids}, в которых есть все триграммы запроса, в порядке возрастания
+     */
+    public List<Long> filter(Collection<Long> ids, String query) {
+        List<Long> result = new ArrayList<>();
+        long[] sorted = ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        Cursor[] cursors = cursors(query);
+        if (cursors == null) {
+            return result;
+        }
+        for (long id : sorted) {
+            boolean matches = !removed.contains(id);
+            for (int i = 0; i < cursors.length && matches; i++) {
+                matches = cursors[i].advance(id) == id;
+            }
+            if (matches) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Обрезает запас емкости списков; вызывается после массовой загрузки.
+     */
+    public void compact() {
+        for (Postings list : postings.values()) {
+            list.compact();
+        }
+    }
+
+    public int trigramCount() {
+        return postings.size();
+    }
+
+    public long postingCount() {
+        long total = 0;
+        for (Postings list : postings.values()) {
+            total += list.count;
+        }
+        return total;
+    }
+
+    /**
+     * Оценка занимаемой памяти: сжатые списки, точки пропуска и накладные расходы хэш-таблиц.
+     */
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (Postings list : postings.values()) {
+            bytes += 64 + list.data.length + list.skipPrevIds.length * 8L + list.skipOffsets.length * 4L;
+        }
+        return bytes + removed.size() * 48L;
+    }
+
+    /**
+     * Курсоры по спискам триграмм запроса, начиная с самого короткого;
+     * null, если какой-то триграммы нет ни в одном документе.
+     */
+    private Cursor[] cursors(String query) {
+        long[] grams = trigrams(query);
+        if (grams.length == 0) {
+            throw new IllegalArgumentException("Search query must contain at least " + MIN_QUERY_LENGTH + " characters");
+        }
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return null;
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.count, b.count));
+        Cursor[] cursors = new Cursor[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            cursors[i] = new Cursor(lists[i]);
+        }
+        return cursors;
+    }
+
+    static long[] trigrams(String text) {
+        String normalized = normalize(text);
+        if (normalized.length() < MIN_QUERY_LENGTH) {
+            return new long[0];
+        }
+        long[] grams = new long[normalized.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) normalized.charAt(i) << 32)
+                    | ((long) normalized.charAt(i + 1) << 16)
+                    | normalized.charAt(i + 2);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Postings {
+        private byte[] data = new byte[4];
+        private int length;
+        private int count;
+        private long lastId;
+        // Точка пропуска k: id перед записью k * SKIP_INTERVAL и смещение этой записи
+        private long[] skipPrevIds = new long[1];
+        private int[] skipOffsets = new int[1];
+
+        void add(long id) {
+            if (id > lastId) {
+                append(id);
+                return;
+            }
+            if (new Cursor(this).advance(id) == id) {
+                return;
+            }
+            // Редкий случай: переиндексация старого документа. Список пересобирается с вставкой
+            long[] ids = new long[count + 1];
+            Cursor cursor = new Cursor(this);
+            int size = 0;
+            for (long next = cursor.advance(1); next != END; next = cursor.advance(next + 1)) {
+                ids[size++] = next;
+            }
+            ids[size] = id;
+            Arrays.sort(ids);
+            data = new byte[Math.max(4, length + 10)];
+            length = 0;
+            count = 0;
+            lastId = 0;
+            for (long value : ids) {
+                append(value);
+            }
+        }
+
+        void compact() {
+            int skips = Math.max(1, (count + SKIP_INTERVAL - 1) / SKIP_INTERVAL);
+            data = Arrays.copyOf(data, length);
+            skipPrevIds = Arrays.copyOf(skipPrevIds, skips);
+            skipOffsets = Arrays.copyOf(skipOffsets, skips);
+        }
+
+        private void append(long id) {
+            if (count % SKIP_INTERVAL == 0) {
+                int skip = count / SKIP_INTERVAL;
+                if (skip == skipPrevIds.length) {
+                    skipPrevIds = Arrays.copyOf(skipPrevIds, skip * 2);
+                    skipOffsets = Arrays.copyOf(skipOffsets, skip * 2);
+                }
+                skipPrevIds[skip] = lastId;
+                skipOffsets[skip] = length;
+            }
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+            }
+            long delta = id - lastId;
+            while ((delta & ~0x7FL) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+            lastId = id;
+            count++;
+        }
+    }
+
+    private static final class Cursor {
+        private final Postings list;
+        private int index;
+        private int offset;
+        private long value;
+
+        Cursor(Postings list) {
+            this.list = list;
+        }
+
+        /**
+         * @return первый id не меньше {@code target} или {@link #END}; вызовы идут с неубывающим target
+         */
+        long advance(long target) {
+            if (value >= target) {
+                return value;
+            }
+            skipTo(target);
+            while (index < list.count) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = list.data[offset++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                value += delta;
+                index++;
+                if (value >= target) {
+                    return value;
+                }
+            }
+            value = END;
+            return END;
+        }
+
+        private void skipTo(long target) {
+            int skips = (list.count + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+            int low = index / SKIP_INTERVAL + 1;
+            int high = skips - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (list.skipPrevIds[mid] < target) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (found > 0) {
+                index = found * SKIP_INTERVAL;
+                offset = list.skipOffsets[found];
+                value = list.skipPrevIds[found];
+            }
+        }
+    }
+}
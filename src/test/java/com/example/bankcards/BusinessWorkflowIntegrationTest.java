@@ -1,13 +1,19 @@
 package com.example.bankcards;
 
+import com.example.bankcards.dto.CardBalance;
 import com.example.bankcards.dto.*;
 import com.example.bankcards.entity.*;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.scheduler.CardStatusScheduler;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.RefreshTokenService;
 import com.example.bankcards.service.TransferService;
+import com.example.bankcards.service.UserService;
 import com.example.bankcards.util.EncryptionUtil;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +44,12 @@ class BusinessWorkflowIntegrationTest {
     @Autowired
     private CardStatusScheduler cardStatusScheduler;
 
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -47,6 +59,9 @@ class BusinessWorkflowIntegrationTest {
     @Autowired
     private EncryptionUtil encryptionUtil;
 
+    @Autowired
+    private EntityManager entityManager;
+
     private User testUser;
     private User adminUser;
     private Card card1;
@@ -54,25 +69,14 @@ class BusinessWorkflowIntegrationTest {
 
     @BeforeEach
     void setUp() {
-        testUser = User.builder()
-                .username("workflowuser")
-                .password("password")
-                .email("workflow@bank.com")
+        testUser = userRepository.save(TestFixtures.user("workflowuser")
                 .fullName("Workflow User")
-                .roles(new HashSet<>(Set.of(Role.ROLE_USER)))
-                .active(true)
-                .build();
-        testUser = userRepository.save(testUser);
-
-        adminUser = User.builder()
-                .username("workflowadmin")
-                .password("password")
-                .email("workflowadmin@bank.com")
+                .build());
+
+        adminUser = userRepository.save(TestFixtures.user("workflowadmin")
                 .fullName("Workflow Admin")
                 .roles(new HashSet<>(Set.of(Role.ROLE_ADMIN)))
-                .active(true)
-                .build();
-        adminUser = userRepository.save(adminUser);
+                .build());
     }
 
     private void createTestCards() {
@@ -121,12 +125,12 @@ class BusinessWorkflowIntegrationTest {
         CardBlockRequestResponse approvedResponse = cardService.approveBlockRequest(
                 blockResponse.getId(),
                 "Card reported lost",
-                adminUser.getId()
+                AuthenticatedUser.from(adminUser)
         );
 
         assertEquals(BlockRequestStatus.APPROVED, approvedResponse.getStatus());
 
-        CardResponse cardAfterBlock = cardService.getCardById(card1.getId(), testUser.getId());
+        CardResponse cardAfterBlock = cardService.getCardById(card1.getId(), AuthenticatedUser.from(testUser));
         assertEquals(CardStatus.BLOCKED, cardAfterBlock.getStatus());
 
         TransferRequest transferRequest = new TransferRequest(
@@ -143,6 +147,18 @@ class BusinessWorkflowIntegrationTest {
         assertTrue(exception.getMessage().contains("not active"));
     }
 
+    @Test
+    void blockedUser_RefreshTokenStaysRevokedAfterActivation() {
+        String refreshToken = refreshTokenService.issue(testUser.getId());
+
+        userService.blockUser(testUser.getId());
+        userService.activateUser(testUser.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate(refreshToken));
+    }
+
     @Test
     void cardStatusScheduler_ShouldUpdateExpiredCards() {
         CardCreateRequest validCardRequest = new CardCreateRequest(
@@ -160,12 +176,14 @@ class BusinessWorkflowIntegrationTest {
         assertEquals(CardStatus.ACTIVE, card.getStatus());
 
         card.setExpirationDate(LocalDate.now().minusDays(1));
-        cardRepository.save(card);
+        cardRepository.saveAndFlush(card);
 
         cardStatusScheduler.updateExpiredCards();
+        // Статус меняется SQL-обновлением в обход контекста персистентности
+        entityManager.clear();
 
         Card updatedCard = cardRepository.findById(card.getId()).orElseThrow();
-        assertEquals(CardStatus.EXPIRED, updatedCard.getActualStatus());
+        assertEquals(CardStatus.EXPIRED, updatedCard.getStatus());
     }
 
     @Test
@@ -186,18 +204,21 @@ class BusinessWorkflowIntegrationTest {
 
         assertEquals(TransferStatus.COMPLETED, transferResponse.getStatus());
 
-        BigDecimal card1BalanceAfterTransfer = cardService.getCardBalance(card1.getId(), testUser.getId());
-        BigDecimal card2BalanceAfterTransfer = cardService.getCardBalance(card2.getId(), testUser.getId());
+        CardBalance card1AfterTransfer = cardService.getCardBalance(card1.getId(), AuthenticatedUser.from(testUser), 0L);
+        CardBalance card2AfterTransfer = cardService.getCardBalance(card2.getId(), AuthenticatedUser.from(testUser), 0L);
 
-        assertEquals(BigDecimal.valueOf(800), card1BalanceAfterTransfer);
-        assertEquals(BigDecimal.valueOf(700), card2BalanceAfterTransfer);
+        assertEquals(new BigDecimal("800.00"), card1AfterTransfer.balance());
+        assertEquals(new BigDecimal("700.00"), card2AfterTransfer.balance());
 
         transferService.cancelTransfer(transferResponse.getId(), testUser.getId());
 
-        BigDecimal card1BalanceAfterCancel = cardService.getCardBalance(card1.getId(), testUser.getId());
-        BigDecimal card2BalanceAfterCancel = cardService.getCardBalance(card2.getId(), testUser.getId());
+        // Транзакция теста не фиксируется, поэтому кэш не обновлен: новую версию запрашиваем явно
+        BigDecimal card1BalanceAfterCancel = cardService.getCardBalance(card1.getId(), AuthenticatedUser.from(testUser),
+                card1AfterTransfer.version() + 1).balance();
+        BigDecimal card2BalanceAfterCancel = cardService.getCardBalance(card2.getId(), AuthenticatedUser.from(testUser),
+                card2AfterTransfer.version() + 1).balance();
 
-        assertEquals(BigDecimal.valueOf(1000), card1BalanceAfterCancel);
-        assertEquals(BigDecimal.valueOf(500), card2BalanceAfterCancel);
+        assertEquals(new BigDecimal("1000.00"), card1BalanceAfterCancel);
+        assertEquals(new BigDecimal("500.00"), card2BalanceAfterCancel);
     }
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package com.example.bankcards;
+
+import com.example.bankcards.dto.CardBulkStatusReport;
+import com.example.bankcards.dto.CardBulkStatusRequest;
+import com.example.bankcards.dto.CardBulkStatusResult;
+import com.example.bankcards.dto.CardBulkStatusResult.Outcome;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardBulkStatusService;
+import com.example.bankcards.service.CardExpiryWheel;
+import com.example.bankcards.service.CardStatistics;
+import com.example.bankcards.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Массовая смена статуса: исходы по каждой карте, правила одиночных операций
+ * и каскадная блокировка карт пользователя.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CardBulkStatusIntegrationTest {
+
+    @Autowired
+    private CardBulkStatusService cardBulkStatusService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CardStatistics cardStatistics;
+
+    @Autowired
+    private CardExpiryWheel cardExpiryWheel;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void blockAndActivateByIds_ReportOutcomePerCard() {
+        User owner = userRepository.save(TestFixtures.user("bulk-ids-owner").build());
+        Card active = cardRepository.save(card(owner, CardStatus.ACTIVE, LocalDate.now().plusYears(1), "10.00"));
+        Card blocked = cardRepository.save(card(owner, CardStatus.BLOCKED, LocalDate.now().plusYears(1), "5.00"));
+        Card expired = cardRepository.save(card(owner, CardStatus.ACTIVE, LocalDate.now().minusDays(1), "0.00"));
+        cardStatistics.reconcile();
+        long activeBefore = cardStatistics.report().getCardsByStatus().get(CardStatus.ACTIVE);
+
+        CardBulkStatusReport report = cardBulkStatusService.blockCards(new CardBulkStatusRequest(
+                List.of(expired.getId(), active.getId(), blocked.getId(), -1L, active.getId()), null, null, null));
+
+        assertEquals(CardStatus.BLOCKED, report.getTargetStatus());
+        assertEquals(List.of(expired.getId(), active.getId(), blocked.getId(), -1L),
+                report.getResults().stream().map(CardBulkStatusResult::getCardId).toList());
+        assertEquals(List.of(Outcome.EXPIRED, Outcome.UPDATED, Outcome.ALREADY_IN_STATUS, Outcome.NOT_FOUND),
+                report.getResults().stream().map(CardBulkStatusResult::getOutcome).toList());
+        assertEquals(1, report.getUpdated());
+        assertEquals(CardStatus.BLOCKED, cardRepository.findById(active.getId()).orElseThrow().getStatus());
+        assertEquals(CardStatus.ACTIVE, cardRepository.findById(expired.getId()).orElseThrow().getStatus());
+        assertEquals(activeBefore - 1, cardStatistics.report().getCardsByStatus().get(CardStatus.ACTIVE));
+
+        CardBulkStatusReport activated = cardBulkStatusService.activateCards(new CardBulkStatusRequest(
+                List.of(active.getId(), blocked.getId()), owner.getId(), null, null));
+
+        assertEquals(2, activated.getUpdated());
+        assertEquals(CardStatus.ACTIVE, cardRepository.findById(blocked.getId()).orElseThrow().getStatus());
+        assertEquals(activeBefore + 1, cardStatistics.report().getCardsByStatus().get(CardStatus.ACTIVE));
+    }
+
+    @Test
+    void activateCards_SchedulesCardsExpiringSoon() {
+        User owner = userRepository.save(TestFixtures.user("bulk-wheel-owner").build());
+        Card soon = cardRepository.save(card(owner, CardStatus.BLOCKED, LocalDate.now().plusDays(3), "0.00"));
+
+        cardBulkStatusService.activateCards(CardBulkStatusRequest.byOwner(owner.getId()));
+
+        assertTrue(cardExpiryWheel.isScheduled(soon.getId()));
+    }
+
+    @Test
+    void blockUser_WithCards_BlocksEveryCardOfOwner() {
+        User owner = userRepository.save(TestFixtures.user("bulk-cascade-owner").build());
+        User other = userRepository.save(TestFixtures.user("bulk-cascade-other").build());
+        Card first = cardRepository.save(card(owner, CardStatus.ACTIVE, LocalDate.now().plusYears(1), "1.00"));
+        Card second = cardRepository.save(card(owner, CardStatus.ACTIVE, LocalDate.now().plusYears(2), "2.00"));
+        Card foreign = cardRepository.save(card(other, CardStatus.ACTIVE, LocalDate.now().plusYears(1), "3.00"));
+
+        CardBulkStatusReport report = userService.blockUser(owner.getId(), true);
+
+        assertEquals(2, report.getUpdated());
+        assertFalse(userRepository.findById(owner.getId()).orElseThrow().isActive());
+        assertEquals(CardStatus.BLOCKED, cardRepository.findById(first.getId()).orElseThrow().getStatus());
+        assertEquals(CardStatus.BLOCKED, cardRepository.findById(second.getId()).orElseThrow().getStatus());
+        assertEquals(CardStatus.ACTIVE, cardRepository.findById(foreign.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void changeStatus_RequiresCriteria() {
+        assertThrows(IllegalArgumentException.class,
+                () -> cardBulkStatusService.blockCards(new CardBulkStatusRequest()));
+        assertEquals(0, cardBulkStatusService.blockCards(
+                new CardBulkStatusRequest(List.of(), 1L, null, null)).getTotal());
+    }
+
+    private static Card card(User owner, CardStatus status, LocalDate expirationDate, String balance) {
+        return TestFixtures.card(owner)
+                .expirationDate(expirationDate)
+                .status(status)
+                .balance(new BigDecimal(balance))
+                .build();
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.bankcards;
+
+import com.example.bankcards.dto.CardExpiryReport;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardExpiryRun;
+import com.example.bankcards.entity.CardExpiryRunStatus;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.event.CardsExpiringSoonEvent;
+import com.example.bankcards.repository.CardExpiryRunRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardExpiryService;
+import com.example.bankcards.service.CardExpiryWheel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проход по сроку действия порциями по 3 карты. Каждый тест берет свою дату
+ * в прошлом, чтобы не задевать карты других тестов в общей базе.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+// Колесо продвигает сам тест, фоновый тик не успеет сработать
+@TestPropertySource(properties = {"app.card.expiry.chunk-size=3", "app.card.expiry.wheel.tick=PT1H"})
+@RecordApplicationEvents
+class CardExpiryIntegrationTest {
+
+    @Autowired
+    private CardExpiryService cardExpiryService;
+
+    @Autowired
+    private CardExpiryWheel cardExpiryWheel;
+
+    @Autowired
+    private CardExpiryRunRepository runRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = TestFixtures.findOrCreateUser(userRepository, "expiry-owner");
+    }
+
+    @Test
+    void run_ExpiresDueCardsAndEmitsExpiringSoon() {
+        LocalDate today = LocalDate.now().minusYears(20);
+        List<Card> due = List.of(
+                card(today.minusDays(5), CardStatus.ACTIVE),
+                card(today.minusDays(3), CardStatus.BLOCKED),
+                card(today.minusDays(3), CardStatus.ACTIVE),
+                card(today.minusDays(1), CardStatus.ACTIVE));
+        Card alreadyExpired = card(today.minusDays(2), CardStatus.EXPIRED);
+        List<Card> expiringSoon = List.of(
+                card(today, CardStatus.ACTIVE),
+                card(today.plusDays(10), CardStatus.BLOCKED),
+                card(today.plusDays(30), CardStatus.ACTIVE));
+        Card later = card(today.plusDays(31), CardStatus.ACTIVE);
+
+        CardExpiryReport report = cardExpiryService.run(today).orElseThrow();
+
+        assertEquals(CardExpiryRunStatus.COMPLETED, report.getStatus());
+        assertEquals(7, report.getScanned());
+        assertEquals(4, report.getExpired());
+        assertEquals(3, report.getExpiringSoon());
+        assertEquals(expiringSoon.get(2).getId(), report.getLastCardId());
+        due.forEach(card -> assertEquals(CardStatus.EXPIRED, status(card)));
+        assertEquals(CardStatus.EXPIRED, status(alreadyExpired));
+        assertEquals(CardStatus.BLOCKED, status(expiringSoon.get(1)));
+        assertEquals(CardStatus.ACTIVE, status(later));
+
+        List<Long> notified = events.stream(CardsExpiringSoonEvent.class)
+                .filter(event -> event.runDate().equals(today))
+                .flatMap(event -> event.cards().stream())
+                .map(CardsExpiringSoonEvent.ExpiringCard::cardId)
+                .toList();
+        assertEquals(expiringSoon.stream().map(Card::getId).toList(), notified);
+    }
+
+    @Test
+    void run_SameDayAgain_ReturnsCompletedReport() {
+        LocalDate today = LocalDate.now().minusYears(30);
+        card(today.minusDays(1), CardStatus.ACTIVE);
+
+        CardExpiryReport first = cardExpiryService.run(today).orElseThrow();
+        Card expiredLater = card(today.minusDays(1), CardStatus.ACTIVE);
+        CardExpiryReport second = cardExpiryService.run(today).orElseThrow();
+
+        assertEquals(first.getRunId(), second.getRunId());
+        assertEquals(1, second.getExpired());
+        assertEquals(CardStatus.ACTIVE, status(expiredLater));
+    }
+
+    @Test
+    void run_ResumesFromCheckpoint() {
+        LocalDate today = LocalDate.now().minusYears(40);
+        Card processedBeforeCrash = card(today.minusDays(2), CardStatus.ACTIVE);
+        Card remaining = card(today.minusDays(1), CardStatus.ACTIVE);
+        runRepository.save(CardExpiryRun.builder()
+                .runDate(today)
+                .status(CardExpiryRunStatus.RUNNING)
+                .lastExpirationDate(processedBeforeCrash.getExpirationDate())
+                .lastCardId(processedBeforeCrash.getId())
+                .scanned(5)
+                .expired(5)
+                .build());
+
+        CardExpiryReport report = cardExpiryService.run(today).orElseThrow();
+
+        assertEquals(CardExpiryRunStatus.COMPLETED, report.getStatus());
+        assertEquals(6, report.getScanned());
+        assertEquals(6, report.getExpired());
+        assertEquals(CardStatus.ACTIVE, status(processedBeforeCrash));
+        assertEquals(CardStatus.EXPIRED, status(remaining));
+    }
+
+    @Test
+    void run_OwnedByLiveInstance_IsNotResumed() {
+        LocalDate today = LocalDate.now().minusYears(50);
+        Card due = card(today.minusDays(1), CardStatus.ACTIVE);
+        runRepository.save(CardExpiryRun.builder()
+                .runDate(today)
+                .status(CardExpiryRunStatus.RUNNING)
+                .owner("other-instance")
+                .heartbeatAt(LocalDateTime.now())
+                .build());
+
+        assertTrue(cardExpiryService.run(today).isEmpty());
+
+        assertEquals(CardStatus.ACTIVE, status(due));
+        CardExpiryRun run = runRepository.findByRunDate(today).orElseThrow();
+        assertEquals("other-instance", run.getOwner());
+        assertEquals(0, run.getScanned());
+        // Непросроченная карта с давней датой попала бы в проходы других тестов
+        cardRepository.delete(due);
+    }
+
+    @Test
+    void run_ExpiredLease_IsTakenOver() {
+        LocalDate today = LocalDate.now().minusYears(60);
+        Card due = card(today.minusDays(1), CardStatus.ACTIVE);
+        runRepository.save(CardExpiryRun.builder()
+                .runDate(today)
+                .status(CardExpiryRunStatus.RUNNING)
+                .owner("crashed-instance")
+                .heartbeatAt(LocalDateTime.now().minusHours(1))
+                .build());
+
+        CardExpiryReport report = cardExpiryService.run(today).orElseThrow();
+
+        assertEquals(CardExpiryRunStatus.COMPLETED, report.getStatus());
+        assertEquals(1, report.getExpired());
+        assertEquals(CardStatus.EXPIRED, status(due));
+        assertNull(runRepository.findByRunDate(today).orElseThrow().getOwner());
+    }
+
+    @Test
+    void claim_RejectsSavesOfPreviousOwner() {
+        LocalDate today = LocalDate.now().minusYears(70);
+        CardExpiryRun stale = runRepository.save(CardExpiryRun.builder()
+                .runDate(today)
+                .status(CardExpiryRunStatus.RUNNING)
+                .owner("slow-instance")
+                .heartbeatAt(LocalDateTime.now().minusHours(1))
+                .build());
+
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(1, runRepository.claim(today, "new-instance", now, now.minusMinutes(5),
+                CardExpiryRunStatus.RUNNING, CardExpiryRunStatus.COMPLETED));
+
+        stale.setScanned(100);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> runRepository.save(stale));
+        assertEquals("new-instance", runRepository.findByRunDate(today).orElseThrow().getOwner());
+    }
+
+    @Test
+    void wheel_ExpiresDueCardsOnTick() {
+        // Карты других тестов с датами в прошлом в колесо не попадают: их проходы не за сегодня
+        Card due = card(LocalDate.now().minusDays(1), CardStatus.ACTIVE);
+        Card tomorrow = card(LocalDate.now().plusDays(1), CardStatus.ACTIVE);
+        Card beyondHorizon = card(LocalDate.now().plusDays(31), CardStatus.ACTIVE);
+        cardExpiryWheel.scheduleAll(List.of(expiring(due), expiring(tomorrow), expiring(beyondHorizon)));
+
+        cardExpiryWheel.tick();
+
+        assertEquals(CardStatus.EXPIRED, status(due));
+        assertFalse(cardExpiryWheel.isScheduled(due.getId()));
+        assertEquals(CardStatus.ACTIVE, status(tomorrow));
+        assertTrue(cardExpiryWheel.isScheduled(tomorrow.getId()));
+        assertFalse(cardExpiryWheel.isScheduled(beyondHorizon.getId()));
+    }
+
+    private static CardsExpiringSoonEvent.ExpiringCard expiring(Card card) {
+        return new CardsExpiringSoonEvent.ExpiringCard(card.getId(), card.getOwner().getId(), card.getExpirationDate());
+    }
+
+    private CardStatus status(Card card) {
+        return cardRepository.findById(card.getId()).orElseThrow().getStatus();
+    }
+
+    private Card card(LocalDate expirationDate, CardStatus status) {
+        return cardRepository.save(TestFixtures.card(owner)
+                .expirationDate(expirationDate)
+                .status(status)
+                .build());
+    }
+}
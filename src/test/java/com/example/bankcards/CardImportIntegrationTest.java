@@ -0,0 +1,112 @@
+package com.example.bankcards;
+
+import com.example.bankcards.dto.CardImportReport;
+import com.example.bankcards.dto.CardImportRowResult;
+import com.example.bankcards.dto.CardImportRowResult.Status;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardExpiryWheel;
+import com.example.bankcards.service.CardImportService;
+import com.example.bankcards.service.CardSearchIndex;
+import com.example.bankcards.util.EncryptionUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.card.import.chunk-size=2")
+class CardImportIntegrationTest {
+
+    @Autowired
+    private CardImportService cardImportService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EncryptionUtil encryptionUtil;
+
+    @Autowired
+    private CardSearchIndex cardSearchIndex;
+
+    @Autowired
+    private CardExpiryWheel cardExpiryWheel;
+
+    @Test
+    void importCards_ReportsEveryRowAndInsertsOnlyNewCards() throws Exception {
+        User owner = userRepository.save(TestFixtures.user("import-owner").build());
+        cardRepository.save(TestFixtures.card(owner)
+                .cardNumberHmac(encryptionUtil.hmac("4000777700000009"))
+                .cardNumberLastFour("0009")
+                .cardHolderName("EXISTING")
+                .build());
+
+        LocalDate expires = LocalDate.now().plusYears(3);
+        LocalDate soon = LocalDate.now().plusDays(10);
+        String ndjson = String.join("\n",
+                card("4000777700000001", "IMPORT ONE", expires, owner.getId(), "150.25"),
+                card("4000777700000002", "IMPORT TWO", expires, owner.getId(), null),
+                "",
+                card("4000777700000001", "IMPORT COPY", expires, owner.getId(), "0"),
+                card("4000777700000009", "IMPORT EXISTING", expires, owner.getId(), "0"),
+                card("4000777700000003", "IMPORT NO OWNER", expires, -1L, "0"),
+                card("4000777700000004", "IMPORT SOON", soon, owner.getId(), "0"),
+                "{broken",
+                card("4000777700000005", "IMPORT FIVE", expires, owner.getId(), "0"));
+
+        CardImportReport report = cardImportService.importCards(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(8, report.getTotal());
+        assertEquals(3, report.getCreated());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(3, report.getInvalid());
+        List<Status> statuses = report.getRows().stream().map(CardImportRowResult::getStatus).toList();
+        assertEquals(List.of(Status.CREATED, Status.CREATED, Status.DUPLICATE, Status.DUPLICATE,
+                Status.INVALID, Status.INVALID, Status.INVALID, Status.CREATED), statuses);
+        assertEquals(9, report.getRows().get(7).getLine());
+
+        CardImportRowResult first = report.getRows().get(0);
+        assertEquals("**** **** **** 0001", first.getMaskedCardNumber());
+        Card card = cardRepository.findByIdWithOwner(first.getCardId()).orElseThrow();
+        assertEquals(owner.getId(), card.getOwner().getId());
+        assertEquals(new BigDecimal("150.25"), card.getBalance());
+        assertEquals("4000777700000001",
+                new String(encryptionUtil.decrypt(card.getCardNumberCiphertext()), StandardCharsets.UTF_8));
+        assertEquals(BigDecimal.ZERO.setScale(2),
+                cardRepository.findById(report.getRows().get(1).getCardId()).orElseThrow().getBalance());
+        assertTrue(cardRepository.findByCardNumberHmac(encryptionUtil.hmac("4000777700000005")).isPresent());
+        assertFalse(cardRepository.findByCardNumberHmac(encryptionUtil.hmac("4000777700000003")).isPresent());
+
+        // Id из того же пула, что и у карт, сохраненных через JPA
+        Card saved = cardRepository.save(TestFixtures.card(owner)
+                .cardNumberLastFour("0010")
+                .cardHolderName("AFTER IMPORT")
+                .expirationDate(expires)
+                .build());
+        assertFalse(report.getRows().stream().map(CardImportRowResult::getCardId).toList().contains(saved.getId()));
+        assertTrue(cardSearchIndex.candidates("import five", 0, 10).contains(report.getRows().get(7).getCardId()));
+    }
+
+    private static String card(String number, String holder, LocalDate expires, Long ownerId, String balance) {
+        return "{\"cardNumber\":\"" + number + "\",\"cardHolderName\":\"" + holder + "\",\"expirationDate\":\""
+                + expires + "\",\"cvv\":\"123\",\"ownerId\":" + ownerId
+                + (balance != null ? ",\"initialBalance\":" + balance : "") + "}";
+    }
+}
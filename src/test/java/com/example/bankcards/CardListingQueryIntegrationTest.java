@@ -0,0 +1,140 @@
+package com.example.bankcards;
+
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.SlicePage;
+import com.example.bankcards.dto.TotalMode;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Списки карт: одна выборка страницы вместе с владельцами и один count
+ * (или ни одного в режиме total), без отдельных запросов users на каждую карту.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class CardListingQueryIntegrationTest {
+
+    private static final int OWNERS = 5;
+    private static final int CARDS_PER_OWNER = 4;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long firstOwnerId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (cardRepository.count() > 0) {
+            firstOwnerId = userRepository.findByUsername("owner0").orElseThrow().getId();
+            statistics.clear();
+            return;
+        }
+
+        for (int i = 0; i < OWNERS; i++) {
+            User owner = userRepository.save(TestFixtures.user("owner" + i)
+                    .fullName("Owner " + i)
+                    .build());
+            if (i == 0) {
+                firstOwnerId = owner.getId();
+            }
+            for (int j = 0; j < CARDS_PER_OWNER; j++) {
+                cardRepository.save(TestFixtures.card(owner)
+                        .cardNumberLastFour("000" + j)
+                        .cardHolderName("Holder " + i)
+                        .status(j == 0 ? CardStatus.BLOCKED : CardStatus.ACTIVE)
+                        .balance(BigDecimal.valueOf(100 + j))
+                        .build());
+            }
+        }
+        statistics.clear();
+    }
+
+    @Test
+    void getAllCards_LoadsPageAndOwnersInOneSelect() {
+        Page<CardResponse> page = cardService.getAllCards(PageRequest.of(0, 15, Sort.by("id")));
+
+        assertEquals(15, page.getContent().size());
+        assertEquals(OWNERS * CARDS_PER_OWNER, page.getTotalElements());
+        assertTrue(page.getContent().stream().allMatch(card -> card.getOwnerName().startsWith("Owner ")));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void userListings_UseOneSelectPlusCount() {
+        PageRequest pageable = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "balance"));
+
+        Page<CardResponse> cards = cardService.getUserCards(firstOwnerId, pageable);
+        assertEquals(3, cards.getContent().size());
+        assertEquals(CARDS_PER_OWNER, cards.getTotalElements());
+        assertEquals(BigDecimal.valueOf(103).setScale(2), cards.getContent().get(0).getBalance());
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        Page<CardResponse> blocked = cardService.filterUserCards(firstOwnerId, CardStatus.BLOCKED, pageable);
+        assertEquals(1, blocked.getTotalElements());
+        assertEquals("Owner 0", blocked.getContent().get(0).getOwnerName());
+        // Неполная первая страница: Spring Data не выполняет count
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        Page<CardResponse> found = cardService.searchUserCards(firstOwnerId, "holder 0", pageable);
+        assertEquals(CARDS_PER_OWNER, found.getTotalElements());
+        assertEquals("**** **** **** 0003", found.getContent().get(0).getMaskedCardNumber());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void sliceUserCards_SkipsCountAndCachesApproximateTotal() {
+        PageRequest pageable = PageRequest.of(0, 3, Sort.by("id"));
+
+        SlicePage<CardResponse> slice = cardService.sliceUserCards(firstOwnerId, pageable, TotalMode.NONE);
+        assertEquals(3, slice.getContent().size());
+        assertTrue(slice.isHasNext());
+        assertNull(slice.getTotalElements());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        SlicePage<CardResponse> first = cardService.sliceUserCards(firstOwnerId, pageable, TotalMode.APPROXIMATE);
+        SlicePage<CardResponse> again = cardService.sliceUserCards(firstOwnerId, pageable, TotalMode.APPROXIMATE);
+        assertEquals(CARDS_PER_OWNER, first.getTotalElements());
+        assertEquals(CARDS_PER_OWNER, again.getTotalElements());
+        assertTrue(again.isTotalApproximate());
+        // Две выборки и один count: второй раз число берется из кэша
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
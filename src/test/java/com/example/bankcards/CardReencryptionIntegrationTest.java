@@ -0,0 +1,242 @@
+package com.example.bankcards;
+
+import com.example.bankcards.config.EncryptionProperties;
+import com.example.bankcards.dto.ReencryptionStatusResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardReencryptionJob;
+import com.example.bankcards.entity.ReencryptionJobStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardReencryptionJobRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardReencryptionService;
+import com.example.bankcards.util.EncryptionUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "app.encryption.keys.k2=SecondTestEncryptionKeyForTests",
+        "app.encryption.active-key-id=k2",
+        "app.encryption.reencryption.chunk-size=2",
+        "app.encryption.reencryption.threads=2"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CardReencryptionIntegrationTest {
+
+    @Autowired
+    private CardReencryptionService cardReencryptionService;
+
+    @Autowired
+    private CardReencryptionJobRepository jobRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EncryptionUtil encryptionUtil;
+
+    @Autowired
+    private EncryptionProperties encryptionProperties;
+
+    private User owner;
+    private EncryptionUtil previousKey;
+    private final List<Long> cardIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        owner = userRepository.save(TestFixtures.user("reencryption").build());
+
+        EncryptionProperties previous = new EncryptionProperties();
+        previous.setKey(encryptionProperties.getKey());
+        previous.setKeys(new HashMap<>(encryptionProperties.getKeys()));
+        previous.setActiveKeyId("k1");
+        previous.setHmacKey(encryptionProperties.getHmacKey());
+        previousKey = new EncryptionUtil(previous);
+
+        // Карты в трех форматах: прежние текстовые колонки (ECB и v1), бинарные с ключом k1 и уже актуальные
+        for (int i = 0; i < 7; i++) {
+            String number = cardNumber(i);
+            Card.CardBuilder card = Card.builder()
+                    .cardNumberLastFour(number.substring(12))
+                    .cardHolderName("Reencryption User")
+                    .expirationDate(LocalDate.now().plusYears(1))
+                    .balance(BigDecimal.ZERO)
+                    .owner(owner);
+            if (i % 3 == 0) {
+                boolean ecb = i == 0;
+                card.cardNumberEncrypted(ecb ? legacyEncrypt(number) : previousKey.encrypt(number))
+                        .cvvEncrypted(ecb ? legacyEncrypt("123") : previousKey.encrypt("123"))
+                        .cardNumberHash(encryptionUtil.hash(number));
+            } else {
+                EncryptionUtil key = i % 3 == 1 ? previousKey : encryptionUtil;
+                card.cardNumberCiphertext(key.encrypt(number.getBytes(StandardCharsets.UTF_8)))
+                        .cvvCiphertext(key.encrypt("123".getBytes(StandardCharsets.UTF_8)))
+                        .cardNumberHmac(encryptionUtil.hmac(number));
+            }
+            cardIds.add(cardRepository.save(card.build()).getId());
+        }
+    }
+
+    @Test
+    void start_ReencryptsEveryCardWithActiveKey() throws Exception {
+        cardReencryptionService.start();
+        ReencryptionStatusResponse status = awaitFinished();
+
+        assertEquals(ReencryptionJobStatus.COMPLETED, status.getStatus());
+        assertEquals(7, status.getProcessed());
+        assertEquals(5, status.getReencrypted());
+        assertEquals(0, status.getFailed());
+        assertEquals(1.0, status.getProgress());
+        assertEquals(cardIds.get(6), status.getLastCardId());
+
+        for (int i = 0; i < cardIds.size(); i++) {
+            Card card = cardRepository.findById(cardIds.get(i)).orElseThrow();
+            assertFalse(encryptionUtil.needsReencryption(card.getCardNumberCiphertext()));
+            assertFalse(encryptionUtil.needsReencryption(card.getCvvCiphertext()));
+            assertEquals(cardNumber(i), new String(encryptionUtil.decrypt(card.getCardNumberCiphertext()), StandardCharsets.UTF_8));
+            assertEquals("123", new String(encryptionUtil.decrypt(card.getCvvCiphertext()), StandardCharsets.UTF_8));
+            assertArrayEquals(encryptionUtil.hmac(cardNumber(i)), card.getCardNumberHmac());
+            assertNull(card.getCardNumberEncrypted());
+            assertNull(card.getCardNumberHash());
+            assertNull(card.getCvvEncrypted());
+        }
+
+        CardReencryptionJob job = jobRepository.findFirstByOrderByIdDesc().orElseThrow();
+        assertEquals(ReencryptionJobStatus.COMPLETED, job.getStatus());
+        assertNotNull(job.getCompletedAt());
+    }
+
+    @Test
+    void start_ResumesPausedJobFromCheckpoint() throws Exception {
+        jobRepository.save(CardReencryptionJob.builder()
+                .targetKeyId("k2")
+                .status(ReencryptionJobStatus.PAUSED)
+                .lastCardId(cardIds.get(3))
+                .maxCardId(cardIds.get(6))
+                .processed(4)
+                .reencrypted(3)
+                .build());
+
+        cardReencryptionService.start();
+        ReencryptionStatusResponse status = awaitFinished();
+
+        assertEquals(ReencryptionJobStatus.COMPLETED, status.getStatus());
+        assertEquals(7, status.getProcessed());
+        assertEquals(5, status.getReencrypted());
+        // До контрольной точки задание не возвращается
+        assertNotNull(cardRepository.findById(cardIds.get(0)).orElseThrow().getCardNumberEncrypted());
+        assertTrue(encryptionUtil.needsReencryption(
+                cardRepository.findById(cardIds.get(1)).orElseThrow().getCardNumberCiphertext()));
+        assertFalse(encryptionUtil.needsReencryption(
+                cardRepository.findById(cardIds.get(4)).orElseThrow().getCardNumberCiphertext()));
+        assertEquals(1, jobRepository.count());
+    }
+
+    @Test
+    void start_UndecryptableCard_LeavesJobIncompleteAndRetriesIt() throws Exception {
+        String number = cardNumber(7);
+        Card broken = cardRepository.save(Card.builder()
+                .cardNumberLastFour(number.substring(12))
+                .cardHolderName("Reencryption User")
+                .expirationDate(LocalDate.now().plusYears(1))
+                .balance(BigDecimal.ZERO)
+                .owner(owner)
+                .cardNumberEncrypted("not-a-ciphertext")
+                .cvvEncrypted("not-a-ciphertext")
+                .cardNumberHash(encryptionUtil.hash(number))
+                .build());
+
+        cardReencryptionService.start();
+        ReencryptionStatusResponse status = awaitFinished();
+
+        assertEquals(ReencryptionJobStatus.INCOMPLETE, status.getStatus());
+        assertEquals(8, status.getProcessed());
+        assertEquals(1, status.getFailed());
+        assertEquals(Set.of(broken.getId()), jobRepository.findFirstByOrderByIdDesc().orElseThrow().getFailedCardIds());
+
+        // Шифротекст восстановлен: повторный запуск перешифровывает только эту карту
+        broken.setCardNumberEncrypted(previousKey.encrypt(number));
+        broken.setCvvEncrypted(previousKey.encrypt("123"));
+        cardRepository.save(broken);
+        cardReencryptionService.start();
+        status = awaitFinished();
+
+        assertEquals(ReencryptionJobStatus.COMPLETED, status.getStatus());
+        assertEquals(0, status.getFailed());
+        assertEquals(6, status.getReencrypted());
+        assertEquals(1, jobRepository.count());
+        Card migrated = cardRepository.findById(broken.getId()).orElseThrow();
+        assertNull(migrated.getCardNumberEncrypted());
+        assertEquals(number, new String(encryptionUtil.decrypt(migrated.getCardNumberCiphertext()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void findByCardNumber_FindsCardsBeforeAndAfterMigration() throws Exception {
+        String legacyNumber = cardNumber(3);
+        String migratedNumber = cardNumber(4);
+
+        assertEquals(cardIds.get(3), findByCardNumber(legacyNumber).orElseThrow().getId());
+        assertEquals(cardIds.get(4), findByCardNumber(migratedNumber).orElseThrow().getId());
+
+        cardReencryptionService.start();
+        awaitFinished();
+
+        assertEquals(cardIds.get(3), findByCardNumber(legacyNumber).orElseThrow().getId());
+        assertTrue(findByCardNumber(cardNumber(99)).isEmpty());
+    }
+
+    private Optional<Card> findByCardNumber(String number) {
+        return cardRepository.findByCardNumber(encryptionUtil.hmac(number), encryptionUtil.hash(number));
+    }
+
+    private ReencryptionStatusResponse awaitFinished() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            ReencryptionStatusResponse status = cardReencryptionService.status().orElseThrow();
+            if (status.getStatus() != ReencryptionJobStatus.RUNNING) {
+                return status;
+            }
+            Thread.sleep(20);
+        }
+        fail("Re-encryption did not finish in time");
+        return null;
+    }
+
+    private static String cardNumber(int i) {
+        return "411111111111" + String.format("%04d", i);
+    }
+
+    private String legacyEncrypt(String data) throws Exception {
+        byte[] key = MessageDigest.getInstance("SHA-256")
+                .digest(encryptionProperties.getKey().getBytes(StandardCharsets.UTF_8));
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Arrays.copyOf(key, 16), "AES"));
+        return Base64.getEncoder().encodeToString(cipher.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.bankcards;
+
+import com.example.bankcards.dto.CardCreateRequest;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardSearchIndex;
+import com.example.bankcards.service.CardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Поиск карт через триграммный индекс: страницы по курсору, поиск владельца
+ * и обновление индекса при выпуске и удалении карты.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class CardSearchIntegrationTest {
+
+    private static final int CARDS = 30;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardSearchIndex cardSearchIndex;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.findByUsername("search-owner").orElse(null);
+        if (owner != null) {
+            return;
+        }
+        owner = userRepository.save(TestFixtures.user("search-owner").build());
+        User other = userRepository.save(TestFixtures.user("search-other").build());
+        for (int i = 0; i < CARDS; i++) {
+            cardRepository.save(card(i % 2 == 0 ? owner : other,
+                    i % 3 == 0 ? "ANNA IVANOVA" : "PETR SIDOROV", String.format("%04d", 7700 + i)));
+        }
+        cardSearchIndex.rebuild();
+    }
+
+    @Test
+    void searchAllCards_PagesThroughMatchesInIdOrder() {
+        List<CardResponse> found = new ArrayList<>();
+        String cursor = null;
+        CursorPage<CardResponse> page;
+        do {
+            page = cardService.searchAllCards("ivanova", cursor, 3);
+            found.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        } while (page.isHasNext());
+
+        assertEquals(CARDS / 3, found.size());
+        assertTrue(found.stream().allMatch(card -> card.getCardHolderName().equals("ANNA IVANOVA")));
+        List<Long> ids = found.stream().map(CardResponse::getId).toList();
+        assertEquals(ids.stream().sorted().toList(), ids);
+    }
+
+    @Test
+    void searchAllCards_MatchesLastFourDigits() {
+        CursorPage<CardResponse> page = cardService.searchAllCards("7712", null, 10);
+
+        assertEquals(List.of("**** **** **** 7712"),
+                page.getContent().stream().map(CardResponse::getMaskedCardNumber).toList());
+    }
+
+    @Test
+    void searchUserCards_UsesIndexWithinOwnCards() {
+        assertTrue(cardSearchIndex.isReady());
+
+        Page<CardResponse> page = cardService.searchUserCards(owner.getId(), "anna", PageRequest.of(0, 20));
+
+        // Карты владельца — четные, ANNA — каждая третья: 0, 6, 12, 18, 24
+        assertEquals(5, page.getTotalElements());
+        assertTrue(page.getContent().stream().allMatch(card -> card.getOwnerId().equals(owner.getId())));
+    }
+
+    @Test
+    void createAndDeleteCard_UpdateIndex() {
+        CardResponse created = cardService.createCard(new CardCreateRequest("4000123412349876",
+                "OLGA NOVIKOVA", LocalDate.now().plusYears(2), "123", owner.getId(), BigDecimal.ZERO));
+
+        assertEquals(List.of(created.getId()), ids(cardService.searchAllCards("novikova", null, 10)));
+
+        cardService.deleteCard(created.getId());
+
+        assertEquals(List.of(), cardSearchIndex.candidates("novikova", 0, 10));
+        assertTrue(cardService.searchAllCards("novikova", null, 10).getContent().isEmpty());
+    }
+
+    private static List<Long> ids(CursorPage<CardResponse> page) {
+        return page.getContent().stream().map(CardResponse::getId).toList();
+    }
+
+    private static Card card(User owner, String holder, String lastFour) {
+        return TestFixtures.card(owner)
+                .cardNumberLastFour(lastFour)
+                .cardHolderName(holder)
+                .balance(BigDecimal.TEN)
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.bankcards;
+
+import com.example.bankcards.dto.CardCreateRequest;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardStatisticsReport;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardExpiryService;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.CardStatistics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Дельты статистики сходятся с пересчетом по базе: после операций сверка не находит расхождения.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CardStatisticsIntegrationTest {
+
+    @Autowired
+    private CardStatistics cardStatistics;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardExpiryService cardExpiryService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = TestFixtures.findOrCreateUser(userRepository, "stats-owner");
+        cardStatistics.reconcile();
+    }
+
+    @Test
+    void cardOperations_ApplyDeltasThatMatchDatabase() {
+        CardStatisticsReport before = cardStatistics.report();
+
+        CardResponse blocked = cardService.createCard(request("4000555566667771", "100.50"));
+        cardService.blockCard(blocked.getId());
+        CardResponse requested = cardService.createCard(request("4000555566667772", "20.00"));
+        cardService.requestCardBlock(requested.getId(), owner.getId(), "Lost");
+        CardResponse deleted = cardService.createCard(request("4000555566667773", "0"));
+        cardService.deleteCard(deleted.getId());
+
+        CardStatisticsReport after = cardStatistics.report();
+        assertEquals(2, after.getTotalCards() - before.getTotalCards());
+        assertEquals(1, count(after, CardStatus.BLOCKED) - count(before, CardStatus.BLOCKED));
+        assertEquals(1, count(after, CardStatus.ACTIVE) - count(before, CardStatus.ACTIVE));
+        assertEquals(new BigDecimal("100.50"), balance(after, CardStatus.BLOCKED).subtract(balance(before, CardStatus.BLOCKED)));
+        assertEquals(new BigDecimal("120.50"), after.getTotalBalance().subtract(before.getTotalBalance()));
+        assertEquals(1, after.getPendingBlockRequests() - before.getPendingBlockRequests());
+
+        assertReconciledWithoutCorrection(after);
+    }
+
+    @Test
+    void expiryRun_MovesCardsToExpired() {
+        LocalDate today = LocalDate.now().minusYears(50);
+        cardRepository.save(TestFixtures.card(owner)
+                .expirationDate(today.minusDays(1))
+                .status(CardStatus.BLOCKED)
+                .balance(new BigDecimal("5.00"))
+                .build());
+        cardStatistics.reconcile();
+        CardStatisticsReport before = cardStatistics.report();
+
+        cardExpiryService.run(today);
+
+        CardStatisticsReport after = cardStatistics.report();
+        assertEquals(-1, count(after, CardStatus.BLOCKED) - count(before, CardStatus.BLOCKED));
+        assertEquals(1, count(after, CardStatus.EXPIRED) - count(before, CardStatus.EXPIRED));
+        assertEquals(new BigDecimal("5.00"), balance(after, CardStatus.EXPIRED).subtract(balance(before, CardStatus.EXPIRED)));
+        assertEquals(before.getTotalBalance(), after.getTotalBalance());
+
+        assertReconciledWithoutCorrection(after);
+    }
+
+    private void assertReconciledWithoutCorrection(CardStatisticsReport expected) {
+        double corrections = meterRegistry.get("cards.stats.reconcile.corrections").counter().count();
+        cardStatistics.reconcile();
+        CardStatisticsReport reconciled = cardStatistics.report();
+
+        assertEquals(corrections, meterRegistry.get("cards.stats.reconcile.corrections").counter().count());
+        assertEquals(expected.getCardsByStatus(), reconciled.getCardsByStatus());
+        assertEquals(expected.getBalanceByStatus(), reconciled.getBalanceByStatus());
+        assertEquals(expected.getPendingBlockRequests(), reconciled.getPendingBlockRequests());
+    }
+
+    private CardCreateRequest request(String cardNumber, String balance) {
+        return new CardCreateRequest(cardNumber, "STATS OWNER", LocalDate.now().plusYears(2), "123",
+                owner.getId(), new BigDecimal(balance));
+    }
+
+    private static long count(CardStatisticsReport report, CardStatus status) {
+        return report.getCardsByStatus().get(status);
+    }
+
+    private static BigDecimal balance(CardStatisticsReport report, CardStatus status) {
+        return report.getBalanceByStatus().get(status);
+    }
+}
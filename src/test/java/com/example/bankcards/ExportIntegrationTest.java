@@ -0,0 +1,173 @@
+package com.example.bankcards;
+
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.ExportService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Потоковая выгрузка: формат строк NDJSON и CSV и фильтры по статусу, владельцу и датам.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ExportIntegrationTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User owner;
+    private Card first;
+    private Card second;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.findByUsername("export-owner").orElse(null);
+        if (owner != null) {
+            List<Card> cards = cardRepository.findAll().stream()
+                    .filter(card -> card.getOwner().getId().equals(owner.getId()))
+                    .sorted((a, b) -> a.getId().compareTo(b.getId()))
+                    .toList();
+            first = cards.get(0);
+            second = cards.get(1);
+            return;
+        }
+        owner = userRepository.save(TestFixtures.user("export-owner")
+                .fullName("Export Owner")
+                .build());
+        first = cardRepository.save(card("EXPORT, FIRST", "1111", CardStatus.ACTIVE));
+        second = cardRepository.save(card("EXPORT SECOND", "2222", CardStatus.BLOCKED));
+        transferRepository.save(Transfer.builder()
+                .fromCard(first)
+                .toCard(second)
+                .amount(new BigDecimal("12.50"))
+                .description("=SUM(\"A1\")")
+                .build());
+        transferRepository.save(Transfer.builder()
+                .fromCard(second)
+                .toCard(first)
+                .amount(BigDecimal.ONE)
+                .status(TransferStatus.CANCELLED)
+                .build());
+    }
+
+    @Test
+    void exportCards_WritesOneJsonObjectPerLine() throws Exception {
+        List<JsonNode> rows = ndjson(out -> exportService.exportCards(ExportFormat.NDJSON, null, owner.getId(),
+                null, null, out));
+
+        assertEquals(2, rows.size());
+        assertEquals(first.getId(), rows.get(0).get("id").asLong());
+        assertEquals("**** **** **** 1111", rows.get(0).get("maskedCardNumber").asText());
+        assertEquals("Export Owner", rows.get(0).get("ownerName").asText());
+        assertEquals(first.getExpirationDate().format(DateTimeFormatter.ofPattern("MM/yy")),
+                rows.get(0).get("expirationDate").asText());
+        assertEquals(second.getId(), rows.get(1).get("id").asLong());
+    }
+
+    @Test
+    void exportCards_AppliesStatusAndDateFilters() throws Exception {
+        LocalDate today = LocalDate.now();
+
+        List<JsonNode> blocked = ndjson(out -> exportService.exportCards(ExportFormat.NDJSON, CardStatus.BLOCKED,
+                owner.getId(), today, today, out));
+        List<JsonNode> tomorrow = ndjson(out -> exportService.exportCards(ExportFormat.NDJSON, null,
+                owner.getId(), today.plusDays(1), null, out));
+
+        assertEquals(List.of(second.getId()), blocked.stream().map(row -> row.get("id").asLong()).toList());
+        assertTrue(tomorrow.isEmpty());
+    }
+
+    @Test
+    void exportCards_CsvQuotesSeparators() throws Exception {
+        String csv = text(out -> exportService.exportCards(ExportFormat.CSV, CardStatus.ACTIVE, owner.getId(),
+                null, null, out));
+
+        String[] lines = csv.split("\r\n");
+        assertEquals(2, lines.length);
+        assertEquals("id,maskedCardNumber,cardHolderName,expirationDate,status,balance,ownerId,ownerName,"
+                + "createdAt,updatedAt", lines[0]);
+        assertTrue(lines[1].startsWith(first.getId() + ",**** **** **** 1111,\"EXPORT, FIRST\","), lines[1]);
+    }
+
+    @Test
+    void exportTransfers_FiltersByOwnerAndStatus() throws Exception {
+        List<JsonNode> completed = ndjson(out -> exportService.exportTransfers(ExportFormat.NDJSON,
+                TransferStatus.COMPLETED, owner.getId(), null, null, out));
+        String csv = text(out -> exportService.exportTransfers(ExportFormat.CSV, TransferStatus.COMPLETED,
+                owner.getId(), null, null, out));
+
+        assertEquals(1, completed.size());
+        assertEquals("**** **** **** 1111", completed.get(0).get("fromCardMasked").asText());
+        assertEquals("**** **** **** 2222", completed.get(0).get("toCardMasked").asText());
+        assertEquals(0, new BigDecimal("12.50").compareTo(completed.get(0).get("amount").decimalValue()));
+        // Описание, похожее на формулу, не исполняется табличным редактором
+        assertTrue(csv.split("\r\n")[1].contains(",\"'=SUM(\"\"A1\"\")\",COMPLETED,"), csv);
+        assertEquals(2, ndjson(out -> exportService.exportTransfers(ExportFormat.NDJSON, null, owner.getId(),
+                null, null, out)).size());
+    }
+
+    private List<JsonNode> ndjson(Export export) throws Exception {
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : text(export).split("\n")) {
+            if (!line.isEmpty()) {
+                rows.add(objectMapper.readTree(line));
+            }
+        }
+        return rows;
+    }
+
+    private static String text(Export export) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        export.write(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Card card(String holder, String lastFour, CardStatus status) {
+        return TestFixtures.card(owner)
+                .cardNumberLastFour(lastFour)
+                .cardHolderName(holder)
+                .status(status)
+                .balance(BigDecimal.TEN)
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface Export {
+        void write(ByteArrayOutputStream out) throws Exception;
+    }
+}
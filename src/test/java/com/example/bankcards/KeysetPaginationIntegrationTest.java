@@ -0,0 +1,190 @@
+package com.example.bankcards;
+
+import com.example.bankcards.dto.CardBlockRequestResponse;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.dto.UserResponse;
+import com.example.bankcards.entity.*;
+import com.example.bankcards.repository.CardBlockRequestRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.TransferService;
+import com.example.bankcards.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Выдача по курсору: страницы идут без пропусков и повторов, каждая
+ * страница — один запрос без count.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class KeysetPaginationIntegrationTest {
+
+    private static final int CARDS = 7;
+    private static final int PAGE_SIZE = 3;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private CardBlockRequestRepository blockRequestRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        owner = userRepository.findByUsername("scroll-owner").orElse(null);
+        if (owner != null) {
+            return;
+        }
+
+        owner = userRepository.save(TestFixtures.user("scroll-owner").build());
+        User other = userRepository.save(TestFixtures.user("scroll-other").build());
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < CARDS; i++) {
+            cards.add(cardRepository.save(card(i % 3 == 2 ? other : owner, i)));
+        }
+        for (int i = 0; i < CARDS - 1; i++) {
+            transferRepository.save(Transfer.builder()
+                    .fromCard(cards.get(i))
+                    .toCard(cards.get(i + 1))
+                    .amount(BigDecimal.ONE)
+                    .build());
+        }
+        for (Card card : cards) {
+            blockRequestRepository.save(CardBlockRequest.builder()
+                    .card(card)
+                    .requestedBy(card.getOwner())
+                    .reason("lost")
+                    .status(card.getId() % 2 == 0 ? BlockRequestStatus.APPROVED : BlockRequestStatus.PENDING)
+                    .build());
+        }
+        // Одинаковое время подачи: порядок внутри него задает id
+        jdbcTemplate.update("UPDATE card_block_requests SET requested_at = ? WHERE id % 3 <> 0",
+                LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+
+    @Test
+    void scrollAllCards_VisitsEveryCardOnceInIdOrder() {
+        List<CardResponse> cards = scroll(cursor -> cardService.scrollAllCards(cursor, PAGE_SIZE));
+
+        List<Long> ids = cards.stream().map(CardResponse::getId).toList();
+        assertEquals(CARDS, ids.size());
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertTrue(cards.stream().allMatch(card -> card.getOwnerName() != null));
+    }
+
+    @Test
+    void scrollUserCards_ReturnsOnlyOwnCards() {
+        List<CardResponse> cards = scroll(cursor -> cardService.scrollUserCards(owner.getId(), cursor, 2));
+
+        assertEquals(5, cards.size());
+        assertTrue(cards.stream().allMatch(card -> card.getOwnerId().equals(owner.getId())));
+    }
+
+    @Test
+    void scrollUserTransfers_NewestFirstAcrossBothDirections() {
+        List<TransferResponse> transfers = scroll(cursor ->
+                transferService.scrollUserTransfers(owner.getId(), cursor, 2));
+
+        List<Long> ids = transfers.stream().map(TransferResponse::getId).toList();
+        // Все шесть переводов касаются хотя бы одной карты владельца
+        assertEquals(CARDS - 1, ids.size());
+        assertEquals(ids.stream().sorted(Comparator.reverseOrder()).toList(), ids);
+    }
+
+    @Test
+    void scrollBlockRequests_OrdersByRequestTimeThenId() {
+        List<CardBlockRequestResponse> all = scroll(cursor ->
+                cardService.scrollBlockRequests(null, cursor, 2));
+        List<CardBlockRequestResponse> pending = scroll(cursor ->
+                cardService.scrollBlockRequests(BlockRequestStatus.PENDING, cursor, 2));
+
+        assertEquals(CARDS, all.size());
+        assertEquals(all.stream()
+                .sorted(Comparator.comparing(CardBlockRequestResponse::getRequestedAt)
+                        .thenComparing(CardBlockRequestResponse::getId))
+                .toList(), all);
+        assertEquals(all.stream().filter(r -> r.getStatus() == BlockRequestStatus.PENDING).toList(), pending);
+    }
+
+    @Test
+    void scrollUsers_OneStatementPerPage() {
+        statistics.clear();
+        CursorPage<UserResponse> first = userService.scrollUsers(null, 1);
+        CursorPage<UserResponse> second = userService.scrollUsers(first.getNextCursor(), 1);
+
+        assertTrue(first.isHasNext());
+        assertTrue(second.getContent().get(0).getId() > first.getContent().get(0).getId());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    private <T> List<T> scroll(Function<String, CursorPage<T>> pageLoader) {
+        List<T> rows = new ArrayList<>();
+        String cursor = null;
+        CursorPage<T> page;
+        do {
+            statistics.clear();
+            page = pageLoader.apply(cursor);
+            assertTrue(statistics.getPrepareStatementCount() <= 2, "statements per page");
+            rows.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        } while (page.isHasNext());
+        return rows;
+    }
+
+    private static Card card(User owner, int i) {
+        return TestFixtures.card(owner)
+                .cardNumberLastFour("100" + i)
+                .cardHolderName("Holder " + i)
+                .balance(BigDecimal.TEN)
+                .build();
+    }
+}
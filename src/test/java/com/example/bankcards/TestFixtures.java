@@ -0,0 +1,56 @@
+package com.example.bankcards;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Заготовки сущностей для интеграционных тестов. Билдеры можно дополнить
+ * нужными тесту полями перед сохранением.
+ */
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    /**
+     * Пользователь с ролью USER, паролем "password" и почтой {@code username@bank.com}.
+     */
+    public static User.UserBuilder user(String username) {
+        return User.builder()
+                .username(username)
+                .password("password")
+                .email(username + "@bank.com")
+                .fullName(username)
+                .roles(new HashSet<>(Set.of(Role.ROLE_USER)));
+    }
+
+    /**
+     * Пользователь из общей базы H2, которую делят кэшированные контексты, или новый.
+     */
+    public static User findOrCreateUser(UserRepository userRepository, String username) {
+        return userRepository.findByUsername(username)
+                .orElseGet(() -> userRepository.save(user(username).build()));
+    }
+
+    /**
+     * Активная карта на год с фиктивными шифротекстами и уникальным HMAC номера:
+     * сохраняется напрямую через репозиторий, без шифрования в CardService.
+     */
+    public static Card.CardBuilder card(User owner) {
+        return Card.builder()
+                .cardNumberCiphertext(new byte[]{1})
+                .cardNumberHmac(UUID.randomUUID().toString().substring(0, 32).getBytes())
+                .cardNumberLastFour("0000")
+                .cardHolderName("TEST HOLDER")
+                .expirationDate(LocalDate.now().plusYears(1))
+                .cvvCiphertext(new byte[]{2})
+                .owner(owner);
+    }
+}
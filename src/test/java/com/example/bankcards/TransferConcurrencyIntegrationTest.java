@@ -0,0 +1,134 @@
+package com.example.bankcards;
+
+import com.example.bankcards.dto.CardCreateRequest;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.CardNotActiveException;
+import com.example.bankcards.exception.TransferCancellationException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.TransferService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Переводы между пользователями под блокировкой карт: встречные потоки
+ * не теряют обновлений баланса и не взаимоблокируются.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class TransferConcurrencyIntegrationTest {
+
+    private static final int THREADS_PER_DIRECTION = 2;
+    private static final int TRANSFERS_PER_THREAD = 25;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User sender;
+    private User receiver;
+
+    @BeforeEach
+    void setUp() {
+        sender = TestFixtures.findOrCreateUser(userRepository, "p2p-sender");
+        receiver = TestFixtures.findOrCreateUser(userRepository, "p2p-receiver");
+    }
+
+    @Test
+    void opposingTransfers_ApplyEveryBalanceChange() throws Exception {
+        CardResponse senderCard = card("4000888800000001", sender, "1000.00");
+        CardResponse receiverCard = card("4000888800000002", receiver, "1000.00");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_PER_DIRECTION * 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS_PER_DIRECTION; i++) {
+            results.add(executor.submit(() -> send(start, "4000888800000001", "4000888800000002", "3.00", sender)));
+            results.add(executor.submit(() -> send(start, "4000888800000002", "4000888800000001", "1.00", receiver)));
+        }
+        start.countDown();
+        try {
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int transfers = THREADS_PER_DIRECTION * TRANSFERS_PER_THREAD;
+        assertEquals(0, new BigDecimal(1000 - transfers * 3 + transfers)
+                .compareTo(cardRepository.findById(senderCard.getId()).orElseThrow().getBalance()));
+        assertEquals(0, new BigDecimal(1000 + transfers * 3 - transfers)
+                .compareTo(cardRepository.findById(receiverCard.getId()).orElseThrow().getBalance()));
+    }
+
+    @Test
+    void transferToCard_CannotBeCancelledBySender() {
+        card("4000888800000003", sender, "100.00");
+        CardResponse receiverCard = card("4000888800000004", receiver, "0");
+
+        TransferResponse transfer = transferService.transferToCard(
+                new TransferRequest("4000888800000003", "4000888800000004", new BigDecimal("40.00"), "Gift"),
+                sender.getId());
+
+        assertThrows(TransferCancellationException.class,
+                () -> transferService.cancelTransfer(transfer.getId(), sender.getId()));
+        assertEquals(0, new BigDecimal("40.00")
+                .compareTo(cardRepository.findById(receiverCard.getId()).orElseThrow().getBalance()));
+    }
+
+    @Test
+    void transferToCard_InactiveDestination_IsRejectedWithoutDetails() {
+        CardResponse senderCard = card("4000888800000005", sender, "100.00");
+        CardResponse receiverCard = card("4000888800000006", receiver, "0");
+        cardService.blockCard(receiverCard.getId());
+
+        CardNotActiveException exception = assertThrows(CardNotActiveException.class,
+                () -> transferService.transferToCard(
+                        new TransferRequest("4000888800000005", "4000888800000006", new BigDecimal("10.00"), null),
+                        sender.getId()));
+
+        assertEquals("Destination card cannot accept transfers", exception.getMessage());
+        assertEquals(0, new BigDecimal("100.00")
+                .compareTo(cardRepository.findById(senderCard.getId()).orElseThrow().getBalance()));
+    }
+
+    private Void send(CountDownLatch start, String from, String to, String amount, User owner) throws Exception {
+        start.await();
+        for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+            transferService.transferToCard(new TransferRequest(from, to, new BigDecimal(amount), null), owner.getId());
+        }
+        return null;
+    }
+
+    private CardResponse card(String number, User owner, String balance) {
+        return cardService.createCard(new CardCreateRequest(number, owner.getFullName().toUpperCase(),
+                LocalDate.now().plusYears(2), "123", owner.getId(), new BigDecimal(balance)));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.bankcards;
+
+import com.example.bankcards.dto.UserImportReport;
+import com.example.bankcards.dto.UserImportRowResult;
+import com.example.bankcards.dto.UserImportRowResult.Status;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.UserImportCapacityExceededException;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.UserImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "app.users.import.chunk-size=2",
+        "app.users.import.max-size=1MB"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class UserImportIntegrationTest {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void importUsers_ReportsEveryRowAndCreatesOnlyNewUsers() throws Exception {
+        userRepository.save(TestFixtures.user("existing").build());
+
+        String ndjson = String.join("\n",
+                "{\"username\":\"alice\",\"password\":\"secret1\",\"email\":\"alice@bank.com\",\"fullName\":\"Alice\"}",
+                "{\"username\":\"bob\",\"password\":\"secret2\",\"email\":\"bob@bank.com\",\"fullName\":\"Bob\"}",
+                "",
+                "{\"username\":\"alice\",\"password\":\"secret3\",\"email\":\"other@bank.com\",\"fullName\":\"Alice 2\"}",
+                "{\"username\":\"existing\",\"password\":\"secret4\",\"email\":\"new@bank.com\",\"fullName\":\"Copy\"}",
+                "{\"username\":\"carol\",\"password\":\"secret5\",\"email\":\"existing@bank.com\",\"fullName\":\"Carol\"}",
+                "{\"username\":\"dave\",\"password\":\"secret6\",\"email\":\"not-an-email\",\"fullName\":\"Dave\"}",
+                "{broken",
+                "{\"username\":\"erin\",\"password\":\"secret7\",\"email\":\"erin@bank.com\",\"fullName\":\"Erin\"}");
+
+        UserImportReport submitted = userImportService.submit(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+        assertNotNull(submitted.getJobId());
+        assertNull(submitted.getRows());
+
+        UserImportReport report = awaitFinished(submitted.getJobId());
+        assertEquals(UserImportReport.Status.COMPLETED, report.getStatus());
+        assertNotNull(report.getCompletedAt());
+        assertEquals(8, report.getTotal());
+        assertEquals(3, report.getCreated());
+        assertEquals(3, report.getDuplicates());
+        assertEquals(2, report.getInvalid());
+        List<Status> statuses = report.getRows().stream().map(UserImportRowResult::getStatus).toList();
+        assertEquals(List.of(Status.CREATED, Status.CREATED, Status.DUPLICATE, Status.DUPLICATE,
+                Status.DUPLICATE, Status.INVALID, Status.INVALID, Status.CREATED), statuses);
+        assertEquals(9, report.getRows().get(7).getLine());
+
+        User alice = userRepository.findByUsername("alice").orElseThrow();
+        assertTrue(passwordEncoder.matches("secret1", alice.getPassword()));
+        assertEquals(Set.of(Role.ROLE_USER), alice.getRoles());
+        assertTrue(alice.isActive());
+        assertTrue(userRepository.findByUsername("erin").isPresent());
+        assertFalse(userRepository.findByUsername("carol").isPresent());
+    }
+
+    @Test
+    void submit_FullQueue_IsRejected() throws Exception {
+        // Первое задание занимает исполнитель, два следующих — очередь
+        for (int i = 0; i < 3; i++) {
+            userImportService.submit(new ByteArrayInputStream(manyUsers("queued" + i)));
+        }
+
+        assertThrows(UserImportCapacityExceededException.class,
+                () -> userImportService.submit(new ByteArrayInputStream(manyUsers("rejected"))));
+    }
+
+    @Test
+    void submit_FileOverMaxSize_IsRejected() {
+        byte[] tooLarge = new byte[2 * 1024 * 1024];
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userImportService.submit(new ByteArrayInputStream(tooLarge)));
+    }
+
+    @Test
+    void status_UnknownJob_IsEmpty() {
+        assertTrue(userImportService.status("missing").isEmpty());
+    }
+
+    private UserImportReport awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            UserImportReport report = userImportService.status(jobId).orElseThrow();
+            if (report.getStatus() == UserImportReport.Status.COMPLETED
+                    || report.getStatus() == UserImportReport.Status.FAILED) {
+                return report;
+            }
+            Thread.sleep(20);
+        }
+        fail("User import did not finish in time");
+        return null;
+    }
+
+    private static byte[] manyUsers(String prefix) {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            ndjson.append("{\"username\":\"").append(prefix).append(i)
+                    .append("\",\"password\":\"secret\",\"email\":\"").append(prefix).append(i)
+                    .append("@bank.com\",\"fullName\":\"Queued\"}\n");
+        }
+        return ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.bankcards.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Размер индексов и задержка поиска карты до и после перехода на бинарное
+ * хранение: SHA-256 в hex + Base64-шифротексты против HMAC и шифротекстов в BYTEA.
+ * Генерирует две таблицы по образцу cards, поэтому запускать только на
+ * отдельной базе PostgreSQL.
+ * <p>
+ * Запуск: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.bankcards.benchmark.CardLookupIndexReport
+ * -Dexec.args="jdbc:postgresql://localhost:5432/bench postgres postgres 10000000"}
+ */
+public class CardLookupIndexReport {
+
+    private static final int WARMUP_LOOKUPS = 50_000;
+    private static final int MEASURED_LOOKUPS = 200_000;
+    private static final int OWNERS = 1_000_000;
+
+    private static final String COMMON_COLUMNS = "id BIGINT PRIMARY KEY, card_number_last_four VARCHAR(4) NOT NULL, "
+            + "card_holder_name VARCHAR(100) NOT NULL, expiration_date DATE NOT NULL, status VARCHAR(20) NOT NULL, "
+            + "balance DECIMAL(15, 2) NOT NULL, owner_id BIGINT NOT NULL, created_at TIMESTAMP, updated_at TIMESTAMP";
+    private static final String COMMON_VALUES = "lpad((i % 10000)::text, 4, '0'), 'Card Holder ' || (i % 1000), "
+            + "DATE '2030-01-01', 'ACTIVE', 1000.00, i % " + OWNERS + " + 1, now(), now()";
+
+    // Размеры как у AES-GCM шифротекстов: номер 16 байт, CVV 3 байта, IV 12 и тег 16 байт
+    private static final String TEXT_TABLE = "bench_cards_text";
+    private static final String TEXT_DDL = "CREATE UNLOGGED TABLE " + TEXT_TABLE + " (" + COMMON_COLUMNS + ", "
+            + "card_number_encrypted VARCHAR(500) NOT NULL, card_number_hash VARCHAR(255) NOT NULL, "
+            + "cvv_encrypted VARCHAR(500) NOT NULL)";
+    private static final String TEXT_INSERT = "INSERT INTO " + TEXT_TABLE + " SELECT i, " + COMMON_VALUES + ", "
+            + "'v1:k1:' || encode(substring(sha256(('n-' || i)::bytea) || sha256(('m-' || i)::bytea) from 1 for 44), 'base64'), "
+            + "encode(sha256(('card-' || i)::bytea), 'hex'), "
+            + "'v1:k1:' || encode(substring(sha256(('c-' || i)::bytea) from 1 for 31), 'base64') "
+            + "FROM generate_series(?, ?) i";
+
+    private static final String BINARY_TABLE = "bench_cards_binary";
+    private static final String BINARY_DDL = "CREATE UNLOGGED TABLE " + BINARY_TABLE + " (" + COMMON_COLUMNS + ", "
+            + "card_number_ciphertext BYTEA NOT NULL, card_number_hmac BYTEA NOT NULL, cvv_ciphertext BYTEA NOT NULL)";
+    private static final String BINARY_INSERT = "INSERT INTO " + BINARY_TABLE + " SELECT i, " + COMMON_VALUES + ", "
+            + "substring(sha256(('n-' || i)::bytea) || sha256(('m-' || i)::bytea) from 1 for 48), "
+            + "sha256(('card-' || i)::bytea), "
+            + "substring(sha256(('c-' || i)::bytea) || sha256(('d-' || i)::bytea) from 1 for 35) "
+            + "FROM generate_series(?, ?) i";
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/bench";
+        String user = args.length > 1 ? args[1] : "postgres";
+        String password = args.length > 2 ? args[2] : "postgres";
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 10_000_000;
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            Layout text = new Layout("before: hex VARCHAR + Base64", TEXT_TABLE, TEXT_DDL, TEXT_INSERT,
+                    "card_number_hash", new String[]{"card_number_hash", "card_number_encrypted", "cvv_encrypted"}, false);
+            Layout binary = new Layout("after: BYTEA HMAC + ciphertexts", BINARY_TABLE, BINARY_DDL, BINARY_INSERT,
+                    "card_number_hmac", new String[]{"card_number_hmac", "card_number_ciphertext", "cvv_ciphertext"}, true);
+
+            for (Layout layout : new Layout[]{text, binary}) {
+                generate(connection, layout, rows);
+            }
+            System.out.printf("%n%d cards%n", rows);
+            for (Layout layout : new Layout[]{text, binary}) {
+                report(connection, layout, rows);
+            }
+        }
+    }
+
+    private static void generate(Connection connection, Layout layout, int rows) throws SQLException {
+        long started = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + layout.table);
+            statement.execute(layout.ddl);
+        }
+        try (PreparedStatement insert = connection.prepareStatement(layout.insert)) {
+            for (int from = 1; from <= rows; from += 1_000_000) {
+                insert.setInt(1, from);
+                insert.setInt(2, Math.min(rows, from + 999_999));
+                insert.executeUpdate();
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE UNIQUE INDEX idx_" + layout.table + "_lookup ON " + layout.table
+                    + " (" + layout.lookupColumn + ")");
+            statement.execute("CREATE INDEX idx_" + layout.table + "_owner ON " + layout.table + " (owner_id)");
+            statement.execute("VACUUM ANALYZE " + layout.table);
+        }
+        System.out.printf("%s generated in %d s%n", layout.table, (System.nanoTime() - started) / 1_000_000_000);
+    }
+
+    private static void report(Connection connection, Layout layout, int rows) throws Exception {
+        long indexBytes = queryLong(connection, "SELECT pg_relation_size('idx_" + layout.table + "_lookup')");
+        long tableBytes = queryLong(connection, "SELECT pg_table_size('" + layout.table + "')");
+        long rowWidth = queryLong(connection, "SELECT avg(pg_column_size(t.*))::bigint FROM "
+                + "(SELECT * FROM " + layout.table + " LIMIT 100000) t");
+        String secretSizes = Arrays.stream(layout.secretColumns)
+                .map(column -> "pg_column_size(" + column + ")")
+                .collect(Collectors.joining(" + "));
+        long secretWidth = queryLong(connection, "SELECT avg(" + secretSizes + ")::bigint FROM "
+                + "(SELECT * FROM " + layout.table + " LIMIT 100000) t");
+
+        double[] lookup;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, owner_id, balance, status FROM " + layout.table + " WHERE " + layout.lookupColumn + " = ?")) {
+            lookup = measure(rows, i -> {
+                byte[] key = sha256("card-" + i);
+                if (layout.binary) {
+                    statement.setBytes(1, key);
+                } else {
+                    statement.setString(1, HexFormat.of().formatHex(key));
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("Card " + i + " not found");
+                    }
+                }
+            });
+        }
+
+        double[] byOwner;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT * FROM " + layout.table + " WHERE owner_id = ? ORDER BY id")) {
+            byOwner = measure(OWNERS, i -> {
+                statement.setLong(1, i);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        rs.getObject(layout.lookupColumn);
+                    }
+                }
+            });
+        }
+
+        System.out.printf("%n%s%n", layout.name);
+        System.out.printf("  lookup index    %,d MB (%.1f B/card)%n", indexBytes >> 20, (double) indexBytes / rows);
+        System.out.printf("  table           %,d MB, avg row %d B, secret columns %d B%n",
+                tableBytes >> 20, rowWidth, secretWidth);
+        System.out.printf("  find by number  avg %.1f us, p50 %.1f us, p99 %.1f us%n", lookup[0], lookup[1], lookup[2]);
+        System.out.printf("  find by owner   avg %.1f us, p50 %.1f us, p99 %.1f us%n", byOwner[0], byOwner[1], byOwner[2]);
+    }
+
+    /**
+     * @return среднее, медиана и 99-й перцентиль в микросекундах
+     */
+    private static double[] measure(int range, Lookup lookup) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < WARMUP_LOOKUPS; i++) {
+            lookup.run(random.nextInt(range) + 1);
+        }
+        long[] nanos = new long[MEASURED_LOOKUPS];
+        long total = 0;
+        for (int i = 0; i < MEASURED_LOOKUPS; i++) {
+            int id = random.nextInt(range) + 1;
+            long started = System.nanoTime();
+            lookup.run(id);
+            nanos[i] = System.nanoTime() - started;
+            total += nanos[i];
+        }
+        Arrays.sort(nanos);
+        return new double[]{
+                total / 1_000.0 / MEASURED_LOOKUPS,
+                nanos[MEASURED_LOOKUPS / 2] / 1_000.0,
+                nanos[MEASURED_LOOKUPS * 99 / 100] / 1_000.0};
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static byte[] sha256(String value) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record Layout(String name, String table, String ddl, String insert,
+                          String lookupColumn, String[] secretColumns, boolean binary) {
+    }
+
+    @FunctionalInterface
+    private interface Lookup {
+        void run(int i) throws Exception;
+    }
+}
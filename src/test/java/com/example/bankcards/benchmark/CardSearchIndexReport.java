@@ -0,0 +1,242 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.util.TrigramIndex;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Поиск подстроки по всем картам: LIKE '%q%' в PostgreSQL против кандидатов
+ * из {@link TrigramIndex} с проверкой по id, как в {@code CardService.searchAllCards}.
+ * Печатает время и память построения индекса и задержку первой и глубокой
+ * страницы для редких и частых запросов. Генерирует таблицу по образцу cards,
+ * поэтому запускать только на отдельной базе PostgreSQL; размер кучи — не меньше 4 ГБ на 10M карт.
+ * <p>
+ * Запуск: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.bankcards.benchmark.CardSearchIndexReport
+ * -Dexec.args="jdbc:postgresql://localhost:5432/bench postgres postgres 1000000,10000000"}
+ */
+public class CardSearchIndexReport {
+
+    private static final String TABLE = "bench_cards_search";
+    private static final int PAGE_SIZE = 20;
+    private static final int MAX_CANDIDATE_BATCH = 4096;
+    private static final int LOAD_BATCH = 10_000;
+    private static final int LIKE_RUNS = 10;
+    private static final int INDEX_RUNS = 200;
+
+    private static final String[] FIRST_NAMES = {"IVAN", "PETR", "ANNA", "MARIA", "OLGA", "SERGEY", "DMITRY",
+            "ELENA", "NIKOLAY", "TATIANA", "ALEXEY", "NATALIA", "PAVEL", "IRINA", "ANDREY", "SVETLANA"};
+    private static final String[] LAST_NAMES = {"IVANOV", "PETROV", "SIDOROV", "SMIRNOV", "KUZNETSOV", "POPOV",
+            "VASILIEV", "SOKOLOV", "MIKHAILOV", "NOVIKOV", "FEDOROV", "MOROZOV", "VOLKOV", "ALEKSEEV", "LEBEDEV",
+            "SEMENOV", "EGOROV", "PAVLOV", "KOZLOV", "STEPANOV", "NIKOLAEV", "ORLOV", "ANDREEV", "MAKAROV",
+            "NIKITIN", "ZAKHAROV", "ZAITSEV", "SOLOVIEV", "BORISOV", "YAKOVLEV", "GRIGORIEV", "ROMANOV"};
+
+    // Номер карты в имени делает часть имен редкими, как у реальных держателей с уникальной фамилией
+    private static final String GENERATE_SQL = "INSERT INTO " + TABLE + " SELECT i, "
+            + "(?::text[])[1 + i % ?] || ' ' || (?::text[])[1 + (i / 7) % ?] || CASE WHEN i % 1000 = 0 "
+            + "THEN ' X' || i ELSE '' END, lpad(((i::bigint * 7919) % 10000)::text, 4, '0'), i % 1000000 + 1 "
+            + "FROM generate_series(?, ?) i";
+
+    private static final String LIKE_SQL = "SELECT id, card_holder_name, card_number_last_four FROM " + TABLE
+            + " WHERE id > ? AND (LOWER(card_holder_name) LIKE ? OR card_number_last_four LIKE ?) ORDER BY id LIMIT ?";
+    private static final String VERIFY_SQL = "SELECT id, card_holder_name, card_number_last_four FROM " + TABLE
+            + " WHERE id = ANY(?) AND (LOWER(card_holder_name) LIKE ? OR card_number_last_four LIKE ?) ORDER BY id LIMIT ?";
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/bench";
+        String user = args.length > 1 ? args[1] : "postgres";
+        String password = args.length > 2 ? args[2] : "postgres";
+        int[] sizes = Arrays.stream((args.length > 3 ? args[3] : "1000000,10000000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            for (int rows : sizes) {
+                generate(connection, rows);
+                TrigramIndex index = build(connection, rows);
+                for (String query : new String[]{"x" + (rows / 2 / 1000 * 1000), "4242", "novikov", "ivan", "zzz"}) {
+                    report(connection, index, query, rows);
+                }
+            }
+        }
+    }
+
+    private static void generate(Connection connection, int rows) throws SQLException {
+        long started = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE UNLOGGED TABLE " + TABLE + " (id BIGINT PRIMARY KEY, "
+                    + "card_holder_name VARCHAR(100) NOT NULL, card_number_last_four VARCHAR(4) NOT NULL, "
+                    + "owner_id BIGINT NOT NULL)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement(GENERATE_SQL)) {
+            insert.setArray(1, connection.createArrayOf("text", FIRST_NAMES));
+            insert.setInt(2, FIRST_NAMES.length);
+            insert.setArray(3, connection.createArrayOf("text", LAST_NAMES));
+            insert.setInt(4, LAST_NAMES.length);
+            for (int from = 1; from <= rows; from += 1_000_000) {
+                insert.setInt(5, from);
+                insert.setInt(6, Math.min(rows, from + 999_999));
+                insert.executeUpdate();
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("VACUUM ANALYZE " + TABLE);
+        }
+        System.out.printf("%n%,d cards generated in %d s%n", rows, (System.nanoTime() - started) / 1_000_000_000);
+    }
+
+    /**
+     * Загрузка тем же обходом по id, что и {@code CardSearchIndex.rebuild()}.
+     */
+    private static TrigramIndex build(Connection connection, int rows) throws SQLException {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long started = System.nanoTime();
+
+        TrigramIndex index = new TrigramIndex();
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, card_holder_name, "
+                + "card_number_last_four FROM " + TABLE + " WHERE id > ? ORDER BY id LIMIT " + LOAD_BATCH)) {
+            long lastId = 0;
+            int loaded;
+            do {
+                select.setLong(1, lastId);
+                loaded = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getLong(1);
+                        index.add(lastId, rs.getString(2), rs.getString(3));
+                        loaded++;
+                    }
+                }
+            } while (loaded == LOAD_BATCH);
+        }
+        index.compact();
+        long buildMillis = (System.nanoTime() - started) / 1_000_000;
+
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("index: built in %,d ms, %,d trigrams, %,d postings, estimated %,d MB, heap delta %,d MB "
+                        + "(%.1f B/card)%n",
+                buildMillis, index.trigramCount(), index.postingCount(), index.sizeInBytes() >> 20,
+                (heapAfter - heapBefore) >> 20, (double) index.sizeInBytes() / rows);
+        return index;
+    }
+
+    private static void report(Connection connection, TrigramIndex index, String query, int rows) throws SQLException {
+        String pattern = "%" + query.toLowerCase() + "%";
+        long middle = rows / 2;
+
+        int matches;
+        try (PreparedStatement count = connection.prepareStatement("SELECT count(*) FROM " + TABLE
+                + " WHERE LOWER(card_holder_name) LIKE ? OR card_number_last_four LIKE ?")) {
+            count.setString(1, pattern);
+            count.setString(2, pattern);
+            try (ResultSet rs = count.executeQuery()) {
+                rs.next();
+                matches = rs.getInt(1);
+            }
+        }
+
+        double[] likeFirst;
+        double[] likeDeep;
+        double[] indexFirst;
+        double[] indexDeep;
+        try (PreparedStatement like = connection.prepareStatement(LIKE_SQL);
+             PreparedStatement verify = connection.prepareStatement(VERIFY_SQL)) {
+            likeFirst = measure(LIKE_RUNS, () -> like(like, pattern, 0));
+            likeDeep = measure(LIKE_RUNS, () -> like(like, pattern, middle));
+            indexFirst = measure(INDEX_RUNS, () -> indexed(connection, verify, index, query, pattern, 0));
+            indexDeep = measure(INDEX_RUNS, () -> indexed(connection, verify, index, query, pattern, middle));
+
+            if (like(like, pattern, middle) != indexed(connection, verify, index, query, pattern, middle)) {
+                throw new IllegalStateException("Index results differ from LIKE for '" + query + "'");
+            }
+        }
+
+        System.out.printf("  '%s' (%,d matches)%n", query, matches);
+        System.out.printf("    LIKE  first page avg %9.2f ms p99 %9.2f ms | from middle avg %9.2f ms p99 %9.2f ms%n",
+                likeFirst[0], likeFirst[1], likeDeep[0], likeDeep[1]);
+        System.out.printf("    index first page avg %9.2f ms p99 %9.2f ms | from middle avg %9.2f ms p99 %9.2f ms%n",
+                indexFirst[0], indexFirst[1], indexDeep[0], indexDeep[1]);
+    }
+
+    private static long like(PreparedStatement like, String pattern, long afterId) throws SQLException {
+        like.setLong(1, afterId);
+        like.setString(2, pattern);
+        like.setString(3, pattern);
+        like.setInt(4, PAGE_SIZE + 1);
+        return checksum(like);
+    }
+
+    private static long indexed(Connection connection, PreparedStatement verify, TrigramIndex index,
+                                String query, String pattern, long afterId) throws SQLException {
+        long checksum = 0;
+        int found = 0;
+        long after = afterId;
+        int batch = PAGE_SIZE + 1;
+        while (found <= PAGE_SIZE) {
+            List<Long> candidates = index.search(query, after, batch);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            Array ids = connection.createArrayOf("bigint", candidates.toArray());
+            verify.setArray(1, ids);
+            verify.setString(2, pattern);
+            verify.setString(3, pattern);
+            verify.setInt(4, PAGE_SIZE + 1 - found);
+            try (ResultSet rs = verify.executeQuery()) {
+                while (rs.next()) {
+                    checksum = checksum * 31 + rs.getLong(1);
+                    found++;
+                }
+            }
+            after = candidates.get(candidates.size() - 1);
+            if (candidates.size() < batch) {
+                break;
+            }
+            batch = Math.min(batch * 2, MAX_CANDIDATE_BATCH);
+        }
+        return checksum;
+    }
+
+    private static long checksum(PreparedStatement statement) throws SQLException {
+        long checksum = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                checksum = checksum * 31 + rs.getLong(1);
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * @return среднее и 99-й перцентиль в миллисекундах после одного прогревочного прогона
+     */
+    private static double[] measure(int runs, Query query) throws SQLException {
+        query.run();
+        long[] nanos = new long[runs];
+        long total = 0;
+        for (int i = 0; i < runs; i++) {
+            long started = System.nanoTime();
+            query.run();
+            nanos[i] = System.nanoTime() - started;
+            total += nanos[i];
+        }
+        Arrays.sort(nanos);
+        return new double[]{total / 1e6 / runs, nanos[Math.min(runs - 1, runs * 99 / 100)] / 1e6};
+    }
+
+    @FunctionalInterface
+    private interface Query {
+        long run() throws SQLException;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.config.EncryptionProperties;
+import com.example.bankcards.util.EncryptionUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение {@link EncryptionUtil} (AES/GCM, шифры на поток) с прежней реализацией
+ * (AES/ECB), создававшей Cipher/MessageDigest на каждый вызов.
+ * <p>
+ * Запуск: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.bankcards.benchmark.EncryptionUtilBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptionUtilBenchmark {
+
+    private static final String KEY = "MySuperSecretKeyForAESEncryption123";
+    private static final String CARD_NUMBER = "4111111111111111";
+
+    private EncryptionUtil current;
+    private LegacyEncryptionUtil legacy;
+    private String encrypted;
+    private byte[] cardNumberBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        EncryptionProperties properties = new EncryptionProperties();
+        properties.setKey(KEY);
+        properties.setKeys(Map.of("k1", KEY));
+        properties.setActiveKeyId("k1");
+        properties.setHmacKey(KEY);
+        current = new EncryptionUtil(properties);
+        legacy = new LegacyEncryptionUtil(KEY);
+        encrypted = current.encrypt(CARD_NUMBER);
+        cardNumberBytes = CARD_NUMBER.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String hashLegacy() throws Exception {
+        return legacy.hash(CARD_NUMBER);
+    }
+
+    @Benchmark
+    public String hashCurrent() {
+        return current.hash(CARD_NUMBER);
+    }
+
+    @Benchmark
+    public byte[] hashCurrentBytes() {
+        return current.hash(cardNumberBytes);
+    }
+
+    @Benchmark
+    public String encryptLegacy() throws Exception {
+        return legacy.encrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    public String encryptCurrent() {
+        return current.encrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    public String decryptLegacy() throws Exception {
+        return legacy.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public String decryptCurrent() {
+        return current.decrypt(encrypted);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EncryptionUtilBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * Прежняя реализация EncryptionUtil, оставлена для сравнения.
+     */
+    static final class LegacyEncryptionUtil {
+
+        private final SecretKeySpec secretKey;
+
+        LegacyEncryptionUtil(String secret) throws Exception {
+            byte[] key = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            this.secretKey = new SecretKeySpec(Arrays.copyOf(key, 16), "AES");
+        }
+
+        String encrypt(String data) throws Exception {
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+            return Base64.getEncoder().encodeToString(cipher.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        String decrypt(String encryptedData) throws Exception {
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(Cipher.DECRYPT_MODE, secretKey);
+            return new String(cipher.doFinal(Base64.getDecoder().decode(encryptedData)), StandardCharsets.UTF_8);
+        }
+
+        String hash(String data) throws Exception {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hexString = new StringBuilder();
+            for (byte b : hash) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) hexString.append('0');
+                hexString.append(hex);
+            }
+            return hexString.toString();
+        }
+    }
+}
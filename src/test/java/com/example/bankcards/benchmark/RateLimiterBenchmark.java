@@ -0,0 +1,89 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.config.RateLimitProperties;
+import com.example.bankcards.config.RateLimitProperties.KeyType;
+import com.example.bankcards.security.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы {@link RateLimiter} на запрос при конфигурации как в application.yml.
+ * Лимиты заведомо не исчерпываются, чтобы мерить путь разрешенного запроса.
+ * <p>
+ * Запуск: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.bankcards.benchmark.RateLimiterBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    private RateLimiter rateLimiter;
+    private String[] ips;
+    private String[] usernames;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getRules().put("login-ip", rule("POST", "/auth/login", KeyType.IP));
+        properties.getRules().put("login-user", rule("POST", "/auth/login", KeyType.USER_IP));
+        properties.getRules().put("register-ip", rule("POST", "/auth/register", KeyType.IP));
+        properties.getRules().put("transfer-user", rule("POST", "/transfers", KeyType.USER));
+        rateLimiter = new RateLimiter(properties, new SimpleMeterRegistry());
+
+        ips = new String[CLIENTS];
+        usernames = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            ips[i] = "10.0." + (i >> 8) + "." + (i & 0xFF);
+            usernames[i] = "user" + i;
+        }
+    }
+
+    private static RateLimitProperties.Rule rule(String method, String path, KeyType key) {
+        RateLimitProperties.Rule rule = new RateLimitProperties.Rule();
+        rule.setMethod(method);
+        rule.setPath(path);
+        rule.setKey(key);
+        rule.setCapacity(Integer.MAX_VALUE / 2);
+        rule.setPeriod(Duration.ofSeconds(1));
+        return rule;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void transferRequest() {
+        int client = ThreadLocalRandom.current().nextInt(CLIENTS);
+        rateLimiter.check("POST", "/transfers", ips[client], usernames[client]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void unlimitedRoute() {
+        int client = ThreadLocalRandom.current().nextInt(CLIENTS);
+        rateLimiter.check("GET", "/cards/my", ips[client], usernames[client]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void sameUserContended() {
+        rateLimiter.check("POST", "/transfers", "10.0.0.1", "hot-user");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimiterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
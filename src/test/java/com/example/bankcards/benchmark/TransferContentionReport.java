@@ -0,0 +1,234 @@
+package com.example.bankcards.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Переводы на одну «горячую» карту при растущем числе одновременных отправителей,
+ * теми же запросами, что и {@code TransferService}: SELECT ... FOR UPDATE обеих карт,
+ * два UPDATE баланса и INSERT перевода в одной транзакции. Поток возврата все время
+ * переводит с горячей карты обратно отправителям, поэтому встречные потоки есть всегда.
+ * <p>
+ * Сравниваются два порядка блокировок: по возрастанию id, как в сервисе, и
+ * «сначала источник». Половина отправителей имеет id меньше горячей карты,
+ * половина — больше, поэтому во втором случае встречные переводы взаимоблокируются
+ * и ждут детектора PostgreSQL ({@code deadlock_timeout}, по умолчанию 1 с).
+ * Печатает переводы в секунду, медиану и 99-й перцентиль, число взаимоблокировок
+ * и проверяет, что сумма балансов не изменилась. Создает свои таблицы,
+ * поэтому запускать только на отдельной базе PostgreSQL.
+ * <p>
+ * Запуск: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.bankcards.benchmark.TransferContentionReport
+ * -Dexec.args="jdbc:postgresql://localhost:5432/bench postgres postgres 1,2,4,8,16,32 10"}
+ */
+public class TransferContentionReport {
+
+    private static final String CARDS = "bench_transfer_cards";
+    private static final String TRANSFERS = "bench_transfers";
+    private static final long HOT_CARD_ID = 1_000;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    private static final String DEADLOCK = "40P01";
+
+    private static final String LOCK_SQL = "SELECT balance FROM " + CARDS + " WHERE id = ? FOR UPDATE";
+    private static final String UPDATE_SQL = "UPDATE " + CARDS
+            + " SET balance = ?, balance_version = balance_version + 1 WHERE id = ?";
+    private static final String INSERT_SQL = "INSERT INTO " + TRANSFERS
+            + " (from_card_id, to_card_id, amount) VALUES (?, ?, ?)";
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/bench";
+        String user = args.length > 1 ? args[1] : "postgres";
+        String password = args.length > 2 ? args[2] : "postgres";
+        int[] senders = Arrays.stream((args.length > 3 ? args[3] : "1,2,4,8,16,32").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        int maxSenders = Arrays.stream(senders).max().orElse(1);
+
+        setUp(url, user, password, maxSenders);
+        System.out.printf("%-8s %-12s %12s %10s %10s %10s%n", "senders", "lock order", "transfers/s",
+                "p50 ms", "p99 ms", "deadlocks");
+        for (int count : senders) {
+            for (boolean ordered : new boolean[]{true, false}) {
+                run(url, user, password, count, ordered, seconds);
+            }
+        }
+    }
+
+    private static void setUp(String url, String user, String password, int maxSenders) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TRANSFERS);
+            statement.execute("DROP TABLE IF EXISTS " + CARDS);
+            statement.execute("CREATE TABLE " + CARDS + " (id BIGINT PRIMARY KEY, "
+                    + "balance NUMERIC(19, 2) NOT NULL, balance_version BIGINT NOT NULL DEFAULT 0)");
+            statement.execute("CREATE TABLE " + TRANSFERS + " (id BIGSERIAL PRIMARY KEY, "
+                    + "from_card_id BIGINT NOT NULL REFERENCES " + CARDS + " (id), "
+                    + "to_card_id BIGINT NOT NULL REFERENCES " + CARDS + " (id), "
+                    + "amount NUMERIC(19, 2) NOT NULL, transfer_date TIMESTAMP NOT NULL DEFAULT now())");
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO " + CARDS + " (id, balance) VALUES (?, ?)")) {
+                insert.setLong(1, HOT_CARD_ID);
+                insert.setBigDecimal(2, INITIAL_BALANCE);
+                insert.addBatch();
+                for (int sender = 0; sender < maxSenders; sender++) {
+                    insert.setLong(1, senderCardId(sender));
+                    insert.setBigDecimal(2, INITIAL_BALANCE);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Четные отправители — с id меньше горячей карты, нечетные — с большим.
+     */
+    private static long senderCardId(int sender) {
+        return sender % 2 == 0 ? HOT_CARD_ID - 1 - sender : HOT_CARD_ID + 1 + sender;
+    }
+
+    private static void run(String url, String user, String password, int senders, boolean ordered, int seconds)
+            throws Exception {
+        BigDecimal totalBefore = totalBalance(url, user, password);
+        ExecutorService executor = Executors.newFixedThreadPool(senders + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int sender = 0; sender < senders; sender++) {
+            long cardId = senderCardId(sender);
+            futures.add(executor.submit(() -> transfer(url, user, password, start, deadline, ordered,
+                    i -> cardId, i -> HOT_CARD_ID)));
+        }
+        // Возврат с горячей карты по кругу отправителей: встречный поток
+        futures.add(executor.submit(() -> transfer(url, user, password, start, deadline, ordered,
+                i -> HOT_CARD_ID, i -> senderCardId((int) (i % senders)))));
+        start.countDown();
+
+        long transfers = 0;
+        long deadlocks = 0;
+        List<long[]> latencies = new ArrayList<>();
+        try {
+            for (Future<Result> future : futures) {
+                Result result = future.get();
+                transfers += result.count();
+                deadlocks += result.deadlocks();
+                latencies.add(Arrays.copyOf(result.nanos(), result.count()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long[] nanos = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+
+        BigDecimal totalAfter = totalBalance(url, user, password);
+        if (totalBefore.compareTo(totalAfter) != 0) {
+            throw new IllegalStateException("Balance total changed from " + totalBefore + " to " + totalAfter);
+        }
+        System.out.printf("%-8d %-12s %,12.0f %10.2f %10.2f %10d%n", senders, ordered ? "by id" : "source first",
+                (double) transfers / seconds, percentile(nanos, 50), percentile(nanos, 99), deadlocks);
+    }
+
+    private static Result transfer(String url, String user, String password, CountDownLatch start, long deadline,
+                                   boolean ordered, CardChoice from, CardChoice to) throws Exception {
+        long[] nanos = new long[1024];
+        int count = 0;
+        long deadlocks = 0;
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             PreparedStatement lock = connection.prepareStatement(LOCK_SQL);
+             PreparedStatement update = connection.prepareStatement(UPDATE_SQL);
+             PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+            connection.setAutoCommit(false);
+            start.await();
+            for (long i = 0; System.nanoTime() < deadline; i++) {
+                long fromId = from.cardId(i);
+                long toId = to.cardId(i);
+                long started = System.nanoTime();
+                // Взаимоблокировка откатывает транзакцию: перевод повторяется, как повторил бы клиент
+                while (true) {
+                    try {
+                        move(lock, update, insert, fromId, toId, ordered);
+                        connection.commit();
+                        break;
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        if (!DEADLOCK.equals(e.getSQLState())) {
+                            throw e;
+                        }
+                        deadlocks++;
+                    }
+                }
+                if (count == nanos.length) {
+                    nanos = Arrays.copyOf(nanos, count * 2);
+                }
+                nanos[count++] = System.nanoTime() - started;
+            }
+        }
+        return new Result(nanos, count, deadlocks);
+    }
+
+    private static void move(PreparedStatement lock, PreparedStatement update, PreparedStatement insert,
+                             long fromId, long toId, boolean ordered) throws SQLException {
+        long firstId = ordered ? Math.min(fromId, toId) : fromId;
+        long secondId = firstId == fromId ? toId : fromId;
+        BigDecimal first = lockBalance(lock, firstId);
+        BigDecimal second = lockBalance(lock, secondId);
+        BigDecimal fromBalance = firstId == fromId ? first : second;
+        BigDecimal toBalance = firstId == fromId ? second : first;
+
+        update.setBigDecimal(1, fromBalance.subtract(AMOUNT));
+        update.setLong(2, fromId);
+        update.executeUpdate();
+        update.setBigDecimal(1, toBalance.add(AMOUNT));
+        update.setLong(2, toId);
+        update.executeUpdate();
+
+        insert.setLong(1, fromId);
+        insert.setLong(2, toId);
+        insert.setBigDecimal(3, AMOUNT);
+        insert.executeUpdate();
+    }
+
+    private static BigDecimal lockBalance(PreparedStatement lock, long cardId) throws SQLException {
+        lock.setLong(1, cardId);
+        try (ResultSet rs = lock.executeQuery()) {
+            rs.next();
+            return rs.getBigDecimal(1);
+        }
+    }
+
+    private static BigDecimal totalBalance(String url, String user, String password) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT sum(balance) FROM " + CARDS)) {
+            rs.next();
+            return rs.getBigDecimal(1);
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        return sortedNanos[Math.min(sortedNanos.length - 1, sortedNanos.length * percentile / 100)] / 1e6;
+    }
+
+    @FunctionalInterface
+    private interface CardChoice {
+        long cardId(long iteration);
+    }
+
+    private record Result(long[] nanos, int count, long deadlocks) {
+    }
+}
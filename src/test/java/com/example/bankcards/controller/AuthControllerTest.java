@@ -3,7 +3,9 @@ package com.example.bankcards.controller;
 import com.example.bankcards.config.TestSecurityConfig;
 import com.example.bankcards.dto.JwtResponse;
 import com.example.bankcards.dto.LoginRequest;
+import com.example.bankcards.dto.RefreshTokenRequest;
 import com.example.bankcards.dto.RegisterRequest;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
 import com.example.bankcards.service.AuthService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -45,10 +47,11 @@ class AuthControllerTest {
                 1L,
                 "testuser",
                 "test@bank.com",
-                Set.of("ROLE_USER")
+                Set.of("ROLE_USER"),
+                "refreshToken"
         );
 
-        when(authService.authenticateUser(any(LoginRequest.class))).thenReturn(response);
+        when(authService.authenticateUser(any(LoginRequest.class), any())).thenReturn(response);
 
         mockMvc.perform(post("/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -59,7 +62,32 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.username").value("testuser"))
                 .andExpect(jsonPath("$.roles[0]").value("ROLE_USER"));
 
-        verify(authService).authenticateUser(any(LoginRequest.class));
+        verify(authService).authenticateUser(any(LoginRequest.class), any());
+    }
+
+    @Test
+    void refresh_Success() throws Exception {
+        JwtResponse response = new JwtResponse(
+                "newToken", "Bearer", 1L, "testuser", "test@bank.com", Set.of("ROLE_USER"), "newRefreshToken");
+        when(authService.refreshToken("refreshToken")).thenReturn(response);
+
+        mockMvc.perform(post("/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refreshToken"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("newToken"))
+                .andExpect(jsonPath("$.refreshToken").value("newRefreshToken"));
+    }
+
+    @Test
+    void refresh_InvalidToken_ReturnsUnauthorized() throws Exception {
+        when(authService.refreshToken("stolen"))
+                .thenThrow(new InvalidRefreshTokenException("Refresh token has been revoked"));
+
+        mockMvc.perform(post("/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest("stolen"))))
+                .andExpect(status().isUnauthorized());
     }
 
     @Test
@@ -71,7 +99,7 @@ class AuthControllerTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
 
-        verify(authService, never()).authenticateUser(any(LoginRequest.class));
+        verify(authService, never()).authenticateUser(any(LoginRequest.class), any());
     }
 
     @Test
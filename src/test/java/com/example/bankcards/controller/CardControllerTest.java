@@ -1,18 +1,23 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.config.PaginationProperties;
 import com.example.bankcards.config.TestSecurityConfig;
+import com.example.bankcards.dto.CardBalance;
+import com.example.bankcards.dto.CardBulkStatusReport;
+import com.example.bankcards.dto.CardBulkStatusRequest;
+import com.example.bankcards.dto.CardBulkStatusResult;
 import com.example.bankcards.dto.CardCreateRequest;
 import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CursorPage;
 import com.example.bankcards.entity.CardStatus;
-import com.example.bankcards.entity.Role;
-import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.CardAccessDeniedException;
-import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtUtils;
+import com.example.bankcards.security.WithMockAuthenticatedUser;
+import com.example.bankcards.service.CardBulkStatusService;
+import com.example.bankcards.service.CardImportService;
 import com.example.bankcards.service.CardService;
 import com.example.bankcards.service.UserDetailsServiceImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -28,8 +33,6 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -38,7 +41,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(CardController.class)
 @ActiveProfiles("test")
-@Import(TestSecurityConfig.class)
+@Import({TestSecurityConfig.class, PaginationProperties.class})
 class CardControllerTest {
 
     @Autowired
@@ -51,7 +54,10 @@ class CardControllerTest {
     private CardService cardService;
 
     @MockBean
-    private UserRepository userRepository;
+    private CardImportService cardImportService;
+
+    @MockBean
+    private CardBulkStatusService cardBulkStatusService;
 
     @MockBean
     private JwtUtils jwtUtils;
@@ -72,21 +78,6 @@ class CardControllerTest {
                 .build();
     }
 
-    @BeforeEach
-    void setUp() {
-        User mockUser = User.builder()
-                .id(1L)
-                .username("testuser")
-                .password("password")
-                .email("test@bank.com")
-                .fullName("Test User")
-                .roles(Set.of(Role.ROLE_USER))
-                .build();
-
-        when(userRepository.findByUsername(anyString()))
-                .thenReturn(Optional.of(mockUser));
-    }
-
     @Test
     @WithMockUser(roles = "ADMIN")
     void createCard_Admin_Success() throws Exception {
@@ -134,7 +125,7 @@ class CardControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "user1")
+    @WithMockAuthenticatedUser(username = "user1")
     void getUserCards_Success() throws Exception {
         Page<CardResponse> page = new PageImpl<>(List.of(createTestCardResponse()));
         when(cardService.getUserCards(anyLong(), any())).thenReturn(page);
@@ -165,15 +156,61 @@ class CardControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "user1")
+    @WithMockUser(roles = "ADMIN")
+    void getAllCards_UnindexedSort_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/cards")
+                        .param("sort", "balance,desc"))
+                .andExpect(status().isBadRequest());
+
+        verify(cardService, never()).getAllCards(any());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getAllCards_WithCursor_ScrollsWithCappedPageSize() throws Exception {
+        CursorPage<CardResponse> page = CursorPage.<CardResponse>builder()
+                .content(List.of(createTestCardResponse()))
+                .size(100)
+                .hasNext(true)
+                .nextCursor("next")
+                .build();
+        when(cardService.scrollAllCards(eq("abc"), anyInt())).thenReturn(page);
+
+        mockMvc.perform(get("/cards")
+                        .param("cursor", "abc")
+                        .param("size", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1L))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+
+        verify(cardService).scrollAllCards("abc", 100);
+        verify(cardService, never()).getAllCards(any());
+    }
+
+    @Test
+    @WithMockAuthenticatedUser(username = "user1")
     void getCardBalance_Success() throws Exception {
-        when(cardService.getCardBalance(eq(1L), anyLong())).thenReturn(BigDecimal.valueOf(1000));
+        when(cardService.getCardBalance(eq(1L), any(), eq(0L)))
+                .thenReturn(new CardBalance(1L, BigDecimal.valueOf(1000), 1L, 7L));
 
         mockMvc.perform(get("/cards/1/balance"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("X-Balance-Version", "7"))
                 .andExpect(content().string("1000"));
 
-        verify(cardService).getCardBalance(eq(1L), anyLong());
+        verify(cardService).getCardBalance(eq(1L), any(), eq(0L));
+    }
+
+    @Test
+    @WithMockAuthenticatedUser(username = "user1")
+    void getCardBalance_PassesMinVersion() throws Exception {
+        when(cardService.getCardBalance(eq(1L), any(), eq(8L)))
+                .thenReturn(new CardBalance(1L, BigDecimal.valueOf(900), 1L, 8L));
+
+        mockMvc.perform(get("/cards/1/balance").header("X-Balance-Version", "8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Balance-Version", "8"));
     }
 
     @Test
@@ -199,6 +236,40 @@ class CardControllerTest {
         verify(cardService, never()).blockCard(anyLong());
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void blockCards_Admin_ReturnsOutcomePerCard() throws Exception {
+        CardBulkStatusRequest request = new CardBulkStatusRequest(List.of(1L, 2L), null, null, null);
+        when(cardBulkStatusService.blockCards(request)).thenReturn(CardBulkStatusReport.builder()
+                .targetStatus(CardStatus.BLOCKED)
+                .total(2)
+                .updated(1)
+                .notFound(1)
+                .results(List.of(new CardBulkStatusResult(1L, CardBulkStatusResult.Outcome.UPDATED),
+                        new CardBulkStatusResult(2L, CardBulkStatusResult.Outcome.NOT_FOUND)))
+                .build());
+
+        mockMvc.perform(put("/cards/bulk/block")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.results[1].outcome").value("NOT_FOUND"));
+
+        verify(cardService, never()).blockCard(anyLong());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void blockCards_User_AccessDenied() throws Exception {
+        mockMvc.perform(put("/cards/bulk/block")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ownerId\":1}"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(cardBulkStatusService);
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void deleteCard_Admin_Success() throws Exception {
@@ -220,7 +291,7 @@ class CardControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "user1")
+    @WithMockAuthenticatedUser(username = "user1")
     void searchUserCards_Success() throws Exception {
         Page<CardResponse> page = new PageImpl<>(List.of(createTestCardResponse()));
         when(cardService.searchUserCards(anyLong(), anyString(), any())).thenReturn(page);
@@ -259,19 +330,9 @@ class CardControllerTest {
     }
 
     @Test
-    @WithMockUser(username = "user2")
+    @WithMockAuthenticatedUser(id = 2L, username = "user2")
     void getCardById_NotOwner_ReturnsForbidden() throws Exception {
-        User otherUser = User.builder()
-                .id(2L)
-                .username("user2")
-                .password("password")
-                .email("user2@bank.com")
-                .fullName("User Two")
-                .roles(Set.of(Role.ROLE_USER))
-                .build();
-        when(userRepository.findByUsername("user2")).thenReturn(Optional.of(otherUser));
-
-        when(cardService.getCardById(eq(1L), eq(2L)))
+        when(cardService.getCardById(eq(1L), argThat(user -> user.getId().equals(2L))))
                 .thenThrow(new CardAccessDeniedException("Access denied to card"));
 
         mockMvc.perform(get("/cards/1"))
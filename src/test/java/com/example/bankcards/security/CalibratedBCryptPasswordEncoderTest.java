@@ -0,0 +1,31 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalibratedBCryptPasswordEncoderTest {
+
+    @Test
+    void upgradeEncoding_DifferentCost_RequiresRehash() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secret")));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secret")));
+        assertFalse(encoder.upgradeEncoding("not-a-bcrypt-hash"));
+    }
+
+    @Test
+    void calibrate_StaysWithinBounds() {
+        CalibratedBCryptPasswordEncoder tight = CalibratedBCryptPasswordEncoder.calibrate(Duration.ZERO, 4, 6);
+        CalibratedBCryptPasswordEncoder loose = CalibratedBCryptPasswordEncoder.calibrate(Duration.ofMinutes(1), 4, 6);
+
+        assertEquals(4, tight.getStrength());
+        assertEquals(6, loose.getStrength());
+        assertTrue(loose.matches("secret", loose.encode("secret")));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class JwtAuthTokenFilterTest {
+
+    private JwtUtils jwtUtils;
+    private TokenRevocationRegistry tokenRevocationRegistry;
+    private JwtAuthTokenFilter filter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "test-secret-key-for-jwt-token-generation-in-tests");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60_000);
+        jwtUtils.init();
+
+        tokenRevocationRegistry = mock(TokenRevocationRegistry.class);
+        filter = new JwtAuthTokenFilter(
+                new JwtTokenVerifier(jwtUtils, 100, Duration.ofMinutes(1)), jwtUtils, tokenRevocationRegistry);
+
+        user = User.builder()
+                .id(7L)
+                .username("testuser")
+                .roles(new HashSet<>(Set.of(Role.ROLE_USER, Role.ROLE_ADMIN)))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private MockHttpServletRequest requestWithToken() {
+        String jwt = jwtUtils.generateJwtToken(AuthenticatedUser.from(user));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cards/my");
+        request.addHeader("Authorization", "Bearer " + jwt);
+        return request;
+    }
+
+    @Test
+    void doFilter_NotRevoked_AuthenticatesFromClaims() throws Exception {
+        when(tokenRevocationRegistry.isRevoked(anyString(), eq(7L), any(Date.class))).thenReturn(false);
+
+        filter.doFilter(requestWithToken(), new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        AuthenticatedUser principal = (AuthenticatedUser) authentication.getPrincipal();
+        assertEquals(7L, principal.getId());
+        assertEquals("testuser", authentication.getName());
+        assertTrue(principal.isAdmin());
+    }
+
+    @Test
+    void doFilter_RevokedToken_LeavesRequestUnauthenticated() throws Exception {
+        when(tokenRevocationRegistry.isRevoked(anyString(), eq(7L), any(Date.class))).thenReturn(true);
+
+        filter.doFilter(requestWithToken(), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtTokenVerifierTest {
+
+    private static final String SECRET = "test-secret-key-for-jwt-token-generation-in-tests";
+
+    private JwtUtils jwtUtils;
+    private JwtTokenVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = spy(new JwtUtils());
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60_000);
+        jwtUtils.init();
+
+        verifier = new JwtTokenVerifier(jwtUtils, 100, Duration.ofMinutes(1));
+    }
+
+    private String token(String secret, long ttlMs) {
+        return Jwts.builder()
+                .setSubject("testuser")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + ttlMs))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes()), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Test
+    void verify_ValidToken_ParsesOnce() {
+        String jwt = token(SECRET, 60_000);
+
+        Optional<Claims> first = verifier.verify(jwt);
+        Optional<Claims> second = verifier.verify(jwt);
+
+        assertTrue(first.isPresent());
+        assertEquals("testuser", second.orElseThrow().getSubject());
+        verify(jwtUtils, times(1)).parseClaims(jwt);
+    }
+
+    @Test
+    void verify_BadSignature_IsNegativelyCached() {
+        String jwt = token("another-secret-key-that-is-long-enough-for-hs256", 60_000);
+
+        assertTrue(verifier.verify(jwt).isEmpty());
+        assertTrue(verifier.verify(jwt).isEmpty());
+        verify(jwtUtils, times(1)).parseClaims(jwt);
+    }
+
+    @Test
+    void verify_Garbage_ReturnsEmpty() {
+        assertTrue(verifier.verify("not-a-jwt").isEmpty());
+    }
+
+    @Test
+    void verify_ExpiredToken_ReturnsEmpty() {
+        String jwt = token(SECRET, -1_000);
+
+        assertTrue(verifier.verify(jwt).isEmpty());
+    }
+
+    @Test
+    void verify_TokenExpiresWhileCached_ReturnsEmpty() throws Exception {
+        String jwt = token(SECRET, 2_500);
+        assertTrue(verifier.verify(jwt).isPresent());
+
+        Thread.sleep(2_600);
+
+        assertTrue(verifier.verify(jwt).isEmpty());
+    }
+}
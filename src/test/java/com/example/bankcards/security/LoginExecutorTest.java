@@ -0,0 +1,84 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.LoginCapacityExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginExecutor loginExecutor;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loginExecutor = new LoginExecutor(meterRegistry, 1, 1, Duration.ofSeconds(5));
+        callers = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        loginExecutor.shutdown();
+    }
+
+    @Test
+    void execute_ReturnsTaskResult() {
+        assertEquals("ok", loginExecutor.execute("login", () -> "ok"));
+        assertEquals(1, meterRegistry.get("auth.login.duration").tag("operation", "login").timer().count());
+    }
+
+    @Test
+    void execute_PropagatesTaskException() {
+        assertThrows(BadCredentialsException.class, () -> loginExecutor.execute("login", () -> {
+            throw new BadCredentialsException("Bad credentials");
+        }));
+    }
+
+    @Test
+    void execute_QueueFull_RejectsImmediately() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Один поток занят, единственное место в очереди тоже
+        callers.submit(() -> loginExecutor.execute("login", () -> {
+            started.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        callers.submit(() -> loginExecutor.execute("login", () -> null));
+        waitForQueued();
+
+        assertThrows(LoginCapacityExceededException.class, () -> loginExecutor.execute("login", () -> "late"));
+        assertEquals(1.0, meterRegistry.get("auth.login.rejected").counter().count());
+
+        release.countDown();
+    }
+
+    private void waitForQueued() throws InterruptedException {
+        for (int i = 0; i < 100 && meterRegistry.get("executor.queued").gauge().value() < 1; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import com.example.bankcards.config.RateLimitProperties.KeyType;
+import com.example.bankcards.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getRules().put("login-ip", rule("POST", "/auth/login", KeyType.IP, 2));
+        properties.getRules().put("login-user", rule("POST", "/auth/login", KeyType.USER_IP, 3));
+        properties.getRules().put("transfer-user", rule("POST", "/transfers", KeyType.USER, 1));
+
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new RateLimiter(properties, meterRegistry);
+    }
+
+    private static RateLimitProperties.Rule rule(String method, String path, KeyType key, int capacity) {
+        RateLimitProperties.Rule rule = new RateLimitProperties.Rule();
+        rule.setMethod(method);
+        rule.setPath(path);
+        rule.setKey(key);
+        rule.setCapacity(capacity);
+        rule.setPeriod(Duration.ofHours(1));
+        return rule;
+    }
+
+    @Test
+    void check_AllowsBurstUpToCapacityPerKey() {
+        rateLimiter.check("POST", "/auth/login", "10.0.0.1", null);
+        rateLimiter.check("POST", "/auth/login", "10.0.0.1", null);
+
+        RateLimitExceededException ex = assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.check("POST", "/auth/login", "10.0.0.1", null));
+        assertTrue(ex.getRetryAfterSeconds() > 0);
+        assertEquals(1.0, meterRegistry.get("http.rate_limit.rejected").tag("rule", "login-ip").counter().count());
+
+        // Другой IP и другой метод не затронуты
+        assertDoesNotThrow(() -> rateLimiter.check("POST", "/auth/login", "10.0.0.2", null));
+        assertDoesNotThrow(() -> rateLimiter.check("GET", "/auth/login", "10.0.0.1", null));
+    }
+
+    @Test
+    void check_UserRuleSkippedForAnonymousRequest() {
+        assertDoesNotThrow(() -> rateLimiter.check("POST", "/transfers", "10.0.0.1", null));
+        assertDoesNotThrow(() -> rateLimiter.check("POST", "/transfers", "10.0.0.1", null));
+
+        rateLimiter.check("POST", "/transfers", "10.0.0.1", "alice");
+        assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.check("POST", "/transfers", "10.0.0.1", "alice"));
+    }
+
+    @Test
+    void checkUser_AppliesOnlyUserRules() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.checkUser("POST", "/auth/login", "10.0.0.1", "alice");
+        }
+
+        assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.checkUser("POST", "/auth/login", "10.0.0.1", "alice"));
+        assertDoesNotThrow(() -> rateLimiter.checkUser("POST", "/auth/login", "10.0.0.1", "bob"));
+    }
+
+    @Test
+    void checkUser_AttemptsFromOtherIpDoNotLockOutOwner() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.checkUser("POST", "/auth/login", "10.6.6.6", "alice");
+        }
+        assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.checkUser("POST", "/auth/login", "10.6.6.6", "alice"));
+
+        assertDoesNotThrow(() -> rateLimiter.checkUser("POST", "/auth/login", "10.0.0.1", "alice"));
+    }
+
+    @Test
+    void filter_RejectedRequest_Returns429WithRetryAfter() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(rateLimiter);
+
+        MockHttpServletResponse response = null;
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+            request.setServletPath("/auth/login");
+            request.setRemoteAddr("10.0.0.3");
+            response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+        }
+
+        assertEquals(429, response.getStatus());
+        assertNotNull(response.getHeader("Retry-After"));
+    }
+}
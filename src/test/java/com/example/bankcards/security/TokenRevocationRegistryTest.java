@@ -0,0 +1,92 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.TokenRevocation;
+import com.example.bankcards.repository.TokenRevocationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationRegistryTest {
+
+    private static final long TTL_MS = 15 * 60 * 1000;
+
+    private TokenRevocationRepository repository;
+    private TokenRevocationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TokenRevocationRepository.class);
+        when(repository.save(any(TokenRevocation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        registry = new TokenRevocationRegistry(repository, new SimpleMeterRegistry(), TTL_MS, 1_000, 0.01, true);
+    }
+
+    @Test
+    void revokeToken_OnlyThatTokenIsRevoked() {
+        Date issuedAt = new Date();
+        registry.revokeToken("jti-1", new Date(System.currentTimeMillis() + TTL_MS));
+
+        assertTrue(registry.isRevoked("jti-1", 1L, issuedAt));
+        assertFalse(registry.isRevoked("jti-2", 1L, issuedAt));
+        verify(repository).save(any(TokenRevocation.class));
+    }
+
+    @Test
+    void revokeAllTokens_RejectsTokensIssuedBefore() throws Exception {
+        Date issuedBefore = new Date(System.currentTimeMillis() - 1_000);
+        registry.revokeAllTokens(7L);
+        Thread.sleep(5);
+        Date issuedAfter = new Date(System.currentTimeMillis() + 1_000);
+
+        assertTrue(registry.isRevoked("jti-1", 7L, issuedBefore));
+        assertFalse(registry.isRevoked("jti-2", 7L, issuedAfter));
+        assertFalse(registry.isRevoked("jti-3", 8L, issuedBefore));
+    }
+
+    @Test
+    void revokeAllTokens_ComparesAtJwtSecondPrecision() {
+        // iat в JWT без миллисекунд, как его возвращает парсер
+        long issuedSecond = System.currentTimeMillis() / 1000 * 1000;
+        registry.revokeAllTokens(7L);
+
+        assertTrue(registry.isRevoked("jti-1", 7L, new Date(issuedSecond)));
+        assertFalse(registry.isRevoked("jti-2", 7L, new Date(issuedSecond + 60_000)));
+
+        ArgumentCaptor<TokenRevocation> saved = ArgumentCaptor.forClass(TokenRevocation.class);
+        verify(repository).save(saved.capture());
+        assertEquals(0, saved.getValue().getNotBefore().getNano());
+    }
+
+    @Test
+    void load_RestoresStateFromTable() {
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of(
+                TokenRevocation.builder().tokenId("jti-db").expiresAt(LocalDateTime.now().plusMinutes(5)).build(),
+                TokenRevocation.builder().userId(9L).notBefore(LocalDateTime.now())
+                        .expiresAt(LocalDateTime.now().plusMinutes(15)).build()));
+
+        registry.load();
+
+        assertTrue(registry.isRevoked("jti-db", 1L, new Date()));
+        assertTrue(registry.isRevoked(null, 9L, new Date(System.currentTimeMillis() - 60_000)));
+    }
+
+    @Test
+    void revokeToken_BeyondFilterCapacity_StillExact() {
+        for (int i = 0; i < 2_500; i++) {
+            registry.revokeToken("jti-" + i, new Date(System.currentTimeMillis() + TTL_MS));
+        }
+
+        for (int i = 0; i < 2_500; i++) {
+            assertTrue(registry.isRevoked("jti-" + i, 1L, new Date()));
+        }
+        assertFalse(registry.isRevoked("jti-absent", 1L, new Date()));
+    }
+}
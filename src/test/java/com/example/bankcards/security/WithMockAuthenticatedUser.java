@@ -0,0 +1,21 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import org.springframework.security.test.context.support.WithSecurityContext;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@WithSecurityContext(factory = WithMockAuthenticatedUserSecurityContextFactory.class)
+public @interface WithMockAuthenticatedUser {
+
+    long id() default 1L;
+
+    String username() default "testuser";
+
+    Role[] roles() default {Role.ROLE_USER};
+}
@@ -0,0 +1,28 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.support.WithSecurityContextFactory;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+public class WithMockAuthenticatedUserSecurityContextFactory
+        implements WithSecurityContextFactory<WithMockAuthenticatedUser> {
+
+    @Override
+    public SecurityContext createSecurityContext(WithMockAuthenticatedUser annotation) {
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        roles.addAll(List.of(annotation.roles()));
+
+        AuthenticatedUser principal = new AuthenticatedUser(annotation.id(), annotation.username(), roles);
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, principal.getAuthorities()));
+        return context;
+    }
+}
@@ -3,26 +3,40 @@ package com.example.bankcards.service;
 import com.example.bankcards.dto.LoginRequest;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.event.UserSecurityChangedEvent;
 import com.example.bankcards.exception.EmailAlreadyExistsException;
 import com.example.bankcards.exception.UsernameAlreadyExistsException;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.JwtTokenVerifier;
 import com.example.bankcards.security.JwtUtils;
+import com.example.bankcards.security.LoginExecutor;
+import com.example.bankcards.security.RateLimiter;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import com.example.bankcards.security.UserSecuritySnapshot;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.Date;
 import java.util.HashSet;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +54,24 @@ class AuthServiceTest {
     @Mock
     private JwtUtils jwtUtils;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private LoginExecutor loginExecutor;
+
+    @Mock
+    private RateLimiter rateLimiter;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private JwtTokenVerifier jwtTokenVerifier;
+
+    @Mock
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     @InjectMocks
     private AuthService authService;
 
@@ -58,6 +90,9 @@ class AuthServiceTest {
                 .build();
 
         loginRequest = new LoginRequest("testuser", "password");
+
+        lenient().when(loginExecutor.execute(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
     }
 
     @Test
@@ -65,10 +100,11 @@ class AuthServiceTest {
         Authentication authentication = mock(Authentication.class);
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(authentication);
-        when(authentication.getPrincipal()).thenReturn(testUser);
-        when(jwtUtils.generateJwtToken(authentication)).thenReturn("jwtToken");
+        when(authentication.getPrincipal()).thenReturn(UserSecuritySnapshot.from(testUser));
+        when(jwtUtils.generateJwtToken(any(AuthenticatedUser.class))).thenReturn("jwtToken");
+        when(refreshTokenService.issue(1L)).thenReturn("refreshToken");
 
-        var result = authService.authenticateUser(loginRequest);
+        var result = authService.authenticateUser(loginRequest, "10.0.0.1");
 
         assertNotNull(result);
         assertEquals("jwtToken", result.getToken());
@@ -77,9 +113,36 @@ class AuthServiceTest {
         assertEquals("testuser", result.getUsername());
         assertEquals("test@bank.com", result.getEmail());
         assertTrue(result.getRoles().contains("ROLE_USER"));
+        assertEquals("refreshToken", result.getRefreshToken());
         verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
     }
 
+    @Test
+    void refreshToken_IssuesNewPairWithoutPasswordCheck() {
+        when(refreshTokenService.rotate("oldRefresh"))
+                .thenReturn(new RefreshTokenService.Rotation(testUser, "newRefresh"));
+        when(jwtUtils.generateJwtToken(any(AuthenticatedUser.class))).thenReturn("jwtToken");
+
+        var result = authService.refreshToken("oldRefresh");
+
+        assertEquals("jwtToken", result.getToken());
+        assertEquals("newRefresh", result.getRefreshToken());
+        assertEquals("testuser", result.getUsername());
+        verifyNoInteractions(authenticationManager, loginExecutor);
+    }
+
+    @Test
+    void logout_RevokesRefreshFamilyAndAccessToken() {
+        Date expiration = new Date((System.currentTimeMillis() / 1000 + 60) * 1000);
+        Claims claims = Jwts.claims().setId("jti-1").setExpiration(expiration);
+        when(jwtTokenVerifier.verify("accessToken")).thenReturn(Optional.of(claims));
+
+        authService.logout("refreshToken", "accessToken");
+
+        verify(refreshTokenService).revokeFamily("refreshToken");
+        verify(tokenRevocationRegistry).revokeToken("jti-1", expiration);
+    }
+
     @Test
     void registerUser_Success() {
         when(userRepository.existsByUsername("newuser")).thenReturn(false);
@@ -96,6 +159,7 @@ class AuthServiceTest {
         assertEquals("New User", result.getFullName());
         assertTrue(result.getRoles().contains(Role.ROLE_USER));
         verify(userRepository).save(any(User.class));
+        verify(eventPublisher).publishEvent(any(UserSecurityChangedEvent.class));
     }
 
     @Test
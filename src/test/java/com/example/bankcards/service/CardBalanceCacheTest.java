@@ -0,0 +1,101 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardBalance;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CardBalanceCacheTest {
+
+    private final CardRepository cardRepository = mock(CardRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void get_ReadsDatabaseOnceWhileFresh() {
+        CardBalanceCache cache = cache(Duration.ofMinutes(1));
+        when(cardRepository.findBalanceById(1L)).thenReturn(Optional.of(balance(100, 3)));
+
+        cache.get(1L, 0L);
+        Optional<CardBalance> result = cache.get(1L, 3L);
+
+        assertEquals(BigDecimal.valueOf(100), result.orElseThrow().balance());
+        verify(cardRepository, times(1)).findBalanceById(1L);
+        assertEquals(1.0, meterRegistry.get("cards.balance.db.reads").counter().count());
+    }
+
+    @Test
+    void get_NewerVersionRequested_ReadsDatabase() {
+        CardBalanceCache cache = cache(Duration.ofMinutes(1));
+        when(cardRepository.findBalanceById(1L))
+                .thenReturn(Optional.of(balance(100, 3)))
+                .thenReturn(Optional.of(balance(80, 4)));
+
+        cache.get(1L, 0L);
+
+        assertEquals(4L, cache.get(1L, 4L).orElseThrow().version());
+        assertEquals(4L, cache.get(1L, 0L).orElseThrow().version());
+        verify(cardRepository, times(2)).findBalanceById(1L);
+    }
+
+    @Test
+    void updated_KeepsHigherVersion() {
+        CardBalanceCache cache = cache(Duration.ofMinutes(1));
+        cache.updated(card(70, 5));
+        cache.updated(card(100, 3));
+
+        CardBalance result = cache.get(1L, 0L).orElseThrow();
+
+        assertEquals(BigDecimal.valueOf(70), result.balance());
+        assertEquals(5L, result.version());
+        verify(cardRepository, never()).findBalanceById(any());
+    }
+
+    @Test
+    void evict_AndMissingCard_ReadDatabase() {
+        CardBalanceCache cache = cache(Duration.ofMinutes(1));
+        cache.updated(card(70, 5));
+        cache.evict(1L);
+        when(cardRepository.findBalanceById(1L)).thenReturn(Optional.empty());
+
+        assertTrue(cache.get(1L, 0L).isEmpty());
+        verify(cardRepository).findBalanceById(1L);
+    }
+
+    @Test
+    void zeroStaleness_DisablesCache() {
+        CardBalanceCache cache = cache(Duration.ZERO);
+        when(cardRepository.findBalanceById(1L)).thenReturn(Optional.of(balance(100, 3)));
+        cache.updated(card(70, 5));
+
+        cache.get(1L, 0L);
+        cache.get(1L, 0L);
+
+        verify(cardRepository, times(2)).findBalanceById(1L);
+    }
+
+    private CardBalanceCache cache(Duration maxStaleness) {
+        return new CardBalanceCache(cardRepository, meterRegistry, 100, maxStaleness);
+    }
+
+    private static CardBalance balance(long amount, long version) {
+        return new CardBalance(1L, BigDecimal.valueOf(amount), 7L, version);
+    }
+
+    private static Card card(long amount, long version) {
+        return Card.builder()
+                .id(1L)
+                .balance(BigDecimal.valueOf(amount))
+                .balanceVersion(version)
+                .owner(User.builder().id(7L).build())
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CardNumberRegistryTest {
+
+    private CardRepository cardRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private CardNumberRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        when(cardRepository.findNumberKeysAfter(anyLong(), any(Pageable.class))).thenReturn(List.of());
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new CardNumberRegistry(cardRepository, meterRegistry, 1_000, 0.01);
+    }
+
+    @Test
+    void load_ContainsHmacsAndLegacyHashes() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, new byte[]{1, 2, 3}, null});
+        rows.add(new Object[]{2L, null, "legacy-hash"});
+        when(cardRepository.findNumberKeysAfter(eq(0L), any(Pageable.class))).thenReturn(rows);
+
+        registry.load();
+
+        assertTrue(registry.mightExist(new byte[]{1, 2, 3}, "other-hash"));
+        assertTrue(registry.mightExist(new byte[]{9}, "legacy-hash"));
+        assertFalse(registry.mightExist(new byte[]{4, 5, 6}, "other-hash"));
+        assertEquals(1, meterRegistry.get("cards.uniqueness.checks").tag("result", "skipped").counter().count());
+    }
+
+    @Test
+    void register_AddsIssuedCard() {
+        registry.load();
+        assertFalse(registry.mightExist(new byte[]{7, 7}, "hash"));
+
+        registry.register(new byte[]{7, 7});
+
+        assertTrue(registry.mightExist(new byte[]{7, 7}, "hash"));
+    }
+
+    @Test
+    void rebuild_DropsDeletedCards() {
+        registry.register(new byte[]{7, 7});
+
+        registry.rebuild();
+
+        assertFalse(registry.mightExist(new byte[]{7, 7}, "hash"));
+        assertTrue(meterRegistry.get("cards.uniqueness.bloom.size").gauge().value() > 0);
+    }
+}
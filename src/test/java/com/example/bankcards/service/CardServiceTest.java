@@ -1,19 +1,25 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardBalance;
 import com.example.bankcards.dto.CardCreateRequest;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardSummary;
 import com.example.bankcards.entity.*;
 import com.example.bankcards.exception.*;
 import com.example.bankcards.repository.CardBlockRequestRepository;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.AuthenticatedUser;
 import com.example.bankcards.util.CardNumberMasker;
 import com.example.bankcards.util.EncryptionUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
@@ -47,6 +53,21 @@ class CardServiceTest {
     @Mock
     private CardBlockRequestRepository cardBlockRequestRepository;
 
+    @Mock
+    private CardNumberRegistry cardNumberRegistry;
+
+    @Mock
+    private CardSearchIndex cardSearchIndex;
+
+    @Mock
+    private CardExpiryWheel cardExpiryWheel;
+
+    @Mock
+    private CardBalanceCache cardBalanceCache;
+
+    @Mock
+    private CardStatistics cardStatistics;
+
     @InjectMocks
     private CardService cardService;
 
@@ -64,14 +85,14 @@ class CardServiceTest {
 
         testCard = Card.builder()
                 .id(1L)
-                .cardNumberEncrypted("encrypted")
-                .cardNumberHash("hash")
+                .cardNumberCiphertext(new byte[]{1})
+                .cardNumberHmac(new byte[]{2})
                 .cardNumberLastFour("1111")
                 .cardHolderName("Test User")
                 .expirationDate(LocalDate.now().plusYears(1))
                 .status(CardStatus.ACTIVE)
                 .balance(BigDecimal.valueOf(1000))
-                .cvvEncrypted("encryptedCVV")
+                .cvvCiphertext(new byte[]{3})
                 .owner(testUser)
                 .build();
 
@@ -93,12 +114,13 @@ class CardServiceTest {
     void createCard_Success() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
-        when(encryptionUtil.encrypt("4111111111111111")).thenReturn("encrypted");
-        when(encryptionUtil.encrypt("123")).thenReturn("encryptedCVV");
+        when(encryptionUtil.encrypt(any(byte[].class))).thenReturn(new byte[]{1});
         when(encryptionUtil.hash("4111111111111111")).thenReturn("cardHash");
+        byte[] cardHmac = {9, 9};
+        when(encryptionUtil.hmac("4111111111111111")).thenReturn(cardHmac);
 
-        when(cardRepository.findByCardNumberHash("cardHash")).thenReturn(Optional.empty());
-        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> {
+        when(cardNumberRegistry.mightExist(cardHmac, "cardHash")).thenReturn(false);
+        when(cardRepository.saveAndFlush(any(Card.class))).thenAnswer(invocation -> {
             Card card = invocation.getArgument(0);
             card.setId(1L);
             card.setCardNumberLastFour("1111");
@@ -110,7 +132,49 @@ class CardServiceTest {
 
         assertNotNull(result);
         assertEquals(1L, result.getId());
-        verify(cardRepository).save(any(Card.class));
+        ArgumentCaptor<Card> saved = ArgumentCaptor.forClass(Card.class);
+        verify(cardRepository).saveAndFlush(saved.capture());
+        assertArrayEquals(cardHmac, saved.getValue().getCardNumberHmac());
+        assertArrayEquals(new byte[]{1}, saved.getValue().getCvvCiphertext());
+        assertNull(saved.getValue().getCardNumberHash());
+        assertNull(saved.getValue().getCardNumberEncrypted());
+        verify(cardRepository, never()).findByCardNumber(any(), any());
+        verify(cardNumberRegistry).register(cardHmac);
+        verify(cardSearchIndex).put(1L, "Test User", "1111");
+        verify(cardExpiryWheel).schedule(1L, createRequest.getExpirationDate());
+        verify(cardBalanceCache).updated(any(Card.class));
+    }
+
+    @Test
+    void createCard_FilterFalsePositive_ChecksDatabase() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(encryptionUtil.hash("4111111111111111")).thenReturn("cardHash");
+        when(encryptionUtil.encrypt(any(byte[].class))).thenReturn(new byte[]{1});
+        when(cardNumberRegistry.mightExist(any(), eq("cardHash"))).thenReturn(true);
+        when(cardRepository.findByCardNumber(any(), eq("cardHash"))).thenReturn(Optional.empty());
+        when(cardRepository.saveAndFlush(any(Card.class))).thenAnswer(invocation -> {
+            Card card = invocation.getArgument(0);
+            card.setId(1L);
+            return card;
+        });
+
+        cardService.createCard(createRequest);
+
+        verify(cardNumberRegistry).recordLookup(false);
+        verify(cardRepository).saveAndFlush(any(Card.class));
+    }
+
+    @Test
+    void createCard_UniqueIndexConflict_ThrowsCardNumberAlreadyExists() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(encryptionUtil.hash("4111111111111111")).thenReturn("cardHash");
+        when(encryptionUtil.encrypt(any(byte[].class))).thenReturn(new byte[]{1});
+        when(cardRepository.saveAndFlush(any(Card.class))).thenThrow(new DataIntegrityViolationException(
+                "duplicate key value violates unique constraint \"idx_cards_card_number_hmac\""));
+
+        assertThrows(CardNumberAlreadyExistsException.class,
+                () -> cardService.createCard(createRequest));
+        verify(cardNumberRegistry, never()).register(any());
     }
 
     @Test
@@ -119,33 +183,38 @@ class CardServiceTest {
 
         assertThrows(UserNotFoundException.class,
                 () -> cardService.createCard(createRequest));
-        verify(cardRepository, never()).save(any(Card.class));
+        verify(cardRepository, never()).saveAndFlush(any(Card.class));
     }
 
     @Test
     void createCard_CardAlreadyExists_ThrowsException() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
         when(encryptionUtil.hash("4111111111111111")).thenReturn("cardHash");
-        when(cardRepository.findByCardNumberHash("cardHash")).thenReturn(Optional.of(testCard));
+        when(cardNumberRegistry.mightExist(any(), eq("cardHash"))).thenReturn(true);
+        when(cardRepository.findByCardNumber(any(), eq("cardHash"))).thenReturn(Optional.of(testCard));
 
-        assertThrows(IllegalArgumentException.class,
+        assertThrows(CardNumberAlreadyExistsException.class,
                 () -> cardService.createCard(createRequest));
-        verify(cardRepository, never()).save(any(Card.class));
+        verify(cardRepository, never()).saveAndFlush(any(Card.class));
     }
 
     @Test
     void getUserCards_Success() {
         Pageable pageable = Pageable.ofSize(10);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(cardRepository.findByOwner(testUser, pageable))
-                .thenReturn(new PageImpl<>(List.of(testCard)));
+        CardSummary summary = new CardSummary(1L, "1111", "Test User", LocalDate.now().minusDays(1),
+                CardStatus.EXPIRED, BigDecimal.TEN, 1L, "Test Owner", null, null);
+        when(cardRepository.findSummariesByOwnerId(1L, pageable))
+                .thenReturn(new PageImpl<>(List.of(summary)));
         when(cardNumberMasker.maskCardNumber("1111")).thenReturn("**** **** **** 1111");
 
         var result = cardService.getUserCards(1L, pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getTotalElements());
-        assertEquals(testCard.getId(), result.getContent().get(0).getId());
+        CardResponse card = result.getContent().get(0);
+        assertEquals(1L, card.getId());
+        assertEquals("Test Owner", card.getOwnerName());
+        assertEquals(CardStatus.EXPIRED, card.getStatus());
     }
 
     @Test
@@ -159,6 +228,7 @@ class CardServiceTest {
         assertNotNull(result);
         assertEquals(CardStatus.BLOCKED, testCard.getStatus());
         verify(cardRepository).save(testCard);
+        verify(cardStatistics).statusChanged(CardStatus.ACTIVE, CardStatus.BLOCKED, BigDecimal.valueOf(1000));
     }
 
     @Test
@@ -174,7 +244,7 @@ class CardServiceTest {
     @Test
     void requestCardBlock_Success() {
         when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.getReferenceById(1L)).thenReturn(testUser);
         when(cardBlockRequestRepository.findPendingRequestForCard(1L))
                 .thenReturn(Optional.empty());
         when(cardBlockRequestRepository.save(any(CardBlockRequest.class)))
@@ -199,7 +269,6 @@ class CardServiceTest {
         User otherUser = User.builder().id(2L).build();
         testCard.setOwner(otherUser);
         when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
         assertThrows(CardNotOwnedException.class,
                 () -> cardService.requestCardBlock(1L, 1L, "Lost card"));
@@ -208,13 +277,21 @@ class CardServiceTest {
 
     @Test
     void getCardBalance_Success() {
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(cardBalanceCache.get(1L, 0L)).thenReturn(Optional.of(CardBalance.from(testCard)));
 
-        var result = cardService.getCardBalance(1L, 1L);
+        var result = cardService.getCardBalance(1L, AuthenticatedUser.from(testUser), 0L);
 
-        assertNotNull(result);
-        assertEquals(BigDecimal.valueOf(1000), result);
+        assertEquals(BigDecimal.valueOf(1000), result.balance());
+        assertEquals(0L, result.version());
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void getCardBalance_NotFound_ThrowsException() {
+        when(cardBalanceCache.get(1L, 3L)).thenReturn(Optional.empty());
+
+        assertThrows(CardNotFoundException.class,
+                () -> cardService.getCardBalance(1L, AuthenticatedUser.from(testUser), 3L));
     }
 
     @Test
@@ -223,13 +300,11 @@ class CardServiceTest {
                 .id(2L)
                 .roles(new HashSet<>(Set.of(Role.ROLE_ADMIN)))
                 .build();
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(admin));
+        when(cardBalanceCache.get(1L, 0L)).thenReturn(Optional.of(CardBalance.from(testCard)));
 
-        var result = cardService.getCardBalance(1L, 2L);
+        var result = cardService.getCardBalance(1L, AuthenticatedUser.from(admin), 0L);
 
-        assertNotNull(result);
-        assertEquals(BigDecimal.valueOf(1000), result);
+        assertEquals(BigDecimal.valueOf(1000), result.balance());
     }
 
     @Test
@@ -238,11 +313,10 @@ class CardServiceTest {
                 .id(2L)
                 .roles(new HashSet<>(Set.of(Role.ROLE_USER)))
                 .build();
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(otherUser));
+        when(cardBalanceCache.get(1L, 0L)).thenReturn(Optional.of(CardBalance.from(testCard)));
 
         assertThrows(CardAccessDeniedException.class,
-                () -> cardService.getCardBalance(1L, 2L));
+                () -> cardService.getCardBalance(1L, AuthenticatedUser.from(otherUser), 0L));
     }
 
     @Test
@@ -255,6 +329,44 @@ class CardServiceTest {
         cardService.deleteCard(1L);
 
         verify(cardRepository).delete(testCard);
+        verify(cardSearchIndex).remove(1L);
+        verify(cardExpiryWheel).cancel(1L);
+        verify(cardBalanceCache).evict(1L);
+        verify(cardStatistics).cardDeleted(CardStatus.ACTIVE, BigDecimal.ZERO);
+    }
+
+    @Test
+    void searchUserCards_IndexReady_ChecksOnlyCandidates() {
+        Pageable pageable = Pageable.ofSize(10);
+        CardSummary summary = new CardSummary(2L, "2222", "Anna Ivanova", LocalDate.now().plusYears(1),
+                CardStatus.ACTIVE, BigDecimal.TEN, 1L, "Test Owner", null, null);
+        when(cardSearchIndex.isReady()).thenReturn(true);
+        when(cardRepository.findIdsByOwnerId(1L)).thenReturn(List.of(1L, 2L, 3L));
+        when(cardSearchIndex.filter(List.of(1L, 2L, 3L), "anna")).thenReturn(List.of(2L));
+        when(cardRepository.findSummariesByIdInAndSearch(List.of(2L), "anna", null, pageable))
+                .thenReturn(new PageImpl<>(List.of(summary)));
+
+        var result = cardService.searchUserCards(1L, "anna", pageable);
+
+        assertEquals(List.of(2L), result.getContent().stream().map(CardResponse::getId).toList());
+        verify(cardRepository, never()).findSummariesByOwnerIdAndSearch(any(), any(), any(), any());
+    }
+
+    @Test
+    void searchUserCards_NoCandidates_SkipsCardQuery() {
+        when(cardSearchIndex.isReady()).thenReturn(true);
+        when(cardRepository.findIdsByOwnerId(1L)).thenReturn(List.of(1L));
+        when(cardSearchIndex.filter(List.of(1L), "zzz")).thenReturn(List.of());
+
+        var result = cardService.searchUserCards(1L, "zzz", Pageable.ofSize(10));
+
+        assertTrue(result.isEmpty());
+        verify(cardRepository, never()).findSummariesByIdInAndSearch(any(), any(), any(), any());
+    }
+
+    @Test
+    void searchAllCards_ShortQuery_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> cardService.searchAllCards("ab", null, 20));
     }
 
     @Test
@@ -273,12 +385,10 @@ class CardServiceTest {
                 .id(2L)
                 .roles(new HashSet<>(Set.of(Role.ROLE_USER)))
                 .build();
-        when(userRepository.findById(2L)).thenReturn(Optional.of(otherUser));
-
         when(cardRepository.findByIdWithOwner(1L)).thenReturn(Optional.of(testCard));
 
         assertThrows(CardAccessDeniedException.class,
-                () -> cardService.getCardById(1L, 2L));
+                () -> cardService.getCardById(1L, AuthenticatedUser.from(otherUser)));
     }
 
     @Test
@@ -287,11 +397,10 @@ class CardServiceTest {
                 .id(3L)
                 .roles(new HashSet<>(Set.of(Role.ROLE_ADMIN)))
                 .build();
-        when(userRepository.findById(3L)).thenReturn(Optional.of(admin));
         when(cardRepository.findByIdWithOwner(1L)).thenReturn(Optional.of(testCard));
         when(cardNumberMasker.maskCardNumber("1111")).thenReturn("**** **** **** 1111");
 
-        var result = cardService.getCardById(1L, 3L);
+        var result = cardService.getCardById(1L, AuthenticatedUser.from(admin));
 
         assertNotNull(result);
         assertEquals(1L, result.getId());
@@ -310,7 +419,6 @@ class CardServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
         when(encryptionUtil.hash("4111111111111111")).thenReturn("cardHash");
-        when(cardRepository.findByCardNumberHash("cardHash")).thenReturn(Optional.empty());
 
         Exception exception = assertThrows(IllegalArgumentException.class,
                 () -> cardService.createCard(request));
@@ -333,7 +441,6 @@ class CardServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
         when(encryptionUtil.hash("4111111111111111")).thenReturn("cardHash");
-        when(cardRepository.findByCardNumberHash("cardHash")).thenReturn(Optional.empty());
 
         Exception exception = assertThrows(IllegalArgumentException.class,
                 () -> cardService.createCard(request));
@@ -354,10 +461,8 @@ class CardServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
         when(encryptionUtil.hash("4111111111111111")).thenReturn("cardHash");
-        when(cardRepository.findByCardNumberHash("cardHash")).thenReturn(Optional.empty());
-        when(encryptionUtil.encrypt("4111111111111111")).thenReturn("encrypted");
-        when(encryptionUtil.encrypt("123")).thenReturn("encryptedCVV");
-        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> {
+        when(encryptionUtil.encrypt(any(byte[].class))).thenReturn(new byte[]{1});
+        when(cardRepository.saveAndFlush(any(Card.class))).thenAnswer(invocation -> {
             Card card = invocation.getArgument(0);
             card.setId(1L);
             card.setCardNumberLastFour("1111");
@@ -369,6 +474,6 @@ class CardServiceTest {
 
         assertNotNull(result);
         assertEquals(1L, result.getId());
-        verify(cardRepository).save(any(Card.class));
+        verify(cardRepository).saveAndFlush(any(Card.class));
     }
 }
\ No newline at end of file
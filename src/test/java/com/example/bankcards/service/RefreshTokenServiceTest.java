@@ -0,0 +1,131 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.EncryptionUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EncryptionUtil encryptionUtil;
+
+    @InjectMocks
+    private RefreshTokenService refreshTokenService;
+
+    private User user;
+    private RefreshToken current;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(refreshTokenService, "refreshExpiration", Duration.ofDays(30));
+
+        user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .roles(Set.of(Role.ROLE_USER))
+                .active(true)
+                .build();
+
+        current = RefreshToken.builder()
+                .id(10L)
+                .user(user)
+                .familyId("family-1")
+                .tokenHash("hash-old")
+                .expiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+
+        lenient().when(encryptionUtil.hash(anyString())).thenAnswer(invocation -> "hash-" + invocation.getArgument(0));
+    }
+
+    @Test
+    void rotate_ValidToken_IssuesNewTokenInSameFamily() {
+        when(refreshTokenRepository.findByTokenHashWithUser("hash-old")).thenReturn(Optional.of(current));
+        when(refreshTokenRepository.markUsed(eq(10L), any())).thenReturn(1);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate("old");
+
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertSame(user, rotation.user());
+        assertNotEquals("old", rotation.refreshToken());
+        assertEquals("family-1", saved.getValue().getFamilyId());
+        assertEquals("hash-" + rotation.refreshToken(), saved.getValue().getTokenHash());
+        verify(refreshTokenRepository, never()).revokeFamily(anyString(), any());
+    }
+
+    @Test
+    void rotate_ReusedToken_RevokesWholeFamily() {
+        current.setRevokedAt(LocalDateTime.now().minusMinutes(1));
+        when(refreshTokenRepository.findByTokenHashWithUser("hash-old")).thenReturn(Optional.of(current));
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate("old"));
+
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rotate_ConcurrentRotationLost_RevokesWholeFamily() {
+        when(refreshTokenRepository.findByTokenHashWithUser("hash-old")).thenReturn(Optional.of(current));
+        when(refreshTokenRepository.markUsed(eq(10L), any())).thenReturn(0);
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate("old"));
+
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any());
+    }
+
+    @Test
+    void rotate_ExpiredToken_ThrowsException() {
+        current.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        when(refreshTokenRepository.findByTokenHashWithUser("hash-old")).thenReturn(Optional.of(current));
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate("old"));
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rotate_BlockedUser_RevokesFamily() {
+        user.setActive(false);
+        when(refreshTokenRepository.findByTokenHashWithUser("hash-old")).thenReturn(Optional.of(current));
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate("old"));
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any());
+    }
+
+    @Test
+    void rotate_UnknownToken_ThrowsException() {
+        when(refreshTokenRepository.findByTokenHashWithUser("hash-unknown")).thenReturn(Optional.empty());
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate("unknown"));
+    }
+}
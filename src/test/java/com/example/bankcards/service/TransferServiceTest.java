@@ -1,25 +1,33 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.SlicePage;
+import com.example.bankcards.dto.TotalMode;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
 import com.example.bankcards.entity.*;
+import com.example.bankcards.exception.CardNotActiveException;
 import com.example.bankcards.exception.CardNotOwnedException;
 import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.exception.TransferCancellationException;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
-import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.util.CardNumberMasker;
 import com.example.bankcards.util.EncryptionUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -39,10 +47,16 @@ class TransferServiceTest {
     private CardNumberMasker cardNumberMasker;
 
     @Mock
-    private UserRepository userRepository;
+    private EncryptionUtil encryptionUtil;
 
     @Mock
-    private EncryptionUtil encryptionUtil;
+    private ListingCountService listingCountService;
+
+    @Mock
+    private CardBalanceCache cardBalanceCache;
+
+    @Mock
+    private CardStatistics cardStatistics;
 
     @InjectMocks
     private TransferService transferService;
@@ -93,13 +107,14 @@ class TransferServiceTest {
 
     @Test
     void transferBetweenOwnCards_Success() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
         when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
         when(encryptionUtil.hash("4222222222222222")).thenReturn("hash2");
 
-        when(cardRepository.findByCardNumberHash("hash1")).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByCardNumberHash("hash2")).thenReturn(Optional.of(toCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(1L));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash2"))).thenReturn(Optional.of(2L));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         when(cardRepository.save(any(Card.class))).thenReturn(fromCard, toCard);
         when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> {
@@ -118,20 +133,27 @@ class TransferServiceTest {
         assertEquals(TransferStatus.COMPLETED, result.getStatus());
         assertEquals(BigDecimal.valueOf(900), fromCard.getBalance());
         assertEquals(BigDecimal.valueOf(600), toCard.getBalance());
+        assertEquals(1L, fromCard.getBalanceVersion());
+        assertEquals(1L, toCard.getBalanceVersion());
         verify(cardRepository, times(2)).save(any(Card.class));
+        verify(cardStatistics).balanceChanged(CardStatus.ACTIVE, BigDecimal.valueOf(-100));
+        verify(cardStatistics).balanceChanged(CardStatus.ACTIVE, BigDecimal.valueOf(100));
+        verify(cardBalanceCache).updated(fromCard);
+        verify(cardBalanceCache).updated(toCard);
         verify(transferRepository).save(any(Transfer.class));
     }
 
     @Test
     void transferBetweenOwnCards_InsufficientFunds_ThrowsException() {
         transferRequest.setAmount(BigDecimal.valueOf(2000));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
         when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
         when(encryptionUtil.hash("4222222222222222")).thenReturn("hash2");
 
-        when(cardRepository.findByCardNumberHash("hash1")).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByCardNumberHash("hash2")).thenReturn(Optional.of(toCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(1L));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash2"))).thenReturn(Optional.of(2L));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         assertThrows(InsufficientFundsException.class,
                 () -> transferService.transferBetweenOwnCards(transferRequest, 1L));
@@ -144,13 +166,14 @@ class TransferServiceTest {
         User otherUser = User.builder().id(2L).build();
         toCard.setOwner(otherUser);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
         when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
         when(encryptionUtil.hash("4222222222222222")).thenReturn("hash2");
 
-        when(cardRepository.findByCardNumberHash("hash1")).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByCardNumberHash("hash2")).thenReturn(Optional.of(toCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(1L));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash2"))).thenReturn(Optional.of(2L));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         assertThrows(CardNotOwnedException.class,
                 () -> transferService.transferBetweenOwnCards(transferRequest, 1L));
@@ -166,11 +189,11 @@ class TransferServiceTest {
                 "Test transfer"
         );
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
         when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
 
-        when(cardRepository.findByCardNumberHash("hash1")).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(1L));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
 
         assertThrows(IllegalArgumentException.class,
                 () -> transferService.transferBetweenOwnCards(sameCardRequest, 1L));
@@ -181,13 +204,14 @@ class TransferServiceTest {
     void transferBetweenOwnCards_CardExpired_ThrowsException() {
         fromCard.setExpirationDate(java.time.LocalDate.now().minusDays(1));
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
         when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
         when(encryptionUtil.hash("4222222222222222")).thenReturn("hash2");
 
-        when(cardRepository.findByCardNumberHash("hash1")).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByCardNumberHash("hash2")).thenReturn(Optional.of(toCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(1L));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash2"))).thenReturn(Optional.of(2L));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         Exception exception = assertThrows(RuntimeException.class,
                 () -> transferService.transferBetweenOwnCards(transferRequest, 1L));
@@ -207,8 +231,9 @@ class TransferServiceTest {
                 .transferDate(LocalDateTime.now().minusHours(12))
                 .build();
 
-        when(transferRepository.findById(1L)).thenReturn(Optional.of(transfer));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(transferRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(transfer));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
         when(cardRepository.save(any(Card.class))).thenReturn(fromCard, toCard);
 
         transferService.cancelTransfer(1L, 1L);
@@ -216,7 +241,10 @@ class TransferServiceTest {
         assertEquals(TransferStatus.CANCELLED, transfer.getStatus());
         assertEquals(BigDecimal.valueOf(1100), fromCard.getBalance());
         assertEquals(BigDecimal.valueOf(400), toCard.getBalance());
+        assertEquals(1L, fromCard.getBalanceVersion());
         verify(cardRepository, times(2)).save(any(Card.class));
+        verify(cardBalanceCache).updated(fromCard);
+        verify(cardBalanceCache).updated(toCard);
         verify(transferRepository).save(transfer);
     }
 
@@ -231,8 +259,7 @@ class TransferServiceTest {
                 .transferDate(LocalDateTime.now().minusDays(2))
                 .build();
 
-        when(transferRepository.findById(1L)).thenReturn(Optional.of(transfer));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(transferRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(transfer));
 
         assertThrows(TransferCancellationException.class,
                 () -> transferService.cancelTransfer(1L, 1L));
@@ -251,14 +278,77 @@ class TransferServiceTest {
                 .transferDate(LocalDateTime.now().minusHours(12))
                 .build();
 
-        when(transferRepository.findById(1L)).thenReturn(Optional.of(transfer));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(transferRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(transfer));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         assertThrows(InsufficientFundsException.class,
                 () -> transferService.cancelTransfer(1L, 1L));
         verify(cardRepository, never()).save(any(Card.class));
     }
 
+    @Test
+    void transferToCard_OtherUsersCard_LocksCardsInIdOrder() {
+        User otherUser = User.builder().id(2L).build();
+        toCard.setOwner(otherUser);
+        // Отправитель с большим id: блокировка все равно начинается с меньшего
+        fromCard.setId(5L);
+
+        when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
+        when(encryptionUtil.hash("4222222222222222")).thenReturn("hash2");
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(5L));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash2"))).thenReturn(Optional.of(2L));
+        when(cardRepository.findByIdForUpdate(5L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
+        when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        transferService.transferToCard(transferRequest, 1L);
+
+        InOrder locks = inOrder(cardRepository);
+        locks.verify(cardRepository).findByIdForUpdate(2L);
+        locks.verify(cardRepository).findByIdForUpdate(5L);
+        assertEquals(BigDecimal.valueOf(900), fromCard.getBalance());
+        assertEquals(BigDecimal.valueOf(600), toCard.getBalance());
+    }
+
+    @Test
+    void transferToCard_SourceNotOwned_ThrowsException() {
+        User otherUser = User.builder().id(2L).build();
+        fromCard.setOwner(otherUser);
+
+        when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
+        when(encryptionUtil.hash("4222222222222222")).thenReturn("hash2");
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(1L));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash2"))).thenReturn(Optional.of(2L));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
+
+        assertThrows(CardNotOwnedException.class,
+                () -> transferService.transferToCard(transferRequest, 1L));
+        verify(cardRepository, never()).save(any(Card.class));
+    }
+
+    @Test
+    void cancelTransfer_ToOtherUser_ThrowsException() {
+        toCard.setOwner(User.builder().id(2L).build());
+        Transfer transfer = Transfer.builder()
+                .id(1L)
+                .fromCard(fromCard)
+                .toCard(toCard)
+                .amount(BigDecimal.valueOf(100))
+                .status(TransferStatus.COMPLETED)
+                .transferDate(LocalDateTime.now().minusHours(1))
+                .build();
+
+        when(transferRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(transfer));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
+
+        assertThrows(TransferCancellationException.class,
+                () -> transferService.cancelTransfer(1L, 1L));
+        verify(cardRepository, never()).save(any(Card.class));
+    }
+
     @Test
     void transferExceedsMaxAmount_ShouldFail() {
         fromCard.setBalance(BigDecimal.valueOf(2000000));
@@ -270,11 +360,12 @@ class TransferServiceTest {
                 "Large transfer"
         );
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
         when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
         when(encryptionUtil.hash("4222222222222222")).thenReturn("hash2");
-        when(cardRepository.findByCardNumberHash("hash1")).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByCardNumberHash("hash2")).thenReturn(Optional.of(toCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(1L));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash2"))).thenReturn(Optional.of(2L));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         Exception exception = assertThrows(IllegalArgumentException.class,
                 () -> transferService.transferBetweenOwnCards(request, 1L));
@@ -292,11 +383,12 @@ class TransferServiceTest {
                 "Negative transfer"
         );
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
         when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
         when(encryptionUtil.hash("4222222222222222")).thenReturn("hash2");
-        when(cardRepository.findByCardNumberHash("hash1")).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByCardNumberHash("hash2")).thenReturn(Optional.of(toCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(1L));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash2"))).thenReturn(Optional.of(2L));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         Exception exception = assertThrows(IllegalArgumentException.class,
                 () -> transferService.transferBetweenOwnCards(request, 1L));
@@ -314,11 +406,12 @@ class TransferServiceTest {
                 "Zero transfer"
         );
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
         when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
         when(encryptionUtil.hash("4222222222222222")).thenReturn("hash2");
-        when(cardRepository.findByCardNumberHash("hash1")).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByCardNumberHash("hash2")).thenReturn(Optional.of(toCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(1L));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash2"))).thenReturn(Optional.of(2L));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         Exception exception = assertThrows(IllegalArgumentException.class,
                 () -> transferService.transferBetweenOwnCards(request, 1L));
@@ -338,11 +431,12 @@ class TransferServiceTest {
                 "Transfer from expired card"
         );
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
         when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
         when(encryptionUtil.hash("4222222222222222")).thenReturn("hash2");
-        when(cardRepository.findByCardNumberHash("hash1")).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByCardNumberHash("hash2")).thenReturn(Optional.of(toCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(1L));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash2"))).thenReturn(Optional.of(2L));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         Exception exception = assertThrows(RuntimeException.class,
                 () -> transferService.transferBetweenOwnCards(request, 1L));
@@ -363,17 +457,65 @@ class TransferServiceTest {
                 "Transfer to expired card"
         );
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
         when(encryptionUtil.hash("4111111111111111")).thenReturn("hash1");
         when(encryptionUtil.hash("4222222222222222")).thenReturn("hash2");
-        when(cardRepository.findByCardNumberHash("hash1")).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByCardNumberHash("hash2")).thenReturn(Optional.of(toCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash1"))).thenReturn(Optional.of(1L));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findIdByCardNumber(any(), eq("hash2"))).thenReturn(Optional.of(2L));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
-        Exception exception = assertThrows(RuntimeException.class,
+        Exception exception = assertThrows(CardNotActiveException.class,
                 () -> transferService.transferBetweenOwnCards(request, 1L));
 
-        assertTrue(exception.getMessage().contains("not active") ||
-                exception.getMessage().contains("expired"));
+        assertEquals("Destination card cannot accept transfers", exception.getMessage());
         verify(cardRepository, never()).save(any(Card.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void sliceUserTransfers_FullPage_UsesCachedTotalInsteadOfCount() {
+        Transfer transfer = Transfer.builder().id(10L).fromCard(fromCard).toCard(toCard)
+                .amount(BigDecimal.ONE).status(TransferStatus.COMPLETED).build();
+        PageRequest pageable = PageRequest.of(0, 1);
+        when(cardRepository.findIdsByOwnerId(1L)).thenReturn(List.of(1L, 2L));
+        when(transferRepository.findSliceByCardIds(List.of(1L, 2L), pageable))
+                .thenReturn(new SliceImpl<>(List.of(transfer), pageable, true));
+        when(listingCountService.cachedCount(eq("transfers:user:1"), any())).thenReturn(1L);
+
+        SlicePage<TransferResponse> page = transferService.sliceUserTransfers(1L, pageable, TotalMode.APPROXIMATE);
+
+        assertTrue(page.isHasNext());
+        // Устаревший счетчик поднимается до числа уже увиденных строк
+        assertEquals(2L, page.getTotalElements());
+        assertTrue(page.isTotalApproximate());
+        verify(transferRepository, never()).countByCardIds(any());
+    }
+
+    @Test
+    void sliceUserTransfers_LastPage_KnowsExactTotalWithoutCount() {
+        PageRequest pageable = PageRequest.of(1, 5);
+        Transfer transfer = Transfer.builder().id(10L).fromCard(fromCard).toCard(toCard)
+                .amount(BigDecimal.ONE).status(TransferStatus.COMPLETED).build();
+        when(cardRepository.findIdsByOwnerId(1L)).thenReturn(List.of(1L, 2L));
+        when(transferRepository.findSliceByCardIds(List.of(1L, 2L), pageable))
+                .thenReturn(new SliceImpl<>(List.of(transfer), pageable, false));
+
+        SlicePage<TransferResponse> page = transferService.sliceUserTransfers(1L, pageable, TotalMode.EXACT);
+
+        assertEquals(6L, page.getTotalElements());
+        assertFalse(page.isTotalApproximate());
+        verify(transferRepository, never()).countByCardIds(any());
+        verifyNoInteractions(listingCountService);
+    }
+
+    @Test
+    void sliceUserTransfers_NoneMode_OmitsTotal() {
+        PageRequest pageable = PageRequest.of(0, 20);
+        when(cardRepository.findIdsByOwnerId(1L)).thenReturn(List.of());
+
+        SlicePage<TransferResponse> page = transferService.sliceUserTransfers(1L, pageable, TotalMode.NONE);
+
+        assertTrue(page.getContent().isEmpty());
+        assertNull(page.getTotalElements());
+        verifyNoInteractions(transferRepository);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.event.UserSecurityChangedEvent;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserSecuritySnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserDetailsServiceImplTest {
+
+    private UserRepository userRepository;
+    private UserDetailsServiceImpl userDetailsService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userDetailsService = new UserDetailsServiceImpl(
+                userRepository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+
+        user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .password("encodedPassword")
+                .email("test@bank.com")
+                .fullName("Test User")
+                .roles(Set.of(Role.ROLE_USER))
+                .active(true)
+                .build();
+    }
+
+    @Test
+    void loadUserByUsername_SecondCall_IsServedFromCache() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        UserDetails first = userDetailsService.loadUserByUsername("testuser");
+        UserDetails second = userDetailsService.loadUserByUsername("testuser");
+
+        assertSame(first, second);
+        assertEquals(1L, ((UserSecuritySnapshot) first).getId());
+        verify(userRepository, times(1)).findByUsername("testuser");
+    }
+
+    @Test
+    void loadUserByUsername_AfterSecurityChange_ReloadsUser() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        userDetailsService.loadUserByUsername("testuser");
+
+        user.setActive(false);
+        userDetailsService.onUserSecurityChanged(new UserSecurityChangedEvent(1L, "testuser"));
+
+        assertFalse(userDetailsService.loadUserByUsername("testuser").isEnabled());
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    @Test
+    void loadUserByUsername_UnknownUser_ThrowsException() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class,
+                () -> userDetailsService.loadUserByUsername("ghost"));
+    }
+}
@@ -1,16 +1,23 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardBulkStatusReport;
+import com.example.bankcards.dto.CardBulkStatusRequest;
 import com.example.bankcards.dto.UserResponse;
+import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.event.UserSecurityChangedEvent;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.repository.RefreshTokenRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenRevocationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -23,6 +30,7 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +39,18 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    @Mock
+    private CardBulkStatusService cardBulkStatusService;
+
     @InjectMocks
     private UserService userService;
 
@@ -103,6 +123,24 @@ class UserServiceTest {
         assertFalse(testUser.isActive());
         verify(userRepository).findById(1L);
         verify(userRepository).save(testUser);
+        verify(tokenRevocationRegistry).revokeAllTokens(1L);
+        verify(refreshTokenRepository).revokeAllByUserId(eq(1L), any());
+        verify(eventPublisher).publishEvent(new UserSecurityChangedEvent(1L, testUser.getUsername()));
+        verifyNoInteractions(cardBulkStatusService);
+    }
+
+    @Test
+    void blockUser_WithCards_ShouldBlockOwnerCards() {
+        CardBulkStatusReport cards = CardBulkStatusReport.builder().targetStatus(CardStatus.BLOCKED).updated(2).build();
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(cardBulkStatusService.blockCards(CardBulkStatusRequest.byOwner(1L))).thenReturn(cards);
+
+        CardBulkStatusReport result = userService.blockUser(1L, true);
+
+        assertSame(cards, result);
+        assertFalse(testUser.isActive());
+        verify(tokenRevocationRegistry).revokeAllTokens(1L);
     }
 
     @Test
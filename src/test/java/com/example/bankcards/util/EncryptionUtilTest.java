@@ -0,0 +1,149 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.EncryptionProperties;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncryptionUtilTest {
+
+    private static final String KEY = "TestEncryptionKeyForTestsOnly123";
+
+    private final EncryptionUtil encryptionUtil = encryptionUtil("k1");
+
+    private static EncryptionUtil encryptionUtil(String activeKeyId) {
+        EncryptionProperties properties = new EncryptionProperties();
+        properties.setKey(KEY);
+        properties.setKeys(Map.of("k1", "first-key", "k2", "second-key"));
+        properties.setActiveKeyId(activeKeyId);
+        properties.setHmacKey("hmac-key");
+        return new EncryptionUtil(properties);
+    }
+
+    @Test
+    void hash_MatchesSha256Hex() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", encryptionUtil.hash("abc"));
+        assertEquals(32, encryptionUtil.hash("abc".getBytes(StandardCharsets.UTF_8)).length);
+    }
+
+    @Test
+    void decrypt_LegacyCiphertext_StillReadable() throws Exception {
+        byte[] key = Arrays.copyOf(MessageDigest.getInstance("SHA-256").digest(KEY.getBytes(StandardCharsets.UTF_8)), 16);
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+        String stored = Base64.getEncoder().encodeToString(cipher.doFinal("4111111111111111".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("4111111111111111", encryptionUtil.decrypt(stored));
+        assertTrue(encryptionUtil.needsReencryption(stored));
+    }
+
+    @Test
+    void encrypt_TagsCiphertextWithActiveKeyAndRandomIv() {
+        String first = encryptionUtil.encrypt("4111111111111111");
+        String second = encryptionUtil.encrypt("4111111111111111");
+
+        assertTrue(first.startsWith("v1:k1:"));
+        assertNotEquals(first, second);
+        assertEquals("4111111111111111", encryptionUtil.decrypt(first));
+        assertFalse(encryptionUtil.needsReencryption(first));
+    }
+
+    @Test
+    void decrypt_AfterKeyRotation_ReadsOldKeyAndReencrypts() {
+        String old = encryptionUtil.encrypt("4111111111111111");
+        EncryptionUtil rotated = encryptionUtil("k2");
+
+        assertEquals("4111111111111111", rotated.decrypt(old));
+        assertTrue(rotated.needsReencryption(old));
+        String reencrypted = rotated.reencrypt(old);
+        assertTrue(reencrypted.startsWith("v1:k2:"));
+        assertSame(reencrypted, rotated.reencrypt(reencrypted));
+        assertEquals("4111111111111111", rotated.decrypt(reencrypted));
+    }
+
+    @Test
+    void decrypt_TamperedOrUnknownKey_Fails() {
+        String encrypted = encryptionUtil.encrypt("4111111111111111");
+        char last = encrypted.charAt(encrypted.length() - 3);
+        String tampered = encrypted.substring(0, encrypted.length() - 3) + (last == 'A' ? 'B' : 'A')
+                + encrypted.substring(encrypted.length() - 2);
+
+        assertThrows(RuntimeException.class, () -> encryptionUtil.decrypt(tampered));
+        assertThrows(RuntimeException.class, () -> encryptionUtil.decrypt(encrypted.replace("v1:k1:", "v1:k9:")));
+    }
+
+    @Test
+    void encryptBytes_RoundTripsThroughBinaryEnvelope() {
+        byte[] data = "4111111111111111".getBytes(StandardCharsets.UTF_8);
+        byte[] encrypted = encryptionUtil.encrypt(data);
+        EncryptionUtil rotated = encryptionUtil("k2");
+
+        assertEquals(1, encrypted[0]);
+        assertEquals(2 + 2 + 12 + data.length + 16, encrypted.length);
+        assertArrayEquals(data, rotated.decrypt(encrypted));
+        assertFalse(encryptionUtil.needsReencryption(encrypted));
+        assertTrue(rotated.needsReencryption(encrypted));
+        assertFalse(rotated.needsReencryption(rotated.reencrypt(encrypted)));
+    }
+
+    @Test
+    void hmac_IsKeyedAndThirtyTwoBytes() {
+        byte[] hmac = encryptionUtil.hmac("4111111111111111");
+
+        assertEquals(32, hmac.length);
+        assertArrayEquals(hmac, encryptionUtil("k2").hmac("4111111111111111"));
+        assertFalse(Arrays.equals(hmac, encryptionUtil.hash("4111111111111111".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void decrypt_AfterFailure_CipherStillUsable() {
+        assertThrows(RuntimeException.class, () -> encryptionUtil.decrypt(new byte[]{1, 2, 3}));
+        assertThrows(RuntimeException.class, () -> encryptionUtil.decrypt(new byte[]{1, 2, 'k', '1', 0, 0}));
+
+        assertEquals("123", encryptionUtil.decrypt(encryptionUtil.encrypt("123")));
+    }
+
+    @Test
+    void constructor_ActiveKeyMissing_Fails() {
+        assertThrows(IllegalStateException.class, () -> encryptionUtil("k3"));
+    }
+
+    @Test
+    void encryptAndHash_AreThreadSafe() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        String value = thread + "-" + i;
+                        if (!value.equals(encryptionUtil.decrypt(encryptionUtil.encrypt(value)))
+                                || !encryptionUtil.hash(value).equals(encryptionUtil.hash(value))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
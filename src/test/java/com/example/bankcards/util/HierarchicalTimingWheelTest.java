@@ -0,0 +1,75 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 1_000;
+
+    @Test
+    void advance_FiresEveryEntryOnceAtItsTick() {
+        Random random = new Random(7);
+        long start = 1_700_000_000_123L;
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(TICK, 8, 4, start);
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (long id = 1; id <= 5_000; id++) {
+            long deadline = start + (long) (random.nextDouble() * wheel.horizonMillis());
+            assertTrue(wheel.schedule(id, deadline));
+            deadlines.put(id, deadline);
+        }
+
+        long now = start;
+        Map<Long, Long> firedAt = new HashMap<>();
+        while (firedAt.size() < deadlines.size()) {
+            now += 1 + random.nextInt(40) * TICK;
+            for (Long id : wheel.advance(now)) {
+                assertNull(firedAt.put(id, now), "fired twice: " + id);
+            }
+            // После срабатывания тика ни один наступивший срок не остается в колесе
+            long nowTick = now / TICK;
+            for (Map.Entry<Long, Long> entry : deadlines.entrySet()) {
+                if (entry.getValue() / TICK <= nowTick) {
+                    assertTrue(firedAt.containsKey(entry.getKey()), "late: " + entry.getKey());
+                }
+            }
+        }
+        firedAt.forEach((id, at) -> assertTrue(at / TICK >= deadlines.get(id) / TICK, "early: " + id));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedule_RescheduleAndCancel() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(TICK, 64, 4, 0);
+        wheel.schedule(1, 10 * TICK);
+        wheel.schedule(2, 10 * TICK);
+        wheel.schedule(3, 100_000 * TICK);
+        wheel.schedule(1, 5_000 * TICK);
+        wheel.cancel(2);
+
+        assertEquals(List.of(), wheel.advance(10 * TICK));
+        assertEquals(List.of(1L), wheel.advance(5_000 * TICK));
+        wheel.schedule(3, 6_000 * TICK);
+        assertEquals(List.of(3L), wheel.advance(200_000 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedule_PastDeadlineFiresOnNextAdvance_BeyondHorizonRejected() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(TICK, 64, 2, 100 * TICK);
+
+        assertTrue(wheel.schedule(1, 50 * TICK));
+        assertFalse(wheel.schedule(2, 100 * TICK + wheel.horizonMillis() + 64 * TICK));
+
+        List<Long> due = new ArrayList<>(wheel.advance(100 * TICK));
+        assertEquals(List.of(1L), due);
+        assertFalse(wheel.isScheduled(2));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void decode_RestoresEncodedPosition() {
+        LocalDateTime requestedAt = LocalDateTime.of(2024, 3, 15, 10, 30, 45, 123_456_000);
+        KeysetCursor cursor = KeysetCursor.of(requestedAt, 42L);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+        assertEquals(requestedAt, decoded.sortKeyAsTimestamp());
+        assertEquals(42L, decoded.id());
+    }
+
+    @Test
+    void decode_EmptyCursorMeansFirstPage() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(""));
+    }
+
+    @Test
+    void decode_RejectsMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("AAAA"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private static final String[] NAMES = {"IVAN PETROV", "ANNA IVANOVA", "PETR SIDOROV", "ИВАН ИВАНОВ", "MARIA KUZNETSOVA"};
+
+    @Test
+    void search_MatchesEverySubstringCaseInsensitively() {
+        Random random = new Random(42);
+        TrigramIndex index = new TrigramIndex();
+        List<String> documents = new ArrayList<>();
+        for (int id = 1; id <= 5_000; id++) {
+            String name = NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(100);
+            String lastFour = String.format("%04d", random.nextInt(10_000));
+            documents.add(name.toLowerCase(Locale.ROOT) + "|" + lastFour);
+            index.add(id, name, lastFour);
+        }
+
+        for (String query : List.of("ivan", "Иван", "ova 7", "123", "0042", "petrov 1", "zzz")) {
+            String needle = query.toLowerCase(Locale.ROOT);
+            List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < documents.size(); i++) {
+                String[] fields = documents.get(i).split("\\|");
+                if (fields[0].contains(needle) || fields[1].contains(needle)) {
+                    expected.add(i + 1L);
+                }
+            }
+
+            List<Long> found = index.search(query, 0, Integer.MAX_VALUE);
+            assertTrue(found.containsAll(expected), query);
+            assertEquals(found.stream().sorted().distinct().toList(), found, query);
+        }
+    }
+
+    @Test
+    void search_ContinuesAfterIdInPages() {
+        TrigramIndex index = new TrigramIndex();
+        for (int id = 1; id <= 1_000; id++) {
+            index.add(id * 3L, id % 2 == 0 ? "ANNA IVANOVA" : "PETR SIDOROV", "0000");
+        }
+
+        List<Long> all = index.search("anna", 0, Integer.MAX_VALUE);
+        List<Long> paged = new ArrayList<>();
+        long afterId = 0;
+        List<Long> page;
+        do {
+            page = index.search("anna", afterId, 37);
+            paged.addAll(page);
+            afterId = page.isEmpty() ? afterId : page.get(page.size() - 1);
+        } while (page.size() == 37);
+
+        assertEquals(500, all.size());
+        assertEquals(all, paged);
+    }
+
+    @Test
+    void filter_RemoveAndReindex() {
+        TrigramIndex index = new TrigramIndex();
+        for (int id = 1; id <= 200; id++) {
+            index.add(id, "HOLDER " + id, "1234");
+        }
+        index.compact();
+
+        index.remove(7);
+        // Переименование старой карты: вставка в середину сжатого списка
+        index.add(150, "ANNA IVANOVA", "1234");
+
+        assertFalse(index.search("holder 7", 0, 10).contains(7L));
+        assertEquals(List.of(150L), index.search("anna", 0, 10));
+        assertEquals(List.of(8L, 150L), index.filter(List.of(150L, 7L, 8L), "1234"));
+        assertEquals(List.of(), index.filter(List.of(1L, 2L), "anna"));
+    }
+
+    @Test
+    void search_ShortQueryRejected() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "IVAN PETROV", "1234");
+
+        assertFalse(TrigramIndex.isSearchable(" iv "));
+        assertThrows(IllegalArgumentException.class, () -> index.search("iv", 0, 10));
+    }
+}